@@ -0,0 +1,40 @@
+package com.careconnect.config;
+
+import com.careconnect.service.AchievementRule;
+
+import java.util.List;
+
+import static com.careconnect.service.UserActivityEvent.Type.*;
+
+/**
+ * Every achievement users can earn. Rule keys are stored with per-user progress, so they
+ * must not change once released; titles, descriptions and rewards may.
+ */
+public final class AchievementCatalog {
+
+    public static final List<AchievementRule> RULES = List.of(
+            AchievementRule.count("verified-email", EMAIL_VERIFIED, 1, 10,
+                    "Verified Email", "Awarded for verifying your email.", "verified-icon.png"),
+            AchievementRule.count("first-login", LOGIN, 1, 10,
+                    "First Login", "Awarded for logging in for the first time.", "login-icon.png"),
+            AchievementRule.streak("login-streak-7", LOGIN, 7, 50,
+                    "Week Streak", "Logged in seven days in a row.", "streak-icon.png"),
+            AchievementRule.count("first-mood-log", MOOD_LOG, 1, 10,
+                    "First Check-In", "Logged your mood and pain for the first time.", "mood-icon.png"),
+            AchievementRule.streak("mood-streak-7", MOOD_LOG, 7, 70,
+                    "Mood Streak", "Logged your mood seven days in a row.", "mood-streak-icon.png"),
+            AchievementRule.count("mood-logs-50", MOOD_LOG, 50, 100,
+                    "Mood Journal", "Logged your mood 50 times.", "journal-icon.png"),
+            AchievementRule.count("first-vitals", VITAL_SAMPLE, 1, 10,
+                    "First Vitals", "Recorded your first vital signs.", "vitals-icon.png"),
+            AchievementRule.count("vitals-100", VITAL_SAMPLE, 100, 100,
+                    "Vitals Tracker", "Recorded 100 vital sign readings.", "vitals-tracker-icon.png"),
+            AchievementRule.count("first-medication", MEDICATION_ADDED, 1, 10,
+                    "Medication Organized", "Added your first medication.", "medication-icon.png"),
+            AchievementRule.xpThreshold("level-5", 400, 0,
+                    "Rising Star", "Reached level 5.", "star-icon.png")
+    );
+
+    private AchievementCatalog() {
+    }
+}
@@ -2,6 +2,7 @@ package com.careconnect.config;
 
 import com.careconnect.model.Achievement;
 import com.careconnect.repository.AchievementRepository;
+import com.careconnect.service.AchievementRule;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -15,8 +16,9 @@ public class AchievementInitializer {
     @PostConstruct
     public void initAchievements() {
         try {
-            createAchievementIfNotExists("Verified Email", "Awarded for verifying your email.", "verified-icon.png");
-            createAchievementIfNotExists("First Login", "Awarded for logging in for the first time.", "login-icon.png");
+            for (AchievementRule rule : AchievementCatalog.RULES) {
+                createAchievementIfNotExists(rule.title(), rule.description(), rule.icon());
+            }
         } catch (Exception e) {
             // Log the error but don't fail application startup
             System.err.println("Failed to initialize achievements: " + e.getMessage());
@@ -1,13 +1,18 @@
 package com.careconnect.config;
 
+import com.careconnect.dto.S3Props;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.regions.providers.DefaultAwsRegionProviderChain;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.ssm.SsmClient;
 
+import java.net.URI;
+
 @Configuration
 public class AwsAccessConfig {
 
@@ -24,11 +29,27 @@ public class AwsAccessConfig {
     }
 
     @Bean
-    public S3Client s3Client() {
-        return S3Client.builder()
+    public S3Client s3Client(S3Props s3Props) {
+        var builder = S3Client.builder()
                 .region(defaultAwsRegion())
                 .credentialsProvider(awsCredentialsProvider())
-                .build();
+                .serviceConfiguration(s3Configuration(s3Props));
+        if (hasEndpointOverride(s3Props)) {
+            builder.endpointOverride(URI.create(s3Props.getEndpoint()));
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public S3Presigner s3Presigner(S3Props s3Props) {
+        var builder = S3Presigner.builder()
+                .region(defaultAwsRegion())
+                .credentialsProvider(awsCredentialsProvider())
+                .serviceConfiguration(s3Configuration(s3Props));
+        if (hasEndpointOverride(s3Props)) {
+            builder.endpointOverride(URI.create(s3Props.getEndpoint()));
+        }
+        return builder.build();
     }
 
     @Bean
@@ -38,4 +59,14 @@ public class AwsAccessConfig {
                 .region(defaultAwsRegion())
                 .build();
     }
+
+    private S3Configuration s3Configuration(S3Props s3Props) {
+        return S3Configuration.builder()
+                .pathStyleAccessEnabled(s3Props.isPathStyleAccess())
+                .build();
+    }
+
+    private boolean hasEndpointOverride(S3Props s3Props) {
+        return s3Props.getEndpoint() != null && !s3Props.getEndpoint().isBlank();
+    }
 }
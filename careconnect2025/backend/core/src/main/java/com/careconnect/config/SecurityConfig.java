@@ -2,6 +2,7 @@ package com.careconnect.config;
 
 import com.careconnect.security.JwtAuthenticationFilter;
 import com.careconnect.security.JwtTokenProvider;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -38,6 +39,9 @@ public class SecurityConfig {
                 .authenticationEntryPoint((req, res, e) ->
                     res.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Unauthorized")))
             .authorizeHttpRequests(auth -> auth
+                /* ---------- completion of already-authorized streaming responses ---------- */
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                 /* ---------- Swagger/OpenAPI documentation - MUST BE FIRST --------------- */
                 .requestMatchers(
                         "/swagger-ui/**",
@@ -22,6 +22,7 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 import java.util.List;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/api/comments")
@@ -29,6 +30,9 @@ import java.util.List;
 @SecurityRequirement(name = "JWT Authentication")
 public class CommentController {
 
+    private static final int MAX_BATCH_POSTS = 100;
+    private static final int MAX_LATEST_PER_POST = 20;
+
     @Autowired
     private CommentService commentService;
 
@@ -79,6 +83,36 @@ public class CommentController {
         return ResponseEntity.ok(comments);
     }
 
+    @GetMapping("/batch")
+    @Operation(
+        summary = "Get comments for several posts",
+        description = "Comment counts and the latest comments of each requested post, in one request. Intended for rendering a feed page."
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Comments retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "No post ids, or too many"),
+        @ApiResponse(responseCode = "403", description = "Not authenticated")
+    })
+    public ResponseEntity<?> getCommentsForPosts(
+        @Parameter(description = "Comma-separated post ids (max " + MAX_BATCH_POSTS + ")", required = true)
+        @RequestParam("postIds") List<Long> postIds,
+        @Parameter(description = "Latest comments to return per post (max " + MAX_LATEST_PER_POST + ")")
+        @RequestParam(value = "latest", defaultValue = "3") int latest
+    ) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not authenticated");
+        }
+
+        List<Long> distinctIds = postIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinctIds.isEmpty() || distinctIds.size() > MAX_BATCH_POSTS) {
+            return ResponseEntity.badRequest().body("Between 1 and " + MAX_BATCH_POSTS + " post ids are required");
+        }
+
+        int perPost = Math.max(0, Math.min(latest, MAX_LATEST_PER_POST));
+        return ResponseEntity.ok(commentService.getCommentsForPosts(distinctIds, perPost));
+    }
+
     @PostMapping("/post/{postId}")
     public ResponseEntity<?> addCommentToPost(
             @PathVariable Long postId,
@@ -1,8 +1,10 @@
 package com.careconnect.controller;
 
+import com.careconnect.service.EmailOutboxWorker;
 import com.careconnect.service.EmailTestService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Collections;
@@ -15,6 +17,9 @@ public class EmailTestController {
     @Autowired
     private EmailTestService emailTestService;
 
+    @Autowired
+    private EmailOutboxWorker emailOutboxWorker;
+
     /**
      * Test email configuration and send a test email
      * POST /v1/api/email-test/send
@@ -99,4 +104,26 @@ public class EmailTestController {
         Map<String, Object> response = emailTestService.testSimpleEmail(email);
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Outbox counts by status
+     * GET /v1/api/email-test/outbox
+     */
+    @GetMapping("/outbox")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getOutboxStatus() {
+        return ResponseEntity.ok(Map.of("data", emailOutboxWorker.getStatus()));
+    }
+
+    /**
+     * Emails that ran out of delivery attempts, newest first. Their bodies are dropped when
+     * they die, so the originating flow (e.g. a password reset) has to be repeated.
+     * GET /v1/api/email-test/outbox/dead?page=0&size=50
+     */
+    @GetMapping("/outbox/dead")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getDeadLetters(@RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(Map.of("data", emailOutboxWorker.getDeadLetters(page, size)));
+    }
 }
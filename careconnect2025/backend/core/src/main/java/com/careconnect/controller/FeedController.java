@@ -1,13 +1,18 @@
 package com.careconnect.controller;
 import org.springframework.beans.factory.annotation.Value;
+import com.careconnect.dto.FeedPage;
 import com.careconnect.model.Post;
 import com.careconnect.service.FeedService;
+import com.careconnect.service.FeedTimelineCache;
+import com.careconnect.service.ImageDerivativeService;
 import com.careconnect.repository.UserRepository;
 import com.careconnect.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
@@ -25,8 +30,12 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/api/feed")
@@ -43,10 +52,21 @@ public class FeedController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    private FeedTimelineCache feedTimelineCache;
+
+    private static final Pattern SAFE_FILENAME = Pattern.compile("[A-Za-z0-9._-]+");
+
+    // Cursor for the page after the one returned, on endpoints that return a bare array
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @GetMapping("/all")
     @Operation(
         summary = "Get global feed",
-        description = "Retrieve all posts from the global feed. Requires authentication."
+        description = "Retrieve a page of the global feed, newest first. Pass the X-Next-Cursor response header as 'before' for the next page. Requires authentication."
     )
     @ApiResponses({
         @ApiResponse(
@@ -81,18 +101,54 @@ public class FeedController {
             )
         )
     })
-    public ResponseEntity<?> getGlobalFeed() {
+    public ResponseEntity<?> getGlobalFeed(
+            @Parameter(description = "Cursor from the previous page") @RequestParam(value = "before", required = false) String before,
+            @Parameter(description = "Page size (max 100)") @RequestParam(value = "limit", required = false) Integer limit
+    ) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not authenticated");
         }
 
-        List<Post> posts = feedService.getAllPosts();
-        return ResponseEntity.ok(posts);
+        try {
+            return pageAsList(feedService.getGlobalFeed(before, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/timeline")
+    @Operation(
+        summary = "Get timeline",
+        description = "Retrieve a page of posts by the current user and their friends, newest first, with comment counts and the latest comments of each post."
+    )
+    public ResponseEntity<?> getTimeline(
+            @Parameter(description = "Cursor from the previous page") @RequestParam(value = "before", required = false) String before,
+            @Parameter(description = "Page size (max 100)") @RequestParam(value = "limit", required = false) Integer limit
+    ) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not authenticated");
+        }
+
+        User user = userRepository.findByEmail(authentication.getName()).orElse(null);
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("User not found");
+        }
+
+        try {
+            return ResponseEntity.ok(feedService.getTimeline(user.getId(), before, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<?> getUserFeed(@PathVariable Long userId) {
+    public ResponseEntity<?> getUserFeed(
+            @PathVariable Long userId,
+            @RequestParam(value = "before", required = false) String before,
+            @RequestParam(value = "limit", required = false) Integer limit
+    ) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not authenticated");
@@ -110,8 +166,11 @@ public class FeedController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access denied");
         }
 
-        List<Post> posts = feedService.getPostsByUser(userId);
-        return ResponseEntity.ok(posts);
+        try {
+            return pageAsList(feedService.getUserFeed(userId, before, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @PostMapping(value = "/create", consumes = "multipart/form-data")
@@ -160,7 +219,13 @@ public class FeedController {
                 }
                 String filename = UUID.randomUUID() + extension;
                 File destination = new File(uploadFolder, filename);
-                imageFile.transferTo(destination);
+                if (ImageDerivativeService.isImage(imageFile.getContentType())) {
+                    // Strip camera metadata before the photo becomes public, then render sizes in the background
+                    Files.write(destination.toPath(), imageDerivativeService.sanitizeOriginal(imageFile.getBytes()));
+                    imageDerivativeService.renderLocalVariantsAsync(destination.toPath());
+                } else {
+                    imageFile.transferTo(destination);
+                }
                 imageUrl = "/uploads/" + filename; // URL for client
             }
 
@@ -175,5 +240,54 @@ public class FeedController {
                     .body("Error creating post: " + e.getMessage());
         }
     }
-}
 
+    @GetMapping("/images/{filename}")
+    @Operation(
+        summary = "Get a feed image",
+        description = "Serve a feed photo, or the closest pre-rendered variant when a width is given"
+    )
+    public ResponseEntity<?> getImage(
+            @PathVariable String filename,
+            @Parameter(description = "Preferred width in pixels") @RequestParam(value = "size", required = false) Integer size
+    ) {
+        if (!SAFE_FILENAME.matcher(filename).matches()) {
+            return ResponseEntity.badRequest().body("Invalid file name");
+        }
+        Path root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path original = root.resolve(filename).normalize();
+        if (!original.startsWith(root) || !Files.isRegularFile(original)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Path served = imageDerivativeService.resolveLocalVariant(original, size);
+        MediaType mediaType;
+        try {
+            String probed = Files.probeContentType(served);
+            mediaType = probed != null ? MediaType.parseMediaType(probed) : MediaType.APPLICATION_OCTET_STREAM;
+        } catch (IOException e) {
+            mediaType = MediaType.APPLICATION_OCTET_STREAM;
+        }
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .body(new FileSystemResource(served));
+    }
+
+    @GetMapping("/cache/stats")
+    @Operation(summary = "Feed cache statistics", description = "Hit/miss counters and sizes of the in-memory timeline cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getCacheStats() {
+        return ResponseEntity.ok(Map.of(
+                "data", feedTimelineCache.getStats(),
+                "message", "Feed cache statistics retrieved"
+        ));
+    }
+
+    // Existing clients expect a bare array of posts; the cursor travels in a header
+    private ResponseEntity<?> pageAsList(FeedPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getPosts());
+    }
+}
@@ -1,5 +1,8 @@
 package com.careconnect.controller;
 
+import com.careconnect.dto.DirectUploadCompleteRequest;
+import com.careconnect.dto.DirectUploadRequest;
+import com.careconnect.dto.DirectUploadResponse;
 import com.careconnect.dto.FileUploadResponse;
 import com.careconnect.dto.UserFileDTO;
 import com.careconnect.service.S3StorageService;
@@ -8,7 +11,12 @@ import com.careconnect.repository.UserRepository;
 import com.careconnect.model.User;
 import com.careconnect.security.Role;
 import com.careconnect.service.CaregiverService;
+import com.careconnect.service.FileContentCache;
+import com.careconnect.service.ImageDerivativeService;
+import com.careconnect.model.ImageVariant;
 import com.careconnect.service.PatientService;
+import com.careconnect.service.StorageStream;
+import com.careconnect.service.StorageTieringService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -19,18 +27,24 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.time.ZoneId;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import com.careconnect.model.Patient;
@@ -50,6 +64,13 @@ public class FileController {
     private final PatientRepository patientRepository;
     private final CaregiverService caregiverService;
     private final PatientService patientService;
+    private final StorageTieringService storageTieringService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final FileContentCache fileContentCache;
+    
+    // Versioned URLs never change content; unversioned ones are revalidated (cheap with a 304)
+    private static final String CACHE_IMMUTABLE = "private, max-age=31536000, immutable";
+    private static final String CACHE_REVALIDATE = "private, no-cache";
     
     @Value("${app.file.storage.use-s3:false}")
     private boolean useS3ForLegacyEndpoints;
@@ -104,16 +125,27 @@ public class FileController {
     }
     
     /**
-     * Download a file by ID
+     * Download a file by ID. Supports single byte-range requests so interrupted downloads can resume,
+     * and conditional requests (ETag / Last-Modified) so unchanged content costs a 304.
      */
     @GetMapping("/{fileId}/download")
-    @Operation(summary = "Download a file", description = "Download file content by file ID")
+    @Operation(summary = "Download a file", description = "Stream file content by file ID, honouring a single HTTP Range")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "File downloaded successfully"),
+        @ApiResponse(responseCode = "206", description = "Requested byte range returned"),
+        @ApiResponse(responseCode = "304", description = "Content not modified since the cached copy"),
         @ApiResponse(responseCode = "403", description = "Access denied"),
-        @ApiResponse(responseCode = "404", description = "File not found")
+        @ApiResponse(responseCode = "404", description = "File not found"),
+        @ApiResponse(responseCode = "416", description = "Requested range not satisfiable")
     })
-    public ResponseEntity<?> downloadFile(@PathVariable Long fileId) {
+    public ResponseEntity<?> downloadFile(
+            @PathVariable Long fileId,
+            @Parameter(description = "Preferred image width in pixels; serves the closest pre-rendered variant")
+            @RequestParam(value = "size", required = false) Integer size,
+            @Parameter(description = "Content version from a profile image URL; makes the response cacheable indefinitely")
+            @RequestParam(value = "v", required = false) String version,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+            @RequestHeader HttpHeaders requestHeaders) {
         try {
             User currentUser = getCurrentUser();
             
@@ -131,14 +163,94 @@ public class FileController {
                         .body(Map.of("error", "Not authorized to access this file"));
             }
             
-            // Download file content
-            byte[] content = fileManagementService.downloadFile(fileId);
+            Optional<ImageVariant> variant = size != null && size > 0
+                    ? imageDerivativeService.findVariant(fileId, size)
+                    : Optional.empty();
+            
+            // The original stands in for an image variant that is not rendered yet. It must not be
+            // cached or revalidated under the variant's URL, so it gets no validators at all
+            boolean variantPending = size != null && size > 0 && variant.isEmpty()
+                    && ImageDerivativeService.isImage(fileDto.getContentType());
+            
+            // A file ID's content never changes, so its hash (or the ID itself) is a strong validator;
+            // answer conditional requests before any content is loaded
+            String etag = variantPending ? null
+                    : "\"" + (fileDto.getContentHash() != null ? fileDto.getContentHash() : "file-" + fileId)
+                    + variant.map(v -> "-w" + v.getWidth()).orElse("") + "\"";
+            long lastModified = !variantPending && fileDto.getUploadedAt() != null
+                    ? fileDto.getUploadedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : -1;
+            String cacheControl = version != null && !variantPending ? CACHE_IMMUTABLE : CACHE_REVALIDATE;
+            if (etag != null && isNotModified(requestHeaders, etag, lastModified)) {
+                ResponseEntity.HeadersBuilder<?> notModified = ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .header(HttpHeaders.CACHE_CONTROL, cacheControl);
+                if (lastModified >= 0) {
+                    notModified.lastModified(lastModified);
+                }
+                return notModified.build();
+            }
             
-            return ResponseEntity.ok()
+            // Resized image variants are small and served whole; fall back to the original until rendered
+            if (variant.isPresent()) {
+                return cachedOrStreamed(fileId, variant.get().getWidth(), variant.get().getSizeBytes(),
+                        variant.get().getContentType(), etag, lastModified, cacheControl,
+                        () -> imageDerivativeService.openVariant(variant.get()));
+            }
+            
+            // Small images (avatars, thumbnails) are kept in memory; documents are always streamed
+            if (rangeHeader == null && ImageDerivativeService.isImage(fileDto.getContentType())
+                    && fileDto.getFileSize() != null && fileContentCache.accepts(fileDto.getFileSize())) {
+                return cachedOrStreamed(fileId, 0, fileDto.getFileSize(), fileDto.getContentType(),
+                        etag, lastModified, cacheControl, () -> fileManagementService.openFileStream(fileId, 0, -1));
+            }
+            
+            // Resolve the requested range against the recorded size; multi-range requests get the whole file
+            long totalSize = fileDto.getFileSize() != null ? fileDto.getFileSize() : -1;
+            HttpRange range = null;
+            if (rangeHeader != null && totalSize >= 0) {
+                try {
+                    List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                    if (ranges.size() == 1) {
+                        range = ranges.get(0);
+                        range.getRangeStart(totalSize);
+                    }
+                } catch (IllegalArgumentException e) {
+                    return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + totalSize)
+                            .build();
+                }
+            }
+            
+            StorageStream stream;
+            if (range != null) {
+                long start = range.getRangeStart(totalSize);
+                long end = range.getRangeEnd(totalSize);
+                stream = fileManagementService.openFileStream(fileId, start, end - start + 1);
+            } else {
+                stream = fileManagementService.openFileStream(fileId, 0, -1);
+            }
+            
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(range != null ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
                     .contentType(MediaType.parseMediaType(fileDto.getContentType()))
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
                     .header(HttpHeaders.CONTENT_DISPOSITION, 
                             "attachment; filename=\"" + fileDto.getOriginalFilename() + "\"")
-                    .body(content);
+                    .header(HttpHeaders.CACHE_CONTROL, cacheControl);
+            if (etag != null) {
+                response.eTag(etag);
+            }
+            if (lastModified >= 0) {
+                response.lastModified(lastModified);
+            }
+            if (stream.length() >= 0) {
+                response.contentLength(stream.length());
+            }
+            if (range != null) {
+                response.header(HttpHeaders.CONTENT_RANGE, "bytes " + stream.offset() + "-"
+                        + (stream.offset() + stream.length() - 1) + "/" + stream.totalLength());
+            }
+            return response.body(streamBody(stream));
                     
         } catch (Exception e) {
             log.error("Error downloading file: {}", fileId, e);
@@ -147,6 +259,116 @@ public class FileController {
         }
     }
     
+    /**
+     * Start a direct-to-storage upload
+     */
+    @PostMapping("/direct-upload")
+    @Operation(summary = "Start a direct upload", description = "Get a presigned URL to PUT a large file straight to object storage")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Presigned upload URL issued"),
+        @ApiResponse(responseCode = "400", description = "Invalid file parameters"),
+        @ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    public ResponseEntity<?> initiateDirectUpload(@RequestBody DirectUploadRequest request) {
+        try {
+            User currentUser = getCurrentUser();
+            
+            if (request.patientId() != null && !hasAccessToPatient(currentUser, request.patientId())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "Not authorized to upload files for this patient"));
+            }
+            
+            DirectUploadResponse response = fileManagementService.initiateDirectUpload(
+                    request, currentUser.getId(), currentUser.getRole().name());
+            
+            return ResponseEntity.ok(Map.of(
+                    "data", response,
+                    "message", "Upload URL issued"
+            ));
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error issuing direct upload URL", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to start upload"));
+        }
+    }
+    
+    /**
+     * Record a completed direct-to-storage upload
+     */
+    @PostMapping("/direct-upload/complete")
+    @Operation(summary = "Complete a direct upload", description = "Record metadata for a file uploaded with a presigned URL")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "File recorded successfully"),
+        @ApiResponse(responseCode = "400", description = "Unknown or foreign object key"),
+        @ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    public ResponseEntity<?> completeDirectUpload(@RequestBody DirectUploadCompleteRequest request) {
+        try {
+            User currentUser = getCurrentUser();
+            
+            if (request.patientId() != null && !hasAccessToPatient(currentUser, request.patientId())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "Not authorized to upload files for this patient"));
+            }
+            
+            FileUploadResponse response = fileManagementService.completeDirectUpload(
+                    request, currentUser.getId(), currentUser.getRole().name());
+            
+            return ResponseEntity.ok(Map.of(
+                    "data", response,
+                    "message", "File uploaded successfully"
+            ));
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error completing direct upload", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to complete upload"));
+        }
+    }
+    
+    /**
+     * Get a URL to download a file from directly
+     */
+    @GetMapping("/{fileId}/download-url")
+    @Operation(summary = "Get a download URL", description = "Short-lived presigned URL for object-store files, or the download endpoint for database files")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Download URL issued"),
+        @ApiResponse(responseCode = "403", description = "Access denied"),
+        @ApiResponse(responseCode = "404", description = "File not found")
+    })
+    public ResponseEntity<?> getDownloadUrl(@PathVariable Long fileId) {
+        try {
+            User currentUser = getCurrentUser();
+            
+            Optional<UserFileDTO> fileOpt = fileManagementService.getFile(fileId);
+            if (fileOpt.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            
+            if (!hasAccessToFile(currentUser, fileOpt.get())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "Not authorized to access this file"));
+            }
+            
+            return ResponseEntity.ok(Map.of(
+                    "data", Map.of("url", fileManagementService.getDownloadUrl(fileId)),
+                    "message", "Download URL issued"
+            ));
+            
+        } catch (Exception e) {
+            log.error("Error issuing download URL for file: {}", fileId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to issue download URL"));
+        }
+    }
+    
     /**
      * List files for current user
      */
@@ -282,10 +504,15 @@ public class FileController {
                         .body(Map.of("error", "No profile image found"));
             }
             
-            return ResponseEntity.ok(Map.of(
-                    "data", profileImage.get(),
-                    "message", "Profile image retrieved successfully"
-            ));
+            // A new profile image is a new file ID, so the ID identifies this response; Spring answers
+            // a matching If-None-Match with 304
+            return ResponseEntity.ok()
+                    .eTag("\"profile-" + profileImage.get().getId() + "\"")
+                    .header(HttpHeaders.CACHE_CONTROL, CACHE_REVALIDATE)
+                    .body(Map.of(
+                            "data", profileImage.get(),
+                            "message", "Profile image retrieved successfully"
+                    ));
             
         } catch (Exception e) {
             log.error("Error getting profile image", e);
@@ -294,6 +521,34 @@ public class FileController {
         }
     }
     
+    // ==================== STORAGE TIERING (ADMIN) ====================
+
+    @GetMapping("/admin/tiering")
+    @Operation(summary = "Storage tiering status", description = "Progress of moving database-stored files to object storage")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getTieringStatus() {
+        return ResponseEntity.ok(Map.of(
+                "data", storageTieringService.getStatus(),
+                "message", "Storage tiering status retrieved"
+        ));
+    }
+
+    @PostMapping("/admin/tiering/run")
+    @Operation(summary = "Run storage tiering", description = "Start a pass moving database-stored files to object storage")
+    @ApiResponses({
+        @ApiResponse(responseCode = "202", description = "Tiering pass started"),
+        @ApiResponse(responseCode = "409", description = "A tiering pass is already running")
+    })
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> runTiering(@RequestParam(value = "dryRun", defaultValue = "true") boolean dryRun) {
+        if (!storageTieringService.start(dryRun)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Storage tiering is already running"));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(Map.of("message", dryRun ? "Storage tiering dry run started" : "Storage tiering started"));
+    }
+
     // ==================== LEGACY S3 ENDPOINTS (BACKWARD COMPATIBILITY) ====================
 
     @PostMapping("/users/{userId}/upload")
@@ -366,22 +621,25 @@ public class FileController {
         try {
             log.info("Legacy download request - User: {}, FilePath: {}", userId, filePath);
             
-            byte[] fileContent;
+            StorageStream stream;
             if (filePath.startsWith("db://")) {
                 // Extract file ID from database path
                 String fileIdStr = filePath.substring(filePath.lastIndexOf("/") + 1);
                 Long fileId = Long.parseLong(fileIdStr);
-                fileContent = fileManagementService.downloadFile(fileId);
+                stream = fileManagementService.openFileStream(fileId, 0, -1);
             } else {
-                fileContent = s3StorageService.download(filePath);
+                stream = s3StorageService.openStream(filePath);
             }
             
             String filename = filePath.substring(filePath.lastIndexOf("/") + 1);
             
-            return ResponseEntity.ok()
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .body(fileContent);
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+            if (stream.length() >= 0) {
+                response.contentLength(stream.length());
+            }
+            return response.body(streamBody(stream));
                     
         } catch (Exception e) {
             log.error("Legacy file download failed - User: {}, Path: {}", userId, filePath, e);
@@ -405,6 +663,14 @@ public class FileController {
                 Long fileId = Long.parseLong(fileIdStr);
                 fileManagementService.deleteFile(fileId, userId);
             } else {
+                // Only objects under the user's own prefix; shared content/ keys are never deleted here
+                User user = userRepository.findById(userId)
+                    .orElseThrow(() -> new RuntimeException("User not found: " + userId));
+                if (!filePath.startsWith(s3StorageService.ownerPrefix(userId, user.getRole().name()))
+                        || filePath.contains("..")) {
+                    return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "File does not belong to user"));
+                }
                 s3StorageService.deleteFile(filePath);
             }
             
@@ -498,6 +764,68 @@ public class FileController {
                 .orElseThrow(() -> new RuntimeException("Current user not found: " + email));
     }
 
+    /**
+     * Evaluate If-None-Match (preferred) or If-Modified-Since against the file's validators
+     */
+    private boolean isNotModified(HttpHeaders requestHeaders, String etag, long lastModified) {
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            for (String candidate : ifNoneMatch) {
+                String tag = candidate.startsWith("W/") ? candidate.substring(2) : candidate;
+                if ("*".equals(tag) || etag.equals(tag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = requestHeaders.getIfModifiedSince();
+        // HTTP dates have second precision
+        return ifModifiedSince >= 0 && lastModified >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * Serve small content from the in-memory cache, loading and caching it on a miss.
+     * Content too large for the cache is streamed as usual.
+     */
+    private ResponseEntity<?> cachedOrStreamed(Long fileId, int width, long size, String contentType,
+                                               String etag, long lastModified, String cacheControl,
+                                               Supplier<StorageStream> opener) throws IOException {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(contentType))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
+                .header(HttpHeaders.CACHE_CONTROL, cacheControl);
+        if (etag != null) {
+            response.eTag(etag);
+        }
+        if (lastModified >= 0) {
+            response.lastModified(lastModified);
+        }
+        
+        if (!fileContentCache.accepts(size)) {
+            return response.contentLength(size).body(streamBody(opener.get()));
+        }
+        
+        FileContentCache.CachedContent cached = fileContentCache.get(fileId, width);
+        if (cached == null) {
+            try (StorageStream stream = opener.get()) {
+                cached = new FileContentCache.CachedContent(stream.inputStream().readAllBytes(), contentType);
+            }
+            fileContentCache.put(fileId, width, cached);
+        }
+        return response.contentLength(cached.data().length).body(cached.data());
+    }
+
+    /**
+     * Copy a storage stream to the response off the request thread, closing it when done
+     */
+    private StreamingResponseBody streamBody(StorageStream stream) {
+        return out -> {
+            try (stream) {
+                stream.inputStream().transferTo(out);
+            }
+        };
+    }
+
     /**
      * Check if the current user has access to a specific patient
      */
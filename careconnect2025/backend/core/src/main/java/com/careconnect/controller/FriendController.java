@@ -4,9 +4,12 @@ import com.careconnect.model.FriendRequest;
 import com.careconnect.model.User;
 import com.careconnect.repository.FriendRequestRepository;
 import com.careconnect.repository.UserRepository;
+import com.careconnect.service.FriendshipService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.*;
@@ -21,6 +24,9 @@ public class FriendController {
     @Autowired
     private UserRepository userRepo;
 
+    @Autowired
+    private FriendshipService friendshipService;
+
     // ✅ 1. Send friend request
     @PostMapping("/request")
     public ResponseEntity<?> sendFriendRequest(@RequestBody Map<String, Long> payload) {
@@ -47,6 +53,18 @@ public class FriendController {
     public ResponseEntity<List<Map<String, Object>>> getPendingRequests(@PathVariable Long userId) {
         List<FriendRequest> requests = friendRequestRepo.findByToUserIdAndStatus(userId, "pending");
 
+        // Load all senders in one query
+        Set<Long> senderIds = new HashSet<>();
+        for (FriendRequest req : requests) {
+            senderIds.add(req.getFromUserId());
+        }
+        Map<Long, Object[]> senders = new HashMap<>();
+        if (!senderIds.isEmpty()) {
+            for (Object[] row : userRepo.findSummariesByIds(senderIds)) {
+                senders.put((Long) row[0], row);
+            }
+        }
+
         List<Map<String, Object>> result = new ArrayList<>();
         for (FriendRequest req : requests) {
             Map<String, Object> map = new HashMap<>();
@@ -56,10 +74,11 @@ public class FriendController {
             map.put("status", req.getStatus());
             map.put("createdAt", req.getCreatedAt());
 
-            userRepo.findById(req.getFromUserId()).ifPresent(user -> {
-                map.put("from_username", user.getName());
-                map.put("from_email", user.getEmail());
-            });
+            Object[] sender = senders.get(req.getFromUserId());
+            if (sender != null) {
+                map.put("from_username", sender[1]);
+                map.put("from_email", sender[2]);
+            }
 
             result.add(map);
         }
@@ -80,8 +99,7 @@ public class FriendController {
             return ResponseEntity.status(HttpStatus.CONFLICT).body("Request already handled");
         }
 
-        req.setStatus("accepted");
-        friendRequestRepo.save(req);
+        friendshipService.acceptRequest(req);
 
         return ResponseEntity.ok("Friend request accepted");
     }
@@ -105,31 +123,44 @@ public class FriendController {
         return ResponseEntity.ok("Friend request rejected");
     }
 
+    // The user's friends, with their emails; only the user themselves may ask
     @GetMapping("/list/{userId}")
-    public ResponseEntity<List<Map<String, Object>>> getFriends(@PathVariable Long userId) {
-        List<FriendRequest> acceptedRequests = friendRequestRepo.findByStatus("accepted");
-
-        List<Long> friendIds = new ArrayList<>();
-        for (FriendRequest req : acceptedRequests) {
-            if (req.getFromUserId().equals(userId)) {
-                friendIds.add(req.getToUserId());
-            } else if (req.getToUserId().equals(userId)) {
-                friendIds.add(req.getFromUserId());
-            }
+    public ResponseEntity<?> getFriends(@PathVariable Long userId) {
+        if (!isCurrentUser(userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access denied");
+        }
+        return ResponseEntity.ok(friendshipService.getFriends(userId));
+    }
+
+    // Friends two users have in common; only the user themselves may ask
+    @GetMapping("/mutual/{userId}/{otherUserId}")
+    public ResponseEntity<?> getMutualFriends(@PathVariable Long userId,
+                                              @PathVariable Long otherUserId) {
+        if (!isCurrentUser(userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access denied");
         }
+        return ResponseEntity.ok(friendshipService.getMutualFriends(userId, otherUserId));
+    }
 
-        List<Map<String, Object>> friends = new ArrayList<>();
-        for (Long id : friendIds) {
-            userRepo.findById(id).ifPresent(user -> {
-                Map<String, Object> map = new HashMap<>();
-                map.put("id", user.getId());
-                map.put("name", user.getName());
-                map.put("email", user.getEmail());
-                friends.add(map);
-            });
+    // People you may know: friends of friends, most mutual friends first; only the user themselves may ask
+    @GetMapping("/suggestions/{userId}")
+    public ResponseEntity<?> getSuggestions(@PathVariable Long userId,
+                                            @RequestParam(defaultValue = "10") int limit) {
+        if (!isCurrentUser(userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access denied");
         }
+        return ResponseEntity.ok(friendshipService.getSuggestions(userId, Math.max(1, Math.min(limit, 50))));
+    }
 
-        return ResponseEntity.ok(friends);
+    // Whether the authenticated user (email is the JWT subject) is the given user
+    private boolean isCurrentUser(Long userId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return false;
+        }
+        return userRepo.findByEmail(authentication.getName())
+                .map(user -> user.getId().equals(userId))
+                .orElse(false);
     }
 
 }
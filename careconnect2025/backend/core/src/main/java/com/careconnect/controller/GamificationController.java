@@ -2,6 +2,7 @@ package com.careconnect.controller;
 
 import com.careconnect.model.*;
 import com.careconnect.service.GamificationService;
+import com.careconnect.service.XpLeaderboard;
 import org.springframework.security.core.Authentication;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -13,11 +14,16 @@ import java.util.*;
 @RequestMapping("/api/gamification")
 public class GamificationController {
 
+    private static final int MAX_LEADERBOARD_PAGE = 100;
+    private static final int MAX_HISTORY = 200;
+
     private final GamificationService gamificationService;
+    private final XpLeaderboard xpLeaderboard;
 
     @Autowired
-    public GamificationController(GamificationService gamificationService) {
+    public GamificationController(GamificationService gamificationService, XpLeaderboard xpLeaderboard) {
         this.gamificationService = gamificationService;
+        this.xpLeaderboard = xpLeaderboard;
     }
 
     // 1. Award XP to user
@@ -57,4 +63,35 @@ public class GamificationController {
     public ResponseEntity<List<Achievement>> getAllAchievements() {
         return ResponseEntity.ok(gamificationService.getAllAchievements());
     }
+
+    // 5. Top of the XP leaderboard, paged by rank
+    @GetMapping("/leaderboard")
+    public ResponseEntity<?> getLeaderboard(@RequestParam(defaultValue = "0") int offset,
+                                            @RequestParam(defaultValue = "10") int limit) {
+        if (!xpLeaderboard.isReady()) {
+            return ResponseEntity.status(503).body(Map.of("error", "Leaderboard is loading"));
+        }
+        int pageSize = Math.min(Math.max(limit, 1), MAX_LEADERBOARD_PAGE);
+        return ResponseEntity.ok(Map.of(
+                "data", xpLeaderboard.getTop(Math.max(offset, 0), pageSize),
+                "total", xpLeaderboard.size()));
+    }
+
+    // 6. A user's leaderboard position
+    @GetMapping("/leaderboard/rank/{userId}")
+    public ResponseEntity<?> getLeaderboardRank(@PathVariable Long userId) {
+        if (!xpLeaderboard.isReady()) {
+            return ResponseEntity.status(503).body(Map.of("error", "Leaderboard is loading"));
+        }
+        return xpLeaderboard.getRank(userId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.status(404).body(Map.of("error", "User has no XP yet")));
+    }
+
+    // 7. Recent XP ledger entries for a user, newest first
+    @GetMapping("/xp-history/{userId}")
+    public ResponseEntity<List<XPEvent>> getXpHistory(@PathVariable Long userId,
+                                                      @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(gamificationService.getXpHistory(userId, Math.min(Math.max(limit, 1), MAX_HISTORY)));
+    }
 }
@@ -33,6 +33,11 @@ import com.careconnect.model.Plan;
 import org.springframework.web.bind.annotation.RequestBody;
 import com.careconnect.service.SubscriptionService;
 import com.careconnect.service.SubscriptionEnrichmentService;
+import com.careconnect.service.StripeWebhookProcessor;
+import com.careconnect.service.StripeBulkSyncService;
+import org.springframework.http.HttpStatus;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.security.access.prepost.PreAuthorize;
 import com.stripe.model.SubscriptionCollection;
 import org.springframework.beans.factory.annotation.Value;
 import java.util.Map;
@@ -55,6 +60,8 @@ public class SubscriptionController {
     private final UserRepository userRepository;
     private final PlanRepository planRepository;
     private final SubscriptionRepository subscriptionRepository;
+    private final StripeWebhookProcessor stripeWebhookProcessor;
+    private final StripeBulkSyncService stripeBulkSyncService;
     
     @Value("${stripe.webhook-secret}")
     private String stripeWebhookSecret;
@@ -69,7 +76,9 @@ public class SubscriptionController {
         SubscriptionEnrichmentService subscriptionEnrichmentService,
         UserRepository userRepository,
         PlanRepository planRepository,
-        SubscriptionRepository subscriptionRepository
+        SubscriptionRepository subscriptionRepository,
+        StripeWebhookProcessor stripeWebhookProcessor,
+        StripeBulkSyncService stripeBulkSyncService
         // @Value("${stripe.webhook-secret}") String stripeWebhookSecret
     ) {
         this.subscriptionService = subscriptionService;
@@ -78,6 +87,8 @@ public class SubscriptionController {
         this.userRepository = userRepository;
         this.planRepository = planRepository;
         this.subscriptionRepository = subscriptionRepository;
+        this.stripeWebhookProcessor = stripeWebhookProcessor;
+        this.stripeBulkSyncService = stripeBulkSyncService;
         // this.stripeWebhookSecret = stripeWebhookSecret; 
     }
 	
@@ -310,6 +321,35 @@ public class SubscriptionController {
     }
 }
 
+    @GetMapping("/webhook/stripe/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getStripeWebhookInboxStatus() {
+        return ResponseEntity.ok(Map.of("data", stripeWebhookProcessor.getStatus()));
+    }
+
+    @GetMapping("/admin/stripe-sync")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getStripeSyncReport() {
+        var report = stripeBulkSyncService.getLastReport();
+        if (report == null) {
+            return ResponseEntity.ok(Map.of("message", "No Stripe sync has run yet",
+                    "running", stripeBulkSyncService.isRunning()));
+        }
+        return ResponseEntity.ok(Map.of("data", report, "running", stripeBulkSyncService.isRunning()));
+    }
+
+    @PostMapping("/admin/stripe-sync/run")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> runStripeSync(@RequestParam(value = "apply", defaultValue = "false") boolean apply) {
+        if (stripeBulkSyncService.isRunning()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "A Stripe sync is already running"));
+        }
+        CompletableFuture.runAsync(() -> stripeBulkSyncService.run(apply));
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(Map.of("message", apply ? "Stripe sync started" : "Stripe drift report started"));
+    }
+
 @GetMapping("/user/{userId}")
 public ResponseEntity<?> getUserSubscriptions(@PathVariable Long userId) {
     try {
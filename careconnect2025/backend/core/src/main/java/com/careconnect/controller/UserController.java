@@ -3,7 +3,9 @@ package com.careconnect.controller;
 import com.careconnect.dto.UserResponse;
 import com.careconnect.model.User;
 import com.careconnect.repository.UserRepository;
+import com.careconnect.security.Role;
 import com.careconnect.service.UserPasswordService;
+import com.careconnect.service.UserSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -30,6 +32,9 @@ public class UserController {
     @Autowired
     private UserRepository userRepo;
 
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
     /**
      * Reset password for user (caregiver or patient) using username (email) and reset token
      */
@@ -146,38 +151,20 @@ public class UserController {
     }
 
     @GetMapping("/search")
+    @Operation(
+        summary = "Search users",
+        description = "Typeahead search over user names and email addresses. Results are ranked and paged; the current user is excluded.",
+        tags = {"User Management"}
+    )
     public ResponseEntity<List<UserResponse>> searchUsers(
             @RequestParam String query,
-            @RequestParam Long currentUserId) {
-
-        List<User> users = userRepo.findByNameContainingIgnoreCaseOrEmailContainingIgnoreCase(query, query);
-
-        Optional<User> currentUserOpt = userRepo.findById(currentUserId);
-        if (currentUserOpt.isEmpty()) {
-            return ResponseEntity.badRequest().body(Collections.emptyList());
-        }
-
-        User currentUser = currentUserOpt.get();
-
-
-        List<UserResponse> response = users.stream()
-                .filter(u -> !(
-                        u.getId().equals(currentUserId) &&
-                                u.getEmail().equalsIgnoreCase(currentUser.getEmail()) &&
-                                u.getRole().equals(currentUser.getRole())
-                )) // exclude self (same ID + same role + same email)
-                .map(u -> new UserResponse(
-                        u.getId(),
-                        u.getName(),
-                        u.getEmail(),
-                        u.getRole(),
-                        Boolean.TRUE.equals(u.getIsVerified()),
-                        u.getProfileImageUrl(),
-                        u.getStatus()
-                ))
-                .toList();
+            @RequestParam(required = false) Long currentUserId,
+            @RequestParam(required = false) Role role,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
 
-        return ResponseEntity.ok(response);
+        int pageSize = Math.max(1, Math.min(size, 50));
+        return ResponseEntity.ok(userSearchIndex.search(query, role, currentUserId, Math.max(0, page), pageSize));
     }
 
     @GetMapping("/check-email")
@@ -13,6 +13,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
 import java.util.Map;
 
 @RestController
@@ -359,11 +360,13 @@ public class WebSocketController {
         
         try {
             boolean isOnline = webSocketNotificationService.isUserOnline(userId);
+            Instant lastSeen = webSocketNotificationService.getLastSeen(userId);
             
             return ResponseEntity.ok(Map.of(
                 "success", true,
                 "userId", userId,
                 "isOnline", isOnline,
+                "lastSeen", lastSeen != null ? lastSeen.toString() : "",
                 "timestamp", System.currentTimeMillis()
             ));
             
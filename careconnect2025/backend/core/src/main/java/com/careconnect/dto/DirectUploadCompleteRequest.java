@@ -0,0 +1,9 @@
+package com.careconnect.dto;
+
+public record DirectUploadCompleteRequest(
+    String objectKey,    // Key returned when the upload was initiated
+    String filename,     // Original client-side filename
+    String category,     // File category, same values as the multipart upload
+    Long patientId,      // Optional patient the file belongs to
+    String description   // Optional description
+) {}
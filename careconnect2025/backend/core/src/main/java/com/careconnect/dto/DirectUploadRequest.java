@@ -0,0 +1,10 @@
+package com.careconnect.dto;
+
+public record DirectUploadRequest(
+    String filename,     // Original client-side filename
+    String contentType,  // MIME type the client will send with the PUT
+    Long fileSize,       // Exact size in bytes; the presigned PUT is bound to it
+    String category,     // File category, same values as the multipart upload
+    Long patientId,      // Optional patient the file belongs to
+    String description   // Optional description
+) {}
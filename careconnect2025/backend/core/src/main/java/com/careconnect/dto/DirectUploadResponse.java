@@ -0,0 +1,17 @@
+package com.careconnect.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@Builder
+public class DirectUploadResponse {
+    private String uploadUrl;
+    private String httpMethod;
+    private Map<String, String> headers; // Headers the client must send unchanged with the PUT
+    private String objectKey;
+    private Instant expiresAt;
+}
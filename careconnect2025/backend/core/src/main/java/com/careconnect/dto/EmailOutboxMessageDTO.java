@@ -0,0 +1,38 @@
+package com.careconnect.dto;
+
+import com.careconnect.model.EmailOutboxMessage;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+public class EmailOutboxMessageDTO {
+    private Long id;
+    private String recipient;
+    private String subject;
+    private String status;
+    private int attempts;
+    private String lastProvider;          // Provider of the last attempt (or the one that sent it)
+    private String lastError;
+    private Instant createdAt;
+    private Instant nextAttemptAt;
+    private Instant sentAt;
+
+    // Bodies are left out, they may carry temporary passwords
+    public static EmailOutboxMessageDTO from(EmailOutboxMessage message) {
+        return EmailOutboxMessageDTO.builder()
+                .id(message.getId())
+                .recipient(message.getRecipient())
+                .subject(message.getSubject())
+                .status(message.getStatus().name())
+                .attempts(message.getAttempts())
+                .lastProvider(message.getLastProvider())
+                .lastError(message.getLastError())
+                .createdAt(message.getCreatedAt())
+                .nextAttemptAt(message.getNextAttemptAt())
+                .sentAt(message.getSentAt())
+                .build();
+    }
+}
@@ -0,0 +1,14 @@
+package com.careconnect.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class FeedPage {
+    private List<FeedPostDTO> posts;
+    private String nextCursor; // Pass as "before" to fetch the next page; null on the last page
+    private boolean hasMore;
+}
@@ -0,0 +1,20 @@
+package com.careconnect.dto;
+
+import com.careconnect.model.Comment;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+public class FeedPostDTO {
+    private Long id;
+    private Long userId;
+    private String content;
+    private String imageUrl;
+    private LocalDateTime createdAt;
+    private long commentCount;
+    private List<Comment> comments; // First few comments, oldest first
+}
@@ -0,0 +1,15 @@
+package com.careconnect.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class LeaderboardEntryDTO {
+    private int rank; // 1-based; users with equal XP are ordered by id
+    private Long userId;
+    private String name;
+    private String profileImageUrl;
+    private int xp;
+    private int level;
+}
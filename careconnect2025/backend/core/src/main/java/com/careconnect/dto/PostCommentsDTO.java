@@ -0,0 +1,15 @@
+package com.careconnect.dto;
+
+import com.careconnect.model.Comment;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class PostCommentsDTO {
+    private Long postId;
+    private long commentCount;
+    private List<Comment> comments; // Latest comments, oldest first
+}
@@ -13,4 +13,9 @@ public class S3Props {
     private String accessKey;
     private String secretKey;
     private String baseUrl; 
-}
\ No newline at end of file
+    private String endpoint;                 // Override for S3-compatible stand-ins (MinIO, LocalStack)
+    private boolean pathStyleAccess = false;
+    private boolean kmsEncryption = true;
+    private long presignTtlMinutes = 15;
+    private long directUploadMaxSize = 100L * 1024 * 1024;
+}
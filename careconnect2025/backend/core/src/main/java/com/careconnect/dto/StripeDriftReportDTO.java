@@ -0,0 +1,27 @@
+package com.careconnect.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+public class StripeDriftReportDTO {
+    private boolean applied;              // false for report-only runs
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long stripeSubscriptions;     // Subscriptions listed from Stripe
+    private long missingLocally;          // In Stripe, no local row
+    private long statusMismatches;
+    private long priceMismatches;
+    private long periodMismatches;
+    private long repaired;                // Rows written from Stripe (applied runs only)
+    private long unknownCustomers;        // Stripe customer not linked to any user
+    private long missingInStripe;         // Local row whose Stripe id was not listed
+    private long paidInvoices;            // Paid invoices in the lookback window
+    private long invoicesWithoutPayment;  // Paid invoices with no local Payment row
+    private List<String> samples;         // First few drifting ids, for follow-up
+    private String error;                 // Set if the run stopped early
+}
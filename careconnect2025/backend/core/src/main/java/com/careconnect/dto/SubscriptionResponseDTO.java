@@ -21,6 +21,14 @@ public class SubscriptionResponseDTO {
     public SubscriptionResponseDTO() {}
     
     public SubscriptionResponseDTO(Subscription subscription) {
+        this(subscription, subscription.getPlan());
+    }
+
+    /**
+     * Builds the DTO with plan details taken from {@code plan} rather than the
+     * subscription's own association, so callers holding a cached plan avoid loading it.
+     */
+    public SubscriptionResponseDTO(Subscription subscription, Plan plan) {
         this.id = subscription.getId();
         this.stripeSubscriptionId = subscription.getStripeSubscriptionId();
         this.stripeCustomerId = subscription.getStripeCustomerId();
@@ -32,8 +40,7 @@ public class SubscriptionResponseDTO {
         }
         
         // Safely extract plan details
-        if (subscription.getPlan() != null) {
-            Plan plan = subscription.getPlan();
+        if (plan != null) {
             this.planId = plan.getId();
             this.planName = plan.getName();
             this.planCode = plan.getCode();
@@ -22,4 +22,5 @@ public class UserFileDTO {
     private String description;
     private LocalDateTime uploadedAt;
     private LocalDateTime updatedAt;
+    private String contentHash; // SHA-256 of the content where known; only set for single-file lookups
 }
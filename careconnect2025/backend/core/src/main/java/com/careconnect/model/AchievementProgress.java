@@ -0,0 +1,40 @@
+package com.careconnect.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user's progress towards one achievement rule: an activity count or the current
+ * streak length, plus the epoch day of the last activity for streaks.
+ */
+@Entity
+@Table(name = "achievement_progress",
+       uniqueConstraints = @UniqueConstraint(name = "uk_achievement_progress_user_rule", columnNames = {"user_id", "rule_key"}))
+@Getter
+@Setter
+@NoArgsConstructor
+public class AchievementProgress {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "rule_key", nullable = false, length = 64)
+    private String ruleKey;
+
+    @Column(name = "counter", nullable = false)
+    private int counter;
+
+    @Column(name = "last_day")
+    private Integer lastDay;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
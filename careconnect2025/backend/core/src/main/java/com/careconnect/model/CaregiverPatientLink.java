@@ -2,6 +2,7 @@ package com.careconnect.model;
 
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
+import java.util.Objects;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -49,6 +50,9 @@ public class CaregiverPatientLink {
     @Column(name = "expires_at")
     private LocalDateTime expiresAt;
 
+    @Column(name = "expiry_reminder_sent_at")
+    private LocalDateTime expiryReminderSentAt;
+
     @Column(name = "notes")
     private String notes;
 
@@ -125,7 +129,15 @@ public class CaregiverPatientLink {
     public void setLinkType(LinkType linkType) { this.linkType = linkType; }
 
     public LocalDateTime getExpiresAt() { return expiresAt; }
-    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        if (!Objects.equals(this.expiresAt, expiresAt)) {
+            this.expiryReminderSentAt = null; // A new expiry gets its own reminder
+        }
+        this.expiresAt = expiresAt;
+    }
+
+    public LocalDateTime getExpiryReminderSentAt() { return expiryReminderSentAt; }
+    public void setExpiryReminderSentAt(LocalDateTime expiryReminderSentAt) { this.expiryReminderSentAt = expiryReminderSentAt; }
 
     public String getNotes() { return notes; }
     public void setNotes(String notes) { this.notes = notes; }
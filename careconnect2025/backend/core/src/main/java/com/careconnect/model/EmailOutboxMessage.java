@@ -0,0 +1,65 @@
+package com.careconnect.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Outgoing email waiting in the outbox. Rows are written in the transaction of the change
+ * that triggers the email and delivered afterwards by the outbox worker, which retries with
+ * backoff across the configured providers until the message is sent or marked DEAD.
+ */
+@Entity
+@Table(name = "email_outbox")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailOutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "recipient", nullable = false)
+    private String recipient;
+
+    @Column(name = "subject", nullable = false, length = 500)
+    private String subject;
+
+    @Column(name = "html_content", columnDefinition = "MEDIUMTEXT")
+    private String htmlContent; // Cleared once sent, bodies may carry temporary passwords
+
+    @Column(name = "text_content", columnDefinition = "MEDIUMTEXT")
+    private String textContent;
+
+    @Column(name = "status", nullable = false, length = 16)
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt; // Also the lease expiry while SENDING
+
+    @Column(name = "last_provider", length = 32)
+    private String lastProvider;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "sent_at")
+    private Instant sentAt;
+
+    public enum Status {
+        PENDING, SENDING, SENT, DEAD
+    }
+}
@@ -2,6 +2,7 @@ package com.careconnect.model;
 
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
+import java.util.Objects;
 
 @Entity
 @Table(name = "family_member_link")
@@ -44,6 +45,9 @@ public class FamilyMemberLink {
     @Column(name = "expires_at")
     private LocalDateTime expiresAt;
 
+    @Column(name = "expiry_reminder_sent_at")
+    private LocalDateTime expiryReminderSentAt;
+
     @Column(name = "notes")
     private String notes;
 
@@ -135,7 +139,15 @@ public class FamilyMemberLink {
     public void setLinkType(LinkType linkType) { this.linkType = linkType; }
 
     public LocalDateTime getExpiresAt() { return expiresAt; }
-    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        if (!Objects.equals(this.expiresAt, expiresAt)) {
+            this.expiryReminderSentAt = null; // A new expiry gets its own reminder
+        }
+        this.expiresAt = expiresAt;
+    }
+
+    public LocalDateTime getExpiryReminderSentAt() { return expiryReminderSentAt; }
+    public void setExpiryReminderSentAt(LocalDateTime expiryReminderSentAt) { this.expiryReminderSentAt = expiryReminderSentAt; }
 
     public String getNotes() { return notes; }
     public void setNotes(String notes) { this.notes = notes; }
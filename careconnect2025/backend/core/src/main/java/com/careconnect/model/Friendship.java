@@ -0,0 +1,40 @@
+package com.careconnect.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One direction of an accepted friendship. Every friendship is stored as two rows,
+ * (a, b) and (b, a), so a user's friends are a single index range on user_id.
+ */
+@Entity
+@Table(name = "friendships",
+       uniqueConstraints = @UniqueConstraint(name = "uk_friendships_user_friend", columnNames = {"user_id", "friend_id"}))
+@Getter
+@Setter
+@NoArgsConstructor
+public class Friendship {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "friend_id", nullable = false)
+    private Long friendId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public Friendship(Long userId, Long friendId) {
+        this.userId = userId;
+        this.friendId = friendId;
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,57 @@
+package com.careconnect.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Resized, metadata-free rendition of an uploaded image. Stored with the same storage
+ * type as the original file: as a shared blob for DATABASE files, or as a
+ * content-addressed object for S3 files.
+ */
+@Entity
+@Table(name = "image_variants",
+       uniqueConstraints = @UniqueConstraint(name = "uk_image_variants_file_width", columnNames = {"file_id", "width"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageVariant {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "file_id", nullable = false)
+    private Long fileId;
+
+    @Column(name = "width", nullable = false)
+    private Integer width;
+
+    @Column(name = "height", nullable = false)
+    private Integer height;
+
+    @Column(name = "content_type", nullable = false)
+    private String contentType;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "storage_type", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private UserFile.StorageType storageType;
+
+    @Column(name = "blob_id")
+    private Long blobId;
+
+    @Column(name = "s3_path")
+    private String s3Path;
+
+    @Column(name = "created_at", nullable = false)
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -0,0 +1,43 @@
+package com.careconnect.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Real-time notification that could not be delivered over WebSocket and was
+ * spilled out of the in-memory outbox. Rows are replayed and removed when the
+ * user reconnects and authenticates.
+ */
+@Entity
+@Table(name = "pending_notifications")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingNotification {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "channel", nullable = false, length = 32)
+    private String channel;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "sequence_number", nullable = false)
+    private Long sequenceNumber;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    @Builder.Default
+    private Instant createdAt = Instant.now();
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
+@EntityListeners(com.careconnect.service.PlanChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,65 @@
+package com.careconnect.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Verified Stripe webhook waiting in the inbox. The Stripe event id is unique, so
+ * redelivered events are stored once; rows are processed by the webhook worker in
+ * order per customer and retried with backoff until they succeed or run out of attempts.
+ */
+@Entity
+@Table(name = "stripe_webhook_events")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StripeWebhookEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_id", nullable = false, unique = true)
+    private String eventId;
+
+    @Column(name = "event_type", nullable = false, length = 100)
+    private String eventType;
+
+    @Column(name = "customer_id")
+    private String customerId; // Ordering key; null for events not tied to a customer
+
+    @Column(name = "stripe_created", nullable = false)
+    private Long stripeCreated; // Epoch seconds
+
+    @Column(name = "payload", nullable = false, columnDefinition = "MEDIUMTEXT")
+    private String payload;
+
+    @Column(name = "status", nullable = false, length = 16)
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt; // Also the lease expiry while PROCESSING
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "received_at", nullable = false)
+    private Instant receivedAt;
+
+    @Column(name = "processed_at")
+    private Instant processedAt;
+
+    public enum Status {
+        PENDING, PROCESSING, PROCESSED, FAILED
+    }
+}
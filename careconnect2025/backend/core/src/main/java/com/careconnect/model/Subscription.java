@@ -35,6 +35,12 @@ public class Subscription {
     private String status; // ACTIVE, CANCELLED, etc.
     private Instant startedAt;
     private Instant currentPeriodEnd;
+
+    // Mirror of the Stripe object, kept fresh by webhooks and periodic reconciliation
+    private String stripeStatus;           // Raw Stripe status (active, trialing, past_due, canceled, ...)
+    private Boolean cancelAtPeriodEnd;
+    private Instant stripeSyncedAt;        // When the row last matched Stripe
+    private Long stripeUpdatedAt;          // Epoch seconds of the Stripe state applied; older states are ignored
     
     // Explicit getter methods for compatibility
     public Long getId() { return id; }
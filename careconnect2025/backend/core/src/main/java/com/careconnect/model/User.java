@@ -9,6 +9,7 @@ import java.sql.Timestamp;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(com.careconnect.service.UserChangeListener.class)
 @Data
 @Builder
 @NoArgsConstructor
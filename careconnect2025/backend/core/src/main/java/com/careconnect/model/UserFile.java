@@ -28,10 +28,8 @@ public class UserFile {
     @Column(name = "file_size")
     private Long fileSize;
     
-    @Lob
-    @Column(name = "file_data", nullable = false)
-    @Basic(fetch = FetchType.LAZY)
-    private byte[] fileData;
+    @Column(name = "blob_id")
+    private Long blobId; // Content in file_blobs for DATABASE storage
     
     @Column(name = "owner_id", nullable = false)
     private Long ownerId;
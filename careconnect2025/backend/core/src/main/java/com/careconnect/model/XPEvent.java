@@ -1,27 +1,50 @@
 package com.careconnect.model;
 
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the append-only XP ledger. A user's XP total in {@link XPProgress} is the
+ * sum of their ledger entries; old entries are periodically folded into a single
+ * {@value #COMPACTED} entry per user, which keeps that sum intact.
+ */
+@Entity
+@Table(name = "xp_events",
+       indexes = {
+           @Index(name = "idx_xp_events_user_created", columnList = "user_id, created_at"),
+           @Index(name = "idx_xp_events_created", columnList = "created_at")
+       })
+@Getter
+@Setter
+@NoArgsConstructor
 public class XPEvent {
-    private String eventName;
-    private int xpPoints;
 
-    public XPEvent(String eventName, int xpPoints) {
-        this.eventName = eventName;
-        this.xpPoints = xpPoints;
-    }
+    public static final String COMPACTED = "compacted";
 
-    public String getEventName() {
-        return eventName;
-    }
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
 
-    public void setEventName(String eventName) {
-        this.eventName = eventName;
-    }
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
 
-    public int getXpPoints() {
-        return xpPoints;
-    }
+    @Column(name = "event_name", nullable = false, length = 100)
+    private String eventName;
 
-    public void setXpPoints(int xpPoints) {
+    @Column(name = "xp_points", nullable = false)
+    private int xpPoints;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public XPEvent(Long userId, String eventName, int xpPoints) {
+        this.userId = userId;
+        this.eventName = eventName;
         this.xpPoints = xpPoints;
+        this.createdAt = LocalDateTime.now();
     }
 }
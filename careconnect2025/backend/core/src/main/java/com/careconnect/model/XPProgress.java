@@ -23,7 +23,7 @@ public class XPProgress {
 
     private int level;
 
-    @Column(name = "user_id")
+    @Column(name = "user_id", unique = true)
     private Long userId;
 
     private LocalDateTime updatedAt = LocalDateTime.now();
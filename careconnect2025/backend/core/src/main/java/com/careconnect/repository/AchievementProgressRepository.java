@@ -0,0 +1,30 @@
+package com.careconnect.repository;
+
+import com.careconnect.model.AchievementProgress;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface AchievementProgressRepository extends JpaRepository<AchievementProgress, Long> {
+
+    List<AchievementProgress> findByUserId(Long userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO achievement_progress (user_id, rule_key, counter, last_day, updated_at) " +
+                   "VALUES (:userId, :ruleKey, :counter, :lastDay, :now) " +
+                   "ON DUPLICATE KEY UPDATE counter = :counter, last_day = :lastDay, updated_at = :now",
+           nativeQuery = true)
+    int upsert(@Param("userId") Long userId, @Param("ruleKey") String ruleKey, @Param("counter") int counter,
+               @Param("lastDay") Integer lastDay, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AchievementProgress p WHERE p.userId = :userId AND p.ruleKey = :ruleKey")
+    int deleteByUserIdAndRuleKey(@Param("userId") Long userId, @Param("ruleKey") String ruleKey);
+}
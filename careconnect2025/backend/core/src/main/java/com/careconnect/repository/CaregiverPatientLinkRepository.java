@@ -2,10 +2,13 @@ package com.careconnect.repository;
 
 import com.careconnect.model.CaregiverPatientLink;
 import com.careconnect.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -40,6 +43,10 @@ public interface CaregiverPatientLinkRepository extends JpaRepository<CaregiverP
     @Query("SELECT cpl FROM CaregiverPatientLink cpl WHERE cpl.patientUser = :patientUser AND cpl.status = 'ACTIVE' AND (cpl.expiresAt IS NULL OR cpl.expiresAt > :now)")
     List<CaregiverPatientLink> findActiveCaregiversByPatient(@Param("patientUser") User patientUser, @Param("now") LocalDateTime now);
 
+    // Same as above, keyed by the patient's user id so callers don't need to load the User
+    @Query("SELECT cpl FROM CaregiverPatientLink cpl WHERE cpl.patientUser.id = :patientUserId AND cpl.status = 'ACTIVE' AND (cpl.expiresAt IS NULL OR cpl.expiresAt > :now)")
+    List<CaregiverPatientLink> findActiveCaregiversByPatientUserId(@Param("patientUserId") Long patientUserId, @Param("now") LocalDateTime now);
+
     // Find expired links that need status update
     @Query("SELECT cpl FROM CaregiverPatientLink cpl WHERE cpl.expiresAt IS NOT NULL AND cpl.expiresAt < :now AND cpl.status = 'ACTIVE'")
     List<CaregiverPatientLink> findExpiredActiveLinks(@Param("now") LocalDateTime now);
@@ -49,4 +56,38 @@ public interface CaregiverPatientLinkRepository extends JpaRepository<CaregiverP
 
     // Find links created by a specific user
     List<CaregiverPatientLink> findByCreatedBy(User createdBy);
+
+    // Rows of [link id, patient user id] for active links past their expiry, locked so expireLinks
+    // updates exactly these rows and the patients whose care teams changed are known
+    @Query(value = "SELECT id, patient_user_id FROM caregiver_patient_link WHERE status = 'ACTIVE' AND expires_at < :now FOR UPDATE",
+           nativeQuery = true)
+    List<Object[]> lockExpiredActiveLinks(@Param("now") LocalDateTime now);
+
+    // Expires the given links in one statement
+    @Transactional
+    @Modifying
+    @Query("UPDATE CaregiverPatientLink cpl SET cpl.status = :expired, cpl.updatedAt = :now WHERE cpl.id IN :ids AND cpl.status = 'ACTIVE'")
+    int expireLinks(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now, @Param("expired") CaregiverPatientLink.LinkStatus expired);
+
+    // Distinct upcoming expiry times of active links, for the expiry scheduler's delay queue
+    @Query("SELECT DISTINCT cpl.expiresAt FROM CaregiverPatientLink cpl WHERE cpl.status = 'ACTIVE' AND cpl.expiresAt >= :from AND cpl.expiresAt < :to")
+    List<LocalDateTime> findActiveExpiriesBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT MIN(cpl.expiresAt) FROM CaregiverPatientLink cpl WHERE cpl.patientUser.id = :patientUserId AND cpl.status = 'ACTIVE' AND cpl.expiresAt >= :now")
+    LocalDateTime findNextExpiryForPatient(@Param("patientUserId") Long patientUserId, @Param("now") LocalDateTime now);
+
+    /**
+     * Active links expiring in the window that have not been reminded yet, as rows of
+     * [link id, recipient email, recipient first name or name, patient name or email, expires at].
+     */
+    @Query("SELECT cpl.id, r.email, COALESCE(r.firstName, r.name), COALESCE(p.name, p.email), cpl.expiresAt " +
+           "FROM CaregiverPatientLink cpl JOIN cpl.caregiverUser r JOIN cpl.patientUser p " +
+           "WHERE cpl.status = 'ACTIVE' AND cpl.expiresAt >= :from AND cpl.expiresAt < :to AND cpl.expiryReminderSentAt IS NULL " +
+           "ORDER BY cpl.expiresAt, cpl.id")
+    List<Object[]> findUnremindedExpiringBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE CaregiverPatientLink cpl SET cpl.expiryReminderSentAt = :now WHERE cpl.id IN :ids")
+    int markExpiryReminderSent(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
 }
@@ -2,9 +2,24 @@ package com.careconnect.repository;
 
 import com.careconnect.model.Comment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
     List<Comment> findByPostIdOrderByCreatedAtAsc(Long postId);
+
+    // [postId, count] for each post that has comments
+    @Query("SELECT c.postId, COUNT(c) FROM Comment c WHERE c.postId IN :postIds GROUP BY c.postId")
+    List<Object[]> countByPostIds(@Param("postIds") Collection<Long> postIds);
+
+    // Latest comments of each post in one pass, returned oldest first within a post
+    @Query(value = "SELECT id, post_id, user_id, username, content, created_at FROM (" +
+                   "SELECT c.*, ROW_NUMBER() OVER (PARTITION BY c.post_id ORDER BY c.created_at DESC, c.id DESC) AS rn " +
+                   "FROM comment c WHERE c.post_id IN (:postIds)) ranked " +
+                   "WHERE rn <= :perPost ORDER BY post_id, created_at, id",
+           nativeQuery = true)
+    List<Comment> findLatestByPostIds(@Param("postIds") Collection<Long> postIds, @Param("perPost") int perPost);
 }
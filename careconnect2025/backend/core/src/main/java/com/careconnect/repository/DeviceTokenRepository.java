@@ -7,7 +7,9 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,14 +24,25 @@ public interface DeviceTokenRepository extends JpaRepository<DeviceToken, Long>
     
     Optional<DeviceToken> findByUserAndDeviceIdAndIsActiveTrue(User user, String deviceId);
     
+    @Transactional
     @Modifying
     @Query("UPDATE DeviceToken dt SET dt.isActive = false WHERE dt.user = :user AND dt.deviceId = :deviceId")
     void deactivateByUserAndDeviceId(@Param("user") User user, @Param("deviceId") String deviceId);
     
+    @Transactional
     @Modifying
     @Query("UPDATE DeviceToken dt SET dt.isActive = false WHERE dt.fcmToken = :fcmToken")
     void deactivateByFcmToken(@Param("fcmToken") String fcmToken);
     
+    @Transactional
+    @Modifying
+    @Query("UPDATE DeviceToken dt SET dt.isActive = false WHERE dt.fcmToken IN :fcmTokens")
+    int deactivateByFcmTokens(@Param("fcmTokens") Collection<String> fcmTokens);
+    
+    // [userId, fcmToken] pairs; reads the FK column directly so no User is loaded per token
+    @Query("SELECT dt.user.id, dt.fcmToken FROM DeviceToken dt WHERE dt.user.id IN :userIds AND dt.isActive = true")
+    List<Object[]> findActiveTokenPairsByUserIds(@Param("userIds") Collection<Long> userIds);
+    
     @Query("SELECT dt FROM DeviceToken dt WHERE dt.user.id IN :userIds AND dt.isActive = true")
     List<DeviceToken> findActiveTokensByUserIds(@Param("userIds") List<Long> userIds);
 }
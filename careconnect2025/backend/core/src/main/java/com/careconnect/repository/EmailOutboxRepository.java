@@ -0,0 +1,74 @@
+package com.careconnect.repository;
+
+import com.careconnect.model.EmailOutboxMessage;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    // Rows stuck in SENDING past their lease (a worker died) count as due again
+    @Query(value = "SELECT m.* FROM email_outbox m " +
+                   "WHERE m.status IN ('PENDING', 'SENDING') AND m.next_attempt_at <= :now " +
+                   "ORDER BY m.next_attempt_at, m.id LIMIT :limit",
+           nativeQuery = true)
+    List<EmailOutboxMessage> findDue(@Param("now") Instant now, @Param("limit") int limit);
+
+    // Takes the message for one attempt, numbered attempts + 1; 0 if another worker got there first or it is not due
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE email_outbox SET status = 'SENDING', attempts = attempts + 1, next_attempt_at = :leaseUntil " +
+                   "WHERE id = :id AND status IN ('PENDING', 'SENDING') AND attempts = :attempts AND next_attempt_at <= :now",
+           nativeQuery = true)
+    int claim(@Param("id") Long id, @Param("attempts") int attempts,
+              @Param("now") Instant now, @Param("leaseUntil") Instant leaseUntil);
+
+    // Only the worker still holding the claim for this attempt may finish it; 0 if the lease was lost
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE email_outbox SET status = 'SENT', sent_at = :now, last_provider = :provider, last_error = NULL, " +
+                   "html_content = NULL, text_content = NULL WHERE id = :id AND status = 'SENDING' AND attempts = :attempt",
+           nativeQuery = true)
+    int markSent(@Param("id") Long id, @Param("attempt") int attempt,
+                 @Param("provider") String provider, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    // A message marked DEAD loses its body: it may carry credentials and will not be sent again
+    @Query(value = "UPDATE email_outbox SET status = :status, next_attempt_at = :nextAttemptAt, " +
+                   "last_provider = :provider, last_error = :error, " +
+                   "html_content = CASE WHEN :status = 'DEAD' THEN NULL ELSE html_content END, " +
+                   "text_content = CASE WHEN :status = 'DEAD' THEN NULL ELSE text_content END " +
+                   "WHERE id = :id AND status = 'SENDING' AND attempts = :attempt",
+           nativeQuery = true)
+    int markFailedAttempt(@Param("id") Long id, @Param("attempt") int attempt, @Param("status") String status,
+                          @Param("nextAttemptAt") Instant nextAttemptAt,
+                          @Param("provider") String provider, @Param("error") String error);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM email_outbox WHERE status = 'SENT' AND sent_at < :cutoff LIMIT :limit",
+           nativeQuery = true)
+    int deleteSentBefore(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    // A dead message's next_attempt_at is set when it dies, so it dates the failure
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM email_outbox WHERE status = 'DEAD' AND next_attempt_at < :cutoff LIMIT :limit",
+           nativeQuery = true)
+    int deleteDeadBefore(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    Page<EmailOutboxMessage> findByStatusOrderByIdDesc(EmailOutboxMessage.Status status, Pageable pageable);
+
+    @Query("SELECT m.status, COUNT(m) FROM EmailOutboxMessage m GROUP BY m.status")
+    List<Object[]> countByStatus();
+}
@@ -2,10 +2,13 @@ package com.careconnect.repository;
 
 import com.careconnect.model.FamilyMemberLink;
 import com.careconnect.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -48,4 +51,32 @@ public interface FamilyMemberLinkRepository extends JpaRepository<FamilyMemberLi
     boolean existsByFamilyMemberUserIdAndPatientId(
         @Param("familyMemberUserId") Long familyMemberUserId, 
         @Param("patientId") Long patientId);
+
+    // Same expiry queries as CaregiverPatientLinkRepository, for family member links
+    @Query(value = "SELECT id, patient_user_id FROM family_member_link WHERE status = 'ACTIVE' AND expires_at < :now FOR UPDATE",
+           nativeQuery = true)
+    List<Object[]> lockExpiredActiveLinks(@Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FamilyMemberLink fml SET fml.status = :expired, fml.updatedAt = :now WHERE fml.id IN :ids AND fml.status = 'ACTIVE'")
+    int expireLinks(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now, @Param("expired") FamilyMemberLink.LinkStatus expired);
+
+    @Query("SELECT DISTINCT fml.expiresAt FROM FamilyMemberLink fml WHERE fml.status = 'ACTIVE' AND fml.expiresAt >= :from AND fml.expiresAt < :to")
+    List<LocalDateTime> findActiveExpiriesBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT MIN(fml.expiresAt) FROM FamilyMemberLink fml WHERE fml.patientUser.id = :patientUserId AND fml.status = 'ACTIVE' AND fml.expiresAt >= :now")
+    LocalDateTime findNextExpiryForPatient(@Param("patientUserId") Long patientUserId, @Param("now") LocalDateTime now);
+
+    // Rows of [link id, family member email, family member name, patient name, expires at]
+    @Query("SELECT fml.id, r.email, COALESCE(r.firstName, r.name), COALESCE(p.name, p.email), fml.expiresAt " +
+           "FROM FamilyMemberLink fml JOIN fml.familyUser r JOIN fml.patientUser p " +
+           "WHERE fml.status = 'ACTIVE' AND fml.expiresAt >= :from AND fml.expiresAt < :to AND fml.expiryReminderSentAt IS NULL " +
+           "ORDER BY fml.expiresAt, fml.id")
+    List<Object[]> findUnremindedExpiringBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FamilyMemberLink fml SET fml.expiryReminderSentAt = :now WHERE fml.id IN :ids")
+    int markExpiryReminderSent(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
 }
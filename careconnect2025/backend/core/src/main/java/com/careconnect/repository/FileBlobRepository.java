@@ -0,0 +1,9 @@
+package com.careconnect.repository;
+
+import com.careconnect.model.FileBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface FileBlobRepository extends JpaRepository<FileBlob, Long> {
+}
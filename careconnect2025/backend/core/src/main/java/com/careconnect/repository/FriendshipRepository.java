@@ -0,0 +1,29 @@
+package com.careconnect.repository;
+
+import com.careconnect.model.Friendship;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface FriendshipRepository extends JpaRepository<Friendship, Long> {
+
+    boolean existsByUserIdAndFriendId(Long userId, Long friendId);
+
+    @Query("SELECT f.friendId FROM Friendship f WHERE f.userId = :userId")
+    List<Long> findFriendIds(@Param("userId") Long userId);
+
+    // [id, name, email, profileImageUrl] of each friend, joined in one query
+    @Query("SELECT u.id, u.name, u.email, u.profileImageUrl FROM Friendship f, User u " +
+           "WHERE f.userId = :userId AND u.id = f.friendId ORDER BY u.name")
+    List<Object[]> findFriendSummaries(@Param("userId") Long userId);
+
+    // [candidateId, mutualFriendCount] for friends of friends who are not yet friends, most mutual friends first
+    @Query("SELECT f2.friendId, COUNT(f2.id) FROM Friendship f1, Friendship f2 " +
+           "WHERE f1.userId = :userId AND f2.userId = f1.friendId AND f2.friendId <> :userId " +
+           "AND f2.friendId NOT IN (SELECT f3.friendId FROM Friendship f3 WHERE f3.userId = :userId) " +
+           "GROUP BY f2.friendId ORDER BY COUNT(f2.id) DESC, f2.friendId")
+    List<Object[]> findFriendsOfFriends(@Param("userId") Long userId, Pageable pageable);
+}
@@ -0,0 +1,18 @@
+package com.careconnect.repository;
+
+import com.careconnect.model.ImageVariant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ImageVariantRepository extends JpaRepository<ImageVariant, Long> {
+
+    List<ImageVariant> findByFileIdOrderByWidthAsc(Long fileId);
+
+    /**
+     * Whether any variant still points at an object key (variant keys are content-addressed and shared)
+     */
+    boolean existsByS3Path(String s3Path);
+}
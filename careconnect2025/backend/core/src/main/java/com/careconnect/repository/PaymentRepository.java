@@ -2,7 +2,15 @@ package com.careconnect.repository;
 
 import com.careconnect.model.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Payment findByStripeSessionId(String sessionId);
-}
\ No newline at end of file
+
+    @Query("SELECT p.stripeInvoiceId FROM Payment p WHERE p.stripeInvoiceId IN :invoiceIds")
+    List<String> findExistingInvoiceIds(@Param("invoiceIds") Collection<String> invoiceIds);
+}
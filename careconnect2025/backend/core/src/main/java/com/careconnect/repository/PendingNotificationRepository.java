@@ -0,0 +1,32 @@
+package com.careconnect.repository;
+
+import com.careconnect.model.PendingNotification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface PendingNotificationRepository extends JpaRepository<PendingNotification, Long> {
+
+    List<PendingNotification> findByChannelAndUserIdAndSequenceNumberGreaterThanOrderBySequenceNumberAsc(
+            String channel, Long userId, Long sequenceNumber);
+
+    @Query("SELECT COALESCE(MAX(p.sequenceNumber), 0) FROM PendingNotification p WHERE p.channel = :channel AND p.userId = :userId")
+    long findMaxSequenceNumber(@Param("channel") String channel, @Param("userId") Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PendingNotification p WHERE p.channel = :channel AND p.userId = :userId")
+    int deleteByChannelAndUserId(@Param("channel") String channel, @Param("userId") Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PendingNotification p WHERE p.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -1,10 +1,32 @@
 package com.careconnect.repository;
 
 import com.careconnect.model.Post;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
-    List<Post> findAllByUserIdOrderByCreatedAtDesc(Long userId);
-    List<Post> findAllByOrderByCreatedAtDesc(); // For global feed
+    // Keyset pages, newest first; (createdAt, id) breaks ties between posts created in the same instant
+    @Query("SELECT p FROM Post p ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findLatest(Pageable pageable);
+
+    @Query("SELECT p FROM Post p WHERE p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT p FROM Post p WHERE p.userId IN :userIds ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findLatestByUserIds(@Param("userIds") Collection<Long> userIds, Pageable pageable);
+
+    @Query("SELECT p FROM Post p WHERE p.userId IN :userIds " +
+           "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findBeforeByUserIds(@Param("userIds") Collection<Long> userIds,
+                                   @Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") Long id,
+                                   Pageable pageable);
 }
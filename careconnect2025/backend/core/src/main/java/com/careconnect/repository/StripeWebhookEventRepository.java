@@ -0,0 +1,84 @@
+package com.careconnect.repository;
+
+import com.careconnect.model.StripeWebhookEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StripeWebhookEventRepository extends JpaRepository<StripeWebhookEvent, Long> {
+
+    // Redeliveries of an event already in the inbox are ignored (0 rows inserted)
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO stripe_webhook_events " +
+                   "(event_id, event_type, customer_id, stripe_created, payload, status, attempts, next_attempt_at, received_at) " +
+                   "VALUES (:eventId, :eventType, :customerId, :created, :payload, 'PENDING', 0, :now, :now)",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("eventId") String eventId,
+                       @Param("eventType") String eventType,
+                       @Param("customerId") String customerId,
+                       @Param("created") long created,
+                       @Param("payload") String payload,
+                       @Param("now") Instant now);
+
+    /**
+     * Due events with no earlier unfinished event for the same customer. Rows stuck in
+     * PROCESSING past their lease (a worker died) count as due again.
+     */
+    @Query(value = "SELECT e.* FROM stripe_webhook_events e " +
+                   "WHERE e.status IN ('PENDING', 'PROCESSING') AND e.next_attempt_at <= :now " +
+                   "AND NOT EXISTS (SELECT 1 FROM stripe_webhook_events p " +
+                   "    WHERE p.customer_id = e.customer_id AND p.status IN ('PENDING', 'PROCESSING') " +
+                   "    AND (p.stripe_created < e.stripe_created OR (p.stripe_created = e.stripe_created AND p.id < e.id))) " +
+                   "ORDER BY e.id LIMIT :limit",
+           nativeQuery = true)
+    List<StripeWebhookEvent> findDueHeads(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Query(value = "SELECT e.* FROM stripe_webhook_events e " +
+                   "WHERE e.customer_id = :customerId AND e.status IN ('PENDING', 'PROCESSING') " +
+                   "ORDER BY e.stripe_created, e.id LIMIT 1",
+           nativeQuery = true)
+    Optional<StripeWebhookEvent> findNextForCustomer(@Param("customerId") String customerId);
+
+    // Takes the event for one attempt, numbered attempts + 1; 0 if another worker got there first or it is not due
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE stripe_webhook_events SET status = 'PROCESSING', attempts = attempts + 1, next_attempt_at = :leaseUntil " +
+                   "WHERE id = :id AND status IN ('PENDING', 'PROCESSING') AND attempts = :attempts AND next_attempt_at <= :now",
+           nativeQuery = true)
+    int claim(@Param("id") Long id, @Param("attempts") int attempts,
+              @Param("now") Instant now, @Param("leaseUntil") Instant leaseUntil);
+
+    // Only the worker still holding the claim for this attempt may finish it; 0 if the lease was lost
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE stripe_webhook_events SET status = 'PROCESSED', processed_at = :now, last_error = NULL " +
+                   "WHERE id = :id AND status = 'PROCESSING' AND attempts = :attempt",
+           nativeQuery = true)
+    int markProcessed(@Param("id") Long id, @Param("attempt") int attempt, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE stripe_webhook_events SET status = :status, next_attempt_at = :nextAttemptAt, last_error = :error " +
+                   "WHERE id = :id AND status = 'PROCESSING' AND attempts = :attempt",
+           nativeQuery = true)
+    int markFailedAttempt(@Param("id") Long id, @Param("attempt") int attempt, @Param("status") String status,
+                          @Param("nextAttemptAt") Instant nextAttemptAt, @Param("error") String error);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM stripe_webhook_events WHERE status = 'PROCESSED' AND processed_at < :cutoff LIMIT :limit",
+           nativeQuery = true)
+    int deleteProcessedBefore(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    @Query("SELECT e.status, COUNT(e) FROM StripeWebhookEvent e GROUP BY e.status")
+    List<Object[]> countByStatus();
+}
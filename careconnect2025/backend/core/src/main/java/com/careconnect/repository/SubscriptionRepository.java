@@ -1,10 +1,15 @@
 package com.careconnect.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.careconnect.model.Subscription;
 import com.careconnect.model.User;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +18,20 @@ public interface SubscriptionRepository extends JpaRepository<Subscription, Long
     List<Subscription> findByUser(User user);
     List<Subscription> findByStripeCustomerId(String stripeCustomerId);
     List<Subscription> findByUserAndStatus(User user, String status);
+
+    // Mirrored rows not confirmed against Stripe since the given time, least recently synced first
+    @Query("SELECT s FROM Subscription s WHERE s.stripeSubscriptionId IS NOT NULL " +
+           "AND (s.stripeSyncedAt IS NULL OR s.stripeSyncedAt < :before) " +
+           "ORDER BY s.stripeSyncedAt ASC, s.id ASC")
+    List<Subscription> findStaleMirrors(@Param("before") Instant before, Pageable pageable);
+
+    List<Subscription> findByStripeSubscriptionIdIn(Collection<String> stripeSubscriptionIds);
+
+    @Query("SELECT COALESCE(MAX(s.id), 0) FROM Subscription s")
+    long findMaxId();
+
+    // [id, stripeSubscriptionId] of mirrored rows in id order, for keyset pagination
+    @Query("SELECT s.id, s.stripeSubscriptionId FROM Subscription s WHERE s.stripeSubscriptionId IS NOT NULL " +
+           "AND s.id > :afterId AND s.id <= :maxId ORDER BY s.id")
+    List<Object[]> findMirroredIdsAfter(@Param("afterId") Long afterId, @Param("maxId") Long maxId, Pageable pageable);
 }
@@ -2,10 +2,15 @@ package com.careconnect.repository;
 
 import com.careconnect.model.UserAchievement;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface UserAchievementRepository extends JpaRepository<UserAchievement, Long> {
     List<UserAchievement> findByUserId(Long userId);
     boolean existsByUserIdAndAchievementId(Long userId, Long achievementId);
+
+    @Query("SELECT ua.achievement.id FROM UserAchievement ua WHERE ua.userId = :userId")
+    List<Long> findAchievementIdsByUserId(@Param("userId") Long userId);
 }
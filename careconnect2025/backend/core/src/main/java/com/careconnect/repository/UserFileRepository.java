@@ -1,10 +1,13 @@
 package com.careconnect.repository;
 
 import com.careconnect.model.UserFile;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,6 +15,12 @@ import java.util.Optional;
 @Repository
 public interface UserFileRepository extends JpaRepository<UserFile, Long> {
     
+    /**
+     * Find an active file's metadata by ID (content lives in file_blobs)
+     */
+    @Query("SELECT f FROM UserFile f WHERE f.id = :id AND f.isActive = true")
+    Optional<UserFile> findActiveById(@Param("id") Long id);
+    
     /**
      * Find all active files by owner
      */
@@ -45,11 +54,44 @@ public interface UserFileRepository extends JpaRepository<UserFile, Long> {
     Optional<UserFile> findFirstByOwnerIdAndOwnerTypeAndFileCategoryAndIsActiveTrue(
             Long ownerId, UserFile.OwnerType ownerType, UserFile.FileCategory fileCategory);
     
+    /**
+     * Find the active file recorded for an object key
+     */
+    Optional<UserFile> findFirstByS3PathAndIsActiveTrue(String s3Path);
+    
+    /**
+     * Whether any file record points at an object key (content-addressed objects are shared)
+     */
+    boolean existsByS3Path(String s3Path);
+    
     /**
      * Find files by storage type (for migration purposes)
      */
     List<UserFile> findByStorageTypeAndIsActiveTrue(UserFile.StorageType storageType);
     
+    /**
+     * Next batch of database-stored files after the given ID, for storage tiering
+     */
+    @Query("SELECT f FROM UserFile f WHERE f.storageType = 'DATABASE' AND f.isActive = true " +
+           "AND f.blobId IS NOT NULL AND f.id > :afterId ORDER BY f.id")
+    List<UserFile> findDatabaseFilesAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Count and total size of database-stored files still to be tiered
+     */
+    @Query("SELECT COUNT(f), COALESCE(SUM(f.fileSize), 0) FROM UserFile f " +
+           "WHERE f.storageType = 'DATABASE' AND f.isActive = true AND f.blobId IS NOT NULL")
+    List<Object[]> summarizeDatabaseFiles();
+    
+    /**
+     * Point a database-stored file at its object-store copy; no-op if it was changed meanwhile
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE UserFile f SET f.storageType = 'S3', f.s3Path = :s3Path, f.blobId = NULL, " +
+           "f.updatedAt = CURRENT_TIMESTAMP WHERE f.id = :id AND f.storageType = 'DATABASE' AND f.blobId = :blobId")
+    int markMovedToS3(@Param("id") Long id, @Param("blobId") Long blobId, @Param("s3Path") String s3Path);
+    
     /**
      * Count files by owner and category
      */
@@ -2,9 +2,13 @@ package com.careconnect.repository;
 
 import com.careconnect.model.User;
 import com.careconnect.security.Role;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 @Repository
@@ -14,6 +18,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmailAndRole(String email, Role role);
     boolean existsByEmailAndRole(String email, Role role);
     Optional<User> findByVerificationToken(String token);
-    List<User> findByNameContainingIgnoreCaseOrEmailContainingIgnoreCase(String name, String email);
+    List<User> findByNameStartingWithIgnoreCaseOrEmailStartingWithIgnoreCase(String name, String email, Pageable pageable);
     Optional<User> findByStripeCustomerId(String stripeCustomerId);
+
+    // [id, name, email, profileImageUrl] for a batch of users, without loading User entities
+    @Query("SELECT u.id, u.name, u.email, u.profileImageUrl FROM User u WHERE u.id IN :ids")
+    List<Object[]> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    // Users in id order for rebuilding the search index, without loading passwords or tokens
+    @Query("SELECT u.id, u.name, u.firstName, u.lastName, u.email, u.role, u.isVerified, u.profileImageUrl, u.status " +
+           "FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<Object[]> findSearchRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
@@ -0,0 +1,35 @@
+package com.careconnect.repository;
+
+import com.careconnect.model.XPEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface XPEventRepository extends JpaRepository<XPEvent, Long> {
+
+    List<XPEvent> findByUserIdOrderByCreatedAtDescIdDesc(Long userId, Pageable pageable);
+
+    @Query("SELECT MIN(e.id) FROM XPEvent e WHERE e.createdAt < :cutoff")
+    Long findMinIdBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT MAX(e.id) FROM XPEvent e WHERE e.createdAt < :cutoff")
+    Long findMaxIdBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    // Folds every user's entries in the id range into one entry carrying their sum
+    @Modifying
+    @Query(value = "INSERT INTO xp_events (user_id, event_name, xp_points, created_at) " +
+                   "SELECT user_id, 'compacted', SUM(xp_points), MAX(created_at) FROM xp_events " +
+                   "WHERE id BETWEEN :fromId AND :toId AND created_at < :cutoff GROUP BY user_id",
+           nativeQuery = true)
+    int insertCompacted(@Param("fromId") Long fromId, @Param("toId") Long toId, @Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query(value = "DELETE FROM xp_events WHERE id BETWEEN :fromId AND :toId AND created_at < :cutoff",
+           nativeQuery = true)
+    int deleteRange(@Param("fromId") Long fromId, @Param("toId") Long toId, @Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,10 +1,33 @@
 package com.careconnect.repository;
 
 import com.careconnect.model.XPProgress;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface XPProgressRepository extends JpaRepository<XPProgress, Long> {
     Optional<XPProgress> findByUserId(Long userId);
+
+    List<XPProgress> findByUserIdIn(Collection<Long> userIds);
+
+    // Atomic upsert: the row lock serialises concurrent awards, so none are lost.
+    // level is assigned before xp so both MySQL and standard SQL compute it from the old xp.
+    @Modifying(clearAutomatically = true)
+    @Query(value = "INSERT INTO xp_progress (user_id, xp, level, updated_at) " +
+                   "VALUES (:userId, :amount, FLOOR(:amount / 100) + 1, :now) " +
+                   "ON DUPLICATE KEY UPDATE level = FLOOR((xp + :amount) / 100) + 1, " +
+                   "xp = xp + :amount, updated_at = :now",
+           nativeQuery = true)
+    int addXp(@Param("userId") Long userId, @Param("amount") int amount, @Param("now") LocalDateTime now);
+
+    // [id, userId, xp] in id order, for building the leaderboard in batches
+    @Query("SELECT p.id, p.userId, p.xp FROM XPProgress p WHERE p.id > :afterId ORDER BY p.id")
+    List<Object[]> findLeaderboardRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
@@ -0,0 +1,231 @@
+package com.careconnect.service;
+
+import com.careconnect.config.AchievementCatalog;
+import com.careconnect.model.Achievement;
+import com.careconnect.model.AchievementProgress;
+import com.careconnect.repository.AchievementProgressRepository;
+import com.careconnect.repository.AchievementRepository;
+import com.careconnect.repository.UserAchievementRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Unlocks achievements from {@link AchievementCatalog} rules as domain events arrive.
+ *
+ * Events are evaluated after their transaction commits on a small pool of single-thread
+ * workers; a user always maps to the same worker, so their state is never updated
+ * concurrently and needs no locking. Per-user state is compact: one counter and one
+ * last-activity day per rule, plus a bitset of owned achievement ids, so owned
+ * achievements are skipped without a query. State is loaded on first use, cached for
+ * a while, and counters are written through to achievement_progress.
+ */
+@Service
+@Slf4j
+public class AchievementEngine {
+
+    private final GamificationService gamificationService;
+    private final AchievementRepository achievementRepository;
+    private final AchievementProgressRepository achievementProgressRepository;
+    private final UserAchievementRepository userAchievementRepository;
+
+    private final List<AchievementRule> rules = AchievementCatalog.RULES;
+    private final long stateTtlMs;
+    private final ExecutorService[] workers;
+
+    // Achievement id for each rule (same index), resolved by title once the rows exist
+    private volatile Long[] achievementIds;
+
+    private final Map<Long, UserState> states = new ConcurrentHashMap<>();
+
+    public AchievementEngine(GamificationService gamificationService,
+                             AchievementRepository achievementRepository,
+                             AchievementProgressRepository achievementProgressRepository,
+                             UserAchievementRepository userAchievementRepository,
+                             @Value("${careconnect.achievements.worker-threads:2}") int workerThreads,
+                             @Value("${careconnect.achievements.state-ttl-minutes:30}") long stateTtlMinutes) {
+        this.gamificationService = gamificationService;
+        this.achievementRepository = achievementRepository;
+        this.achievementProgressRepository = achievementProgressRepository;
+        this.userAchievementRepository = userAchievementRepository;
+        this.stateTtlMs = stateTtlMinutes * 60_000L;
+        this.workers = new ExecutorService[Math.max(1, workerThreads)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = Executors.newSingleThreadExecutor();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserActivity(UserActivityEvent event) {
+        if (event.userId() == null) {
+            return;
+        }
+        int day = (int) event.occurredAt().toLocalDate().toEpochDay();
+        dispatch(event.userId(), () -> evaluate(event.userId(), event.type(), day, 0));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onXpAwarded(XpAwardedEvent event) {
+        dispatch(event.userId(), () -> evaluate(event.userId(), null, 0, event.totalXp()));
+    }
+
+    @Scheduled(fixedRate = 600000) // Every 10 minutes
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        states.entrySet().removeIf(e -> now - e.getValue().loadedAt > stateTtlMs);
+    }
+
+    private void dispatch(Long userId, Runnable task) {
+        workers[Math.floorMod(userId.hashCode(), workers.length)].execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("Achievement evaluation failed for user {}", userId, e);
+            }
+        });
+    }
+
+    /**
+     * Applies one event to every matching rule: an activity ({@code activity} non-null, on
+     * epoch day {@code day}) or a new XP total.
+     */
+    void evaluate(Long userId, UserActivityEvent.Type activity, int day, int totalXp) {
+        Long[] ids = resolveAchievementIds();
+        UserState state = stateFor(userId, ids);
+
+        for (int i = 0; i < rules.size(); i++) {
+            AchievementRule rule = rules.get(i);
+            Long achievementId = ids[i];
+            if (achievementId == null || state.owned.get(achievementId.intValue())) {
+                continue;
+            }
+
+            boolean changed;
+            if (rule.kind() == AchievementRule.Kind.XP_THRESHOLD) {
+                if (activity != null) {
+                    continue;
+                }
+                state.counters[i] = Math.max(state.counters[i], totalXp);
+                changed = false;
+            } else {
+                if (activity != rule.activity()) {
+                    continue;
+                }
+                changed = rule.kind() == AchievementRule.Kind.COUNT
+                        ? count(state, i)
+                        : extendStreak(state, i, day);
+            }
+
+            if (state.counters[i] >= rule.target()) {
+                unlock(userId, rule, achievementId, state);
+            } else if (changed && rule.isPersistent()) {
+                achievementProgressRepository.upsert(userId, rule.key(), state.counters[i],
+                        rule.kind() == AchievementRule.Kind.STREAK ? state.lastDays[i] : null, LocalDateTime.now());
+            }
+        }
+    }
+
+    private static boolean count(UserState state, int i) {
+        state.counters[i]++;
+        return true;
+    }
+
+    // One step per calendar day; a gap restarts the streak, late events for past days are ignored
+    private static boolean extendStreak(UserState state, int i, int day) {
+        int last = state.lastDays[i];
+        if (state.counters[i] > 0 && day <= last) {
+            return false;
+        }
+        state.counters[i] = state.counters[i] > 0 && day == last + 1 ? state.counters[i] + 1 : 1;
+        state.lastDays[i] = day;
+        return true;
+    }
+
+    private void unlock(Long userId, AchievementRule rule, Long achievementId, UserState state) {
+        boolean granted = gamificationService.grantAchievement(userId, achievementId, rule.xpReward());
+        state.owned.set(achievementId.intValue());
+        if (rule.isPersistent()) {
+            // Progress towards an owned achievement is never read again
+            achievementProgressRepository.deleteByUserIdAndRuleKey(userId, rule.key());
+        }
+        if (granted) {
+            log.info("User {} unlocked achievement '{}'", userId, rule.title());
+        }
+    }
+
+    private UserState stateFor(Long userId, Long[] ids) {
+        UserState cached = states.get(userId);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt <= stateTtlMs) {
+            return cached;
+        }
+
+        UserState state = new UserState(rules.size());
+        for (Long achievementId : userAchievementRepository.findAchievementIdsByUserId(userId)) {
+            state.owned.set(achievementId.intValue());
+        }
+        Map<String, AchievementProgress> progress = new HashMap<>();
+        for (AchievementProgress p : achievementProgressRepository.findByUserId(userId)) {
+            progress.put(p.getRuleKey(), p);
+        }
+        for (int i = 0; i < rules.size(); i++) {
+            AchievementProgress p = progress.get(rules.get(i).key());
+            if (p != null) {
+                state.counters[i] = p.getCounter();
+                state.lastDays[i] = p.getLastDay() != null ? p.getLastDay() : 0;
+            }
+        }
+        states.put(userId, state);
+        return state;
+    }
+
+    private Long[] resolveAchievementIds() {
+        Long[] ids = achievementIds;
+        if (ids != null) {
+            return ids;
+        }
+        ids = new Long[rules.size()];
+        boolean complete = true;
+        for (int i = 0; i < rules.size(); i++) {
+            ids[i] = achievementRepository.findByTitle(rules.get(i).title()).map(Achievement::getId).orElse(null);
+            complete &= ids[i] != null;
+        }
+        if (complete) {
+            achievementIds = ids;
+        } else {
+            log.warn("Some achievement rules have no achievement row yet; they are skipped until one exists");
+        }
+        return ids;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    private static final class UserState {
+        final int[] counters;
+        final int[] lastDays; // epoch day of the last counted activity, for streak rules
+        final BitSet owned = new BitSet();
+        final long loadedAt = System.currentTimeMillis();
+
+        UserState(int ruleCount) {
+            this.counters = new int[ruleCount];
+            this.lastDays = new int[ruleCount];
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.careconnect.service;
+
+/**
+ * Declarative definition of an achievement and the condition that unlocks it.
+ *
+ * COUNT unlocks after {@code target} activities of the given type, STREAK after activity
+ * on {@code target} consecutive days, and XP_THRESHOLD once the user's XP total reaches
+ * {@code target}. The achievement row is matched by title.
+ */
+public record AchievementRule(String key, Kind kind, UserActivityEvent.Type activity, int target,
+                              int xpReward, String title, String description, String icon) {
+
+    public enum Kind { COUNT, STREAK, XP_THRESHOLD }
+
+    public static AchievementRule count(String key, UserActivityEvent.Type activity, int target, int xpReward,
+                                        String title, String description, String icon) {
+        return new AchievementRule(key, Kind.COUNT, activity, target, xpReward, title, description, icon);
+    }
+
+    public static AchievementRule streak(String key, UserActivityEvent.Type activity, int days, int xpReward,
+                                         String title, String description, String icon) {
+        return new AchievementRule(key, Kind.STREAK, activity, days, xpReward, title, description, icon);
+    }
+
+    public static AchievementRule xpThreshold(String key, int xp, int xpReward,
+                                              String title, String description, String icon) {
+        return new AchievementRule(key, Kind.XP_THRESHOLD, null, xp, xpReward, title, description, icon);
+    }
+
+    // Counters that only ever reach the target once need no stored state
+    public boolean isPersistent() {
+        return kind != Kind.XP_THRESHOLD && target > 1;
+    }
+}
@@ -2,6 +2,7 @@ package com.careconnect.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
@@ -78,6 +79,9 @@ public class AuthService {
     @Autowired
     private StripeService stripeService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Autowired
     private RestTemplate restTemplate;
 
@@ -193,6 +197,7 @@ public class AuthService {
             user.setIsVerified(true);
             user.setVerificationToken(null); // Clear token so it can't be reused
             userRepository.save(user);
+            eventPublisher.publishEvent(new UserActivityEvent(user.getId(), UserActivityEvent.Type.EMAIL_VERIFIED));
             return ResponseEntity.ok("Your email has been verified! You can now log in.");
         } else {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid or expired verification link.");
@@ -318,6 +323,8 @@ public LoginResponse loginV2(LoginRequest req,
             .build();
     res.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
 
+    eventPublisher.publishEvent(new UserActivityEvent(user.getId(), UserActivityEvent.Type.LOGIN));
+
     /* ---------------- Response body (unchanged) ------------------------- */
     return LoginResponse.builder()
             .id(user.getId())
@@ -383,6 +390,8 @@ public LoginResponse loginV2(LoginRequest req,
                 .build();
         res.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
 
+        eventPublisher.publishEvent(new UserActivityEvent(user.getId(), UserActivityEvent.Type.LOGIN));
+
         /* ---------------- Response body (unchanged) ------------------------- */
         return LoginResponse.builder()
                 .id(user.getId())
@@ -458,6 +467,7 @@ public LoginResponse loginV2(LoginRequest req,
         user.setIsVerified(true);
         user.setVerificationToken(null); // Clear token so it can't be reused
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserActivityEvent(user.getId(), UserActivityEvent.Type.EMAIL_VERIFIED));
 
         return ResponseEntity.ok(Collections.singletonMap("message", 
                 "Password has been set successfully! You can now log in."));
@@ -0,0 +1,7 @@
+package com.careconnect.service;
+
+/**
+ * Published whenever a caregiver or family member link for a patient is created,
+ * changed or expired, so cached care-team recipient lists can be dropped.
+ */
+public record CareLinkChangedEvent(Long patientUserId) {}
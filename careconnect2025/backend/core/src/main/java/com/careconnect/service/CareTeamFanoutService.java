@@ -0,0 +1,85 @@
+package com.careconnect.service;
+
+import com.careconnect.websocket.CareConnectWebSocketHandler;
+import com.careconnect.websocket.PresenceRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Delivers a patient's real-time updates to everyone on the patient's care team.
+ *
+ * Recipients come from {@link CareTeamRecipientCache}. Online recipients get the update
+ * over their WebSocket session. Offline recipients have it queued in the outbox and,
+ * when a push title is given, also get an FCM push.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CareTeamFanoutService {
+
+    private final CareTeamRecipientCache careTeamRecipientCache;
+    private final CareConnectWebSocketHandler careConnectWebSocketHandler;
+    private final PresenceRegistry presenceRegistry;
+
+    @Autowired(required = false)
+    private FirebaseNotificationService firebaseNotificationService;
+
+    /**
+     * Fan a notification out to the patient's caregivers and family members.
+     *
+     * @param pushTitle title for offline recipients' push notification, or null for WebSocket-only delivery
+     * @return number of recipients the update was addressed to
+     */
+    public int fanOut(Long patientUserId, Map<String, Object> notification, String pushTitle, String pushBody) {
+        List<Long> recipients = careTeamRecipientCache.getRecipientUserIds(patientUserId);
+        if (recipients.isEmpty()) {
+            log.debug("No care team recipients for patient user {}", patientUserId);
+            return 0;
+        }
+
+        List<Long> offline = new ArrayList<>();
+        for (Long recipientId : recipients) {
+            String userId = recipientId.toString();
+            if (!presenceRegistry.isUserOnline(userId)) {
+                offline.add(recipientId);
+            }
+            careConnectWebSocketHandler.sendRealTimeUpdate(userId, notification);
+        }
+
+        if (pushTitle != null && !offline.isEmpty() && firebaseNotificationService != null) {
+            String type = String.valueOf(notification.get("type"));
+            Map<String, String> data = toPushData(notification);
+            CompletableFuture.runAsync(() -> {
+                try {
+                    firebaseNotificationService.sendNotificationToUsers(offline, pushTitle, pushBody, type, data);
+                } catch (Exception e) {
+                    log.error("Push fallback failed for {} offline care team members of patient user {}",
+                            offline.size(), patientUserId, e);
+                }
+            });
+        }
+
+        log.info("{} fanned out for patient user {} to {} recipients ({} offline)",
+                notification.get("type"), patientUserId, recipients.size(), offline.size());
+        return recipients.size();
+    }
+
+    // FCM data payloads only carry string values
+    private Map<String, String> toPushData(Map<String, Object> notification) {
+        Map<String, String> data = new HashMap<>();
+        notification.forEach((key, value) -> {
+            if (value != null) {
+                data.put(key, value.toString());
+            }
+        });
+        return data;
+    }
+}
@@ -0,0 +1,131 @@
+package com.careconnect.service;
+
+import com.careconnect.model.CaregiverPatientLink;
+import com.careconnect.model.FamilyMemberLink;
+import com.careconnect.repository.CaregiverPatientLinkRepository;
+import com.careconnect.repository.FamilyMemberLinkRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+
+/**
+ * Caches the user ids of a patient's active caregivers and family members.
+ *
+ * Entries are resolved once with two indexed queries and reused for every update the
+ * patient produces. They are dropped when a link for the patient changes (after the
+ * change commits), when the earliest link expiry passes, or after the TTL.
+ */
+@Service
+@Slf4j
+public class CareTeamRecipientCache {
+
+    private final CaregiverPatientLinkRepository caregiverPatientLinkRepository;
+    private final FamilyMemberLinkRepository familyMemberLinkRepository;
+    private final Duration ttl;
+
+    // patientUserId -> resolved recipients
+    private final Map<Long, CareTeam> cache = new ConcurrentHashMap<>();
+    // patientUserId -> number of invalidations, so a load that raced an invalidation is not cached.
+    // One small entry per patient whose links ever changed; never pruned, as a reset could match a stale load
+    private final Map<Long, Long> generations = new ConcurrentHashMap<>();
+
+    public CareTeamRecipientCache(CaregiverPatientLinkRepository caregiverPatientLinkRepository,
+                                  FamilyMemberLinkRepository familyMemberLinkRepository,
+                                  @Value("${careconnect.care-team.cache-ttl-minutes:15}") long ttlMinutes) {
+        this.caregiverPatientLinkRepository = caregiverPatientLinkRepository;
+        this.familyMemberLinkRepository = familyMemberLinkRepository;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+    }
+
+    /**
+     * Active caregivers and family members of the patient, de-duplicated.
+     */
+    @Transactional(readOnly = true)
+    public List<Long> getRecipientUserIds(Long patientUserId) {
+        return Arrays.stream(resolve(patientUserId).all()).boxed().toList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> getCaregiverUserIds(Long patientUserId) {
+        return Arrays.stream(resolve(patientUserId).caregivers()).boxed().toList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> getFamilyMemberUserIds(Long patientUserId) {
+        return Arrays.stream(resolve(patientUserId).familyMembers()).boxed().toList();
+    }
+
+    public void invalidate(Long patientUserId) {
+        if (patientUserId == null) {
+            return;
+        }
+        // Bump first: a load that read the old generation will then not write its result back
+        generations.merge(patientUserId, 1L, Long::sum);
+        if (cache.remove(patientUserId) != null) {
+            log.debug("Care team cache invalidated for patient user {}", patientUserId);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCareLinkChanged(CareLinkChangedEvent event) {
+        invalidate(event.patientUserId());
+    }
+
+    @Scheduled(fixedRate = 600000) // Every 10 minutes
+    public void evictStaleEntries() {
+        LocalDateTime now = LocalDateTime.now();
+        cache.values().removeIf(team -> team.validUntil().isBefore(now));
+    }
+
+    private CareTeam resolve(Long patientUserId) {
+        LocalDateTime now = LocalDateTime.now();
+        CareTeam cached = cache.get(patientUserId);
+        if (cached != null && cached.validUntil().isAfter(now)) {
+            return cached;
+        }
+
+        long generation = generations.getOrDefault(patientUserId, 0L);
+        CareTeam loaded = load(patientUserId, now);
+        // Checked under the entry's lock, which invalidate's remove also takes
+        cache.compute(patientUserId, (id, current) ->
+                generations.getOrDefault(id, 0L) == generation ? loaded : current);
+        return loaded;
+    }
+
+    private CareTeam load(Long patientUserId, LocalDateTime now) {
+        LocalDateTime validUntil = now.plus(ttl);
+
+        List<CaregiverPatientLink> caregiverLinks = caregiverPatientLinkRepository.findActiveCaregiversByPatientUserId(patientUserId, now);
+        long[] caregivers = caregiverLinks.stream().mapToLong(link -> link.getCaregiverUser().getId()).distinct().toArray();
+        for (CaregiverPatientLink link : caregiverLinks) {
+            if (link.getExpiresAt() != null && link.getExpiresAt().isBefore(validUntil)) {
+                validUntil = link.getExpiresAt();
+            }
+        }
+
+        List<FamilyMemberLink> familyLinks = familyMemberLinkRepository.findActiveFamilyMembersByPatient(patientUserId, now);
+        long[] familyMembers = familyLinks.stream().mapToLong(link -> link.getFamilyUser().getId()).distinct().toArray();
+        for (FamilyMemberLink link : familyLinks) {
+            if (link.getExpiresAt() != null && link.getExpiresAt().isBefore(validUntil)) {
+                validUntil = link.getExpiresAt();
+            }
+        }
+
+        long[] all = LongStream.concat(Arrays.stream(caregivers), Arrays.stream(familyMembers)).distinct().toArray();
+        return new CareTeam(caregivers, familyMembers, all, validUntil);
+    }
+
+    private record CareTeam(long[] caregivers, long[] familyMembers, long[] all, LocalDateTime validUntil) {}
+}
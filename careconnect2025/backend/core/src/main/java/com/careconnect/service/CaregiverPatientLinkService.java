@@ -8,13 +8,17 @@ import com.careconnect.model.*;
 import com.careconnect.repository.*;
 import com.careconnect.security.Role;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,6 +30,7 @@ public class CaregiverPatientLinkService {
     private final UserRepository userRepository;
     private final PatientRepository patientRepository;
     private final CaregiverRepository caregiverRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Create a new caregiver-patient link
@@ -55,6 +60,7 @@ public class CaregiverPatientLinkService {
         link.setNotes(request.notes());
 
         caregiverPatientLinkRepository.save(link);
+        eventPublisher.publishEvent(new CareLinkChangedEvent(link.getPatientUser().getId()));
         return toCaregiverPatientLinkResponse(link);
     }
 
@@ -79,6 +85,7 @@ public class CaregiverPatientLinkService {
         }
 
         caregiverPatientLinkRepository.save(link);
+        eventPublisher.publishEvent(new CareLinkChangedEvent(link.getPatientUser().getId()));
         return toCaregiverPatientLinkResponse(link);
     }
 
@@ -114,6 +121,7 @@ public class CaregiverPatientLinkService {
         // Optionally check role here if needed
         link.setStatus(CaregiverPatientLink.LinkStatus.SUSPENDED);
         caregiverPatientLinkRepository.save(link);
+        eventPublisher.publishEvent(new CareLinkChangedEvent(link.getPatientUser().getId()));
 
         return toCaregiverPatientLinkResponse(link);
     }
@@ -130,6 +138,7 @@ public class CaregiverPatientLinkService {
 
         link.setStatus(CaregiverPatientLink.LinkStatus.ACTIVE);
         caregiverPatientLinkRepository.save(link);
+        eventPublisher.publishEvent(new CareLinkChangedEvent(link.getPatientUser().getId()));
 
         return toCaregiverPatientLinkResponse(link);
     }
@@ -143,6 +152,7 @@ public class CaregiverPatientLinkService {
 
         link.setStatus(CaregiverPatientLink.LinkStatus.REVOKED);
         caregiverPatientLinkRepository.save(link);
+        eventPublisher.publishEvent(new CareLinkChangedEvent(link.getPatientUser().getId()));
     }
 
     /**
@@ -199,14 +209,24 @@ public class CaregiverPatientLinkService {
     }
 
     /**
-     * Cleanup expired links (should be run periodically)
+     * Expire every active link past its expiry with one bulk update. Returns the number of
+     * links expired. The links are locked when read, so the affected patients (whose care-team
+     * caches are dropped after commit) are exactly those of the rows updated.
      */
-    public void cleanupExpiredLinks() {
-        List<CaregiverPatientLink> expiredLinks = caregiverPatientLinkRepository.findExpiredActiveLinks(LocalDateTime.now());
-        expiredLinks.forEach(link -> {
-            link.setStatus(CaregiverPatientLink.LinkStatus.EXPIRED);
-            caregiverPatientLinkRepository.save(link);
-        });
+    public int cleanupExpiredLinks() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> linkIds = new ArrayList<>();
+        Set<Long> patientUserIds = new HashSet<>();
+        for (Object[] row : caregiverPatientLinkRepository.lockExpiredActiveLinks(now)) {
+            linkIds.add(((Number) row[0]).longValue());
+            patientUserIds.add(((Number) row[1]).longValue());
+        }
+        if (linkIds.isEmpty()) {
+            return 0;
+        }
+        int expired = caregiverPatientLinkRepository.expireLinks(linkIds, now, CaregiverPatientLink.LinkStatus.EXPIRED);
+        patientUserIds.forEach(patientUserId -> eventPublisher.publishEvent(new CareLinkChangedEvent(patientUserId)));
+        return expired;
     }
 
     /**
@@ -232,6 +252,7 @@ public class CaregiverPatientLinkService {
         link.setNotes(notes);
 
         caregiverPatientLinkRepository.save(link);
+        eventPublisher.publishEvent(new CareLinkChangedEvent(link.getPatientUser().getId()));
     }
 
     // Helper methods
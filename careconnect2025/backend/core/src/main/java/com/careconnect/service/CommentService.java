@@ -1,12 +1,17 @@
 package com.careconnect.service;
 
+import com.careconnect.dto.PostCommentsDTO;
 import com.careconnect.model.Comment;
 import com.careconnect.repository.CommentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class CommentService {
@@ -14,10 +19,62 @@ public class CommentService {
     @Autowired
     private CommentRepository commentRepository;
 
+    @Autowired
+    private FeedTimelineCache feedTimelineCache;
+
     public List<Comment> getCommentsForPost(Long postId) {
         return commentRepository.findByPostIdOrderByCreatedAtAsc(postId);
     }
 
+    /**
+     * Comment counts for a batch of posts; posts without comments are absent from the map.
+     */
+    public Map<Long, Long> getCommentCounts(Collection<Long> postIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        if (postIds.isEmpty()) {
+            return counts;
+        }
+        for (Object[] row : commentRepository.countByPostIds(postIds)) {
+            counts.put((Long) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    /**
+     * Up to {@code perPost} of the most recent comments of each post, oldest first within a
+     * post, fetched in one query. The feed preview and the batch endpoint both use this, so a
+     * post shows the same comments whichever path loads it.
+     */
+    public Map<Long, List<Comment>> getLatestComments(Collection<Long> postIds, int perPost) {
+        Map<Long, List<Comment>> byPost = new HashMap<>();
+        if (postIds.isEmpty() || perPost <= 0) {
+            return byPost;
+        }
+        for (Comment comment : commentRepository.findLatestByPostIds(postIds, perPost)) {
+            byPost.computeIfAbsent(comment.getPostId(), id -> new ArrayList<>()).add(comment);
+        }
+        return byPost;
+    }
+
+    /**
+     * Comment count and up to {@code latest} most recent comments for each post, in the order
+     * the post ids were given. Two queries regardless of how many posts are asked for.
+     */
+    public List<PostCommentsDTO> getCommentsForPosts(Collection<Long> postIds, int latest) {
+        Map<Long, Long> counts = getCommentCounts(postIds);
+        Map<Long, List<Comment>> byPost = getLatestComments(postIds, latest);
+
+        List<PostCommentsDTO> result = new ArrayList<>(postIds.size());
+        for (Long postId : postIds) {
+            result.add(PostCommentsDTO.builder()
+                    .postId(postId)
+                    .commentCount(counts.getOrDefault(postId, 0L))
+                    .comments(byPost.getOrDefault(postId, List.of()))
+                    .build());
+        }
+        return result;
+    }
+
     public Comment addComment(Long postId, Long userId, String username, String content) {
         Comment comment = new Comment();
         comment.setPostId(postId);
@@ -25,6 +82,8 @@ public class CommentService {
         comment.setUsername(username);
         comment.setContent(content);
         comment.setCreatedAt(LocalDateTime.now());
-        return commentRepository.save(comment);
+        Comment saved = commentRepository.save(comment);
+        feedTimelineCache.onCommentAdded(postId);
+        return saved;
     }
 }
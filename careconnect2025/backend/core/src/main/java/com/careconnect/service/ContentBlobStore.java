@@ -0,0 +1,148 @@
+package com.careconnect.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reference-counted, content-addressed store for database file content.
+ *
+ * Each distinct SHA-256 is stored once in file_blobs. Storing content that already
+ * exists only bumps the reference count; releasing the last reference deletes the row.
+ * All writes go through JDBC so content is streamed rather than held on the heap.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ContentBlobStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Stores content whose SHA-256 is already known, reusing an existing copy when there is one.
+     * Returns the blob ID, which now carries one more reference.
+     */
+    public Long store(String sha256, InputStream content, long length) {
+        Long existing = acquire(sha256);
+        if (existing != null) {
+            log.debug("Reusing blob {} for content {}", existing, sha256);
+            return existing;
+        }
+        try {
+            return insert(sha256, content, length);
+        } catch (DuplicateKeyException e) {
+            // Another upload of the same content won the race
+            return acquireOrFail(sha256);
+        }
+    }
+
+    /**
+     * Stores content of unknown hash, computing the SHA-256 while it is written.
+     * If the content turns out to exist already, the fresh copy is dropped in favour of it.
+     */
+    public Long store(InputStream content, long length) {
+        MessageDigest digest = newDigest();
+        String placeholder = "pending-" + UUID.randomUUID().toString().replace("-", "");
+        Long id = insert(placeholder, new DigestInputStream(content, digest), length);
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+
+        try {
+            jdbcTemplate.update("UPDATE file_blobs SET sha256 = ? WHERE id = ?", sha256, id);
+            return id;
+        } catch (DuplicateKeyException e) {
+            jdbcTemplate.update("DELETE FROM file_blobs WHERE id = ?", id);
+            log.debug("Discarded duplicate upload of content {}", sha256);
+            return acquireOrFail(sha256);
+        }
+    }
+
+    /**
+     * Drops one reference to a blob, deleting it once nothing refers to it.
+     */
+    public void release(Long blobId) {
+        if (blobId == null) {
+            return;
+        }
+        jdbcTemplate.update("UPDATE file_blobs SET ref_count = ref_count - 1 WHERE id = ?", blobId);
+        int deleted = jdbcTemplate.update("DELETE FROM file_blobs WHERE id = ? AND ref_count <= 0", blobId);
+        if (deleted > 0) {
+            log.debug("Deleted unreferenced blob {}", blobId);
+        }
+    }
+
+    public String getSha256(Long blobId) {
+        List<String> hashes = jdbcTemplate.queryForList(
+                "SELECT sha256 FROM file_blobs WHERE id = ?", String.class, blobId);
+        return hashes.isEmpty() ? null : hashes.get(0);
+    }
+
+    /**
+     * Hex SHA-256 of a stream, read in small buffers. The stream is not closed.
+     */
+    public static String sha256Hex(InputStream in) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, n);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private Long acquire(String sha256) {
+        int updated = jdbcTemplate.update(
+                "UPDATE file_blobs SET ref_count = ref_count + 1 WHERE sha256 = ?", sha256);
+        if (updated == 0) {
+            return null;
+        }
+        return jdbcTemplate.queryForObject("SELECT id FROM file_blobs WHERE sha256 = ?", Long.class, sha256);
+    }
+
+    private Long acquireOrFail(String sha256) {
+        Long id = acquire(sha256);
+        if (id == null) {
+            throw new IllegalStateException("Blob disappeared while storing content " + sha256);
+        }
+        return id;
+    }
+
+    private Long insert(String sha256, InputStream content, long length) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO file_blobs (data, size_bytes, sha256, ref_count, created_at) VALUES (?, ?, ?, 1, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            ps.setBinaryStream(1, content, length);
+            ps.setLong(2, length);
+            ps.setString(3, sha256);
+            ps.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            return ps;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+}
@@ -0,0 +1,103 @@
+package com.careconnect.service;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a BLOB column in fixed-size chunks with SUBSTRING queries, so at most one
+ * chunk of the object is held in memory regardless of its size.
+ */
+class DatabaseBlobInputStream extends InputStream {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String chunkSql;
+    private final long rowId;
+    private final long end;
+    private final int chunkSize;
+
+    private long position;
+    private byte[] buffer = EMPTY;
+    private int bufferPos;
+    private boolean closed;
+
+    /**
+     * @param chunkSql query taking (1-based start, length, row id) and returning the chunk bytes
+     */
+    DatabaseBlobInputStream(JdbcTemplate jdbcTemplate, String chunkSql, long rowId,
+                            long offset, long length, int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkSql = chunkSql;
+        this.rowId = rowId;
+        this.position = offset;
+        this.end = offset + length;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return buffer[bufferPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, buffer.length - bufferPos);
+        System.arraycopy(buffer, bufferPos, b, off, n);
+        bufferPos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return buffer.length - bufferPos;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        buffer = EMPTY;
+    }
+
+    private boolean fill() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (bufferPos < buffer.length) {
+            return true;
+        }
+        if (position >= end) {
+            return false;
+        }
+
+        int size = (int) Math.min(chunkSize, end - position);
+        byte[] chunk;
+        try {
+            chunk = jdbcTemplate.queryForObject(chunkSql, byte[].class, position + 1, size, rowId);
+        } catch (DataAccessException e) {
+            throw new IOException("Failed to read chunk at " + position + " of file " + rowId, e);
+        }
+
+        if (chunk == null || chunk.length == 0) {
+            // Object is shorter than its recorded size; treat as end of stream
+            position = end;
+            return false;
+        }
+        buffer = chunk;
+        bufferPos = 0;
+        position += chunk.length;
+        return true;
+    }
+}
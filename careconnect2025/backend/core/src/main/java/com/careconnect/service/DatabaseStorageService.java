@@ -1,16 +1,29 @@
 package com.careconnect.service;
 
+import com.careconnect.model.FileBlob;
+import com.careconnect.model.ImageVariant;
 import com.careconnect.model.UserFile;
+import com.careconnect.repository.FileBlobRepository;
+import com.careconnect.repository.ImageVariantRepository;
 import com.careconnect.repository.UserFileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,19 +31,34 @@ import java.util.stream.Collectors;
 @Slf4j
 public class DatabaseStorageService implements StorageService {
     
+    private static final String CHUNK_SQL = "SELECT SUBSTRING(data, ?, ?) FROM file_blobs WHERE id = ?";
+    
     private final UserFileRepository userFileRepository;
+    private final FileBlobRepository fileBlobRepository;
+    private final ContentBlobStore contentBlobStore;
+    private final ImageVariantRepository imageVariantRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Value("${app.file.storage.stream-chunk-size:262144}")
+    private int streamChunkSize;
     
     @Override
+    @Transactional
     public String upload(String path, byte[] content, String mimeType) {
         // For direct byte array uploads, we'll create a generic file entry
         // This method is mainly for backward compatibility
         try {
+            Long blobId = contentBlobStore.store(
+                    ContentBlobStore.sha256Hex(new ByteArrayInputStream(content)),
+                    new ByteArrayInputStream(content), content.length);
+            
             UserFile userFile = UserFile.builder()
                     .filename(generateFilenameFromPath(path))
                     .originalFilename(generateFilenameFromPath(path))
                     .contentType(mimeType)
                     .fileSize((long) content.length)
-                    .fileData(content)
+                    .blobId(blobId)
                     .ownerId(extractUserIdFromPath(path))
                     .ownerType(extractOwnerTypeFromPath(path))
                     .fileCategory(UserFile.FileCategory.OTHER_DOCUMENT)
@@ -49,6 +77,36 @@ public class DatabaseStorageService implements StorageService {
     }
     
     @Override
+    @Transactional
+    public String upload(String path, InputStream content, long contentLength, String mimeType) {
+        try {
+            Long blobId = contentBlobStore.store(content, contentLength);
+            
+            UserFile userFile = UserFile.builder()
+                    .filename(generateFilenameFromPath(path))
+                    .originalFilename(generateFilenameFromPath(path))
+                    .contentType(mimeType)
+                    .fileSize(contentLength)
+                    .blobId(blobId)
+                    .ownerId(extractUserIdFromPath(path))
+                    .ownerType(extractOwnerTypeFromPath(path))
+                    .fileCategory(UserFile.FileCategory.OTHER_DOCUMENT)
+                    .storageType(UserFile.StorageType.DATABASE)
+                    .description("Direct upload via API")
+                    .build();
+            
+            UserFile saved = userFileRepository.save(userFile);
+            log.info("File streamed to database with ID: {}", saved.getId());
+            
+            return "db://files/" + saved.getId();
+        } catch (Exception e) {
+            log.error("Failed to upload file to database: {}", path, e);
+            throw new RuntimeException("Failed to upload file to database", e);
+        }
+    }
+    
+    @Override
+    @Transactional
     public String uploadFile(MultipartFile file, Long userId, String userType, String category) {
         try {
             log.info("Starting database file upload for user: {}, type: {}, category: {}", 
@@ -66,13 +124,24 @@ public class DatabaseStorageService implements StorageService {
             UserFile.FileCategory fileCategory = mapCategoryToEnum(category);
             Long patientId = determinePatientId(userId, ownerType);
             
+            // Hash the upload first so duplicate content never gets written again,
+            // then stream it into the blob store and record the metadata
+            String sha256;
+            try (InputStream in = file.getInputStream()) {
+                sha256 = ContentBlobStore.sha256Hex(in);
+            }
+            Long blobId;
+            try (InputStream in = file.getInputStream()) {
+                blobId = contentBlobStore.store(sha256, in, file.getSize());
+            }
+            
             // Create file entity
             UserFile userFile = UserFile.builder()
                     .filename(filename)
                     .originalFilename(file.getOriginalFilename())
                     .contentType(file.getContentType())
                     .fileSize(file.getSize())
-                    .fileData(file.getBytes())
+                    .blobId(blobId)
                     .ownerId(userId)
                     .ownerType(ownerType)
                     .fileCategory(fileCategory)
@@ -106,8 +175,12 @@ public class DatabaseStorageService implements StorageService {
                 throw new RuntimeException("File has been deleted: " + path);
             }
             
+            byte[] data = fileBlobRepository.findById(userFile.getBlobId())
+                    .map(FileBlob::getData)
+                    .orElseThrow(() -> new RuntimeException("File content missing: " + path));
+            
             log.info("Downloaded file from database: ID={}, size={} bytes", fileId, userFile.getFileSize());
-            return userFile.getFileData();
+            return data;
             
         } catch (Exception e) {
             log.error("Failed to download file from database: {}", path, e);
@@ -115,6 +188,44 @@ public class DatabaseStorageService implements StorageService {
         }
     }
     
+    @Override
+    public StorageStream openStream(String path, long offset, long length) {
+        Long fileId = extractFileIdFromPath(path);
+        Map<String, Object> meta;
+        try {
+            meta = jdbcTemplate.queryForMap(
+                    "SELECT b.id AS blob_id, b.size_bytes AS size, f.content_type FROM user_files f " +
+                    "JOIN file_blobs b ON b.id = f.blob_id WHERE f.id = ? AND f.is_active = TRUE",
+                    fileId);
+        } catch (EmptyResultDataAccessException e) {
+            throw new RuntimeException("File not found: " + path, e);
+        }
+        
+        long blobId = ((Number) meta.get("blob_id")).longValue();
+        long total = meta.get("size") != null ? ((Number) meta.get("size")).longValue() : 0L;
+        long start = Math.min(Math.max(offset, 0), total);
+        long count = length < 0 ? total - start : Math.min(length, total - start);
+        
+        log.debug("Opened database stream: ID={}, offset={}, length={}, total={}", fileId, start, count, total);
+        return new StorageStream(
+                new DatabaseBlobInputStream(jdbcTemplate, CHUNK_SQL, blobId, start, count, streamChunkSize),
+                start, count, total, (String) meta.get("content_type"));
+    }
+    
+    /**
+     * Opens a stream over a blob that is not addressed through a user_files row (e.g. image variants).
+     */
+    public StorageStream openBlobStream(Long blobId, String contentType) {
+        List<Long> sizes = jdbcTemplate.queryForList("SELECT size_bytes FROM file_blobs WHERE id = ?", Long.class, blobId);
+        if (sizes.isEmpty()) {
+            throw new RuntimeException("Blob not found: " + blobId);
+        }
+        long size = sizes.get(0);
+        return new StorageStream(
+                new DatabaseBlobInputStream(jdbcTemplate, CHUNK_SQL, blobId, 0, size, streamChunkSize),
+                0, size, size, contentType);
+    }
+    
     @Override
     public String getFileUrl(String path) {
         // For database storage, we'll return a URL that points to our download endpoint
@@ -128,6 +239,7 @@ public class DatabaseStorageService implements StorageService {
     }
     
     @Override
+    @Transactional
     public void deleteFile(String path) {
         try {
             Long fileId = extractFileIdFromPath(path);
@@ -135,8 +247,7 @@ public class DatabaseStorageService implements StorageService {
                     .orElseThrow(() -> new RuntimeException("File not found: " + path));
             
             // Soft delete - mark as inactive
-            userFile.setIsActive(false);
-            userFileRepository.save(userFile);
+            softDelete(userFile);
             
             log.info("File soft deleted from database: ID={}", fileId);
             
@@ -146,6 +257,33 @@ public class DatabaseStorageService implements StorageService {
         }
     }
     
+    /**
+     * Marks a file inactive and drops its references to shared content: its own blob and
+     * those of its image variants, whose rows are deleted. Blobs are deleted once nothing
+     * else points at them; variant objects in S3 are removed after commit if unshared.
+     * Runs in the caller's transaction.
+     */
+    public void softDelete(UserFile userFile) {
+        Long blobId = userFile.getBlobId();
+        userFile.setIsActive(false);
+        userFile.setBlobId(null);
+        // Flush before the JDBC release so the row no longer points at the blob
+        userFileRepository.saveAndFlush(userFile);
+        contentBlobStore.release(blobId);
+
+        List<ImageVariant> variants = imageVariantRepository.findByFileIdOrderByWidthAsc(userFile.getId());
+        if (variants.isEmpty()) {
+            return;
+        }
+        imageVariantRepository.deleteAll(variants);
+        imageVariantRepository.flush();
+        variants.forEach(variant -> contentBlobStore.release(variant.getBlobId()));
+        List<String> s3Paths = variants.stream().map(ImageVariant::getS3Path).filter(Objects::nonNull).toList();
+        if (!s3Paths.isEmpty()) {
+            eventPublisher.publishEvent(new ImageVariantsDeletedEvent(userFile.getId(), s3Paths));
+        }
+    }
+    
     @Override
     public List<String> listUserFiles(Long userId, String userType) {
         try {
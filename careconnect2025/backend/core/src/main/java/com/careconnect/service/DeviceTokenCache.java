@@ -0,0 +1,138 @@
+package com.careconnect.service;
+
+import com.careconnect.repository.DeviceTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Active FCM tokens per user, kept as plain arrays for push fan-out.
+ *
+ * Entries are loaded on demand (misses for a batch of users are loaded with one query that
+ * reads user ids straight from the column, so no User entities are touched), and kept
+ * current by token registration, unregistration and pruning. A TTL bounds staleness when
+ * tokens are changed by another instance.
+ */
+@Service
+@Slf4j
+public class DeviceTokenCache {
+
+    private static final String[] NO_TOKENS = new String[0];
+
+    private final DeviceTokenRepository deviceTokenRepository;
+    private final long ttlMs;
+
+    // userId -> active tokens
+    private final Map<Long, Entry> tokensByUser = new ConcurrentHashMap<>();
+
+    // token -> userId, so unregister/prune by token can find the owning entry
+    private final Map<String, Long> ownerByToken = new ConcurrentHashMap<>();
+
+    public DeviceTokenCache(DeviceTokenRepository deviceTokenRepository,
+                            @Value("${firebase.push.token-cache-ttl-minutes:30}") long ttlMinutes) {
+        this.deviceTokenRepository = deviceTokenRepository;
+        this.ttlMs = ttlMinutes * 60_000L;
+    }
+
+    public String[] getActiveTokens(Long userId) {
+        Entry entry = tokensByUser.get(userId);
+        if (entry != null && !entry.isExpired(ttlMs)) {
+            return entry.tokens;
+        }
+        return getActiveTokens(List.of(userId)).getOrDefault(userId, NO_TOKENS);
+    }
+
+    /**
+     * Active tokens for each user; users without tokens map to an empty array.
+     */
+    public Map<Long, String[]> getActiveTokens(Collection<Long> userIds) {
+        Map<Long, String[]> result = new LinkedHashMap<>();
+        List<Long> misses = new ArrayList<>();
+
+        for (Long userId : userIds) {
+            Entry entry = tokensByUser.get(userId);
+            if (entry != null && !entry.isExpired(ttlMs)) {
+                result.put(userId, entry.tokens);
+            } else if (!result.containsKey(userId)) {
+                misses.add(userId);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            Map<Long, List<String>> loaded = new HashMap<>();
+            for (Object[] row : deviceTokenRepository.findActiveTokenPairsByUserIds(misses)) {
+                loaded.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+            }
+            for (Long userId : misses) {
+                List<String> tokens = loaded.get(userId);
+                String[] array = tokens != null ? tokens.toArray(new String[0]) : NO_TOKENS;
+                put(userId, array);
+                result.put(userId, array);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * A token was registered or re-registered for the user; reload on next use.
+     */
+    public void invalidate(Long userId) {
+        Entry removed = tokensByUser.remove(userId);
+        if (removed != null) {
+            for (String token : removed.tokens) {
+                ownerByToken.remove(token, userId);
+            }
+        }
+    }
+
+    /**
+     * Tokens were deactivated (unregistered or pruned after an FCM error).
+     */
+    public void removeTokens(Collection<String> tokens) {
+        for (String token : tokens) {
+            Long userId = ownerByToken.remove(token);
+            if (userId == null) {
+                continue;
+            }
+            tokensByUser.computeIfPresent(userId, (id, entry) -> {
+                String[] remaining = Arrays.stream(entry.tokens)
+                        .filter(t -> !t.equals(token))
+                        .toArray(String[]::new);
+                return new Entry(remaining, entry.loadedAt);
+            });
+        }
+    }
+
+    @Scheduled(fixedRate = 600000) // Every 10 minutes
+    public void evictExpired() {
+        tokensByUser.forEach((userId, entry) -> {
+            if (entry.isExpired(ttlMs)) {
+                invalidate(userId);
+            }
+        });
+    }
+
+    private void put(Long userId, String[] tokens) {
+        tokensByUser.put(userId, new Entry(tokens, System.currentTimeMillis()));
+        for (String token : tokens) {
+            ownerByToken.put(token, userId);
+        }
+    }
+
+    private record Entry(String[] tokens, long loadedAt) {
+        boolean isExpired(long ttlMs) {
+            return System.currentTimeMillis() - loadedAt > ttlMs;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.careconnect.service;
+
+import com.careconnect.dto.EmailOutboxMessageDTO;
+import com.careconnect.model.EmailOutboxMessage;
+import com.careconnect.repository.EmailOutboxRepository;
+import com.careconnect.util.TokenBucket;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers emails from the outbox off the request path.
+ *
+ * A bounded pool of workers sends due messages. Each attempt is claimed with a conditional
+ * update, so several instances can share the outbox, and tries the delivery providers in
+ * failover order, each behind its own rate limit. Provider calls have timeouts well below
+ * the lease, and no further provider is started once half the lease is spent, so an attempt
+ * finishes before another instance could re-claim the message. The SENT and failure marks
+ * also only apply while the claim for that attempt is still held. When every provider fails
+ * the message is retried with exponential backoff; after the last attempt it is marked DEAD
+ * and stays in the dead-letter list, without its body, until the dead-letter retention purges it.
+ */
+@Service
+@Slf4j
+public class EmailOutboxWorker {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailService emailService;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final long leaseMs;
+    private final double ratePerSecond;
+    private final Duration retention;
+    private final Duration deadRetention;
+    private final ExecutorService workers;
+
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    // Messages handed to a worker by this instance and not finished yet
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final Map<String, TokenBucket> providerLimits = new ConcurrentHashMap<>();
+
+    public EmailOutboxWorker(EmailOutboxRepository emailOutboxRepository,
+                             EmailService emailService,
+                             @Value("${careconnect.email.outbox.worker-threads:4}") int workerThreads,
+                             @Value("${careconnect.email.outbox.batch-size:50}") int batchSize,
+                             @Value("${careconnect.email.outbox.max-attempts:8}") int maxAttempts,
+                             @Value("${careconnect.email.outbox.backoff-base-ms:30000}") long backoffBaseMs,
+                             @Value("${careconnect.email.outbox.backoff-max-ms:3600000}") long backoffMaxMs,
+                             @Value("${careconnect.email.outbox.lease-ms:120000}") long leaseMs,
+                             @Value("${careconnect.email.outbox.rate-per-second:10}") double ratePerSecond,
+                             @Value("${careconnect.email.outbox.retention-days:7}") long retentionDays,
+                             @Value("${careconnect.email.outbox.dead-retention-days:30}") long deadRetentionDays) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailService = emailService;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.leaseMs = leaseMs;
+        this.ratePerSecond = Math.max(1, ratePerSecond);
+        this.retention = Duration.ofDays(retentionDays);
+        this.deadRetention = Duration.ofDays(deadRetentionDays);
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerThreads));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEmailQueued(EmailQueuedEvent event) {
+        // Send new messages right away instead of waiting for the next poll
+        CompletableFuture.runAsync(this::drain);
+    }
+
+    @Scheduled(fixedDelayString = "${careconnect.email.outbox.poll-interval-ms:5000}")
+    public void scheduledDrain() {
+        drain();
+    }
+
+    /**
+     * Hands due messages to the workers, keeping at most one batch in flight.
+     */
+    public void drain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int room = batchSize - inFlight.size();
+            if (room <= 0) {
+                return;
+            }
+            List<EmailOutboxMessage> due = emailOutboxRepository.findDue(Instant.now(), room);
+            for (EmailOutboxMessage message : due) {
+                if (inFlight.add(message.getId())) {
+                    workers.execute(() -> {
+                        try {
+                            send(message);
+                        } catch (Exception e) {
+                            log.error("Email outbox worker failed on message {}", message.getId(), e);
+                        } finally {
+                            inFlight.remove(message.getId());
+                        }
+                    });
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to poll the email outbox", e);
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    @Scheduled(cron = "0 30 4 * * *")
+    public void purgeSent() {
+        Instant cutoff = Instant.now().minus(retention);
+        int deleted, total = 0;
+        do {
+            deleted = emailOutboxRepository.deleteSentBefore(cutoff, 1000);
+            total += deleted;
+        } while (deleted > 0);
+        if (total > 0) {
+            log.info("Purged {} sent outbox emails", total);
+        }
+
+        Instant deadCutoff = Instant.now().minus(deadRetention);
+        total = 0;
+        do {
+            deleted = emailOutboxRepository.deleteDeadBefore(deadCutoff, 1000);
+            total += deleted;
+        } while (deleted > 0);
+        if (total > 0) {
+            log.info("Purged {} dead outbox emails", total);
+        }
+    }
+
+    public List<EmailOutboxMessageDTO> getDeadLetters(int page, int size) {
+        return emailOutboxRepository.findByStatusOrderByIdDesc(EmailOutboxMessage.Status.DEAD,
+                        PageRequest.of(Math.max(0, page), Math.min(Math.max(1, size), 200)))
+                .map(EmailOutboxMessageDTO::from)
+                .getContent();
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        for (Object[] row : emailOutboxRepository.countByStatus()) {
+            status.put(String.valueOf(row[0]), row[1]);
+        }
+        status.put("inFlight", inFlight.size());
+        status.put("providers", emailService.getDeliveryProviders());
+        return status;
+    }
+
+    /**
+     * One attempt at a message, trying each provider in turn. Returns true if it was sent.
+     */
+    boolean send(EmailOutboxMessage message) {
+        Instant now = Instant.now();
+        if (emailOutboxRepository.claim(message.getId(), message.getAttempts(), now, now.plusMillis(leaseMs)) == 0) {
+            return false;
+        }
+        int attempt = message.getAttempts() + 1;
+        Instant lastStart = now.plusMillis(leaseMs / 2);
+
+        String lastProvider = null;
+        StringBuilder errors = new StringBuilder();
+        for (String provider : emailService.getDeliveryProviders()) {
+            if (lastProvider != null && Instant.now().isAfter(lastStart)) {
+                // Leave the remaining providers to the next attempt rather than outlive the lease
+                errors.append("; out of time before ").append(provider);
+                break;
+            }
+            lastProvider = provider;
+            try {
+                providerLimits.computeIfAbsent(provider, p -> new TokenBucket(ratePerSecond)).take();
+                emailService.deliver(provider, message.getRecipient(), message.getSubject(),
+                        message.getHtmlContent(), message.getTextContent());
+                if (emailOutboxRepository.markSent(message.getId(), attempt, provider, Instant.now()) == 0) {
+                    log.warn("Lease on outbox email {} expired before attempt {} was recorded as sent via {}",
+                            message.getId(), attempt, provider);
+                } else {
+                    log.debug("Sent outbox email {} via {} on attempt {}", message.getId(), provider, attempt);
+                }
+                return true;
+            } catch (Exception e) {
+                if (errors.length() > 0) {
+                    errors.append("; ");
+                }
+                errors.append(provider).append(": ").append(e.getMessage());
+                log.warn("Email {} failed via {}: {}", message.getId(), provider, e.getMessage());
+            }
+        }
+
+        boolean exhausted = attempt >= maxAttempts;
+        String error = errors.length() > MAX_ERROR_LENGTH ? errors.substring(0, MAX_ERROR_LENGTH) : errors.toString();
+        if (emailOutboxRepository.markFailedAttempt(message.getId(), attempt,
+                (exhausted ? EmailOutboxMessage.Status.DEAD : EmailOutboxMessage.Status.PENDING).name(),
+                Instant.now().plusMillis(backoff(attempt)), lastProvider, error) == 0) {
+            log.warn("Lease on outbox email {} expired during failed attempt {}: {}", message.getId(), attempt, error);
+            return false;
+        }
+        if (exhausted) {
+            log.error("Giving up on email {} to {} after {} attempts: {}",
+                    message.getId(), message.getRecipient(), attempt, error);
+        }
+        return false;
+    }
+
+    // Exponential backoff with up to 20% jitter so retries after a provider outage spread out
+    private long backoff(int attempt) {
+        long delay = backoffBaseMs << Math.min(attempt - 1, 30);
+        if (delay <= 0 || delay > backoffMaxMs) {
+            delay = backoffMaxMs;
+        }
+        return delay + ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,6 @@
+package com.careconnect.service;
+
+/**
+ * Published once an email has been written to the outbox.
+ */
+public record EmailQueuedEvent(Long messageId) {}
@@ -1,14 +1,20 @@
 package com.careconnect.service;
 
+import com.careconnect.model.EmailOutboxMessage;
+import com.careconnect.repository.EmailOutboxRepository;
+import com.careconnect.util.EmailTemplates;
+import jakarta.annotation.PostConstruct;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
@@ -23,12 +29,30 @@ import com.sendgrid.SendGrid;
 import com.sendgrid.helpers.mail.Mail;
 import com.sendgrid.helpers.mail.objects.Email;
 import com.sendgrid.helpers.mail.objects.Content;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.HttpClients;
 import java.io.IOException;
+import lombok.extern.slf4j.Slf4j;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-
+import java.util.Set;
+
+/**
+ * Builds CareConnect emails and queues them in the outbox.
+ *
+ * The public send methods only write an outbox row, joining the caller's transaction, so
+ * an email exists exactly when the change that triggered it commits and the request does
+ * not wait on the provider. {@link EmailOutboxWorker} delivers queued messages through
+ * {@link #deliver}, trying the configured provider first and then the failover providers.
+ */
 @Service
+@Slf4j
 public class EmailService {
     
     @Value("${careconnect.email.provider:mailtrap}")
@@ -62,179 +86,202 @@ public class EmailService {
     @Value("${frontend.base-url:http://localhost:3000}")
     private String frontendBaseUrl;
 
+    // Providers tried in order after the primary one when a delivery attempt fails
+    @Value("${careconnect.email.failover-providers:}")
+    private List<String> failoverProviders;
+
     @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
     @Autowired(required = false)
     private JavaMailSender mailSender;
 
-    @Autowired
+    @Value("${careconnect.email.http-connect-timeout-ms:10000}")
+    private int httpConnectTimeoutMs;
+
+    @Value("${careconnect.email.http-read-timeout-ms:20000}")
+    private int httpReadTimeoutMs;
+
+    // Provider API calls only; built with timeouts so a hung provider can't outlive the outbox lease
     private RestTemplate restTemplate;
 
-        /**
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private EmailTemplates emailTemplates;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Thread-safe and reused for every SendGrid delivery
+    private SendGrid sendGrid;
+
+    @PostConstruct
+    void initClients() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(httpConnectTimeoutMs);
+        requestFactory.setReadTimeout(httpReadTimeoutMs);
+        restTemplate = new RestTemplate(requestFactory);
+
+        if (sendgridApiKey != null && !sendgridApiKey.isBlank()) {
+            RequestConfig requestConfig = RequestConfig.custom()
+                    .setConnectTimeout(httpConnectTimeoutMs)
+                    .setSocketTimeout(httpReadTimeoutMs)
+                    .build();
+            sendGrid = new SendGrid(sendgridApiKey,
+                    new Client(HttpClients.custom().setDefaultRequestConfig(requestConfig).build()));
+        }
+    }
+
+    /**
      * Send password setup email with backend-generated credentials
      */
     public void sendPasswordSetupEmailWithCredentials(String recipientEmail, String passwordSetupToken, String firstName, String username, String password) {
         String setupLink = frontendBaseUrl + "/setup-password?token=" + passwordSetupToken;
-        String subject = "Welcome to CareConnect - Complete Your Registration";
-        
         boolean isTemporaryPassword = password.length() == 12 && password.matches(".*[A-Z].*[a-z].*[0-9].*[!@#$%^&*()_+\\-=].*");
-        String htmlContent = buildWelcomeEmailHtml(firstName, setupLink, username, password, isTemporaryPassword);
-        
-        String textContent = "Hello " + (firstName != null ? firstName : "") + ",\n\n" +
-                "Your CareConnect account has been created.\n" +
-                "Username: " + username + "\n" +
-                (isTemporaryPassword ? "Temporary Password: " : "Password: ") + password + "\n\n" +
-                "Please complete your registration by clicking this link: " + setupLink + "\n\n" +
-                (isTemporaryPassword ? "For security, please change your password after logging in." : "");
-        
-        sendEmail(recipientEmail, subject, htmlContent, textContent);
-    }
 
-    /**
-     * HTML template for password setup email with credentials
-     */
-    private String buildWelcomeEmailHtml(String firstName, String setupLink, String username, String password, boolean isTemporary) {
-        return "<html><body style='font-family: Arial, sans-serif; line-height: 1.6; color: #333;'>" +
-                "<div style='max-width: 600px; margin: 0 auto; padding: 20px;'>" +
-                "<h2 style='color: #007bff;'>Welcome to CareConnect!</h2>" +
-                "<p>Hello " + (firstName != null ? firstName : "") + ",</p>" +
-                "<p>Your CareConnect account has been created. Here are your login credentials:</p>" +
-                "<div style='background: #f8f9fa; border-radius: 5px; padding: 15px; margin: 20px 0;'>" +
-                "<strong>Username (Email):</strong> " + username + "<br>" +
-                "<strong>" + (isTemporary ? "Temporary Password" : "Password") + ":</strong> " +
-                "<span style='font-family: monospace;'>" + password + "</span>" +
-                "</div>" +
-                "<p><strong>Next Steps:</strong></p>" +
-                "<ol>" +
-                "<li>Click the button below to complete your registration</li>" +
-                (isTemporary ? "<li>After registering, please change your temporary password</li>" : "") +
-                "</ol>" +
-                "<div style='text-align: center; margin: 30px 0;'>" +
-                "<a href='" + setupLink + "' style='background-color: #007bff; color: white; padding: 12px 24px; " +
-                "text-decoration: none; border-radius: 5px;'>Complete Registration</a>" +
-                "</div>" +
-                "</div>" +
-                "<p style='margin-top: 30px; font-size: 14px; color: #666;'>If you did not expect this email, please contact your caregiver.</p>" +
-                "</div></body></html>";
+        sendTemplate(recipientEmail, EmailTemplates.Template.WELCOME_CREDENTIALS, model(
+                "firstName", firstName, "link", setupLink,
+                "username", username, "password", password, "temporary", isTemporaryPassword));
     }
 
     public void sendVerificationEmail(String recipientEmail, String verificationLink) {
-        String subject = "CareConnect Email Verification";
-        String htmlContent = buildVerificationEmailHtml(verificationLink);
-        String textContent = "Please verify your email by clicking: " + verificationLink;
-        
-        sendEmail(recipientEmail, subject, htmlContent, textContent);
+        sendTemplate(recipientEmail, EmailTemplates.Template.VERIFICATION, model("link", verificationLink));
     }
 
     public void sendPasswordSetupEmail(String recipientEmail, String passwordSetupToken, String firstName) {
         String passwordSetupLink = frontendBaseUrl + "/setup-password?token=" + passwordSetupToken;
-        String subject = "CareConnect - Set Up Your Password";
-        String htmlContent = buildPasswordSetupEmailHtml(firstName, passwordSetupLink);
-        String textContent = "Set up your password by clicking: " + passwordSetupLink;
-        
-        sendEmail(recipientEmail, subject, htmlContent, textContent);
+        sendTemplate(recipientEmail, EmailTemplates.Template.PASSWORD_SETUP, model(
+                "firstName", firstName, "link", passwordSetupLink));
     }
 
     public void sendPasswordResetEmail(String recipientEmail, String resetLink) {
-        String subject = "CareConnect Password Reset";
-        String htmlContent = buildPasswordResetEmailHtml(resetLink);
-        String textContent = "Reset your password by clicking: " + resetLink;
-        
-        sendEmail(recipientEmail, subject, htmlContent, textContent);
+        sendTemplate(recipientEmail, EmailTemplates.Template.PASSWORD_RESET, model("link", resetLink));
     }
 
     public void sendFamilyMemberInviteEmail(String recipientEmail, String firstName, String passwordSetupToken, String patientName) {
         String passwordSetupLink = frontendBaseUrl + "/setup-password?token=" + passwordSetupToken;
-        String subject = "CareConnect - Family Member Invitation";
-        String htmlContent = buildFamilyMemberInviteEmailHtml(firstName, passwordSetupLink, patientName);
-        String textContent = "You've been invited to CareConnect. Set up your password: " + passwordSetupLink;
-        
-        sendEmail(recipientEmail, subject, htmlContent, textContent);
+        sendTemplate(recipientEmail, EmailTemplates.Template.FAMILY_INVITE, model(
+                "firstName", firstName, "link", passwordSetupLink, "patientName", patientName));
     }
 
     public void sendFamilyMemberAccessGrantedEmail(String recipientEmail, String firstName, String patientName) {
         String loginLink = frontendBaseUrl + "/login";
-        String subject = "CareConnect - New Patient Access Granted";
-        String htmlContent = buildFamilyMemberAccessGrantedEmailHtml(firstName, patientName, loginLink);
-        String textContent = "Hello " + (firstName != null ? firstName : "") + ",\n\n" +
-                "You have been granted access to a new patient in CareConnect: " + patientName + ".\n\n" +
-                "You can now log in to view their information: " + loginLink + "\n\n" +
-                "Best regards,\nThe CareConnect Team";
-        
-        sendEmail(recipientEmail, subject, htmlContent, textContent);
+        sendTemplate(recipientEmail, EmailTemplates.Template.FAMILY_ACCESS_GRANTED, model(
+                "firstName", firstName, "link", loginLink, "patientName", patientName));
     }
 
     /**
-     * HTML template for family member access granted email
+     * Queue "access expiring soon" reminders, one per recipient and model. Each model holds
+     * firstName, patientName and expiresAt; the login link is added here.
      */
-    private String buildFamilyMemberAccessGrantedEmailHtml(String firstName, String patientName, String loginLink) {
-        return "<html><body style='font-family: Arial, sans-serif; line-height: 1.6; color: #333;'>" +
-                "<div style='max-width: 600px; margin: 0 auto; padding: 20px;'>" +
-                "<h2 style='color: #007bff;'>New Patient Access Granted</h2>" +
-                "<p>Hello " + (firstName != null ? firstName : "") + ",</p>" +
-                "<p>You have been granted access to a new patient in CareConnect:</p>" +
-                "<div style='background: #f8f9fa; border-radius: 5px; padding: 15px; margin: 20px 0;'>" +
-                "<strong>Patient:</strong> " + patientName +
-                "</div>" +
-                "<p>You can now log in to view their information and assist with their care.</p>" +
-                "<div style='text-align: center; margin: 30px 0;'>" +
-                "<a href='" + loginLink + "' style='background-color: #007bff; color: white; padding: 12px 24px; " +
-                "text-decoration: none; border-radius: 5px;'>Log In to CareConnect</a>" +
-                "</div>" +
-                "<p style='margin-top: 30px; font-size: 14px; color: #666;'>If you did not expect this access, please contact the patient or their caregiver.</p>" +
-                "</div></body></html>";
+    public void sendLinkExpiryReminders(List<String> recipientEmails, List<Map<String, Object>> models) {
+        String loginLink = frontendBaseUrl + "/login";
+        models.forEach(model -> model.put("link", loginLink));
+        sendTemplateBatch(recipientEmails, EmailTemplates.Template.LINK_EXPIRY_REMINDER, models);
     }
 
     /**
-     * Core email sending method that routes to appropriate provider
+     * Renders a template and queues the result.
+     */
+    public void sendTemplate(String recipientEmail, EmailTemplates.Template template, Map<String, Object> model) {
+        EmailTemplates.RenderedEmail email = emailTemplates.render(template, model);
+        sendEmail(recipientEmail, email.subject(), email.html(), email.text());
+    }
+
+    /**
+     * Renders one template for many recipients and queues the results. The recipient
+     * list and the model list are matched by position.
+     */
+    public void sendTemplateBatch(List<String> recipientEmails, EmailTemplates.Template template, List<Map<String, Object>> models) {
+        if (recipientEmails.size() != models.size()) {
+            throw new IllegalArgumentException("Expected one model per recipient");
+        }
+        List<EmailTemplates.RenderedEmail> emails = emailTemplates.renderAll(template, models);
+        for (int i = 0; i < emails.size(); i++) {
+            EmailTemplates.RenderedEmail email = emails.get(i);
+            sendEmail(recipientEmails.get(i), email.subject(), email.html(), email.text());
+        }
+    }
+
+    // Template model from alternating names and values; unlike Map.of, values may be null
+    public static Map<String, Object> model(Object... namesAndValues) {
+        Map<String, Object> model = new HashMap<>();
+        for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+            model.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return model;
+    }
+
+    /**
+     * Queues an email in the outbox. Runs in the caller's transaction when there is one.
      */
     private void sendEmail(String recipientEmail, String subject, String htmlContent, String textContent) {
-        try {
-            switch (emailProvider.toLowerCase()) {
-                case "console":
-                case "dev":
-                    sendConsoleEmail(recipientEmail, subject, textContent);
-                    break;
-                case "resend":
-                    sendResendEmail(recipientEmail, subject, htmlContent);
-                    break;
-                case "sendgrid":
-                    sendSendgridEmail(recipientEmail, subject, htmlContent);
-                    break;
-                case "mailgun":
-                    sendMailgunEmail(recipientEmail, subject, htmlContent);
-                    break;
-                case "smtp":
-                case "mailtrap":
-                case "gmail":
-                default:
-                    sendSmtpEmail(recipientEmail, subject, htmlContent);
-                    break;
-            }
-        } catch (Exception e) {
-            System.err.println("❌ Failed to send email via " + emailProvider + ": " + e.getMessage());
-            e.printStackTrace();
-            
-            // Fallback to console mode if email sending fails
-            // BUT NOT for console or dev modes (they don't "fail")
-            if (!"console".equals(emailProvider) && !"dev".equals(emailProvider)) {
-                // System.out.println("🔄 Falling back to console mode...");
-                sendConsoleEmail(recipientEmail, subject, textContent);
+        Instant now = Instant.now();
+        EmailOutboxMessage message = emailOutboxRepository.save(EmailOutboxMessage.builder()
+                .recipient(recipientEmail)
+                .subject(subject)
+                .htmlContent(htmlContent)
+                .textContent(textContent)
+                .status(EmailOutboxMessage.Status.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+        eventPublisher.publishEvent(new EmailQueuedEvent(message.getId()));
+    }
+
+    /**
+     * Providers to try for each delivery attempt: the configured provider, then the
+     * failover providers, without duplicates.
+     */
+    public List<String> getDeliveryProviders() {
+        Set<String> providers = new LinkedHashSet<>();
+        providers.add(normalizeProvider(emailProvider));
+        if (failoverProviders != null) {
+            for (String provider : failoverProviders) {
+                if (provider != null && !provider.isBlank()) {
+                    providers.add(normalizeProvider(provider));
+                }
             }
         }
+        return new ArrayList<>(providers);
     }
 
     /**
-     * Console/Development mode - log email to console
+     * Sends one email through the given provider right away, throwing if it fails.
      */
-    private void sendConsoleEmail(String recipientEmail, String subject, String content) {
-        // Console mode disabled - email would be logged here
-        // System.out.println("🔧 DEV MODE - Email logged to console:");
-        // System.out.println("  Provider: " + emailProvider);
-        // System.out.println("  To: " + recipientEmail);
-        // System.out.println("  From: " + fromEmail);
-        // System.out.println("  Subject: " + subject);
-        // System.out.println("  Content: " + content);
-        // System.out.println("  ===================================");
+    public void deliver(String provider, String recipientEmail, String subject, String htmlContent, String textContent) {
+        switch (normalizeProvider(provider)) {
+            case "console":
+                log.info("Console email provider, not sending \"{}\" to {}", subject, recipientEmail);
+                break;
+            case "resend":
+                sendResendEmail(recipientEmail, subject, htmlContent);
+                break;
+            case "sendgrid":
+                sendSendgridEmail(recipientEmail, subject, htmlContent);
+                break;
+            case "mailgun":
+                sendMailgunEmail(recipientEmail, subject, htmlContent);
+                break;
+            default:
+                sendSmtpEmail(recipientEmail, subject, htmlContent);
+                break;
+        }
+    }
+
+    // SMTP-backed names share one transport; dev is an alias for console
+    private static String normalizeProvider(String provider) {
+        String name = provider.trim().toLowerCase(Locale.ROOT);
+        switch (name) {
+            case "dev":
+                return "console";
+            case "mailtrap":
+            case "gmail":
+                return "smtp";
+            default:
+                return name;
+        }
     }
 
     /**
@@ -309,7 +356,7 @@ public class EmailService {
      * SendGrid API - Production-grade email service
      */
     private void sendSendgridEmail(String recipientEmail, String subject, String htmlContent) {
-        if (sendgridApiKey == null || sendgridApiKey.trim().isEmpty()) {
+        if (sendGrid == null) {
             throw new RuntimeException("SendGrid API key not configured. Set SENDGRID_API_KEY environment variable.");
         }
 
@@ -319,24 +366,12 @@ public class EmailService {
             Content content = new Content("text/html", htmlContent);
             Mail mail = new Mail(from, subject, to, content);
 
-            SendGrid sg = new SendGrid(sendgridApiKey);
             Request request = new Request();
             request.setMethod(Method.POST);
             request.setEndpoint("mail/send");
             request.setBody(mail.build());
 
-            // Print outgoing request details for debugging
-            System.out.println("\n==== SENDGRID OUTGOING REQUEST ====");
-            System.out.println("API KEY: " + (sendgridApiKey != null ? sendgridApiKey.substring(0, 8) + "..." : "null"));
-            System.out.println("From: " + fromEmail);
-            System.out.println("To: " + recipientEmail);
-            System.out.println("Subject: " + subject);
-            System.out.println("Body (truncated): " + htmlContent.substring(0, Math.min(200, htmlContent.length())) + (htmlContent.length() > 200 ? "..." : ""));
-            System.out.println("Raw JSON Payload: " + mail.build());
-            System.out.println("==== END SENDGRID REQUEST ====");
-
-            Response response = sg.api(request);
-            System.out.println("SendGrid Response: Status=" + response.getStatusCode() + ", Body=" + response.getBody());
+            Response response = sendGrid.api(request);
             if (response.getStatusCode() >= 200 && response.getStatusCode() < 300) {
                 // Email sent successfully
             } else {
@@ -356,20 +391,17 @@ public class EmailService {
             throw new RuntimeException("SMTP configuration not available. Configure JavaMailSender or use a different email provider.");
         }
         if (fromEmail == null || fromEmail.trim().isEmpty()) {
-            System.err.println("❌ ERROR: fromEmail is null or empty! Check your environment variables and application.properties mapping.");
             throw new RuntimeException("FROM_EMAIL (careconnect.email.from) is not set. Email cannot be sent.");
         }
         try {
             MimeMessage message = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(message, true);
             helper.setTo(recipientEmail);
-            System.out.println("DEBUG: Sending SMTP email with FROM: '" + fromEmail + "'");
             helper.setFrom(fromEmail);
             helper.setSubject(subject);
             helper.setText(htmlContent, true);
             mailSender.send(message);
         } catch (MessagingException e) {
-            System.err.println("❌ SMTP Email failed. FROM_EMAIL: '" + fromEmail + "'");
             throw new RuntimeException("Failed to send SMTP email: " + e.getMessage(), e);
         }
     }
@@ -436,83 +468,6 @@ public class EmailService {
         sendHtmlEmail(recipientEmail, subject, htmlContent);
 }
 
-    /**
-     * HTML email templates
-     */
-    private String buildVerificationEmailHtml(String verificationLink) {
-        return "<html><body style='font-family: Arial, sans-serif; line-height: 1.6; color: #333;'>" +
-                "<div style='max-width: 600px; margin: 0 auto; padding: 20px;'>" +
-                "<h2 style='color: #007bff;'>Welcome to CareConnect!</h2>" +
-                "<p>Thank you for registering with CareConnect.</p>" +
-                "<p>Please click the button below to verify your email address:</p>" +
-                "<p style='text-align: center; margin: 30px 0;'>" +
-                "<a href=\"" + verificationLink + "\" style='background-color: #007bff; color: white; padding: 12px 24px; text-decoration: none; border-radius: 5px; display: inline-block;'>VERIFY EMAIL</a>" +
-                "</p>" +
-                "<p>If the button doesn't work, copy and paste this link into your browser:</p>" +
-                "<p style='word-break: break-all; color: #666;'>" + verificationLink + "</p>" +
-                "<p style='margin-top: 30px; font-size: 14px; color: #666;'>If you did not create an account, you can safely ignore this email.</p>" +
-                "</div></body></html>";
-    }
-
-    private String buildPasswordSetupEmailHtml(String firstName, String passwordSetupLink) {
-        return "<html><body style='font-family: Arial, sans-serif; line-height: 1.6; color: #333;'>" +
-                "<div style='max-width: 600px; margin: 0 auto; padding: 20px;'>" +
-                "<h2 style='color: #007bff;'>Set Up Your CareConnect Password</h2>" +
-                "<p>Hello " + (firstName != null ? firstName : "") + ",</p>" +
-                "<p>A caregiver has created an account for you on CareConnect.</p>" +
-                "<p>To complete your account setup, please click the button below to create your password:</p>" +
-                "<p style='text-align: center; margin: 30px 0;'>" +
-                "<a href=\"" + passwordSetupLink + "\" style='background-color: #28a745; color: white; padding: 12px 24px; text-decoration: none; border-radius: 5px; display: inline-block;'>SET UP PASSWORD</a>" +
-                "</p>" +
-                "<p>If the button doesn't work, copy and paste this link into your browser:</p>" +
-                "<p style='word-break: break-all; color: #666;'>" + passwordSetupLink + "</p>" +
-                "<p style='color: #dc3545; font-weight: bold;'>This link will expire in 24 hours for security reasons.</p>" +
-                "<p style='margin-top: 30px; font-size: 14px; color: #666;'>If you did not expect this email, please contact your caregiver.</p>" +
-                "</div></body></html>";
-    }
-
-    private String buildPasswordResetEmailHtml(String resetLink) {
-        return "<html><body style='font-family: Arial, sans-serif; line-height: 1.6; color: #333;'>" +
-                "<div style='max-width: 600px; margin: 0 auto; padding: 20px;'>" +
-                "<h2 style='color: #007bff;'>Reset Your CareConnect Password</h2>" +
-                "<p>You requested a password reset for your CareConnect account.</p>" +
-                "<p>Click the button below to reset your password:</p>" +
-                "<p style='text-align: center; margin: 30px 0;'>" +
-                "<a href=\"" + resetLink + "\" style='background-color: #dc3545; color: white; padding: 12px 24px; text-decoration: none; border-radius: 5px; display: inline-block;'>RESET PASSWORD</a>" +
-                "</p>" +
-                "<p>If the button doesn't work, copy and paste this link into your browser:</p>" +
-                "<p style='word-break: break-all; color: #666;'>" + resetLink + "</p>" +
-                "<p style='color: #dc3545; font-weight: bold;'>This link will expire in 2 hours for security reasons.</p>" +
-                "<p style='margin-top: 30px; font-size: 14px; color: #666;'>If you did not request this password reset, you can safely ignore this email.</p>" +
-                "</div></body></html>";
-    }
-
-    private String buildFamilyMemberInviteEmailHtml(String firstName, String passwordSetupLink, String patientName) {
-        return "<html><body style='font-family: Arial, sans-serif; line-height: 1.6; color: #333;'>" +
-                "<div style='max-width: 600px; margin: 0 auto; padding: 20px;'>" +
-                "<h2 style='color: #007bff;'>You're Invited to CareConnect!</h2>" +
-                "<p>Hello " + (firstName != null ? firstName : "") + ",</p>" +
-                "<p>You have been invited to join CareConnect as a family member to access <strong>" + patientName + "'s</strong> health information.</p>" +
-                "<p>To complete your account setup, please click the button below to create your password:</p>" +
-                "<p style='text-align: center; margin: 30px 0;'>" +
-                "<a href=\"" + passwordSetupLink + "\" style='background-color: #17a2b8; color: white; padding: 12px 24px; text-decoration: none; border-radius: 5px; display: inline-block;'>SET UP PASSWORD</a>" +
-                "</p>" +
-                "<p>If the button doesn't work, copy and paste this link into your browser:</p>" +
-                "<p style='word-break: break-all; color: #666;'>" + passwordSetupLink + "</p>" +
-                "<div style='background-color: #f8f9fa; padding: 15px; border-radius: 5px; margin: 20px 0;'>" +
-                "<p style='margin: 0; font-weight: bold;'>Once you set up your password, you'll be able to:</p>" +
-                "<ul style='margin: 10px 0;'>" +
-                "<li>View patient health information</li>" +
-                "<li>Access vital signs and health metrics</li>" +
-                "<li>See health analytics and reports</li>" +
-                "</ul>" +
-                "<p style='margin: 0; font-style: italic; color: #666;'>Note: Your access is read-only for privacy and security.</p>" +
-                "</div>" +
-                "<p style='color: #dc3545; font-weight: bold;'>This link will expire in 24 hours for security reasons.</p>" +
-                "<p style='margin-top: 30px; font-size: 14px; color: #666;'>If you did not expect this email, please contact the patient or caregiver who invited you.</p>" +
-                "</div></body></html>";
-    }
-
     /**
      * Test email configuration and capabilities
      */
@@ -522,6 +477,7 @@ public class EmailService {
         config.put("providerInfo", getProviderInfo());
         config.put("fromEmail", fromEmail);
         config.put("frontendBaseUrl", frontendBaseUrl);
+        config.put("deliveryProviders", getDeliveryProviders());
         
         // Check provider-specific configuration
         switch (emailProvider.toLowerCase()) {
@@ -12,6 +12,7 @@ import com.careconnect.exception.AppException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -19,8 +20,11 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Period;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -36,6 +40,7 @@ public class FamilyMemberService {
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
     private final AnalyticsService analyticsService;
+    private final ApplicationEventPublisher eventPublisher;
     
     public FamilyMemberService(FamilyMemberRepository familyMemberRepository,
                                FamilyMemberLinkRepository familyMemberLinkRepository,
@@ -43,7 +48,8 @@ public class FamilyMemberService {
                                PatientRepository patientRepository,
                                PasswordEncoder passwordEncoder,
                                EmailService emailService,
-                               AnalyticsService analyticsService) {
+                               AnalyticsService analyticsService,
+                               ApplicationEventPublisher eventPublisher) {
         this.familyMemberRepository = familyMemberRepository;
         this.familyMemberLinkRepository = familyMemberLinkRepository;
         this.userRepository = userRepository;
@@ -51,6 +57,7 @@ public class FamilyMemberService {
         this.passwordEncoder = passwordEncoder;
         this.emailService = emailService;
         this.analyticsService = analyticsService;
+        this.eventPublisher = eventPublisher;
         
         log.debug("FamilyMemberService initialized - passwordEncoder is null: {}", passwordEncoder == null);
     }
@@ -115,6 +122,7 @@ public class FamilyMemberService {
             link.setPatientId(patient.getId());
             
             familyMemberLinkRepository.save(link);
+            eventPublisher.publishEvent(new CareLinkChangedEvent(link.getPatientUser().getId()));
             
             // Send access granted email to existing family member
             String patientName = getPatientName(patientUser);
@@ -207,6 +215,7 @@ public class FamilyMemberService {
         link.setPatientId(patient.getId());
         
         familyMemberLinkRepository.save(link);
+        eventPublisher.publishEvent(new CareLinkChangedEvent(link.getPatientUser().getId()));
 
         // Send password setup email with credentials
         emailService.sendPasswordSetupEmailWithCredentials(
@@ -296,6 +305,7 @@ public class FamilyMemberService {
 
         link.setStatus(FamilyMemberLink.LinkStatus.REVOKED);
         familyMemberLinkRepository.save(link);
+        eventPublisher.publishEvent(new CareLinkChangedEvent(link.getPatientUser().getId()));
     }
 
     /**
@@ -344,6 +354,7 @@ public class FamilyMemberService {
         link.setPatientId(patient.getId());
         
         familyMemberLinkRepository.save(link);
+        eventPublisher.publishEvent(new CareLinkChangedEvent(link.getPatientUser().getId()));
 
         return toFamilyMemberLinkResponse(link);
     }
@@ -369,6 +380,7 @@ public class FamilyMemberService {
         }
 
         familyMemberLinkRepository.save(link);
+        eventPublisher.publishEvent(new CareLinkChangedEvent(link.getPatientUser().getId()));
         return toFamilyMemberLinkResponse(link);
     }
 
@@ -381,6 +393,7 @@ public class FamilyMemberService {
 
         link.setStatus(FamilyMemberLink.LinkStatus.SUSPENDED);
         familyMemberLinkRepository.save(link);
+        eventPublisher.publishEvent(new CareLinkChangedEvent(link.getPatientUser().getId()));
 
         return toFamilyMemberLinkResponse(link);
     }
@@ -398,21 +411,29 @@ public class FamilyMemberService {
 
         link.setStatus(FamilyMemberLink.LinkStatus.ACTIVE);
         familyMemberLinkRepository.save(link);
+        eventPublisher.publishEvent(new CareLinkChangedEvent(link.getPatientUser().getId()));
 
         return toFamilyMemberLinkResponse(link);
     }
 
     /**
-     * Cleanup expired family member links
+     * Cleanup expired family member links with one bulk update, returning how many expired.
+     * The links are locked when read, so events go out for exactly the patients updated.
      */
-    public void cleanupExpiredFamilyMemberLinks() {
-        List<FamilyMemberLink> allLinks = familyMemberLinkRepository.findAll();
-        allLinks.stream()
-                .filter(link -> link.getStatus() == FamilyMemberLink.LinkStatus.ACTIVE && link.isExpired())
-                .forEach(link -> {
-                    link.setStatus(FamilyMemberLink.LinkStatus.EXPIRED);
-                    familyMemberLinkRepository.save(link);
-                });
+    public int cleanupExpiredFamilyMemberLinks() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> linkIds = new ArrayList<>();
+        Set<Long> patientUserIds = new HashSet<>();
+        for (Object[] row : familyMemberLinkRepository.lockExpiredActiveLinks(now)) {
+            linkIds.add(((Number) row[0]).longValue());
+            patientUserIds.add(((Number) row[1]).longValue());
+        }
+        if (linkIds.isEmpty()) {
+            return 0;
+        }
+        int expired = familyMemberLinkRepository.expireLinks(linkIds, now, FamilyMemberLink.LinkStatus.EXPIRED);
+        patientUserIds.forEach(patientUserId -> eventPublisher.publishEvent(new CareLinkChangedEvent(patientUserId)));
+        return expired;
     }
 
     // Helper methods
@@ -0,0 +1,261 @@
+package com.careconnect.service;
+
+import com.careconnect.dto.NotificationResponse;
+import com.careconnect.repository.DeviceTokenRepository;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.SendResponse;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Push delivery engine behind {@link FirebaseNotificationService}.
+ *
+ * - splits sends into FCM batches of at most 500 tokens/messages
+ * - sends batches concurrently, bounded by firebase.push.max-in-flight
+ * - collects UNREGISTERED / INVALID_ARGUMENT tokens from every batch and deactivates them in one update
+ * - drops a notification to a device if identical content went to it within the coalescing window
+ */
+@Service
+@ConditionalOnProperty(name = "firebase.enabled", havingValue = "true", matchIfMissing = true)
+public class FcmPushDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(FcmPushDispatcher.class);
+
+    // FCM limit for both sendEach and sendEachForMulticast
+    static final int MAX_BATCH_SIZE = 500;
+
+    @Autowired(required = false)
+    private FirebaseMessaging firebaseMessaging;
+
+    private final DeviceTokenRepository deviceTokenRepository;
+    private final DeviceTokenCache deviceTokenCache;
+    private final ExecutorService sendExecutor;
+    private final long coalesceWindowMs;
+
+    // token|contentKey -> last send time
+    private final Map<String, Long> recentSends = new ConcurrentHashMap<>();
+
+    public FcmPushDispatcher(DeviceTokenRepository deviceTokenRepository,
+                             DeviceTokenCache deviceTokenCache,
+                             @Value("${firebase.push.max-in-flight:4}") int maxInFlight,
+                             @Value("${firebase.push.coalesce-window-ms:10000}") long coalesceWindowMs) {
+        this.deviceTokenRepository = deviceTokenRepository;
+        this.deviceTokenCache = deviceTokenCache;
+        this.sendExecutor = Executors.newFixedThreadPool(Math.max(1, maxInFlight));
+        this.coalesceWindowMs = coalesceWindowMs;
+    }
+
+    /**
+     * Send the same notification to every token, one multicast per 500 tokens.
+     * Returns one response per distinct token, in input order.
+     *
+     * @param contentKey identifies the notification content for coalescing; null disables coalescing
+     */
+    public List<NotificationResponse> multicast(Collection<String> tokens,
+                                                Function<List<String>, MulticastMessage> messageFactory,
+                                                String contentKey) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(tokens));
+        List<NotificationResponse> results = new ArrayList<>(distinct.size());
+        List<String> toSend = new ArrayList<>(distinct.size());
+        long reservedAt = System.currentTimeMillis();
+
+        for (String token : distinct) {
+            if (contentKey != null && isDuplicate(token, contentKey, reservedAt)) {
+                results.add(coalesced());
+            } else {
+                toSend.add(token);
+                results.add(null);
+            }
+        }
+        if (toSend.isEmpty()) {
+            logger.info("All {} push notifications coalesced", distinct.size());
+            return results;
+        }
+
+        List<List<String>> chunks = partition(toSend);
+        List<Future<List<SendResponse>>> futures = new ArrayList<>(chunks.size());
+        for (List<String> chunk : chunks) {
+            futures.add(sendExecutor.submit(() -> sendMulticastChunk(messageFactory.apply(chunk), chunk.size())));
+        }
+
+        List<SendResponse> sendResponses = new ArrayList<>(toSend.size());
+        for (int i = 0; i < futures.size(); i++) {
+            sendResponses.addAll(await(futures.get(i), chunks.get(i).size()));
+        }
+
+        List<String> prunable = new ArrayList<>();
+        int next = 0;
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) != null) {
+                continue;
+            }
+            String token = toSend.get(next);
+            SendResponse response = sendResponses.get(next++);
+            NotificationResponse result = toNotificationResponse(response, token, prunable);
+            if (contentKey != null && !result.isSuccess()) {
+                // Free the slot so a retry within the window is actually sent
+                recentSends.remove(token + "|" + contentKey, reservedAt);
+            }
+            results.set(i, result);
+        }
+
+        pruneTokens(prunable);
+        logger.info("Multicast to {} tokens in {} batches ({} coalesced, {} pruned)",
+                toSend.size(), chunks.size(), distinct.size() - toSend.size(), prunable.size());
+        return results;
+    }
+
+    /**
+     * Send individually built messages, 500 per sendEach call. tokens.get(i) must be the
+     * target of messages.get(i); returns one response per message, in order.
+     */
+    public List<NotificationResponse> sendEach(List<Message> messages, List<String> tokens) {
+        List<List<Message>> chunks = partition(messages);
+        List<Future<List<SendResponse>>> futures = new ArrayList<>(chunks.size());
+        for (List<Message> chunk : chunks) {
+            futures.add(sendExecutor.submit(() -> sendEachChunk(chunk)));
+        }
+
+        List<NotificationResponse> results = new ArrayList<>(messages.size());
+        List<String> prunable = new ArrayList<>();
+        int index = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            for (SendResponse response : await(futures.get(i), chunks.get(i).size())) {
+                results.add(toNotificationResponse(response, tokens.get(index++), prunable));
+            }
+        }
+
+        pruneTokens(prunable);
+        return results;
+    }
+
+    public boolean isPrunable(FirebaseMessagingException exception) {
+        MessagingErrorCode code = exception != null ? exception.getMessagingErrorCode() : null;
+        return code == MessagingErrorCode.UNREGISTERED || code == MessagingErrorCode.INVALID_ARGUMENT;
+    }
+
+    /**
+     * Deactivate dead tokens with a single UPDATE
+     */
+    public void pruneTokens(Collection<String> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        try {
+            int deactivated = deviceTokenRepository.deactivateByFcmTokens(tokens);
+            deviceTokenCache.removeTokens(tokens);
+            logger.warn("Deactivated {} invalid FCM tokens", deactivated);
+        } catch (Exception e) {
+            logger.error("Failed to deactivate {} invalid FCM tokens: {}", tokens.size(), e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void evictCoalescingEntries() {
+        long cutoff = System.currentTimeMillis() - coalesceWindowMs;
+        recentSends.values().removeIf(sentAt -> sentAt < cutoff);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdown();
+    }
+
+    private List<SendResponse> sendMulticastChunk(MulticastMessage message, int size) throws FirebaseMessagingException {
+        if (firebaseMessaging == null) {
+            throw new IllegalStateException("Firebase not available");
+        }
+        BatchResponse response = firebaseMessaging.sendEachForMulticast(message);
+        logger.debug("Multicast batch: {} of {} delivered", response.getSuccessCount(), size);
+        return response.getResponses();
+    }
+
+    private List<SendResponse> sendEachChunk(List<Message> chunk) throws FirebaseMessagingException {
+        if (firebaseMessaging == null) {
+            throw new IllegalStateException("Firebase not available");
+        }
+        return firebaseMessaging.sendEach(chunk).getResponses();
+    }
+
+    // A failed batch yields nulls so callers can still line results up with their tokens
+    private List<SendResponse> await(Future<List<SendResponse>> future, int size) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("FCM batch of {} failed: {}", size, e.getMessage(), e);
+        }
+        List<SendResponse> failed = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            failed.add(null);
+        }
+        return failed;
+    }
+
+    private NotificationResponse toNotificationResponse(SendResponse response, String token, List<String> prunable) {
+        if (response == null) {
+            return NotificationResponse.failure("Batch send failed");
+        }
+        if (response.isSuccessful()) {
+            return NotificationResponse.success(response.getMessageId());
+        }
+        FirebaseMessagingException exception = response.getException();
+        if (isPrunable(exception) && token != null) {
+            prunable.add(token);
+        }
+        return NotificationResponse.failure(exception != null ? exception.getMessage() : "Unknown FCM error");
+    }
+
+    // Reserves the token for this content at the given time unless a send is already recorded
+    // in the window; the caller releases the reservation if the send then fails
+    private boolean isDuplicate(String token, String contentKey, long now) {
+        boolean[] duplicate = {false};
+        recentSends.compute(token + "|" + contentKey, (key, previous) -> {
+            if (previous != null && now - previous < coalesceWindowMs) {
+                duplicate[0] = true;
+                return previous;
+            }
+            return now;
+        });
+        return duplicate[0];
+    }
+
+    private static NotificationResponse coalesced() {
+        return NotificationResponse.builder()
+                .success(true)
+                .message("Duplicate notification coalesced")
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    private static <T> List<List<T>> partition(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += MAX_BATCH_SIZE) {
+            chunks.add(items.subList(from, Math.min(items.size(), from + MAX_BATCH_SIZE)));
+        }
+        return chunks;
+    }
+}
@@ -1,21 +1,51 @@
     package com.careconnect.service;
 
+    import com.careconnect.dto.FeedPage;
+    import com.careconnect.dto.FeedPostDTO;
+    import com.careconnect.model.Comment;
     import com.careconnect.model.Post;
     import com.careconnect.repository.PostRepository;
     import org.springframework.beans.factory.annotation.Autowired;
+    import org.springframework.beans.factory.annotation.Value;
+    import org.springframework.data.domain.PageRequest;
     import org.springframework.stereotype.Service;
 
+    import java.nio.charset.StandardCharsets;
     import java.time.LocalDateTime;
+    import java.util.ArrayList;
+    import java.util.Base64;
+    import java.util.Collection;
+    import java.util.HashMap;
+    import java.util.LinkedHashSet;
     import java.util.List;
+    import java.util.Map;
+    import java.util.Set;
 
     @Service
     public class FeedService {
 
+        public static final int MAX_PAGE_SIZE = 100;
+
         private final PostRepository postRepository;
+        private final FriendshipService friendshipService;
+        private final CommentService commentService;
+        private final FeedTimelineCache timelineCache;
+
+        @Value("${careconnect.feed.page-size:20}")
+        private int defaultPageSize;
+
+        @Value("${careconnect.feed.comment-preview-size:3}")
+        private int commentPreviewSize;
 
         @Autowired
-        public FeedService(PostRepository postRepository) {
+        public FeedService(PostRepository postRepository,
+                           FriendshipService friendshipService,
+                           CommentService commentService,
+                           FeedTimelineCache timelineCache) {
             this.postRepository = postRepository;
+            this.friendshipService = friendshipService;
+            this.commentService = commentService;
+            this.timelineCache = timelineCache;
         }
 
         // Create a new post (with optional image URL)
@@ -25,16 +55,136 @@
             post.setContent(content);
             post.setCreatedAt(LocalDateTime.now());
             post.setImageUrl(imageUrl);  // ✅ Assign uploaded image path
-            return postRepository.save(post);
+            Post saved = postRepository.save(post);
+            timelineCache.onPostCreated(saved);
+            return saved;
+        }
+
+        /**
+         * One page of the global feed, newest first. Pass the previous page's {@code nextCursor}
+         * as {@code before}; null starts at the newest post.
+         */
+        public FeedPage getGlobalFeed(String before, Integer limit) {
+            int size = pageSize(limit);
+            Cursor cursor = decodeCursor(before);
+            // One extra row tells whether another page follows; first pages usually come from memory
+            List<Post> posts = cursor == null ? timelineCache.getLatest(size + 1) : null;
+            if (posts == null) {
+                PageRequest page = PageRequest.of(0, size + 1);
+                posts = cursor == null
+                        ? postRepository.findLatest(page)
+                        : postRepository.findBefore(cursor.createdAt(), cursor.id(), page);
+            }
+            return toFeedPage(posts, size);
+        }
+
+        /**
+         * One page of posts by a single user, newest first.
+         */
+        public FeedPage getUserFeed(Long userId, String before, Integer limit) {
+            int size = pageSize(limit);
+            if (before == null || before.isBlank()) {
+                List<Post> posts = timelineCache.getLatestByUser(userId, size + 1);
+                if (posts != null) {
+                    return toFeedPage(posts, size);
+                }
+            }
+            return getFeedByAuthors(List.of(userId), before, limit);
+        }
+
+        /**
+         * The user's timeline: their own posts and their accepted friends' posts, newest first.
+         */
+        public FeedPage getTimeline(Long userId, String before, Integer limit) {
+            Set<Long> authors = new LinkedHashSet<>();
+            authors.add(userId);
+            for (long friendId : friendshipService.getFriendIds(userId)) {
+                authors.add(friendId);
+            }
+            return getFeedByAuthors(authors, before, limit);
+        }
+
+        private int pageSize(Integer limit) {
+            if (limit == null || limit <= 0) {
+                return defaultPageSize;
+            }
+            return Math.min(limit, MAX_PAGE_SIZE);
+        }
+
+        /**
+         * Opaque keyset cursor positioned just after the given post.
+         */
+        private String cursorOf(Post post) {
+            String raw = post.getCreatedAt() + "|" + post.getId();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private FeedPage getFeedByAuthors(Collection<Long> userIds, String before, Integer limit) {
+            int size = pageSize(limit);
+            Cursor cursor = decodeCursor(before);
+            PageRequest page = PageRequest.of(0, size + 1);
+            List<Post> posts = cursor == null
+                    ? postRepository.findLatestByUserIds(userIds, page)
+                    : postRepository.findBeforeByUserIds(userIds, cursor.createdAt(), cursor.id(), page);
+            return toFeedPage(posts, size);
+        }
+
+        /**
+         * Builds a page from up to {@code size + 1} posts. Comment counts and the latest few comments
+         * of posts not already cached take one query each for the whole page.
+         */
+        private FeedPage toFeedPage(List<Post> posts, int size) {
+            boolean hasMore = posts.size() > size;
+            List<Post> page = hasMore ? posts.subList(0, size) : posts;
+
+            List<Long> postIds = page.stream().map(Post::getId).toList();
+            Map<Long, FeedTimelineCache.CommentSummary> summaries = new HashMap<>(timelineCache.getCommentSummaries(postIds));
+            List<Long> missing = postIds.stream().filter(id -> !summaries.containsKey(id)).toList();
+            if (!missing.isEmpty()) {
+                Map<Long, Long> counts = commentService.getCommentCounts(missing);
+                Map<Long, List<Comment>> previews = commentService.getLatestComments(missing, commentPreviewSize);
+                long now = System.currentTimeMillis();
+                for (Long postId : missing) {
+                    FeedTimelineCache.CommentSummary summary = new FeedTimelineCache.CommentSummary(
+                            counts.getOrDefault(postId, 0L), previews.getOrDefault(postId, List.of()), now);
+                    summaries.put(postId, summary);
+                    timelineCache.putCommentSummary(postId, summary);
+                }
+            }
+
+            List<FeedPostDTO> items = new ArrayList<>(page.size());
+            for (Post post : page) {
+                items.add(FeedPostDTO.builder()
+                        .id(post.getId())
+                        .userId(post.getUserId())
+                        .content(post.getContent())
+                        .imageUrl(post.getImageUrl())
+                        .createdAt(post.getCreatedAt())
+                        .commentCount(summaries.get(post.getId()).count())
+                        .comments(summaries.get(post.getId()).preview())
+                        .build());
+            }
+
+            return FeedPage.builder()
+                    .posts(items)
+                    .hasMore(hasMore)
+                    .nextCursor(hasMore ? cursorOf(page.get(page.size() - 1)) : null)
+                    .build();
         }
 
-        // Fetch all posts globally
-        public List<Post> getAllPosts() {
-            return postRepository.findAllByOrderByCreatedAtDesc();
+        private Cursor decodeCursor(String before) {
+            if (before == null || before.isBlank()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(before), StandardCharsets.UTF_8);
+                int sep = raw.lastIndexOf('|');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid feed cursor");
+            }
         }
 
-        // Fetch posts by a specific user
-        public List<Post> getPostsByUser(Long userId) {
-            return postRepository.findAllByUserIdOrderByCreatedAtDesc(userId);
+        private record Cursor(LocalDateTime createdAt, Long id) {
         }
     }
@@ -0,0 +1,276 @@
+package com.careconnect.service;
+
+import com.careconnect.model.Comment;
+import com.careconnect.model.Post;
+import com.careconnect.repository.PostRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the newest posts in memory so first feed pages are served without touching MySQL.
+ *
+ * There is one ring of the most recent posts overall and one, loaded on demand, per author.
+ * New posts are written into the rings as they are created; a ring is reloaded from the
+ * database when its TTL passes (which also picks up posts made on other instances) or after
+ * a post in it is edited or removed. Comment counts and previews for cached posts are held
+ * alongside and dropped when a comment is added.
+ */
+@Service
+@Slf4j
+public class FeedTimelineCache {
+
+    private final PostRepository postRepository;
+    private final int userCapacity;
+    private final int maxUsers;
+    private final int maxCommentSummaries;
+    private final long ttlMs;
+
+    private final Ring global;
+
+    // authorId -> that author's newest posts
+    private final Map<Long, Ring> byUser = new ConcurrentHashMap<>();
+
+    // postId -> comment count and preview, least recently used first
+    private final LinkedHashMap<Long, CommentSummary> commentSummaries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public FeedTimelineCache(PostRepository postRepository,
+                             @Value("${careconnect.feed.cache.global-size:200}") int globalCapacity,
+                             @Value("${careconnect.feed.cache.user-size:50}") int userCapacity,
+                             @Value("${careconnect.feed.cache.max-users:10000}") int maxUsers,
+                             @Value("${careconnect.feed.cache.max-comment-summaries:5000}") int maxCommentSummaries,
+                             @Value("${careconnect.feed.cache.ttl-seconds:30}") long ttlSeconds) {
+        this.postRepository = postRepository;
+        this.global = new Ring(globalCapacity);
+        this.userCapacity = userCapacity;
+        this.maxUsers = maxUsers;
+        this.maxCommentSummaries = maxCommentSummaries;
+        this.ttlMs = ttlSeconds * 1000L;
+    }
+
+    /**
+     * The newest {@code count} posts overall (fewer if there are not that many), or null when
+     * the request is larger than the cache holds.
+     */
+    public List<Post> getLatest(int count) {
+        return read(global, count, null);
+    }
+
+    /**
+     * The author's newest {@code count} posts, or null when the request is larger than the cache holds.
+     */
+    public List<Post> getLatestByUser(Long userId, int count) {
+        if (count > userCapacity) {
+            return null;
+        }
+        Ring ring = byUser.get(userId);
+        if (ring == null) {
+            if (byUser.size() >= maxUsers) {
+                evictOneUser();
+            }
+            ring = byUser.computeIfAbsent(userId, id -> new Ring(userCapacity));
+        }
+        return read(ring, count, userId);
+    }
+
+    public void onPostCreated(Post post) {
+        global.add(post);
+        Ring ring = byUser.get(post.getUserId());
+        if (ring != null) {
+            ring.add(post);
+        }
+    }
+
+    /**
+     * A post was edited or deleted; rings holding it reload on next read.
+     */
+    public void evict(Long postId, Long userId) {
+        global.invalidateIfContains(postId);
+        Ring ring = byUser.get(userId);
+        if (ring != null) {
+            ring.invalidateIfContains(postId);
+        }
+        removeCommentSummary(postId);
+    }
+
+    /**
+     * Cached, unexpired comment summaries for those of the posts that have one.
+     */
+    public synchronized Map<Long, CommentSummary> getCommentSummaries(Collection<Long> postIds) {
+        Map<Long, CommentSummary> found = new HashMap<>();
+        long now = System.currentTimeMillis();
+        for (Long postId : postIds) {
+            CommentSummary summary = commentSummaries.get(postId);
+            if (summary != null && now - summary.loadedAt() <= ttlMs) {
+                found.put(postId, summary);
+            }
+        }
+        return found;
+    }
+
+    public synchronized void putCommentSummary(Long postId, CommentSummary summary) {
+        commentSummaries.put(postId, summary);
+        Iterator<Long> it = commentSummaries.keySet().iterator();
+        while (commentSummaries.size() > maxCommentSummaries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    public void onCommentAdded(Long postId) {
+        removeCommentSummary(postId);
+    }
+
+    public Map<String, Object> getStats() {
+        long h = hits.get();
+        long m = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("globalPosts", global.size());
+        stats.put("cachedUsers", byUser.size());
+        synchronized (this) {
+            stats.put("commentSummaries", commentSummaries.size());
+        }
+        return stats;
+    }
+
+    @Scheduled(fixedRate = 600000) // Every 10 minutes
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        byUser.values().removeIf(ring -> ring.isExpired(now, ttlMs));
+    }
+
+    private List<Post> read(Ring ring, int count, Long userId) {
+        long now = System.currentTimeMillis();
+        if (count > ring.capacity) {
+            return null;
+        }
+        List<Post> posts = ring.read(count, now, ttlMs);
+        if (posts != null) {
+            hits.incrementAndGet();
+            return posts;
+        }
+
+        misses.incrementAndGet();
+        long version = ring.version();
+        PageRequest page = PageRequest.of(0, ring.capacity);
+        List<Post> loaded = userId == null
+                ? postRepository.findLatest(page)
+                : postRepository.findLatestByUserIds(List.of(userId), page);
+        ring.fill(loaded, version, now);
+        return List.copyOf(loaded.subList(0, Math.min(count, loaded.size())));
+    }
+
+    private synchronized void removeCommentSummary(Long postId) {
+        commentSummaries.remove(postId);
+    }
+
+    private void evictOneUser() {
+        Iterator<Long> it = byUser.keySet().iterator();
+        if (it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    public record CommentSummary(long count, List<Comment> preview, long loadedAt) {
+    }
+
+    /**
+     * Newest-first posts, at most {@code capacity}. {@code holdsAll} means the database had no
+     * more posts than the ring held when it was loaded, so a short ring is still complete.
+     */
+    private static final class Ring {
+
+        private final int capacity;
+        private final List<Post> posts = new ArrayList<>();
+        private boolean loaded;
+        private boolean holdsAll;
+        private long loadedAt;
+        // Bumped by every write so a load that raced with one is not installed
+        private long version;
+
+        Ring(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized List<Post> read(int count, long now, long ttlMs) {
+            if (!loaded || now - loadedAt > ttlMs) {
+                return null;
+            }
+            if (count > posts.size() && !holdsAll) {
+                return null;
+            }
+            return List.copyOf(posts.subList(0, Math.min(count, posts.size())));
+        }
+
+        synchronized long version() {
+            return version;
+        }
+
+        synchronized void fill(List<Post> loadedPosts, long expectedVersion, long now) {
+            if (version != expectedVersion) {
+                return;
+            }
+            posts.clear();
+            posts.addAll(loadedPosts);
+            holdsAll = loadedPosts.size() < capacity;
+            loaded = true;
+            loadedAt = now;
+        }
+
+        synchronized void add(Post post) {
+            version++;
+            if (!loaded) {
+                return;
+            }
+            // Usually the newest post; concurrent creates can arrive slightly out of order
+            int index = 0;
+            while (index < posts.size() && isNewer(posts.get(index), post)) {
+                index++;
+            }
+            posts.add(index, post);
+            if (posts.size() > capacity) {
+                posts.remove(posts.size() - 1);
+                holdsAll = false;
+            }
+        }
+
+        synchronized void invalidateIfContains(Long postId) {
+            version++;
+            if (posts.removeIf(p -> p.getId().equals(postId))) {
+                loaded = false;
+            }
+        }
+
+        synchronized int size() {
+            return posts.size();
+        }
+
+        synchronized boolean isExpired(long now, long ttlMs) {
+            return !loaded || now - loadedAt > ttlMs;
+        }
+
+        private static boolean isNewer(Post a, Post b) {
+            int byTime = a.getCreatedAt().compareTo(b.getCreatedAt());
+            return byTime > 0 || (byTime == 0 && a.getId() > b.getId());
+        }
+    }
+}
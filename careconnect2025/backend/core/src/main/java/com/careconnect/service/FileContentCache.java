@@ -0,0 +1,88 @@
+package com.careconnect.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small in-process LRU of hot, small file content (avatars and image variants).
+ *
+ * A file ID's content never changes once stored, so entries need no TTL; they are only
+ * dropped when the file is deleted or when the cache exceeds its entry or byte budget.
+ * Access checks still run on every request, before the cache is consulted.
+ */
+@Service
+@Slf4j
+public class FileContentCache {
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final int maxEntryBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, CachedContent> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    public FileContentCache(@Value("${app.file.cache.max-entries:512}") int maxEntries,
+                            @Value("${app.file.cache.max-bytes:16777216}") long maxBytes,
+                            @Value("${app.file.cache.max-entry-bytes:65536}") int maxEntryBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    /**
+     * Whether content of this size is worth caching at all.
+     */
+    public boolean accepts(long size) {
+        return maxEntries > 0 && size >= 0 && size <= maxEntryBytes;
+    }
+
+    /**
+     * Cached content for a file, or for one of its image variants when width is positive.
+     */
+    public synchronized CachedContent get(Long fileId, int width) {
+        return entries.get(new Key(fileId, width));
+    }
+
+    public synchronized void put(Long fileId, int width, CachedContent content) {
+        if (!accepts(content.data().length)) {
+            return;
+        }
+        CachedContent previous = entries.put(new Key(fileId, width), content);
+        if (previous != null) {
+            totalBytes -= previous.data().length;
+        }
+        totalBytes += content.data().length;
+
+        Iterator<Map.Entry<Key, CachedContent>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || totalBytes > maxBytes) && it.hasNext()) {
+            totalBytes -= it.next().getValue().data().length;
+            it.remove();
+        }
+    }
+
+    /**
+     * Drops the file and all of its variants.
+     */
+    public synchronized void invalidate(Long fileId) {
+        Iterator<Map.Entry<Key, CachedContent>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, CachedContent> entry = it.next();
+            if (entry.getKey().fileId().equals(fileId)) {
+                totalBytes -= entry.getValue().data().length;
+                it.remove();
+            }
+        }
+    }
+
+    public record CachedContent(byte[] data, String contentType) {
+    }
+
+    private record Key(Long fileId, int width) {
+    }
+}
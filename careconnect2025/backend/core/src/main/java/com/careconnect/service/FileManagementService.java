@@ -1,7 +1,11 @@
 package com.careconnect.service;
 
+import com.careconnect.dto.DirectUploadCompleteRequest;
+import com.careconnect.dto.DirectUploadRequest;
+import com.careconnect.dto.DirectUploadResponse;
 import com.careconnect.dto.UserFileDTO;
 import com.careconnect.dto.FileUploadResponse;
+import com.careconnect.dto.S3Props;
 import com.careconnect.model.UserFile;
 import com.careconnect.model.Patient;
 import com.careconnect.model.User;
@@ -11,12 +15,16 @@ import com.careconnect.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -31,6 +39,11 @@ public class FileManagementService {
     private final PatientRepository patientRepository;
     private final DatabaseStorageService databaseStorageService;
     private final S3StorageService s3StorageService;
+    private final S3Props s3Props;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ContentBlobStore contentBlobStore;
+    private final FileContentCache fileContentCache;
     
     @Value("${app.file.storage.default:database}")
     private String defaultStorageType;
@@ -49,6 +62,13 @@ public class FileManagementService {
             // Validate file
             validateFile(file);
             
+            // Profile photos are visible to others; drop camera metadata (GPS, device) before storing
+            boolean profileImage = UserFile.FileCategory.PROFILE_IMAGE == mapCategoryToEnum(category)
+                    && ImageDerivativeService.isImage(file.getContentType());
+            if (profileImage) {
+                file = new InMemoryMultipartFile(file, imageDerivativeService.sanitizeOriginal(file.getBytes()));
+            }
+            
             // Determine storage service
             StorageService storageService = useS3ForNewFiles ? s3StorageService : databaseStorageService;
             
@@ -88,20 +108,13 @@ public class FileManagementService {
             
             // Handle profile image updates
             if (UserFile.FileCategory.PROFILE_IMAGE.name().equals(category.toUpperCase())) {
-                updateUserProfileImage(userId, filePath);
+                updateUserProfileImage(userId, versionedDownloadUrl(userFile));
+            }
+            if (profileImage) {
+                eventPublisher.publishEvent(new ImageUploadedEvent(userFile.getId()));
             }
             
-            return FileUploadResponse.builder()
-                    .fileId(userFile.getId())
-                    .filename(userFile.getFilename())
-                    .originalFilename(userFile.getOriginalFilename())
-                    .fileUrl(storageService.getFileUrl(filePath))
-                    .contentType(userFile.getContentType())
-                    .fileSize(userFile.getFileSize())
-                    .category(userFile.getFileCategory().name())
-                    .uploadedAt(userFile.getUploadedAt())
-                    .message("File uploaded successfully")
-                    .build();
+            return toUploadResponse(userFile, storageService.getFileUrl(filePath));
                     
         } catch (Exception e) {
             log.error("Failed to upload file for user: {}", userId, e);
@@ -110,30 +123,151 @@ public class FileManagementService {
     }
     
     /**
-     * Get file by ID
+     * Issue a presigned PUT so the client uploads straight to the object store.
+     * The file is only recorded once {@link #completeDirectUpload} confirms the object exists.
+     */
+    public DirectUploadResponse initiateDirectUpload(DirectUploadRequest request, Long userId, String userType) {
+        if (request.filename() == null || request.filename().isBlank()) {
+            throw new IllegalArgumentException("Filename is required");
+        }
+        if (request.contentType() == null || request.contentType().isBlank()) {
+            throw new IllegalArgumentException("File content type is unknown");
+        }
+        if (request.fileSize() == null || request.fileSize() <= 0) {
+            throw new IllegalArgumentException("File is empty");
+        }
+        if (request.fileSize() > s3Props.getDirectUploadMaxSize()) {
+            throw new IllegalArgumentException("File size exceeds maximum allowed size of "
+                    + (s3Props.getDirectUploadMaxSize() / (1024 * 1024)) + "MB");
+        }
+        
+        String category = request.category() != null ? request.category() : "OTHER_DOCUMENT";
+        String objectKey = s3StorageService.buildObjectKey(request.filename(), userId, userType, category);
+        PresignedPutObjectRequest presigned = s3StorageService.presignUpload(
+                objectKey, request.contentType(), request.fileSize());
+        
+        Map<String, String> headers = presigned.signedHeaders().entrySet().stream()
+                .filter(e -> !"host".equalsIgnoreCase(e.getKey()))
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> String.join(",", e.getValue())));
+        
+        log.info("Direct upload initiated for user: {}, key: {}", userId, objectKey);
+        return DirectUploadResponse.builder()
+                .uploadUrl(presigned.url().toString())
+                .httpMethod(presigned.httpRequest().method().name())
+                .headers(headers)
+                .objectKey(objectKey)
+                .expiresAt(presigned.expiration())
+                .build();
+    }
+    
+    /**
+     * Record a file the client uploaded through a presigned PUT. Size and content type are
+     * taken from the stored object, not from the client. Completing the same key twice
+     * returns the existing record.
+     */
+    public FileUploadResponse completeDirectUpload(DirectUploadCompleteRequest request, Long userId, String userType) {
+        String objectKey = request.objectKey();
+        if (objectKey == null || !objectKey.startsWith(s3StorageService.ownerPrefix(userId, userType))
+                || objectKey.contains("..")) {
+            throw new IllegalArgumentException("Invalid object key");
+        }
+        
+        Optional<UserFile> existing = userFileRepository.findFirstByS3PathAndIsActiveTrue(objectKey);
+        if (existing.isPresent()) {
+            return toUploadResponse(existing.get(), s3StorageService.getFileUrl(objectKey));
+        }
+        
+        HeadObjectResponse head = s3StorageService.headObject(objectKey);
+        if (head == null) {
+            throw new IllegalArgumentException("Uploaded object not found: " + objectKey);
+        }
+        
+        String category = request.category() != null ? request.category() : "OTHER_DOCUMENT";
+        UserFile userFile = userFileRepository.save(UserFile.builder()
+                .filename(objectKey.substring(objectKey.lastIndexOf('/') + 1))
+                .originalFilename(request.filename() != null ? request.filename() : objectKey.substring(objectKey.lastIndexOf('/') + 1))
+                .contentType(head.contentType())
+                .fileSize(head.contentLength())
+                .ownerId(userId)
+                .ownerType(UserFile.OwnerType.valueOf(userType.toUpperCase()))
+                .fileCategory(mapCategoryToEnum(category))
+                .patientId(request.patientId() != null ? request.patientId() : determinePatientId(userId, userType))
+                .storageType(UserFile.StorageType.S3)
+                .s3Path(objectKey)
+                .description(request.description())
+                .build());
+        
+        String fileUrl = s3StorageService.getFileUrl(objectKey);
+        if (userFile.getFileCategory() == UserFile.FileCategory.PROFILE_IMAGE) {
+            updateUserProfileImage(userId, versionedDownloadUrl(userFile));
+            if (ImageDerivativeService.isImage(userFile.getContentType())) {
+                eventPublisher.publishEvent(new ImageUploadedEvent(userFile.getId()));
+            }
+        }
+        
+        log.info("Direct upload completed: ID={}, key={}, size={} bytes", userFile.getId(), objectKey, userFile.getFileSize());
+        return toUploadResponse(userFile, fileUrl);
+    }
+    
+    /**
+     * URL the client should fetch the file from: a short-lived presigned GET for object-store
+     * files, or the streaming download endpoint for database files.
+     */
+    @Transactional(readOnly = true)
+    public String getDownloadUrl(Long fileId) {
+        UserFile userFile = userFileRepository.findActiveById(fileId)
+                .orElseThrow(() -> new RuntimeException("File not found: " + fileId));
+        
+        if (userFile.getStorageType() == UserFile.StorageType.S3) {
+            return s3StorageService.presignDownload(userFile.getS3Path(), userFile.getOriginalFilename())
+                    .url().toString();
+        }
+        return databaseStorageService.getFileUrl("db://files/" + fileId);
+    }
+    
+    /**
+     * Get file by ID, including its content hash for cache validation
      */
     public Optional<UserFileDTO> getFile(Long fileId) {
-        return userFileRepository.findById(fileId)
-                .filter(UserFile::getIsActive)
-                .map(this::mapToDTO);
+        return userFileRepository.findActiveById(fileId)
+                .map(userFile -> {
+                    UserFileDTO dto = mapToDTO(userFile);
+                    dto.setContentHash(contentHashOf(userFile));
+                    return dto;
+                });
     }
     
     /**
      * Download file content
      */
     public byte[] downloadFile(Long fileId) {
-        UserFile userFile = userFileRepository.findById(fileId)
-                .filter(UserFile::getIsActive)
+        UserFile userFile = userFileRepository.findActiveById(fileId)
                 .orElseThrow(() -> new RuntimeException("File not found: " + fileId));
         
         if (userFile.getStorageType() == UserFile.StorageType.DATABASE) {
-            return userFile.getFileData();
+            return databaseStorageService.download("db://files/" + fileId);
         } else {
             // File is in S3
             return s3StorageService.download(userFile.getS3Path());
         }
     }
     
+    /**
+     * Open a stream over file content, optionally restricted to a byte range.
+     * A negative length streams to the end of the file. The caller must close the stream.
+     */
+    @Transactional(readOnly = true)
+    public StorageStream openFileStream(Long fileId, long offset, long length) {
+        UserFile userFile = userFileRepository.findActiveById(fileId)
+                .orElseThrow(() -> new RuntimeException("File not found: " + fileId));
+        
+        if (userFile.getStorageType() == UserFile.StorageType.DATABASE) {
+            return databaseStorageService.openStream("db://files/" + fileId, offset, length);
+        } else {
+            return s3StorageService.openStream(userFile.getS3Path(), offset, length);
+        }
+    }
+    
     /**
      * List files for a user
      */
@@ -200,9 +334,9 @@ public class FileManagementService {
             throw new RuntimeException("Not authorized to delete this file");
         }
         
-        // Soft delete
-        userFile.setIsActive(false);
-        userFileRepository.save(userFile);
+        // Soft delete, releasing the blob reference of database-stored files
+        databaseStorageService.softDelete(userFile);
+        fileContentCache.invalidate(fileId);
         
         // If it's a profile image, clear the user's profile image URL
         if (userFile.getFileCategory() == UserFile.FileCategory.PROFILE_IMAGE) {
@@ -282,13 +416,11 @@ public class FileManagementService {
         return null; // For caregivers/family members, this should be set explicitly
     }
     
-    private void updateUserProfileImage(Long userId, String filePath) {
+    private void updateUserProfileImage(Long userId, String imageUrl) {
         try {
             Optional<User> userOpt = userRepository.findById(userId);
             if (userOpt.isPresent()) {
                 User user = userOpt.get();
-                String imageUrl = useS3ForNewFiles ? s3StorageService.getFileUrl(filePath) : 
-                                 databaseStorageService.getFileUrl(filePath);
                 user.setProfileImageUrl(imageUrl);
                 userRepository.save(user);
                 log.info("Updated profile image URL for user: {}", userId);
@@ -312,6 +444,28 @@ public class FileManagementService {
         }
     }
     
+    /**
+     * SHA-256 of the file's content: recorded on its blob for database files, and part of the
+     * key for content-addressed objects. Null for legacy per-user object keys.
+     */
+    private String contentHashOf(UserFile userFile) {
+        if (userFile.getStorageType() == UserFile.StorageType.DATABASE) {
+            String sha256 = userFile.getBlobId() != null ? contentBlobStore.getSha256(userFile.getBlobId()) : null;
+            return sha256 != null && !sha256.startsWith("pending-") ? sha256 : null;
+        }
+        return S3StorageService.contentHashOf(userFile.getS3Path());
+    }
+    
+    /**
+     * Download URL carrying a content version. A file ID's content never changes, so clients
+     * may cache such URLs indefinitely; a new profile image gets a new URL.
+     */
+    private String versionedDownloadUrl(UserFile userFile) {
+        String hash = contentHashOf(userFile);
+        String version = hash != null ? hash.substring(0, Math.min(16, hash.length())) : String.valueOf(userFile.getId());
+        return "/v1/api/files/" + userFile.getId() + "/download?v=" + version;
+    }
+    
     private Long extractFileIdFromPath(String path) {
         if (path.startsWith("db://files/")) {
             return Long.parseLong(path.substring("db://files/".length()));
@@ -319,6 +473,20 @@ public class FileManagementService {
         return null;
     }
     
+    private FileUploadResponse toUploadResponse(UserFile userFile, String fileUrl) {
+        return FileUploadResponse.builder()
+                .fileId(userFile.getId())
+                .filename(userFile.getFilename())
+                .originalFilename(userFile.getOriginalFilename())
+                .fileUrl(fileUrl)
+                .contentType(userFile.getContentType())
+                .fileSize(userFile.getFileSize())
+                .category(userFile.getFileCategory().name())
+                .uploadedAt(userFile.getUploadedAt())
+                .message("File uploaded successfully")
+                .build();
+    }
+    
     private UserFileDTO mapToDTO(UserFile userFile) {
         String fileUrl;
         if (userFile.getStorageType() == UserFile.StorageType.DATABASE) {
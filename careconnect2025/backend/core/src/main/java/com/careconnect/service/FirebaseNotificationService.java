@@ -4,13 +4,10 @@ import com.careconnect.dto.FirebaseNotificationRequest;
 import com.careconnect.dto.NotificationResponse;
 import com.careconnect.model.DeviceToken;
 import com.careconnect.model.User;
-import com.careconnect.model.CaregiverPatientLink;
-import com.careconnect.model.FamilyMemberLink;
 import com.careconnect.repository.DeviceTokenRepository;
 import com.careconnect.repository.UserRepository;
-import com.careconnect.repository.CaregiverPatientLinkRepository;
-import com.careconnect.repository.FamilyMemberLinkRepository;
 import com.google.firebase.messaging.*;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,9 +15,11 @@ import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -41,10 +40,13 @@ public class FirebaseNotificationService {
     private UserRepository userRepository;
     
     @Autowired
-    private CaregiverPatientLinkRepository caregiverPatientLinkRepository;
+    private FcmPushDispatcher pushDispatcher;
     
     @Autowired
-    private FamilyMemberLinkRepository familyMemberLinkRepository;
+    private DeviceTokenCache deviceTokenCache;
+    
+    @Autowired
+    private CareTeamRecipientCache careTeamRecipientCache;
     
     /**
      * Send notification to a specific device token
@@ -86,20 +88,15 @@ public class FirebaseNotificationService {
         List<Message> messages = requests.stream()
                 .map(this::buildMessage)
                 .collect(Collectors.toList());
+        List<String> tokens = requests.stream()
+                .map(FirebaseNotificationRequest::getTargetToken)
+                .collect(Collectors.toList());
         
-        try {
-            BatchResponse response = firebaseMessaging.sendEach(messages);
-            logger.info("Successfully sent {} messages out of {}", 
-                    response.getSuccessCount(), messages.size());
-            
-            return processBatchResponse(response, requests);
-            
-        } catch (FirebaseMessagingException e) {
-            logger.error("Failed to send bulk FCM messages: {}", e.getMessage(), e);
-            return requests.stream()
-                    .map(req -> NotificationResponse.failure(e.getMessage()))
-                    .collect(Collectors.toList());
-        }
+        // Chunked into batches of 500, dead tokens pruned in one update
+        List<NotificationResponse> results = pushDispatcher.sendEach(messages, tokens);
+        logger.info("Successfully sent {} messages out of {}", 
+                results.stream().filter(NotificationResponse::isSuccess).count(), messages.size());
+        return results;
     }
     
     /**
@@ -107,25 +104,14 @@ public class FirebaseNotificationService {
      */
     public List<NotificationResponse> sendNotificationToUser(Long userId, String title, String body, 
                                                            String notificationType, Map<String, String> data) {
-        List<DeviceToken> userTokens = deviceTokenRepository.findByUserIdAndIsActiveTrue(userId);
+        String[] userTokens = deviceTokenCache.getActiveTokens(userId);
         
-        if (userTokens.isEmpty()) {
+        if (userTokens.length == 0) {
             logger.warn("No active device tokens found for user: {}", userId);
             return List.of(NotificationResponse.failure("No active device tokens found"));
         }
         
-        List<FirebaseNotificationRequest> requests = userTokens.stream()
-                .map(token -> FirebaseNotificationRequest.builder()
-                        .title(title)
-                        .body(body)
-                        .targetToken(token.getFcmToken())
-                        .targetUserId(userId)
-                        .notificationType(notificationType)
-                        .data(data != null ? data : new HashMap<>())
-                        .build())
-                .collect(Collectors.toList());
-        
-        return sendBulkNotifications(requests);
+        return multicastToTokens(Arrays.asList(userTokens), title, body, notificationType, data);
     }
     
     /**
@@ -133,25 +119,17 @@ public class FirebaseNotificationService {
      */
     public List<NotificationResponse> sendNotificationToUsers(List<Long> userIds, String title, String body, 
                                                             String notificationType, Map<String, String> data) {
-        List<DeviceToken> tokens = deviceTokenRepository.findActiveTokensByUserIds(userIds);
+        List<String> fcmTokens = new ArrayList<>();
+        for (String[] userTokens : deviceTokenCache.getActiveTokens(userIds).values()) {
+            fcmTokens.addAll(Arrays.asList(userTokens));
+        }
         
-        if (tokens.isEmpty()) {
+        if (fcmTokens.isEmpty()) {
             logger.warn("No active device tokens found for users: {}", userIds);
             return List.of(NotificationResponse.failure("No active device tokens found"));
         }
         
-        List<FirebaseNotificationRequest> requests = tokens.stream()
-                .map(token -> FirebaseNotificationRequest.builder()
-                        .title(title)
-                        .body(body)
-                        .targetToken(token.getFcmToken())
-                        .targetUserId(token.getUser().getId())
-                        .notificationType(notificationType)
-                        .data(data != null ? data : new HashMap<>())
-                        .build())
-                .collect(Collectors.toList());
-        
-        return sendBulkNotifications(requests);
+        return multicastToTokens(fcmTokens, title, body, notificationType, data);
     }
     
     /**
@@ -282,6 +260,7 @@ public class FirebaseNotificationService {
                     .build();
             
             deviceTokenRepository.save(deviceToken);
+            deviceTokenCache.invalidate(userId);
             logger.info("Registered device token for user: {} device: {}", userId, deviceId);
             
         } catch (Exception e) {
@@ -296,6 +275,7 @@ public class FirebaseNotificationService {
     public void unregisterDeviceToken(String fcmToken) {
         try {
             deviceTokenRepository.deactivateByFcmToken(fcmToken);
+            deviceTokenCache.removeTokens(List.of(fcmToken));
             logger.info("Unregistered device token: {}", fcmToken);
         } catch (Exception e) {
             logger.error("Error unregistering device token: {}", e.getMessage(), e);
@@ -304,26 +284,95 @@ public class FirebaseNotificationService {
     
     // Private helper methods
     
-    private Message buildMessage(FirebaseNotificationRequest request) {
-        Notification.Builder notificationBuilder = Notification.builder()
-                .setTitle(request.getTitle())
-                .setBody(request.getBody());
+    /**
+     * Same notification to many tokens: one multicast per 500 tokens, duplicates coalesced
+     */
+    private List<NotificationResponse> multicastToTokens(List<String> tokens, String title, String body,
+                                                         String notificationType, Map<String, String> data) {
+        if (firebaseMessaging == null) {
+            logger.warn("Firebase not initialized, cannot send notifications");
+            return List.of(NotificationResponse.failure("Firebase not available"));
+        }
         
-        if (request.getImageUrl() != null) {
-            notificationBuilder.setImage(request.getImageUrl());
+        FirebaseNotificationRequest template = FirebaseNotificationRequest.builder()
+                .title(title)
+                .body(body)
+                .notificationType(notificationType)
+                .data(data != null ? data : new HashMap<>())
+                .build();
+        
+        return pushDispatcher.multicast(tokens, chunk -> buildMulticastMessage(template, chunk), coalesceKey(template));
+    }
+    
+    // Content identity for coalescing: a SHA-256 of the canonical content, ignoring the per-send timestamp.
+    // Fields are length-prefixed so no two different notifications share a canonical form.
+    private String coalesceKey(FirebaseNotificationRequest request) {
+        StringBuilder canonical = new StringBuilder();
+        appendField(canonical, request.getNotificationType());
+        appendField(canonical, request.getTitle());
+        appendField(canonical, request.getBody());
+        Map<String, String> data = request.getData() != null ? new TreeMap<>(request.getData()) : new TreeMap<>();
+        data.remove("timestamp");
+        data.forEach((key, value) -> {
+            appendField(canonical, key);
+            appendField(canonical, value);
+        });
+        return DigestUtils.sha256Hex(canonical.toString());
+    }
+
+    private static void appendField(StringBuilder canonical, String value) {
+        if (value == null) {
+            canonical.append("-1:");
+        } else {
+            canonical.append(value.length()).append(':').append(value);
         }
+    }
+    
+    private MulticastMessage buildMulticastMessage(FirebaseNotificationRequest request, List<String> tokens) {
+        MulticastMessage.Builder messageBuilder = MulticastMessage.builder()
+                .addAllTokens(tokens)
+                .setNotification(buildNotification(request))
+                .setAndroidConfig(buildAndroidConfig())
+                .setApnsConfig(buildApnsConfig(request));
         
+        if (request.getData() != null && !request.getData().isEmpty()) {
+            messageBuilder.putAllData(request.getData());
+        }
+        
+        return messageBuilder.build();
+    }
+    
+    private Message buildMessage(FirebaseNotificationRequest request) {
         Message.Builder messageBuilder = Message.builder()
                 .setToken(request.getTargetToken())
-                .setNotification(notificationBuilder.build());
+                .setNotification(buildNotification(request));
         
         // Add custom data
         if (request.getData() != null && !request.getData().isEmpty()) {
             messageBuilder.putAllData(request.getData());
         }
         
+        messageBuilder.setAndroidConfig(buildAndroidConfig());
+        messageBuilder.setApnsConfig(buildApnsConfig(request));
+        
+        return messageBuilder.build();
+    }
+    
+    private Notification buildNotification(FirebaseNotificationRequest request) {
+        Notification.Builder notificationBuilder = Notification.builder()
+                .setTitle(request.getTitle())
+                .setBody(request.getBody());
+        
+        if (request.getImageUrl() != null) {
+            notificationBuilder.setImage(request.getImageUrl());
+        }
+        
+        return notificationBuilder.build();
+    }
+    
+    private AndroidConfig buildAndroidConfig() {
         // Set Android-specific configuration
-        AndroidConfig androidConfig = AndroidConfig.builder()
+        return AndroidConfig.builder()
                 .setTtl(3600 * 1000) // 1 hour
                 .setPriority(AndroidConfig.Priority.HIGH)
                 .setNotification(AndroidNotification.builder()
@@ -332,10 +381,11 @@ public class FirebaseNotificationService {
                         .setSound("default")
                         .build())
                 .build();
-        messageBuilder.setAndroidConfig(androidConfig);
-        
+    }
+    
+    private ApnsConfig buildApnsConfig(FirebaseNotificationRequest request) {
         // Set iOS-specific configuration
-        ApnsConfig apnsConfig = ApnsConfig.builder()
+        return ApnsConfig.builder()
                 .setAps(Aps.builder()
                         .setAlert(ApsAlert.builder()
                                 .setTitle(request.getTitle())
@@ -345,52 +395,19 @@ public class FirebaseNotificationService {
                         .setSound("default")
                         .build())
                 .build();
-        messageBuilder.setApnsConfig(apnsConfig);
-        
-        return messageBuilder.build();
-    }
-    
-    private List<NotificationResponse> processBatchResponse(BatchResponse response, 
-                                                          List<FirebaseNotificationRequest> requests) {
-        List<NotificationResponse> results = new ArrayList<>();
-        List<SendResponse> responses = response.getResponses();
-        
-        for (int i = 0; i < responses.size(); i++) {
-            SendResponse sendResponse = responses.get(i);
-            FirebaseNotificationRequest request = requests.get(i);
-            
-            if (sendResponse.isSuccessful()) {
-                results.add(NotificationResponse.success(sendResponse.getMessageId()));
-            } else {
-                FirebaseMessagingException exception = sendResponse.getException();
-                handleFirebaseException(exception, request.getTargetToken());
-                results.add(NotificationResponse.failure(exception.getMessage()));
-            }
-        }
-        
-        return results;
     }
     
     private void handleFirebaseException(FirebaseMessagingException exception, String token) {
-        String errorCode = exception.getErrorCode().name();
-        
-        if ("UNREGISTERED".equals(errorCode) || "INVALID_ARGUMENT".equals(errorCode)) {
+        if (pushDispatcher.isPrunable(exception)) {
             // Token is invalid, remove it from database
             logger.warn("Invalid FCM token detected, deactivating: {}", token);
-            deviceTokenRepository.deactivateByFcmToken(token);
+            pushDispatcher.pruneTokens(List.of(token));
         }
     }
     
     private List<Long> getCaregiverIds(Long patientId) {
         try {
-            User patientUser = userRepository.findById(patientId)
-                    .orElseThrow(() -> new IllegalArgumentException("Patient not found"));
-            
-            return caregiverPatientLinkRepository
-                    .findByPatientUserAndStatus(patientUser, CaregiverPatientLink.LinkStatus.ACTIVE)
-                    .stream()
-                    .map(link -> link.getCaregiverUser().getId())
-                    .collect(Collectors.toList());
+            return careTeamRecipientCache.getCaregiverUserIds(patientId);
         } catch (Exception e) {
             logger.error("Error getting caregiver IDs for patient {}: {}", patientId, e.getMessage());
             return new ArrayList<>();
@@ -399,14 +416,7 @@ public class FirebaseNotificationService {
     
     private List<Long> getFamilyMemberIds(Long patientId) {
         try {
-            User patientUser = userRepository.findById(patientId)
-                    .orElseThrow(() -> new IllegalArgumentException("Patient not found"));
-            
-            return familyMemberLinkRepository
-                    .findByPatientUserAndStatus(patientUser, FamilyMemberLink.LinkStatus.ACTIVE)
-                    .stream()
-                    .map(link -> link.getFamilyUser().getId())
-                    .collect(Collectors.toList());
+            return careTeamRecipientCache.getFamilyMemberUserIds(patientId);
         } catch (Exception e) {
             logger.error("Error getting family member IDs for patient {}: {}", patientId, e.getMessage());
             return new ArrayList<>();
@@ -0,0 +1,7 @@
+package com.careconnect.service;
+
+/**
+ * Published when a friendship between two users is recorded, so cached friend lists
+ * for both users can be dropped.
+ */
+public record FriendshipChangedEvent(Long userId, Long friendId) {}
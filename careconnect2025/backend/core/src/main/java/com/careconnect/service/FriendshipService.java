@@ -0,0 +1,230 @@
+package com.careconnect.service;
+
+import com.careconnect.model.FriendRequest;
+import com.careconnect.model.Friendship;
+import com.careconnect.repository.FriendRequestRepository;
+import com.careconnect.repository.FriendshipRepository;
+import com.careconnect.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Friendship graph backed by the symmetric friendships table.
+ *
+ * Each user's friends are one indexed range, so lookups scale with the user's degree
+ * rather than with the number of friend requests in the system. Friend ids are cached
+ * per user as sorted long arrays, which makes membership checks a binary search and
+ * mutual-friend lookups a linear merge. Entries are dropped when a friendship involving
+ * the user changes (after commit) or after the TTL.
+ */
+@Service
+@Slf4j
+public class FriendshipService {
+
+    private static final long[] NO_FRIENDS = new long[0];
+
+    private final FriendshipRepository friendshipRepository;
+    private final FriendRequestRepository friendRequestRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long ttlMs;
+    private final int maxCachedUsers;
+
+    // userId -> sorted friend ids
+    private final Map<Long, Adjacency> adjacency = new ConcurrentHashMap<>();
+
+    public FriendshipService(FriendshipRepository friendshipRepository,
+                             FriendRequestRepository friendRequestRepository,
+                             UserRepository userRepository,
+                             ApplicationEventPublisher eventPublisher,
+                             @Value("${careconnect.friends.cache-ttl-minutes:10}") long ttlMinutes,
+                             @Value("${careconnect.friends.cache-max-users:50000}") int maxCachedUsers) {
+        this.friendshipRepository = friendshipRepository;
+        this.friendRequestRepository = friendRequestRepository;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.ttlMs = ttlMinutes * 60_000L;
+        this.maxCachedUsers = maxCachedUsers;
+    }
+
+    /**
+     * Sorted ids of the user's friends. The array is shared and must not be modified.
+     */
+    public long[] getFriendIds(Long userId) {
+        Adjacency cached = adjacency.get(userId);
+        if (cached != null && !cached.isExpired(ttlMs)) {
+            return cached.friendIds();
+        }
+
+        long[] friendIds = friendshipRepository.findFriendIds(userId).stream()
+                .mapToLong(Long::longValue)
+                .sorted()
+                .toArray();
+        if (friendIds.length == 0) {
+            friendIds = NO_FRIENDS;
+        }
+        if (adjacency.size() >= maxCachedUsers) {
+            evictOne();
+        }
+        adjacency.put(userId, new Adjacency(friendIds, System.currentTimeMillis()));
+        return friendIds;
+    }
+
+    public boolean areFriends(Long userId, Long otherUserId) {
+        return Arrays.binarySearch(getFriendIds(userId), otherUserId) >= 0;
+    }
+
+    /**
+     * Records an accepted friendship in both directions. Idempotent.
+     */
+    @Transactional
+    public void addFriendship(Long userId, Long friendId) {
+        if (userId.equals(friendId)) {
+            throw new IllegalArgumentException("Users cannot befriend themselves");
+        }
+        if (!friendshipRepository.existsByUserIdAndFriendId(userId, friendId)) {
+            friendshipRepository.save(new Friendship(userId, friendId));
+        }
+        if (!friendshipRepository.existsByUserIdAndFriendId(friendId, userId)) {
+            friendshipRepository.save(new Friendship(friendId, userId));
+        }
+        eventPublisher.publishEvent(new FriendshipChangedEvent(userId, friendId));
+    }
+
+    /**
+     * Marks a pending request accepted and records the friendship in the same transaction.
+     */
+    @Transactional
+    public void acceptRequest(FriendRequest request) {
+        request.setStatus("accepted");
+        friendRequestRepository.save(request);
+        addFriendship(request.getFromUserId(), request.getToUserId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFriendshipChanged(FriendshipChangedEvent event) {
+        adjacency.remove(event.userId());
+        adjacency.remove(event.friendId());
+    }
+
+    /**
+     * The user's friends with basic profile fields, loaded with one join.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getFriends(Long userId) {
+        List<Map<String, Object>> friends = new ArrayList<>();
+        for (Object[] row : friendshipRepository.findFriendSummaries(userId)) {
+            Map<String, Object> summary = toSummary(row);
+            summary.put("email", row[2]); // Shown to the user for their own friends only
+            friends.add(summary);
+        }
+        return friends;
+    }
+
+    /**
+     * Friends the two users have in common.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getMutualFriends(Long userId, Long otherUserId) {
+        long[] mutual = intersect(getFriendIds(userId), getFriendIds(otherUserId));
+        if (mutual.length == 0) {
+            return List.of();
+        }
+        List<Long> ids = Arrays.stream(mutual).boxed().toList();
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Object[] row : userRepository.findSummariesByIds(ids)) {
+            result.add(toSummary(row));
+        }
+        return result;
+    }
+
+    /**
+     * Friends of friends who are not yet the user's friends, ranked by mutual friend count.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getSuggestions(Long userId, int limit) {
+        List<Object[]> candidates = friendshipRepository.findFriendsOfFriends(userId, PageRequest.of(0, limit));
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Long> mutualCounts = new LinkedHashMap<>();
+        for (Object[] row : candidates) {
+            mutualCounts.put((Long) row[0], (Long) row[1]);
+        }
+        Map<Long, Map<String, Object>> summaries = new HashMap<>();
+        for (Object[] row : userRepository.findSummariesByIds(mutualCounts.keySet())) {
+            summaries.put((Long) row[0], toSummary(row));
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        mutualCounts.forEach((candidateId, count) -> {
+            Map<String, Object> summary = summaries.get(candidateId);
+            if (summary != null) {
+                summary.put("mutualFriends", count);
+                result.add(summary);
+            }
+        });
+        return result;
+    }
+
+    @Scheduled(fixedRate = 600000) // Every 10 minutes
+    public void evictExpired() {
+        adjacency.values().removeIf(entry -> entry.isExpired(ttlMs));
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] out = new long[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static Map<String, Object> toSummary(Object[] row) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", row[0]);
+        map.put("name", row[1]);
+        map.put("profileImageUrl", row[3]);
+        return map;
+    }
+
+    private void evictOne() {
+        Iterator<Long> it = adjacency.keySet().iterator();
+        if (it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private record Adjacency(long[] friendIds, long loadedAt) {
+        boolean isExpired(long ttlMs) {
+            return System.currentTimeMillis() - loadedAt > ttlMs;
+        }
+    }
+}
@@ -3,7 +3,10 @@ package com.careconnect.service;
 import com.careconnect.model.*;
 import com.careconnect.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -14,58 +17,77 @@ public class GamificationService {
     private final XPProgressRepository xpProgressRepository;
     private final AchievementRepository achievementRepository;
     private final UserAchievementRepository userAchievementRepository;
+    private final XPEventRepository xpEventRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public GamificationService(
             XPProgressRepository xpProgressRepository,
             AchievementRepository achievementRepository,
-            UserAchievementRepository userAchievementRepository
+            UserAchievementRepository userAchievementRepository,
+            XPEventRepository xpEventRepository,
+            ApplicationEventPublisher eventPublisher
     ) {
         this.xpProgressRepository = xpProgressRepository;
         this.achievementRepository = achievementRepository;
         this.userAchievementRepository = userAchievementRepository;
+        this.xpEventRepository = xpEventRepository;
+        this.eventPublisher = eventPublisher;
     }
 
-    // XP level threshold (simple static rule: every 100 XP = 1 level)
-    private int calculateLevel(int xp) {
+    // XP level threshold (simple static rule: every 100 XP = 1 level).
+    // XPProgressRepository.addXp applies the same rule in SQL.
+    static int calculateLevel(int xp) {
         return xp / 100 + 1;
     }
 
+    @Transactional
     public XPProgress awardXp(Long userId, int amount) {
+        return awardXp(userId, amount, "manual");
+    }
+
+    /**
+     * Adds XP with a single atomic upsert of the user's total and appends the award to the
+     * ledger. The ledger entry is written after the upsert, while its row lock is held, so
+     * ledger ids follow the order in which totals changed.
+     */
+    @Transactional
+    public XPProgress awardXp(Long userId, int amount, String eventName) {
+        xpProgressRepository.addXp(userId, amount, LocalDateTime.now());
         XPProgress progress = xpProgressRepository.findByUserId(userId)
-                .orElseGet(() -> {
-                    XPProgress xp = new XPProgress();
-                    xp.setUserId(userId);
-                    xp.setXp(0);
-                    xp.setLevel(1);
-                    return xp;
-                });
-
-        int newXp = progress.getXp() + amount;
-        progress.setXp(newXp);
-        progress.setLevel(calculateLevel(newXp));
-        progress.setUpdatedAt(LocalDateTime.now());
-
-        return xpProgressRepository.save(progress);
+                .orElseThrow(() -> new IllegalStateException("XP progress missing after award for user " + userId));
+
+        XPEvent entry = xpEventRepository.save(new XPEvent(userId, eventName, amount));
+        eventPublisher.publishEvent(new XpAwardedEvent(userId, progress.getXp(), entry.getId()));
+        return progress;
     }
 
-    public void grantAchievement(Long userId, Long achievementId) {
+    public List<XPEvent> getXpHistory(Long userId, int limit) {
+        return xpEventRepository.findByUserIdOrderByCreatedAtDescIdDesc(userId, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Records an earned achievement together with its XP reward. Returns false if the
+     * user already has it. Achievements are unlocked by the {@link AchievementEngine}.
+     */
+    @Transactional
+    public boolean grantAchievement(Long userId, Long achievementId, int xpReward) {
+        if (userAchievementRepository.existsByUserIdAndAchievementId(userId, achievementId)) {
+            return false;
+        }
         Achievement achievement = achievementRepository.findById(achievementId)
                 .orElseThrow(() -> new RuntimeException("Achievement not found"));
 
-        // Avoid duplicate grant
-        boolean alreadyHas = userAchievementRepository.findByUserId(userId)
-                .stream()
-                .anyMatch(ua -> ua.getAchievement().getId().equals(achievementId));
-
-        if (!alreadyHas) {
-            UserAchievement userAchievement = new UserAchievement();
-            userAchievement.setUserId(userId);
-            userAchievement.setAchievement(achievement);
-            userAchievement.setEarnedAt(LocalDateTime.now());
+        UserAchievement userAchievement = new UserAchievement();
+        userAchievement.setUserId(userId);
+        userAchievement.setAchievement(achievement);
+        userAchievement.setEarnedAt(LocalDateTime.now());
+        userAchievementRepository.save(userAchievement);
 
-            userAchievementRepository.save(userAchievement);
+        if (xpReward != 0) {
+            awardXp(userId, xpReward, "achievement:" + achievement.getTitle());
         }
+        return true;
     }
 
     public List<Achievement> getAllAchievements() {
@@ -79,27 +101,4 @@ public class GamificationService {
     public Optional<XPProgress> getXpProgress(Long userId) {
         return xpProgressRepository.findByUserId(userId);
     }
-
-    public void unlockAchievement(Long userId, String achievementTitle, int xp) {
-        // Find achievement by name
-        Optional<Achievement> achievementOpt = achievementRepository.findByTitle(achievementTitle);
-        if (achievementOpt.isEmpty()) return;
-
-        Achievement achievement = achievementOpt.get();
-
-        // Check if already unlocked
-        boolean alreadyUnlocked = userAchievementRepository.existsByUserIdAndAchievementId(userId, achievement.getId());
-        if (alreadyUnlocked) return;
-
-        // Award XP
-        awardXp(userId, xp);
-
-        // Save user achievement
-        UserAchievement userAchievement = new UserAchievement();
-        userAchievement.setUserId(userId);
-        userAchievement.setAchievement(achievement);
-        userAchievement.setEarnedAt(LocalDateTime.now()); // ✅ correct method name
-        userAchievementRepository.save(userAchievement);
-    }
-
 }
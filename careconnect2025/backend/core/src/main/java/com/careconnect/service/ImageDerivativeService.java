@@ -0,0 +1,282 @@
+package com.careconnect.service;
+
+import com.careconnect.model.ImageVariant;
+import com.careconnect.model.UserFile;
+import com.careconnect.repository.ImageVariantRepository;
+import com.careconnect.repository.UserFileRepository;
+import com.careconnect.util.ImageUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Renders fixed-width, metadata-free renditions of uploaded images off the request path.
+ *
+ * Feed photos live on the local upload directory, so their variants are written next to
+ * the original as {@code <name>_w<width>.<ext>}. Stored files (profile images and other
+ * image uploads) get {@link ImageVariant} rows whose content uses the original's storage
+ * backend. Originals are never upscaled: only widths smaller than the source are rendered.
+ */
+@Service
+@Slf4j
+public class ImageDerivativeService {
+
+    private static final String VARIANT_SUFFIX = "_w";
+
+    private final ImageVariantRepository imageVariantRepository;
+    private final UserFileRepository userFileRepository;
+    private final DatabaseStorageService databaseStorageService;
+    private final S3StorageService s3StorageService;
+    private final ContentBlobStore contentBlobStore;
+
+    private final int[] widths;
+    private final String format;
+    private final String contentType;
+    private final String extension;
+    private final float quality;
+    private final long maxPixels;
+    private final ExecutorService executor;
+
+    public ImageDerivativeService(ImageVariantRepository imageVariantRepository,
+                                  UserFileRepository userFileRepository,
+                                  DatabaseStorageService databaseStorageService,
+                                  S3StorageService s3StorageService,
+                                  ContentBlobStore contentBlobStore,
+                                  @Value("${careconnect.images.variant-widths:48,160,480,1080}") int[] widths,
+                                  @Value("${careconnect.images.format:jpeg}") String format,
+                                  @Value("${careconnect.images.quality:0.82}") float quality,
+                                  @Value("${careconnect.images.max-pixels:40000000}") long maxPixels,
+                                  @Value("${careconnect.images.worker-threads:2}") int workerThreads) {
+        this.imageVariantRepository = imageVariantRepository;
+        this.userFileRepository = userFileRepository;
+        this.databaseStorageService = databaseStorageService;
+        this.s3StorageService = s3StorageService;
+        this.contentBlobStore = contentBlobStore;
+        this.widths = Arrays.stream(widths).filter(w -> w > 0).sorted().distinct().toArray();
+        this.quality = quality;
+        this.maxPixels = maxPixels;
+
+        // WebP needs an ImageIO plugin on the classpath; fall back to JPEG without one
+        if ("webp".equalsIgnoreCase(format) && ImageUtils.canEncode("webp")) {
+            this.format = "webp";
+            this.contentType = "image/webp";
+            this.extension = ".webp";
+        } else {
+            if (!"jpeg".equalsIgnoreCase(format)) {
+                log.warn("Image format {} is not available, rendering variants as JPEG", format);
+            }
+            this.format = "jpeg";
+            this.contentType = "image/jpeg";
+            this.extension = ".jpg";
+        }
+        this.executor = Executors.newFixedThreadPool(Math.max(1, workerThreads));
+    }
+
+    public static boolean isImage(String contentType) {
+        return contentType != null && contentType.toLowerCase().startsWith("image/");
+    }
+
+    /**
+     * Prepares an uploaded original for storage: camera metadata (EXIF GPS, device, XMP) is
+     * removed. Upright JPEGs are stripped losslessly; rotated ones are re-encoded upright
+     * because dropping the EXIF orientation would otherwise display them sideways.
+     */
+    public byte[] sanitizeOriginal(byte[] data) {
+        if (!ImageUtils.isJpeg(data)) {
+            return data;
+        }
+        int orientation = ImageUtils.readJpegOrientation(data);
+        if (orientation <= 1) {
+            return ImageUtils.stripJpegMetadata(data);
+        }
+        try {
+            BufferedImage upright = ImageUtils.applyOrientation(decodeWithinLimit(data), orientation);
+            return ImageUtils.encode(upright, "jpeg", 0.92f);
+        } catch (IOException e) {
+            log.warn("Could not re-encode rotated image, stripping metadata only", e);
+            return ImageUtils.stripJpegMetadata(data);
+        }
+    }
+
+    // ==================== LOCAL (FEED) IMAGES ====================
+
+    public void renderLocalVariantsAsync(Path original) {
+        executor.execute(() -> renderLocalVariants(original));
+    }
+
+    /**
+     * Picks the smallest rendered variant at least {@code width} wide, or the original when
+     * none qualifies or none has been rendered yet.
+     */
+    public Path resolveLocalVariant(Path original, Integer width) {
+        if (width == null) {
+            return original;
+        }
+        for (int w : widths) {
+            if (w >= width) {
+                Path candidate = localVariantPath(original, w);
+                if (Files.exists(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return original;
+    }
+
+    void renderLocalVariants(Path original) {
+        try {
+            byte[] data = Files.readAllBytes(original);
+            BufferedImage source = ImageUtils.applyOrientation(
+                    decodeWithinLimit(data), ImageUtils.readJpegOrientation(data));
+            for (int w : widths) {
+                if (w >= source.getWidth()) {
+                    break;
+                }
+                byte[] encoded = ImageUtils.encode(ImageUtils.resizeToWidth(source, w), format, quality);
+                Files.write(localVariantPath(original, w), encoded);
+            }
+            log.debug("Rendered variants for {}", original.getFileName());
+        } catch (Exception e) {
+            log.error("Failed to render variants for {}", original, e);
+        }
+    }
+
+    private Path localVariantPath(Path original, int width) {
+        String name = original.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return original.resolveSibling(base + VARIANT_SUFFIX + width + extension);
+    }
+
+    // ==================== STORED FILES ====================
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onImageUploaded(ImageUploadedEvent event) {
+        executor.execute(() -> renderStoredVariants(event.fileId()));
+    }
+
+    /**
+     * Picks the smallest variant at least {@code width} wide, or empty when none is (the
+     * request is then for more than any rendered variant, so the original should be served).
+     */
+    public Optional<ImageVariant> findVariant(Long fileId, int width) {
+        for (ImageVariant variant : imageVariantRepository.findByFileIdOrderByWidthAsc(fileId)) {
+            if (variant.getWidth() >= width) {
+                return Optional.of(variant);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public StorageStream openVariant(ImageVariant variant) {
+        if (variant.getStorageType() == UserFile.StorageType.DATABASE) {
+            return databaseStorageService.openBlobStream(variant.getBlobId(), variant.getContentType());
+        }
+        return s3StorageService.openStream(variant.getS3Path());
+    }
+
+    void renderStoredVariants(Long fileId) {
+        Optional<UserFile> fileOpt = userFileRepository.findActiveById(fileId);
+        if (fileOpt.isEmpty() || !isImage(fileOpt.get().getContentType())) {
+            return;
+        }
+        UserFile file = fileOpt.get();
+
+        try {
+            byte[] data = file.getStorageType() == UserFile.StorageType.DATABASE
+                    ? databaseStorageService.download("db://files/" + fileId)
+                    : s3StorageService.download(file.getS3Path());
+            BufferedImage source = ImageUtils.applyOrientation(
+                    decodeWithinLimit(data), ImageUtils.readJpegOrientation(data));
+
+            int rendered = 0;
+            for (int w : widths) {
+                if (w >= source.getWidth()) {
+                    break;
+                }
+                BufferedImage resized = ImageUtils.resizeToWidth(source, w);
+                storeVariant(file, resized, ImageUtils.encode(resized, format, quality));
+                rendered++;
+            }
+            log.info("Rendered {} image variants for file {}", rendered, fileId);
+        } catch (Exception e) {
+            log.error("Failed to render image variants for file {}", fileId, e);
+        }
+    }
+
+    // Checks the header's dimensions first: a small, highly compressed upload can decode to
+    // a bitmap large enough to exhaust the heap
+    private BufferedImage decodeWithinLimit(byte[] data) throws IOException {
+        int[] size = ImageUtils.readDimensions(data);
+        if (size == null) {
+            throw new IOException("Unsupported image format");
+        }
+        if ((long) size[0] * size[1] > maxPixels) {
+            throw new IOException("Image of " + size[0] + "x" + size[1] + " exceeds the " + maxPixels + " pixel limit");
+        }
+        return ImageUtils.decode(data);
+    }
+
+    private void storeVariant(UserFile file, BufferedImage image, byte[] encoded) throws IOException {
+        String sha256 = ContentBlobStore.sha256Hex(new ByteArrayInputStream(encoded));
+        ImageVariant.ImageVariantBuilder variant = ImageVariant.builder()
+                .fileId(file.getId())
+                .width(image.getWidth())
+                .height(image.getHeight())
+                .contentType(contentType)
+                .sizeBytes((long) encoded.length)
+                .storageType(file.getStorageType());
+
+        Long blobId = null;
+        if (file.getStorageType() == UserFile.StorageType.DATABASE) {
+            blobId = contentBlobStore.store(sha256, new ByteArrayInputStream(encoded), encoded.length);
+            variant.blobId(blobId);
+        } else {
+            String key = s3StorageService.contentKey(sha256, extension);
+            if (s3StorageService.headObject(key) == null) {
+                s3StorageService.upload(key, encoded, contentType);
+            }
+            variant.s3Path(key);
+        }
+
+        try {
+            imageVariantRepository.save(variant.build());
+        } catch (Exception e) {
+            // Variant for this width already exists (e.g. re-render); give the blob reference back
+            contentBlobStore.release(blobId);
+            log.debug("Variant {}px for file {} already present", image.getWidth(), file.getId());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onVariantsDeleted(ImageVariantsDeletedEvent event) {
+        for (String key : event.s3Paths()) {
+            try {
+                // Identical renditions share a key; keep it while any variant or file still refers to it
+                if (!imageVariantRepository.existsByS3Path(key) && !userFileRepository.existsByS3Path(key)) {
+                    s3StorageService.deleteFile(key);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to delete variant object {} of file {}: {}", key, event.fileId(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,7 @@
+package com.careconnect.service;
+
+/**
+ * Published when an image file has been recorded, so derivatives can be rendered
+ * once the upload transaction commits.
+ */
+public record ImageUploadedEvent(Long fileId) {}
@@ -0,0 +1,8 @@
+package com.careconnect.service;
+
+import java.util.List;
+
+/**
+ * Published when a file's image variants are deleted, so their S3 objects can be removed after commit.
+ */
+public record ImageVariantsDeletedEvent(Long fileId, List<String> s3Paths) {}
@@ -0,0 +1,162 @@
+package com.careconnect.service;
+
+import com.careconnect.repository.CaregiverPatientLinkRepository;
+import com.careconnect.repository.FamilyMemberLinkRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expires caregiver and family member links when their expiry passes.
+ *
+ * Upcoming expiry times within the horizon are held in an in-memory delay queue, filled by
+ * an indexed range query on each refresh and topped up whenever a patient's links change.
+ * A single thread waits on the queue and, at each expiry time, expires everything due with
+ * one bulk update per link table, so links lose access on time rather than at the next
+ * sweep. Each refresh also runs that bulk update, which catches links that expired while
+ * the application was down or were changed on another instance.
+ */
+@Service
+@Slf4j
+public class LinkExpiryScheduler {
+
+    // Fire just after the expiry time so the strict "expires_at < now" check matches
+    private static final long SLACK_MS = 1000;
+
+    private final CaregiverPatientLinkService caregiverPatientLinkService;
+    private final FamilyMemberService familyMemberService;
+    private final CaregiverPatientLinkRepository caregiverPatientLinkRepository;
+    private final FamilyMemberLinkRepository familyMemberLinkRepository;
+    private final Duration horizon;
+
+    private final DelayQueue<Wakeup> queue = new DelayQueue<>();
+    // Expiry times already in the queue
+    private final Set<LocalDateTime> scheduled = ConcurrentHashMap.newKeySet();
+    private volatile Thread expiryThread;
+
+    public LinkExpiryScheduler(CaregiverPatientLinkService caregiverPatientLinkService,
+                               FamilyMemberService familyMemberService,
+                               CaregiverPatientLinkRepository caregiverPatientLinkRepository,
+                               FamilyMemberLinkRepository familyMemberLinkRepository,
+                               @Value("${careconnect.links.expiry.horizon-minutes:30}") long horizonMinutes) {
+        this.caregiverPatientLinkService = caregiverPatientLinkService;
+        this.familyMemberService = familyMemberService;
+        this.caregiverPatientLinkRepository = caregiverPatientLinkRepository;
+        this.familyMemberLinkRepository = familyMemberLinkRepository;
+        this.horizon = Duration.ofMinutes(horizonMinutes);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::runExpiryLoop, "link-expiry");
+        thread.setDaemon(true);
+        thread.start();
+        expiryThread = thread;
+    }
+
+    /**
+     * Expires links already past their expiry, then queues the expiry times within the horizon.
+     * The refresh interval should stay below the horizon so no expiry time is missed.
+     */
+    @Scheduled(fixedDelayString = "${careconnect.links.expiry.refresh-interval-ms:900000}")
+    public void refresh() {
+        try {
+            expireDue();
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime until = now.plus(horizon);
+            caregiverPatientLinkRepository.findActiveExpiriesBetween(now, until).forEach(this::schedule);
+            familyMemberLinkRepository.findActiveExpiriesBetween(now, until).forEach(this::schedule);
+        } catch (Exception e) {
+            log.error("Failed to refresh the link expiry queue", e);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCareLinkChanged(CareLinkChangedEvent event) {
+        // A new or extended link may now be the patient's next one to expire
+        LocalDateTime now = LocalDateTime.now();
+        schedule(caregiverPatientLinkRepository.findNextExpiryForPatient(event.patientUserId(), now));
+        schedule(familyMemberLinkRepository.findNextExpiryForPatient(event.patientUserId(), now));
+    }
+
+    /**
+     * Expires every active link past its expiry. Returns the number of links expired.
+     */
+    public int expireDue() {
+        int expired = caregiverPatientLinkService.cleanupExpiredLinks()
+                + familyMemberService.cleanupExpiredFamilyMemberLinks();
+        if (expired > 0) {
+            log.info("Expired {} caregiver and family member links", expired);
+        }
+        return expired;
+    }
+
+    public int getQueuedExpiries() {
+        return queue.size();
+    }
+
+    private void schedule(LocalDateTime expiresAt) {
+        if (expiresAt == null || expiresAt.isAfter(LocalDateTime.now().plus(horizon))) {
+            return; // Picked up by a later refresh
+        }
+        if (scheduled.add(expiresAt)) {
+            queue.put(new Wakeup(expiresAt,
+                    expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + SLACK_MS));
+        }
+    }
+
+    private void runExpiryLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<Wakeup> due = new ArrayList<>();
+                due.add(queue.take());
+                // Everything else already due is covered by the same bulk update
+                queue.drainTo(due);
+                due.forEach(wakeup -> scheduled.remove(wakeup.expiresAt()));
+                expireDue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Failed to expire due links", e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Thread thread = expiryThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private record Wakeup(LocalDateTime expiresAt, long fireAtMillis) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(fireAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(fireAtMillis, ((Wakeup) other).fireAtMillis);
+        }
+    }
+}
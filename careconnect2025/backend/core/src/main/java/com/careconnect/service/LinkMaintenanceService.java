@@ -1,63 +1,111 @@
 package com.careconnect.service;
 
-import lombok.RequiredArgsConstructor;
+import com.careconnect.repository.CaregiverPatientLinkRepository;
+import com.careconnect.repository.FamilyMemberLinkRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
- * Service for automatically cleaning up expired links and managing link statuses.
- * This service runs scheduled tasks to maintain the health of the linking system.
+ * Service for scheduled link maintenance: "expiring soon" reminders and statistics.
+ * Expiring the links themselves is done on time by {@link LinkExpiryScheduler}.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
-@Transactional
 public class LinkMaintenanceService {
 
-    private final CaregiverPatientLinkService caregiverPatientLinkService;
-    private final FamilyMemberService familyMemberService;
+    private static final DateTimeFormatter EXPIRY_FORMAT = DateTimeFormatter.ofPattern("MMM d, yyyy 'at' h:mm a");
 
-    /**
-     * Automatically cleanup expired links every hour
-     */
-    @Scheduled(fixedRate = 3600000) // Every hour (3600000 ms)
-    public void cleanupExpiredLinks() {
-        try {
-            log.info("Starting automatic cleanup of expired links");
-            
-            // Cleanup caregiver-patient links
-            caregiverPatientLinkService.cleanupExpiredLinks();
-            
-            // Cleanup family member links
-            familyMemberService.cleanupExpiredFamilyMemberLinks();
-            
-            log.info("Completed automatic cleanup of expired links");
-        } catch (Exception e) {
-            log.error("Error during automatic link cleanup", e);
-        }
+    private final CaregiverPatientLinkRepository caregiverPatientLinkRepository;
+    private final FamilyMemberLinkRepository familyMemberLinkRepository;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration reminderWindow;
+    private final int reminderBatchSize;
+
+    public LinkMaintenanceService(CaregiverPatientLinkRepository caregiverPatientLinkRepository,
+                                  FamilyMemberLinkRepository familyMemberLinkRepository,
+                                  EmailService emailService,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${careconnect.links.expiry.reminder-window-hours:24}") long reminderWindowHours,
+                                  @Value("${careconnect.links.expiry.reminder-batch-size:200}") int reminderBatchSize) {
+        this.caregiverPatientLinkRepository = caregiverPatientLinkRepository;
+        this.familyMemberLinkRepository = familyMemberLinkRepository;
+        this.emailService = emailService;
+        this.transactionTemplate = transactionTemplate;
+        this.reminderWindow = Duration.ofHours(reminderWindowHours);
+        this.reminderBatchSize = Math.max(1, reminderBatchSize);
     }
 
     /**
-     * Send notifications for links expiring within 24 hours
-     * Runs every 12 hours
+     * Email caregivers and family members whose access expires within the reminder window.
+     * Each link is reminded once per expiry; a batch of reminders is queued in the email
+     * outbox in the same transaction that marks its links as reminded.
      */
-    @Scheduled(fixedRate = 43200000) // Every 12 hours (43200000 ms)
+    @Scheduled(fixedDelayString = "${careconnect.links.expiry.reminder-interval-ms:3600000}")
     public void notifyExpiringSoonLinks() {
         try {
-            log.info("Checking for links expiring soon");
-            
-            // TODO: Implement notification logic
-            // This could send emails or push notifications to relevant users
-            // about links that are expiring soon
-            
-            log.info("Completed check for expiring links");
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime until = now.plus(reminderWindow);
+
+            int caregivers = 0, familyMembers = 0, sent;
+            do {
+                sent = remindBatch(caregiverPatientLinkRepository.findUnremindedExpiringBetween(
+                                now, until, PageRequest.of(0, reminderBatchSize)),
+                        ids -> caregiverPatientLinkRepository.markExpiryReminderSent(ids, now));
+                caregivers += sent;
+            } while (sent == reminderBatchSize);
+            do {
+                sent = remindBatch(familyMemberLinkRepository.findUnremindedExpiringBetween(
+                                now, until, PageRequest.of(0, reminderBatchSize)),
+                        ids -> familyMemberLinkRepository.markExpiryReminderSent(ids, now));
+                familyMembers += sent;
+            } while (sent == reminderBatchSize);
+
+            if (caregivers > 0 || familyMembers > 0) {
+                log.info("Queued link expiry reminders for {} caregiver and {} family member links", caregivers, familyMembers);
+            }
         } catch (Exception e) {
             log.error("Error during expiring links notification", e);
         }
     }
 
+    private int remindBatch(List<Object[]> rows, Consumer<List<Long>> markReminded) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(rows.size());
+        List<String> recipients = new ArrayList<>(rows.size());
+        List<Map<String, Object>> models = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            ids.add((Long) row[0]);
+            if (row[1] == null) {
+                continue; // Nobody to tell, but still marked so the row is not picked up again
+            }
+            recipients.add((String) row[1]);
+            models.add(EmailService.model(
+                    "firstName", row[2],
+                    "patientName", row[3],
+                    "expiresAt", ((LocalDateTime) row[4]).format(EXPIRY_FORMAT)));
+        }
+        transactionTemplate.executeWithoutResult(tx -> {
+            emailService.sendLinkExpiryReminders(recipients, models);
+            markReminded.accept(ids);
+        });
+        return rows.size();
+    }
+
     /**
      * Generate daily statistics about link usage
      * Runs every day at 2 AM
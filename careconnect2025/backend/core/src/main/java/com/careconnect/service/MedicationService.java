@@ -6,6 +6,7 @@ import com.careconnect.model.Patient;
 import com.careconnect.repository.MedicationRepository;
 import com.careconnect.repository.PatientRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,6 +19,7 @@ public class MedicationService {
     
     private final MedicationRepository medicationRepository;
     private final PatientRepository patientRepository;
+    private final ApplicationEventPublisher eventPublisher;
     
     /**
      * Get all active medications for a patient
@@ -69,6 +71,9 @@ public class MedicationService {
             .build();
         
         Medication saved = medicationRepository.save(medication);
+        if (patient.getUser() != null) {
+            eventPublisher.publishEvent(new UserActivityEvent(patient.getUser().getId(), UserActivityEvent.Type.MEDICATION_ADDED));
+        }
         return mapToDTO(saved);
     }
     
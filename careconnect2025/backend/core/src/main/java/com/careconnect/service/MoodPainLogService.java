@@ -10,11 +10,14 @@ import com.careconnect.model.User;
 import com.careconnect.repository.MoodPainLogRepository;
 import com.careconnect.repository.PatientRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.time.LocalDateTime;
 import java.util.Collections;
@@ -32,6 +35,8 @@ public class MoodPainLogService {
     
     private final MoodPainLogRepository moodPainLogRepository;
     private final PatientRepository patientRepository;
+    private final WebSocketNotificationService webSocketNotificationService;
+    private final ApplicationEventPublisher eventPublisher;
     
     /**
      * Create a new mood pain log entry for a patient
@@ -54,6 +59,12 @@ public class MoodPainLogService {
                 .build();
         
         MoodPainLog savedLog = moodPainLogRepository.save(moodPainLog);
+        if (patient.getUser() != null) {
+            eventPublisher.publishEvent(new MoodPainLoggedEvent(patient.getUser().getId(),
+                    patient.getFirstName() + " " + patient.getLastName(),
+                    savedLog.getMoodValue(), savedLog.getPainValue()));
+        }
+        eventPublisher.publishEvent(new UserActivityEvent(currentUser.getId(), UserActivityEvent.Type.MOOD_LOG));
         return convertToResponse(savedLog);
     }
     
@@ -303,6 +314,23 @@ public class MoodPainLogService {
         }
     }
     
+    /**
+     * Push the new entry to the patient's caregivers and family members once it has
+     * committed; never fails the save
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void notifyCareTeam(MoodPainLoggedEvent event) {
+        try {
+            webSocketNotificationService.sendMoodPainLogUpdate(
+                    event.patientUserId().toString(),
+                    event.patientName(),
+                    event.moodValue(),
+                    event.painValue());
+        } catch (Exception e) {
+            System.err.println("Error sending mood/pain update to care team: " + e.getMessage());
+        }
+    }
+    
     /**
      * Convert MoodPainLog entity to response DTO
      */
@@ -0,0 +1,6 @@
+package com.careconnect.service;
+
+/**
+ * Published when a patient saves a mood/pain entry, so the care team is told after it commits.
+ */
+public record MoodPainLoggedEvent(Long patientUserId, String patientName, Integer moodValue, Integer painValue) {}
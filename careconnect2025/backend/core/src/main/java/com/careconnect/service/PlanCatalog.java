@@ -0,0 +1,92 @@
+package com.careconnect.service;
+
+import com.careconnect.model.Plan;
+import com.careconnect.repository.PlanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory copy of the plans table, which is small and rarely written.
+ *
+ * Subscription reads resolve plans here instead of querying per request. The snapshot
+ * is reloaded after any plan change commits and, as a safety net for changes made
+ * elsewhere, once it is older than the TTL. Returned plans are shared and must not
+ * be modified.
+ */
+@Service
+@Slf4j
+public class PlanCatalog {
+
+    private final PlanRepository planRepository;
+    private final long ttlMs;
+
+    private volatile Snapshot snapshot;
+
+    public PlanCatalog(PlanRepository planRepository,
+                       @Value("${careconnect.plans.cache-ttl-minutes:10}") long ttlMinutes) {
+        this.planRepository = planRepository;
+        this.ttlMs = ttlMinutes * 60_000L;
+    }
+
+    public Optional<Plan> findById(Long id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(current().byId().get(id));
+    }
+
+    // Plan codes are Stripe price ids
+    public Optional<Plan> findByCode(String code) {
+        return code == null ? Optional.empty() : Optional.ofNullable(current().byCode().get(code));
+    }
+
+    public Optional<Plan> findByName(String name) {
+        return name == null ? Optional.empty() : Optional.ofNullable(current().byName().get(name));
+    }
+
+    public List<Plan> getAll() {
+        return current().plans();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPlanChanged(PlanChangedEvent event) {
+        snapshot = null;
+    }
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s == null || System.currentTimeMillis() - s.loadedAt() > ttlMs) {
+            s = load();
+            snapshot = s;
+        }
+        return s;
+    }
+
+    private Snapshot load() {
+        List<Plan> plans = List.copyOf(planRepository.findAll(Sort.by("id")));
+        Map<Long, Plan> byId = new HashMap<>();
+        Map<String, Plan> byCode = new HashMap<>();
+        Map<String, Plan> byName = new HashMap<>();
+        for (Plan plan : plans) {
+            byId.put(plan.getId(), plan);
+            if (plan.getCode() != null) {
+                byCode.putIfAbsent(plan.getCode(), plan);
+            }
+            if (plan.getName() != null) {
+                // Price mappings copy the base plan's name; the oldest row is the base plan
+                byName.putIfAbsent(plan.getName(), plan);
+            }
+        }
+        log.debug("Loaded {} plans into the plan catalog", plans.size());
+        return new Snapshot(plans, byId, byCode, byName, System.currentTimeMillis());
+    }
+
+    private record Snapshot(List<Plan> plans, Map<Long, Plan> byId, Map<String, Plan> byCode,
+                            Map<String, Plan> byName, long loadedAt) {}
+}
@@ -0,0 +1,28 @@
+package com.careconnect.service;
+
+import com.careconnect.model.Plan;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener on {@link Plan} that turns row changes into {@link PlanChangedEvent}s.
+ */
+@Component
+public class PlanChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public PlanChangeListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChanged(Plan plan) {
+        eventPublisher.publishEvent(new PlanChangedEvent(plan.getId()));
+    }
+}
@@ -0,0 +1,7 @@
+package com.careconnect.service;
+
+/**
+ * Published when a plan row is inserted, updated or deleted, so the in-memory
+ * {@link PlanCatalog} reloads once the change commits.
+ */
+public record PlanChangedEvent(Long planId) {}
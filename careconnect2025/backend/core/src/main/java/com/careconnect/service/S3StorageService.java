@@ -6,12 +6,20 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.core.sync.ResponseTransformer;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -22,7 +30,10 @@ import java.util.UUID;
 @Slf4j
 public class S3StorageService implements StorageService {
 
+    private static final String CONTENT_PREFIX = "content/";
+
     private final S3Client s3;
+    private final S3Presigner presigner;
     private final S3Props props;
 
     @Override
@@ -35,7 +46,7 @@ public class S3StorageService implements StorageService {
                     PutObjectRequest.builder()
                             .bucket(props.getBucket())
                             .key(path)
-                            .serverSideEncryption(ServerSideEncryption.AWS_KMS)
+                            .serverSideEncryption(serverSideEncryption())
                             .contentType(mimeType)
                             .build(),
                     RequestBody.fromBytes(content)
@@ -49,6 +60,52 @@ public class S3StorageService implements StorageService {
         }
     }
 
+    @Override
+    public String upload(String path, InputStream content, long contentLength, String mimeType) {
+        try {
+            s3.putObject(
+                    PutObjectRequest.builder()
+                            .bucket(props.getBucket())
+                            .key(path)
+                            .serverSideEncryption(serverSideEncryption())
+                            .contentType(mimeType)
+                            .contentLength(contentLength)
+                            .build(),
+                    RequestBody.fromInputStream(content, contentLength)
+            );
+
+            log.info("File streamed successfully to S3: {} ({} bytes)", path, contentLength);
+            return props.getBaseUrl() + "/" + path;
+        } catch (Exception e) {
+            log.error("Failed to stream file to S3: {}", path, e);
+            throw new RuntimeException("Failed to upload file to S3", e);
+        }
+    }
+
+    /**
+     * Streams content to S3 asking it to verify a SHA-256 checksum computed by the SDK in transit.
+     * Returns the base64 SHA-256 S3 stored for the object, or null if the endpoint does not report one.
+     */
+    public String uploadWithChecksum(String path, InputStream content, long contentLength, String mimeType) {
+        try {
+            PutObjectResponse resp = s3.putObject(
+                    PutObjectRequest.builder()
+                            .bucket(props.getBucket())
+                            .key(path)
+                            .serverSideEncryption(serverSideEncryption())
+                            .contentType(mimeType)
+                            .contentLength(contentLength)
+                            .checksumAlgorithm(ChecksumAlgorithm.SHA256)
+                            .build(),
+                    RequestBody.fromInputStream(content, contentLength)
+            );
+            return resp.checksumSHA256();
+        } catch (Exception e) {
+            log.error("Failed to upload file with checksum to S3: {}", path, e);
+            throw new RuntimeException("Failed to upload file to S3", e);
+        }
+    }
+
     @Override
     public String uploadFile(MultipartFile file, Long userId, String userType, String category) {
         try {
@@ -61,22 +118,26 @@ public class S3StorageService implements StorageService {
             log.info("DEBUG: Access Key starts with: {}...",
                     props.getAccessKey() != null ? props.getAccessKey().substring(0, 8) : "NULL");
 
+            // Direct uploads stay under the user's own prefix so they can be listed and deleted
+            // per user; only tiering and image variants use the shared content keys
             String fileName = generateFileName(file.getOriginalFilename(), userId, userType, category);
             String fullPath = buildFilePath(userId, userType, category, fileName);
 
-            log.info("DEBUG: Generated filename: {}", fileName);
-            log.info("DEBUG: Full S3 path: {}", fullPath);
+            log.debug("Full S3 path: {}", fullPath);
 
-            PutObjectResponse resp = s3.putObject(
-                    PutObjectRequest.builder()
-                            .bucket(props.getBucket())
-                            .key(fullPath)
-                            .serverSideEncryption(ServerSideEncryption.AWS_KMS)
-                            .contentType(file.getContentType())
-                            .contentLength(file.getSize())
-                            .build(),
-                    RequestBody.fromInputStream(file.getInputStream(), file.getSize())
-            );
+            PutObjectResponse resp;
+            try (InputStream in = file.getInputStream()) {
+                resp = s3.putObject(
+                        PutObjectRequest.builder()
+                                .bucket(props.getBucket())
+                                .key(fullPath)
+                                .serverSideEncryption(serverSideEncryption())
+                                .contentType(file.getContentType())
+                                .contentLength(file.getSize())
+                                .build(),
+                        RequestBody.fromInputStream(in, file.getSize())
+                );
+            }
 
             log.info("DEBUG: S3 Response - ETag: {}, VersionId: {}",
                     resp.eTag(), resp.versionId());
@@ -119,6 +180,32 @@ public class S3StorageService implements StorageService {
         }
     }
 
+    @Override
+    public StorageStream openStream(String path, long offset, long length) {
+        try {
+            GetObjectRequest.Builder request = GetObjectRequest.builder()
+                    .bucket(props.getBucket())
+                    .key(path);
+            if (offset > 0 || length >= 0) {
+                request.range("bytes=" + offset + "-" + (length >= 0 ? String.valueOf(offset + length - 1) : ""));
+            }
+
+            ResponseInputStream<GetObjectResponse> in = s3.getObject(request.build());
+            GetObjectResponse response = in.response();
+            long returned = response.contentLength() != null ? response.contentLength() : -1;
+            long total = totalLengthOf(response.contentRange(), returned);
+
+            log.debug("Opened S3 stream - Key: {}, offset: {}, length: {}, total: {}", path, offset, returned, total);
+            return new StorageStream(in, offset, returned, total, response.contentType());
+        } catch (NoSuchKeyException e) {
+            log.error("File not found in S3: {}", path);
+            throw new RuntimeException("File not found: " + path, e);
+        } catch (Exception e) {
+            log.error("Failed to open S3 stream: {}", path, e);
+            throw new RuntimeException("Failed to download file", e);
+        }
+    }
+
     @Override
     public String getFileUrl(String path) {
         String url = props.getBaseUrl() + "/" + path;
@@ -168,6 +255,111 @@ public class S3StorageService implements StorageService {
         }
     }
 
+    /**
+     * Object key a new upload by this user would be stored under, using the same layout as {@link #uploadFile}.
+     */
+    public String buildObjectKey(String originalFilename, Long userId, String userType, String category) {
+        return buildFilePath(userId, userType, category,
+                generateFileName(originalFilename, userId, userType, category));
+    }
+
+    /**
+     * Shared, content-addressed key for an object with the given SHA-256.
+     */
+    public String contentKey(String sha256, String originalFilename) {
+        return CONTENT_PREFIX + sha256 + getFileExtension(originalFilename);
+    }
+
+    public static boolean isContentKey(String path) {
+        return path != null && path.startsWith(CONTENT_PREFIX);
+    }
+
+    /**
+     * SHA-256 a content-addressed key was named after, or null for other keys.
+     */
+    public static String contentHashOf(String path) {
+        if (!isContentKey(path)) {
+            return null;
+        }
+        String name = path.substring(CONTENT_PREFIX.length());
+        int dot = name.indexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * Key prefix under which all of a user's objects live.
+     */
+    public String ownerPrefix(Long userId, String userType) {
+        return userType.toLowerCase() + "_" + userId + "/";
+    }
+
+    /**
+     * Presigns a PUT bound to the given content type and exact length, so the client can upload
+     * directly to the bucket. The returned signed headers must be sent unchanged.
+     */
+    public PresignedPutObjectRequest presignUpload(String path, String contentType, long contentLength) {
+        PutObjectRequest put = PutObjectRequest.builder()
+                .bucket(props.getBucket())
+                .key(path)
+                .serverSideEncryption(serverSideEncryption())
+                .contentType(contentType)
+                .contentLength(contentLength)
+                .build();
+
+        PresignedPutObjectRequest presigned = presigner.presignPutObject(PutObjectPresignRequest.builder()
+                .signatureDuration(Duration.ofMinutes(props.getPresignTtlMinutes()))
+                .putObjectRequest(put)
+                .build());
+        log.info("Presigned upload for key: {}, expires: {}", path, presigned.expiration());
+        return presigned;
+    }
+
+    /**
+     * Presigns a GET that downloads the object as an attachment with the given filename.
+     */
+    public PresignedGetObjectRequest presignDownload(String path, String filename) {
+        GetObjectRequest.Builder get = GetObjectRequest.builder()
+                .bucket(props.getBucket())
+                .key(path);
+        if (filename != null) {
+            get.responseContentDisposition("attachment; filename=\"" + filename.replace("\"", "") + "\"");
+        }
+
+        return presigner.presignGetObject(GetObjectPresignRequest.builder()
+                .signatureDuration(Duration.ofMinutes(props.getPresignTtlMinutes()))
+                .getObjectRequest(get.build())
+                .build());
+    }
+
+    /**
+     * Returns the object's metadata, or null if it does not exist.
+     */
+    public HeadObjectResponse headObject(String path) {
+        try {
+            return s3.headObject(HeadObjectRequest.builder()
+                    .bucket(props.getBucket())
+                    .key(path)
+                    .build());
+        } catch (NoSuchKeyException e) {
+            return null;
+        }
+    }
+
+    private ServerSideEncryption serverSideEncryption() {
+        return props.isKmsEncryption() ? ServerSideEncryption.AWS_KMS : null;
+    }
+
+    // Content-Range looks like "bytes 0-1023/4096"; without it the object was returned whole
+    private long totalLengthOf(String contentRange, long returned) {
+        if (contentRange != null && contentRange.contains("/")) {
+            String total = contentRange.substring(contentRange.lastIndexOf('/') + 1);
+            if (!"*".equals(total)) {
+                return Long.parseLong(total);
+            }
+        }
+        return returned;
+    }
+
     private String generateFileName(String originalFileName, Long userId, String userType, String category) {
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
         String uuid = UUID.randomUUID().toString().substring(0, 8);
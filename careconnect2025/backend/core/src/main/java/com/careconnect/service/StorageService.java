@@ -1,13 +1,27 @@
 package com.careconnect.service;
 
 import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
 import java.util.List;
 
 public interface StorageService {
     String upload(String path, byte[] content, String mimeType);
+    String upload(String path, InputStream content, long contentLength, String mimeType);
     String uploadFile(MultipartFile file, Long userId, String userType, String category);
     byte[] download(String path);
+
+    /**
+     * Opens a stream over {@code length} bytes of the object starting at {@code offset}.
+     * A negative length reads to the end of the object. The caller must close the stream.
+     */
+    StorageStream openStream(String path, long offset, long length);
+
+    default StorageStream openStream(String path) {
+        return openStream(path, 0, -1);
+    }
+
     String getFileUrl(String path);
     void deleteFile(String path);
     List<String> listUserFiles(Long userId, String userType);
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package com.careconnect.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An open stream over a stored object, or over a byte range of it.
+ *
+ * @param inputStream the content, positioned at {@code offset}
+ * @param offset      first byte of the object covered by the stream
+ * @param length      number of bytes the stream will yield
+ * @param totalLength size of the whole stored object
+ * @param contentType content type recorded by the backend, may be null
+ */
+public record StorageStream(InputStream inputStream, long offset, long length, long totalLength, String contentType)
+        implements Closeable {
+
+    public boolean isPartial() {
+        return offset > 0 || length < totalLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
@@ -0,0 +1,318 @@
+package com.careconnect.service;
+
+import com.careconnect.model.UserFile;
+import com.careconnect.repository.UserFileRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves database-stored file content to the object store in the background.
+ *
+ * Files are visited in ID order in small batches. Each blob is streamed to S3 while a
+ * SHA-256 is computed locally and compared with the checksum S3 computed on receipt;
+ * only then is the row flipped to S3 and its blob reference released. Because migrated rows no
+ * longer match the DATABASE filter, a restarted job simply picks up what is left.
+ * Throughput is capped in bytes per second so the job does not starve live traffic.
+ */
+@Service
+@Slf4j
+public class StorageTieringService {
+
+    private final UserFileRepository userFileRepository;
+    private final ContentBlobStore contentBlobStore;
+    private final DatabaseStorageService databaseStorageService;
+    private final S3StorageService s3StorageService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final boolean defaultDryRun;
+    private final int batchSize;
+    private final long maxBytesPerSecond;
+
+    // Runs passes started on demand; one thread, so at most one pass is ever in progress
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong cursor = new AtomicLong(0);
+    private final AtomicLong filesMigrated = new AtomicLong();
+    private final AtomicLong bytesMigrated = new AtomicLong();
+    private final AtomicLong filesFailed = new AtomicLong();
+    private final AtomicLong checksumMismatches = new AtomicLong();
+    private volatile Instant lastRunStartedAt;
+    private volatile Instant lastRunFinishedAt;
+    private volatile Map<String, Object> lastRunSummary = Map.of();
+
+    public StorageTieringService(UserFileRepository userFileRepository,
+                                 ContentBlobStore contentBlobStore,
+                                 DatabaseStorageService databaseStorageService,
+                                 S3StorageService s3StorageService,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${app.file.tiering.enabled:false}") boolean enabled,
+                                 @Value("${app.file.tiering.dry-run:true}") boolean defaultDryRun,
+                                 @Value("${app.file.tiering.batch-size:20}") int batchSize,
+                                 @Value("${app.file.tiering.max-bytes-per-second:5242880}") long maxBytesPerSecond) {
+        this.userFileRepository = userFileRepository;
+        this.contentBlobStore = contentBlobStore;
+        this.databaseStorageService = databaseStorageService;
+        this.s3StorageService = s3StorageService;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.defaultDryRun = defaultDryRun;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBytesPerSecond = maxBytesPerSecond;
+    }
+
+    @Scheduled(fixedDelayString = "${app.file.tiering.interval-ms:900000}", initialDelay = 120000)
+    public void scheduledRun() {
+        if (enabled) {
+            migrate(defaultDryRun);
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Starts a pass in the background. Returns false if a pass is already in progress.
+     */
+    public boolean start(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    runPass(dryRun);
+                } catch (Exception e) {
+                    log.error("Storage tiering pass failed (dryRun={})", dryRun, e);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+            log.warn("Storage tiering could not be started: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Runs one pass over the remaining database-stored files. In dry-run mode nothing is
+     * written; the summary reports what would have been moved. Returns null if a pass is
+     * already in progress.
+     */
+    public Map<String, Object> migrate(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Storage tiering already running, skipping");
+            return null;
+        }
+        return runPass(dryRun);
+    }
+
+    // Caller holds the running flag; it is released when the pass ends
+    private Map<String, Object> runPass(boolean dryRun) {
+        lastRunStartedAt = Instant.now();
+        long files = 0, bytes = 0, failed = 0;
+        long throttleStart = System.nanoTime();
+        long throttledBytes = 0;
+        // Dry runs never flip rows, so they always start from the beginning
+        long position = dryRun ? 0 : cursor.get();
+
+        try {
+            log.info("Storage tiering started (dryRun={}, from ID {})", dryRun, position);
+            while (true) {
+                List<UserFile> batch = userFileRepository.findDatabaseFilesAfter(position, PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) {
+                    // Reached the end; the next pass starts over to retry anything that failed
+                    position = 0;
+                    break;
+                }
+
+                for (UserFile file : batch) {
+                    position = file.getId();
+                    long size = file.getFileSize() != null ? file.getFileSize() : 0L;
+
+                    if (dryRun) {
+                        files++;
+                        bytes += size;
+                        continue;
+                    }
+
+                    if (migrateFile(file)) {
+                        files++;
+                        bytes += size;
+                        filesMigrated.incrementAndGet();
+                        bytesMigrated.addAndGet(size);
+                    } else {
+                        failed++;
+                        filesFailed.incrementAndGet();
+                    }
+
+                    throttledBytes += size;
+                    throttle(throttleStart, throttledBytes);
+                }
+
+                if (!dryRun) {
+                    cursor.set(position);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Storage tiering interrupted at file ID {}", position);
+        } catch (Exception e) {
+            log.error("Storage tiering stopped at file ID {}", position, e);
+        } finally {
+            if (!dryRun) {
+                cursor.set(position);
+            }
+            lastRunFinishedAt = Instant.now();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("dryRun", dryRun);
+            summary.put(dryRun ? "filesEligible" : "filesMigrated", files);
+            summary.put(dryRun ? "bytesEligible" : "bytesMigrated", bytes);
+            summary.put("filesFailed", failed);
+            summary.put("startedAt", lastRunStartedAt);
+            summary.put("finishedAt", lastRunFinishedAt);
+            lastRunSummary = summary;
+            running.set(false);
+            log.info("Storage tiering finished: {}", summary);
+        }
+        return lastRunSummary;
+    }
+
+    /**
+     * Progress counters since startup plus the summary of the last pass.
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("running", running.get());
+        status.put("cursor", cursor.get());
+        status.put("filesMigrated", filesMigrated.get());
+        status.put("bytesMigrated", bytesMigrated.get());
+        status.put("filesFailed", filesFailed.get());
+        status.put("checksumMismatches", checksumMismatches.get());
+        try {
+            List<Object[]> remaining = userFileRepository.summarizeDatabaseFiles();
+            if (!remaining.isEmpty()) {
+                status.put("filesRemaining", remaining.get(0)[0]);
+                status.put("bytesRemaining", remaining.get(0)[1]);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to count remaining database files", e);
+        }
+        status.put("lastRun", lastRunSummary);
+        return status;
+    }
+
+    private boolean migrateFile(UserFile file) {
+        // Content-addressed key, so files sharing a blob also share one object
+        String sha256 = contentBlobStore.getSha256(file.getBlobId());
+        String key = sha256 != null
+                ? s3StorageService.contentKey(sha256, file.getOriginalFilename())
+                : s3StorageService.buildObjectKey(file.getOriginalFilename(), file.getOwnerId(),
+                        file.getOwnerType().name(), file.getFileCategory().name());
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+
+        boolean uploaded = false;
+        try (StorageStream stream = databaseStorageService.openStream("db://files/" + file.getId())) {
+            var existing = sha256 != null ? s3StorageService.headObject(key) : null;
+            if (existing == null || existing.contentLength() == null || existing.contentLength() != stream.length()) {
+                String remoteChecksum;
+                try (InputStream in = new DigestInputStream(stream.inputStream(), digest)) {
+                    remoteChecksum = s3StorageService.uploadWithChecksum(
+                            key, in, stream.length(), file.getContentType());
+                }
+                uploaded = true;
+                String localChecksum = Base64.getEncoder().encodeToString(digest.digest());
+
+                if (remoteChecksum != null && !remoteChecksum.equals(localChecksum)) {
+                    checksumMismatches.incrementAndGet();
+                    log.error("Checksum mismatch tiering file {} (local {}, remote {}), discarding copy",
+                            file.getId(), localChecksum, remoteChecksum);
+                    discard(key);
+                    return false;
+                }
+                if (remoteChecksum == null) {
+                    var head = s3StorageService.headObject(key);
+                    if (head == null || head.contentLength() == null || head.contentLength() != stream.length()) {
+                        log.error("Size check failed tiering file {} to {}, discarding copy", file.getId(), key);
+                        discard(key);
+                        return false;
+                    }
+                }
+            }
+
+            Long blobId = file.getBlobId();
+            Boolean flipped = transactionTemplate.execute(tx -> {
+                if (userFileRepository.markMovedToS3(file.getId(), blobId, key) == 0) {
+                    return false;
+                }
+                contentBlobStore.release(blobId);
+                return true;
+            });
+
+            if (!Boolean.TRUE.equals(flipped)) {
+                log.warn("File {} changed during tiering", file.getId());
+                if (uploaded) {
+                    discard(key);
+                }
+                return false;
+            }
+
+            log.debug("Tiered file {} ({} bytes) to {}", file.getId(), stream.length(), key);
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to tier file {} to object storage", file.getId(), e);
+            return false;
+        }
+    }
+
+    // Shared objects may already back other files; only remove copies nothing points at
+    private void discard(String key) {
+        if (!userFileRepository.existsByS3Path(key)) {
+            s3StorageService.deleteFile(key);
+        }
+    }
+
+    private void throttle(long startNanos, long bytesSoFar) throws InterruptedException {
+        if (maxBytesPerSecond <= 0) {
+            return;
+        }
+        long expectedMillis = bytesSoFar * 1000 / maxBytesPerSecond;
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        if (expectedMillis > elapsedMillis) {
+            Thread.sleep(expectedMillis - elapsedMillis);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
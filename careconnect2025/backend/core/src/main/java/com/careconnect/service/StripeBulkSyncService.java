@@ -0,0 +1,268 @@
+package com.careconnect.service;
+
+import com.careconnect.dto.StripeDriftReportDTO;
+import com.careconnect.model.Subscription;
+import com.careconnect.repository.PaymentRepository;
+import com.careconnect.repository.SubscriptionRepository;
+import com.stripe.model.Invoice;
+import com.stripe.param.InvoiceListParams;
+import com.stripe.param.SubscriptionListParams;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Compares every Stripe subscription and recent paid invoice with the local
+ * {@link Subscription} and Payment rows, and reports where they drift apart.
+ *
+ * Subscriptions of all customers are streamed from Stripe 100 per page through the
+ * {@link StripeGateway}, so the pass stays within Stripe's rate limits, and are compared
+ * against local rows one batch at a time. Applied runs write drifting subscriptions back
+ * through the {@link StripeSubscriptionMirror}; invoices and local rows unknown to Stripe
+ * are only reported.
+ */
+@Service
+@Slf4j
+public class StripeBulkSyncService {
+
+    private static final int MAX_SAMPLES = 50;
+
+    private final StripeGateway stripeGateway;
+    private final StripeSubscriptionMirror subscriptionMirror;
+    private final SubscriptionRepository subscriptionRepository;
+    private final PaymentRepository paymentRepository;
+
+    private final boolean enabled;
+    private final boolean defaultApply;
+    private final int batchSize;
+    private final Duration invoiceLookback;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile StripeDriftReportDTO lastReport;
+
+    public StripeBulkSyncService(StripeGateway stripeGateway,
+                                 StripeSubscriptionMirror subscriptionMirror,
+                                 SubscriptionRepository subscriptionRepository,
+                                 PaymentRepository paymentRepository,
+                                 @Value("${careconnect.stripe.bulk-sync.enabled:true}") boolean enabled,
+                                 @Value("${careconnect.stripe.bulk-sync.apply:false}") boolean defaultApply,
+                                 @Value("${careconnect.stripe.bulk-sync.batch-size:100}") int batchSize,
+                                 @Value("${careconnect.stripe.bulk-sync.invoice-lookback-days:35}") long invoiceLookbackDays) {
+        this.stripeGateway = stripeGateway;
+        this.subscriptionMirror = subscriptionMirror;
+        this.subscriptionRepository = subscriptionRepository;
+        this.paymentRepository = paymentRepository;
+        this.enabled = enabled;
+        this.defaultApply = defaultApply;
+        this.batchSize = Math.max(1, batchSize);
+        this.invoiceLookback = Duration.ofDays(invoiceLookbackDays);
+    }
+
+    @Scheduled(cron = "${careconnect.stripe.bulk-sync.cron:0 0 2 * * *}")
+    public void scheduledRun() {
+        if (enabled && stripeGateway.isConfigured()) {
+            run(defaultApply);
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public StripeDriftReportDTO getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Runs one full comparison. Returns null if a run is already in progress.
+     */
+    public StripeDriftReportDTO run(boolean apply) {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Stripe bulk sync already running, skipping");
+            return null;
+        }
+
+        Counters c = new Counters();
+        Instant started = Instant.now();
+        String error = null;
+        // Rows created while the run lists Stripe may be missed by the listing; leave them out
+        long maxLocalId = subscriptionRepository.findMaxId();
+
+        try {
+            log.info("Stripe bulk sync started (apply={})", apply);
+            Set<String> seen = compareSubscriptions(apply, c);
+            findMissingInStripe(seen, maxLocalId, c);
+            compareInvoices(started, c);
+        } catch (Exception e) {
+            error = e.getMessage();
+            log.error("Stripe bulk sync stopped early", e);
+        } finally {
+            lastReport = StripeDriftReportDTO.builder()
+                    .applied(apply)
+                    .startedAt(started)
+                    .finishedAt(Instant.now())
+                    .stripeSubscriptions(c.stripeSubscriptions)
+                    .missingLocally(c.missingLocally)
+                    .statusMismatches(c.statusMismatches)
+                    .priceMismatches(c.priceMismatches)
+                    .periodMismatches(c.periodMismatches)
+                    .repaired(c.repaired)
+                    .unknownCustomers(c.unknownCustomers)
+                    .missingInStripe(c.missingInStripe)
+                    .paidInvoices(c.paidInvoices)
+                    .invoicesWithoutPayment(c.invoicesWithoutPayment)
+                    .samples(List.copyOf(c.samples))
+                    .error(error)
+                    .build();
+            running.set(false);
+            log.info("Stripe bulk sync finished: {}", lastReport);
+        }
+        return lastReport;
+    }
+
+    private Set<String> compareSubscriptions(boolean apply, Counters c) {
+        Set<String> seen = new HashSet<>();
+        long observedAt = Instant.now().getEpochSecond();
+        Iterator<com.stripe.model.Subscription> stripeSubs = stripeGateway.stream((startingAfter, o) ->
+                com.stripe.model.Subscription.list(SubscriptionListParams.builder()
+                        .setStatus(SubscriptionListParams.Status.ALL)
+                        .setLimit(100L)
+                        .setStartingAfter(startingAfter)
+                        .build(), o)).iterator();
+
+        List<com.stripe.model.Subscription> batch = new ArrayList<>(batchSize);
+        while (stripeSubs.hasNext()) {
+            batch.add(stripeSubs.next());
+            if (batch.size() == batchSize || !stripeSubs.hasNext()) {
+                Map<String, Subscription> local = subscriptionRepository.findByStripeSubscriptionIdIn(
+                                batch.stream().map(com.stripe.model.Subscription::getId).toList())
+                        .stream()
+                        .collect(Collectors.toMap(Subscription::getStripeSubscriptionId, Function.identity(), (a, b) -> a));
+
+                for (com.stripe.model.Subscription stripeSub : batch) {
+                    c.stripeSubscriptions++;
+                    seen.add(stripeSub.getId());
+                    if (drifted(stripeSub, local.get(stripeSub.getId()), c) && apply) {
+                        if (subscriptionMirror.apply(stripeSub, observedAt, null).isPresent()) {
+                            c.repaired++;
+                        } else {
+                            c.unknownCustomers++;
+                        }
+                    }
+                }
+                batch.clear();
+            }
+        }
+        return seen;
+    }
+
+    private boolean drifted(com.stripe.model.Subscription stripeSub, Subscription row, Counters c) {
+        if (row == null) {
+            // Cancelling clears the Stripe id from the local row, so ended subscriptions have none
+            if ("canceled".equals(stripeSub.getStatus()) || "incomplete_expired".equals(stripeSub.getStatus())) {
+                return false;
+            }
+            c.missingLocally++;
+            c.sample("missing-locally:" + stripeSub.getId());
+            return true;
+        }
+        boolean drifted = false;
+        if (!Objects.equals(StripeSubscriptionMirror.localStatus(stripeSub.getStatus()), row.getStatus())) {
+            c.statusMismatches++;
+            c.sample("status:" + stripeSub.getId());
+            drifted = true;
+        }
+        String priceId = stripeSub.getItems() != null && !stripeSub.getItems().getData().isEmpty()
+                && stripeSub.getItems().getData().get(0).getPrice() != null
+                ? stripeSub.getItems().getData().get(0).getPrice().getId() : null;
+        if (priceId != null && !priceId.equals(row.getPriceId())) {
+            c.priceMismatches++;
+            c.sample("price:" + stripeSub.getId());
+            drifted = true;
+        }
+        Instant periodEnd = stripeSub.getCurrentPeriodEnd() != null
+                ? Instant.ofEpochSecond(stripeSub.getCurrentPeriodEnd()) : null;
+        if (periodEnd != null && !periodEnd.equals(row.getCurrentPeriodEnd())) {
+            c.periodMismatches++;
+            c.sample("period:" + stripeSub.getId());
+            drifted = true;
+        }
+        return drifted;
+    }
+
+    private void findMissingInStripe(Set<String> seen, long maxLocalId, Counters c) {
+        long afterId = 0;
+        while (true) {
+            List<Object[]> rows = subscriptionRepository.findMirroredIdsAfter(afterId, maxLocalId, PageRequest.of(0, batchSize));
+            if (rows.isEmpty()) {
+                return;
+            }
+            for (Object[] row : rows) {
+                String stripeId = (String) row[1];
+                if (!seen.contains(stripeId)) {
+                    c.missingInStripe++;
+                    c.sample("missing-in-stripe:" + stripeId);
+                }
+            }
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+        }
+    }
+
+    private void compareInvoices(Instant started, Counters c) {
+        long since = started.minus(invoiceLookback).getEpochSecond();
+        Iterator<Invoice> invoices = stripeGateway.stream((startingAfter, o) ->
+                Invoice.list(InvoiceListParams.builder()
+                        .setStatus(InvoiceListParams.Status.PAID)
+                        .setCreated(InvoiceListParams.Created.builder().setGte(since).build())
+                        .setLimit(100L)
+                        .setStartingAfter(startingAfter)
+                        .build(), o)).iterator();
+
+        List<String> batch = new ArrayList<>(batchSize);
+        while (invoices.hasNext()) {
+            Invoice invoice = invoices.next();
+            // Only subscription invoices produce Payment rows
+            if (invoice.getSubscription() != null) {
+                batch.add(invoice.getId());
+            }
+            if (!batch.isEmpty() && (batch.size() == batchSize || !invoices.hasNext())) {
+                Set<String> recorded = new HashSet<>(paymentRepository.findExistingInvoiceIds(batch));
+                for (String invoiceId : batch) {
+                    c.paidInvoices++;
+                    if (!recorded.contains(invoiceId)) {
+                        c.invoicesWithoutPayment++;
+                        c.sample("invoice-without-payment:" + invoiceId);
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private static final class Counters {
+        long stripeSubscriptions, missingLocally, statusMismatches, priceMismatches, periodMismatches;
+        long repaired, unknownCustomers, missingInStripe, paidInvoices, invoicesWithoutPayment;
+        final List<String> samples = new ArrayList<>();
+
+        void sample(String entry) {
+            if (samples.size() < MAX_SAMPLES) {
+                samples.add(entry);
+            }
+        }
+    }
+}
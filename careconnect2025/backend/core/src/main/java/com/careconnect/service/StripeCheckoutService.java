@@ -1,6 +1,5 @@
 package com.careconnect.service;
 
-import com.stripe.Stripe;
 import com.stripe.exception.StripeException;
 import com.stripe.model.checkout.Session;
 import com.stripe.param.checkout.SessionCreateParams;
@@ -31,6 +30,7 @@ public class StripeCheckoutService {
     private final CaregiverRepository caregiverRepository;
     private final PlanRepository planRepository;
     private final SubscriptionRepository subscriptionRepository;
+    private final StripeGateway stripeGateway;
 
     public Session createCheckoutSession(String customerId, String plan, long amount, String successUrl, String cancelUrl) throws StripeException {
         // Check if the plan string is a Stripe price ID (starts with "price_")
@@ -67,7 +67,7 @@ public class StripeCheckoutService {
         
         SessionCreateParams params = paramsBuilder.build();
 
-        return Session.create(params);
+        return stripeGateway.call(o -> Session.create(params, o));
     }
 
         public void saveCheckoutSession(Long userId, String plan, long amount, Session session) {
@@ -207,7 +207,7 @@ public class StripeCheckoutService {
         }
         
         SessionCreateParams params = paramsBuilder.build();
-        Session session = Session.create(params);
+        Session session = stripeGateway.call(o -> Session.create(params, o));
         
         // Get the caregiver and user to store subscription info
         Caregiver caregiver = caregiverRepository.findById(caregiverId)
@@ -246,15 +246,12 @@ public class StripeCheckoutService {
         // Create the price in Stripe if requested
         if (createInStripe) {
             try {
-                // Set Stripe API key directly from the service
-                Stripe.apiKey = System.getenv("STRIPE_SECRET_KEY");
-                
                 // First create a product
                 Map<String, Object> productParams = new HashMap<>();
                 productParams.put("name", name);
                 productParams.put("description", name + " " + billingPeriod + " Subscription");
                 
-                com.stripe.model.Product product = com.stripe.model.Product.create(productParams);
+                com.stripe.model.Product product = stripeGateway.call(o -> com.stripe.model.Product.create(productParams, o));
                 
                 // Then create a price
                 Map<String, Object> priceParams = new HashMap<>();
@@ -267,7 +264,7 @@ public class StripeCheckoutService {
                 
                 priceParams.put("product", product.getId());
                 
-                com.stripe.model.Price price = com.stripe.model.Price.create(priceParams);
+                com.stripe.model.Price price = stripeGateway.call(o -> com.stripe.model.Price.create(priceParams, o));
                 
                 // Use the actual price ID as our code
                 finalCode = price.getId();
@@ -0,0 +1,131 @@
+package com.careconnect.service;
+
+import com.careconnect.util.TokenBucket;
+import com.stripe.exception.StripeException;
+import com.stripe.model.HasId;
+import com.stripe.model.StripeCollection;
+import com.stripe.net.RequestOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Single way out to the Stripe API.
+ *
+ * Every request carries the API key in its own {@link RequestOptions} instead of the
+ * global {@code Stripe.apiKey}, takes a token from a bucket sized to Stripe's per-second
+ * limit and holds one of a bounded number of concurrency permits. Requests rejected with
+ * 429 are retried by the Stripe client itself. List endpoints can be streamed page by page,
+ * each page counting as one request.
+ */
+@Component
+@Slf4j
+public class StripeGateway {
+
+    @FunctionalInterface
+    public interface StripeCall<T> {
+        T execute(RequestOptions options) throws StripeException;
+    }
+
+    /**
+     * Fetches the page following the item with the given id (null for the first page).
+     */
+    @FunctionalInterface
+    public interface PageFetcher<T extends HasId> {
+        StripeCollection<T> fetch(String startingAfter, RequestOptions options) throws StripeException;
+    }
+
+    private final String secretKey;
+    private final RequestOptions options;
+    private final TokenBucket bucket;
+    private final Semaphore permits;
+
+    public StripeGateway(@Value("${stripe.secret-key:}") String secretKey,
+                         @Value("${careconnect.stripe.gateway.requests-per-second:25}") double requestsPerSecond,
+                         @Value("${careconnect.stripe.gateway.max-concurrent:8}") int maxConcurrent,
+                         @Value("${careconnect.stripe.gateway.max-network-retries:2}") int maxNetworkRetries) {
+        this.secretKey = secretKey;
+        this.options = RequestOptions.builder()
+                .setApiKey(secretKey)
+                .setMaxNetworkRetries(maxNetworkRetries)
+                .build();
+        this.bucket = new TokenBucket(Math.max(1, requestsPerSecond));
+        this.permits = new Semaphore(Math.max(1, maxConcurrent), true);
+    }
+
+    public boolean isConfigured() {
+        return secretKey != null && !secretKey.isBlank();
+    }
+
+    /**
+     * Runs one Stripe request once a rate token and a concurrency permit are available.
+     */
+    public <T> T call(StripeCall<T> call) throws StripeException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a Stripe request slot", e);
+        }
+        try {
+            bucket.take();
+            return call.execute(options);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Lazily streams every item of a list endpoint, fetching the next page only when the
+     * stream reaches it. A failed page request surfaces as a RuntimeException.
+     */
+    public <T extends HasId> Stream<T> stream(PageFetcher<T> fetcher) {
+        Iterator<T> iterator = new Iterator<>() {
+            private List<T> page = List.of();
+            private int index;
+            private boolean hasMore = true;
+            private String startingAfter;
+
+            @Override
+            public boolean hasNext() {
+                while (index >= page.size()) {
+                    if (!hasMore) {
+                        return false;
+                    }
+                    StripeCollection<T> next;
+                    try {
+                        next = call(o -> fetcher.fetch(startingAfter, o));
+                    } catch (StripeException e) {
+                        throw new RuntimeException("Failed to list from Stripe: " + e.getMessage(), e);
+                    }
+                    page = next.getData() != null ? next.getData() : List.of();
+                    index = 0;
+                    hasMore = Boolean.TRUE.equals(next.getHasMore()) && !page.isEmpty();
+                    if (!page.isEmpty()) {
+                        startingAfter = page.get(page.size() - 1).getId();
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(index++);
+            }
+        };
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+}
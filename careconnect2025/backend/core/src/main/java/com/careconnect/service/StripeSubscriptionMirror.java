@@ -0,0 +1,117 @@
+package com.careconnect.service;
+
+import com.careconnect.model.Subscription;
+import com.careconnect.model.User;
+import com.careconnect.repository.SubscriptionRepository;
+import com.careconnect.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Copies Stripe subscription objects onto local {@link Subscription} rows.
+ *
+ * Every path that learns Stripe state (webhooks, manual syncs, reconciliation) goes
+ * through {@link #apply}, so reads can be served from the database alone. Each row
+ * remembers the Stripe timestamp of the state it holds, and older states (for example
+ * a webhook delivered late) are ignored.
+ */
+@Service
+@Slf4j
+public class StripeSubscriptionMirror {
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final UserRepository userRepository;
+    private final PlanCatalog planCatalog;
+
+    public StripeSubscriptionMirror(SubscriptionRepository subscriptionRepository,
+                                    UserRepository userRepository,
+                                    PlanCatalog planCatalog) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.userRepository = userRepository;
+        this.planCatalog = planCatalog;
+    }
+
+    /**
+     * Local status for a Stripe status: active and trialing subscriptions are ACTIVE,
+     * canceled ones CANCELLED, anything else the upper-cased Stripe value.
+     */
+    public static String localStatus(String stripeStatus) {
+        if (stripeStatus == null) {
+            return null;
+        }
+        return switch (stripeStatus.toLowerCase(Locale.ROOT)) {
+            case "active", "trialing" -> "ACTIVE";
+            case "canceled" -> "CANCELLED";
+            default -> stripeStatus.toUpperCase(Locale.ROOT);
+        };
+    }
+
+    /**
+     * Upserts the local row for a Stripe subscription as observed at {@code observedAt}
+     * (epoch seconds). New rows belong to the user with the subscription's customer id,
+     * else to {@code fallbackUser}; without either nothing is written.
+     */
+    @Transactional
+    public Optional<Subscription> apply(com.stripe.model.Subscription stripeSub, long observedAt, User fallbackUser) {
+        Subscription subscription = subscriptionRepository.findByStripeSubscriptionId(stripeSub.getId()).orElse(null);
+
+        if (subscription != null && subscription.getStripeUpdatedAt() != null
+                && observedAt < subscription.getStripeUpdatedAt()) {
+            log.debug("Ignoring stale state of subscription {} from {}", stripeSub.getId(), observedAt);
+            // The row was still checked against Stripe; stamp it so reconciliation moves past it
+            subscription.setStripeSyncedAt(Instant.now());
+            return Optional.of(subscriptionRepository.save(subscription));
+        }
+
+        if (subscription == null) {
+            User user = userRepository.findByStripeCustomerId(stripeSub.getCustomer()).orElse(fallbackUser);
+            if (user == null) {
+                log.warn("No user for Stripe customer {}, not mirroring subscription {}",
+                        stripeSub.getCustomer(), stripeSub.getId());
+                return Optional.empty();
+            }
+            subscription = new Subscription();
+            subscription.setStripeSubscriptionId(stripeSub.getId());
+            subscription.setUser(user);
+        }
+
+        subscription.setStripeCustomerId(stripeSub.getCustomer());
+        subscription.setStripeStatus(stripeSub.getStatus());
+        subscription.setStatus(localStatus(stripeSub.getStatus()));
+        subscription.setCancelAtPeriodEnd(stripeSub.getCancelAtPeriodEnd());
+        if (stripeSub.getCurrentPeriodStart() != null) {
+            subscription.setStartedAt(Instant.ofEpochSecond(stripeSub.getCurrentPeriodStart()));
+        }
+        if (stripeSub.getCurrentPeriodEnd() != null) {
+            subscription.setCurrentPeriodEnd(Instant.ofEpochSecond(stripeSub.getCurrentPeriodEnd()));
+        }
+
+        if (stripeSub.getItems() != null && !stripeSub.getItems().getData().isEmpty()
+                && stripeSub.getItems().getData().get(0).getPrice() != null) {
+            String priceId = stripeSub.getItems().getData().get(0).getPrice().getId();
+            subscription.setPriceId(priceId);
+            Subscription target = subscription;
+            planCatalog.findByCode(priceId).ifPresent(plan -> target.setPlan(plan));
+        }
+
+        subscription.setStripeUpdatedAt(observedAt);
+        subscription.setStripeSyncedAt(Instant.now());
+        return Optional.of(subscriptionRepository.save(subscription));
+    }
+
+    /**
+     * Records that a row was confirmed against Stripe without changing its state.
+     */
+    @Transactional
+    public void markSynced(Long subscriptionId) {
+        subscriptionRepository.findById(subscriptionId).ifPresent(s -> {
+            s.setStripeSyncedAt(Instant.now());
+            subscriptionRepository.save(s);
+        });
+    }
+}
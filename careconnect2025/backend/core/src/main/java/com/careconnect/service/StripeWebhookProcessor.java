@@ -0,0 +1,224 @@
+package com.careconnect.service;
+
+import com.careconnect.model.StripeWebhookEvent;
+import com.careconnect.repository.StripeWebhookEventRepository;
+import com.stripe.model.Event;
+import com.stripe.net.ApiResource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Works through the Stripe webhook inbox off the request path.
+ *
+ * Events of one customer are handled one at a time in Stripe creation order: only the
+ * earliest unfinished event of a customer is ever due, and a worker that finishes one
+ * goes straight on to the next. Each attempt is claimed with a conditional update, so
+ * several instances can share the inbox. An event's handler and its PROCESSED mark
+ * commit together, and the mark only applies while the worker still holds the claim for
+ * its attempt. A worker whose lease ran out and was re-claimed by another rolls its
+ * handler back, so only one attempt's changes ever commit. Failures
+ * are retried with exponential backoff; after the last attempt the event is left as
+ * FAILED and no longer holds up later events of the customer.
+ */
+@Service
+@Slf4j
+public class StripeWebhookProcessor {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final StripeWebhookEventRepository webhookEventRepository;
+    private final SubscriptionService subscriptionService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final long leaseMs;
+    private final Duration retention;
+    private final ExecutorService workers;
+
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    // Customers (or single events without one) currently being worked on by this instance
+    private final Set<String> activeChains = ConcurrentHashMap.newKeySet();
+
+    public StripeWebhookProcessor(StripeWebhookEventRepository webhookEventRepository,
+                                  SubscriptionService subscriptionService,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${careconnect.stripe.webhooks.worker-threads:2}") int workerThreads,
+                                  @Value("${careconnect.stripe.webhooks.batch-size:50}") int batchSize,
+                                  @Value("${careconnect.stripe.webhooks.max-attempts:8}") int maxAttempts,
+                                  @Value("${careconnect.stripe.webhooks.backoff-base-ms:5000}") long backoffBaseMs,
+                                  @Value("${careconnect.stripe.webhooks.backoff-max-ms:3600000}") long backoffMaxMs,
+                                  @Value("${careconnect.stripe.webhooks.lease-ms:300000}") long leaseMs,
+                                  @Value("${careconnect.stripe.webhooks.retention-days:30}") long retentionDays) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.subscriptionService = subscriptionService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.leaseMs = leaseMs;
+        this.retention = Duration.ofDays(retentionDays);
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerThreads));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onWebhookReceived(StripeWebhookReceivedEvent event) {
+        // Start on new events right away instead of waiting for the next poll
+        CompletableFuture.runAsync(this::drain);
+    }
+
+    @Scheduled(fixedDelayString = "${careconnect.stripe.webhooks.poll-interval-ms:5000}")
+    public void scheduledDrain() {
+        drain();
+    }
+
+    /**
+     * Hands every due event that heads its customer's queue to a worker.
+     */
+    public void drain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<StripeWebhookEvent> heads = webhookEventRepository.findDueHeads(Instant.now(), batchSize);
+            for (StripeWebhookEvent head : heads) {
+                String chain = head.getCustomerId() != null ? head.getCustomerId() : head.getEventId();
+                if (activeChains.add(chain)) {
+                    workers.execute(() -> runChain(head, chain));
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to poll the Stripe webhook inbox", e);
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    @Scheduled(cron = "0 15 4 * * *")
+    public void purgeProcessed() {
+        Instant cutoff = Instant.now().minus(retention);
+        int deleted, total = 0;
+        do {
+            deleted = webhookEventRepository.deleteProcessedBefore(cutoff, 1000);
+            total += deleted;
+        } while (deleted > 0);
+        if (total > 0) {
+            log.info("Purged {} processed Stripe webhook events", total);
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        for (Object[] row : webhookEventRepository.countByStatus()) {
+            status.put(String.valueOf(row[0]), row[1]);
+        }
+        status.put("activeChains", activeChains.size());
+        return status;
+    }
+
+    private void runChain(StripeWebhookEvent head, String chain) {
+        try {
+            StripeWebhookEvent next = head;
+            while (next != null && process(next)) {
+                next = head.getCustomerId() != null
+                        ? webhookEventRepository.findNextForCustomer(head.getCustomerId())
+                            .filter(e -> !e.getNextAttemptAt().isAfter(Instant.now()))
+                            .orElse(null)
+                        : null;
+            }
+        } catch (Exception e) {
+            log.error("Stripe webhook worker stopped for {}", chain, e);
+        } finally {
+            activeChains.remove(chain);
+        }
+    }
+
+    /**
+     * One attempt at an event. Returns true if it was processed.
+     */
+    boolean process(StripeWebhookEvent row) {
+        Instant now = Instant.now();
+        if (webhookEventRepository.claim(row.getId(), row.getAttempts(), now, now.plusMillis(leaseMs)) == 0) {
+            return false;
+        }
+        int attempt = row.getAttempts() + 1;
+
+        try {
+            Event event = ApiResource.GSON.fromJson(row.getPayload(), Event.class);
+            transactionTemplate.executeWithoutResult(tx -> {
+                subscriptionService.processStripeEvent(event);
+                if (webhookEventRepository.markProcessed(row.getId(), attempt, Instant.now()) == 0) {
+                    // Throwing rolls back the handler's changes along with the mark
+                    throw new LeaseLostException();
+                }
+            });
+            log.debug("Processed Stripe event {} ({}) on attempt {}", row.getEventId(), row.getEventType(), attempt);
+            return true;
+        } catch (LeaseLostException e) {
+            log.warn("Lease on Stripe event {} ({}) expired during attempt {}, rolled back",
+                    row.getEventId(), row.getEventType(), attempt);
+            return false;
+        } catch (Exception e) {
+            boolean exhausted = attempt >= maxAttempts;
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            if (webhookEventRepository.markFailedAttempt(row.getId(), attempt,
+                    (exhausted ? StripeWebhookEvent.Status.FAILED : StripeWebhookEvent.Status.PENDING).name(),
+                    Instant.now().plusMillis(backoff(attempt)),
+                    error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error) == 0) {
+                log.warn("Lease on Stripe event {} ({}) expired during failed attempt {}: {}",
+                        row.getEventId(), row.getEventType(), attempt, e.getMessage());
+                return false;
+            }
+            if (exhausted) {
+                log.error("Giving up on Stripe event {} ({}) after {} attempts", row.getEventId(), row.getEventType(), attempt, e);
+            } else {
+                log.warn("Stripe event {} ({}) failed on attempt {}, will retry: {}",
+                        row.getEventId(), row.getEventType(), attempt, e.getMessage());
+            }
+            return false;
+        }
+    }
+
+    // Exponential backoff with up to 20% jitter so retries of many events spread out
+    private long backoff(int attempt) {
+        long delay = backoffBaseMs << Math.min(attempt - 1, 30);
+        if (delay <= 0 || delay > backoffMaxMs) {
+            delay = backoffMaxMs;
+        }
+        return delay + ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    // Another worker re-claimed the event after this attempt's lease ran out
+    private static class LeaseLostException extends RuntimeException {
+        LeaseLostException() {
+            super("Lease lost", null, false, false);
+        }
+    }
+}
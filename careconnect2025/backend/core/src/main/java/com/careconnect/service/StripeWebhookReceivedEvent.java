@@ -0,0 +1,6 @@
+package com.careconnect.service;
+
+/**
+ * Published once a verified Stripe webhook has been stored in the inbox.
+ */
+public record StripeWebhookReceivedEvent(String eventId) {}
@@ -0,0 +1,105 @@
+package com.careconnect.service;
+
+import com.careconnect.model.Subscription;
+import com.careconnect.repository.SubscriptionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Periodically re-reads mirrored subscriptions from Stripe, catching anything webhooks missed.
+ *
+ * Each pass visits rows not confirmed for longer than the stale-after window, least recently
+ * synced first, in small batches. Every visited row gets a fresh sync time, even when Stripe
+ * could not be reached, so one failing subscription does not hold up the rest.
+ */
+@Service
+@Slf4j
+public class SubscriptionReconciliationService {
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final StripeSubscriptionMirror subscriptionMirror;
+    private final StripeGateway stripeGateway;
+    private final Duration staleAfter;
+    private final int batchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public SubscriptionReconciliationService(SubscriptionRepository subscriptionRepository,
+                                             StripeSubscriptionMirror subscriptionMirror,
+                                             StripeGateway stripeGateway,
+                                             @Value("${careconnect.stripe.mirror.stale-after-minutes:360}") long staleAfterMinutes,
+                                             @Value("${careconnect.stripe.mirror.batch-size:50}") int batchSize) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.subscriptionMirror = subscriptionMirror;
+        this.stripeGateway = stripeGateway;
+        this.staleAfter = Duration.ofMinutes(staleAfterMinutes);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${careconnect.stripe.mirror.reconcile-interval-ms:900000}", initialDelay = 180000)
+    public void scheduledReconcile() {
+        if (stripeGateway.isConfigured()) {
+            reconcile();
+        }
+    }
+
+    /**
+     * Runs one pass over the stale mirrored rows and returns how many were refreshed.
+     */
+    public int reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        int refreshed = 0, failed = 0;
+        Instant started = Instant.now();
+        Set<Long> visited = new HashSet<>();
+        try {
+            while (true) {
+                // Rows visited in this pass are stamped with a later sync time, so they drop out
+                List<Subscription> batch = subscriptionRepository.findStaleMirrors(
+                        started.minus(staleAfter), PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                // A row that comes back was not stamped (e.g. its save failed); stop rather than spin on it
+                if (!batch.stream().allMatch(s -> visited.add(s.getId()))) {
+                    log.warn("Subscription reconciliation revisited a row it already processed, ending the pass");
+                    break;
+                }
+                for (Subscription subscription : batch) {
+                    try {
+                        String stripeId = subscription.getStripeSubscriptionId();
+                        com.stripe.model.Subscription stripeSub =
+                                stripeGateway.call(o -> com.stripe.model.Subscription.retrieve(stripeId, o));
+                        subscriptionMirror.apply(stripeSub, Instant.now().getEpochSecond(), null);
+                        refreshed++;
+                    } catch (Exception e) {
+                        failed++;
+                        log.warn("Failed to reconcile subscription {} with Stripe: {}",
+                                subscription.getStripeSubscriptionId(), e.getMessage());
+                        subscriptionMirror.markSynced(subscription.getId());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("Subscription reconciliation stopped", e);
+        } finally {
+            running.set(false);
+        }
+        if (refreshed > 0 || failed > 0) {
+            log.info("Subscription reconciliation refreshed {} rows, {} failed, in {} ms",
+                    refreshed, failed, Duration.between(started, Instant.now()).toMillis());
+        }
+        return refreshed;
+    }
+}
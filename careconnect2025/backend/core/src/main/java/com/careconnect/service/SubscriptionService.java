@@ -6,13 +6,13 @@ import com.careconnect.model.Subscription;
 import com.careconnect.model.User;
 import com.careconnect.repository.PaymentRepository;
 import com.careconnect.repository.PlanRepository;
+import com.careconnect.repository.StripeWebhookEventRepository;
 import com.careconnect.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.careconnect.repository.SubscriptionRepository;
 import com.stripe.model.checkout.Session;
-import com.stripe.Stripe;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
@@ -27,11 +27,13 @@ import com.google.gson.JsonSyntaxException;
 import java.util.List;
 
 import com.stripe.model.SubscriptionCollection;
+import com.stripe.param.SubscriptionCancelParams;
 import com.stripe.param.SubscriptionListParams;
 import com.stripe.exception.StripeException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 
 @Service
 @RequiredArgsConstructor
@@ -41,9 +43,10 @@ public class SubscriptionService {
     private final UserRepository userRepository;
     private final PlanRepository planRepository;
     private final StripeCheckoutService stripeCheckoutService;
-
-    @Value("${stripe.secret-key}")
-    private String stripeSecretKey;
+    private final StripeSubscriptionMirror subscriptionMirror;
+    private final StripeWebhookEventRepository webhookEventRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StripeGateway stripeGateway;
 
     @Value("${frontend.base-url}")
     private String frontendBaseUrl;
@@ -98,15 +101,12 @@ public class SubscriptionService {
         if (plan.getCode() == null || !plan.getCode().startsWith("price_")) {
             if (createIfMissing) {
                 try {
-                    // Set Stripe API key from environment
-                    Stripe.apiKey = stripeSecretKey;
-                    
                     // Create a product first
                     Map<String, Object> productParams = new HashMap<>();
                     productParams.put("name", plan.getName());
                     productParams.put("description", plan.getName() + " " + plan.getBillingPeriod() + " Subscription");
                     
-                    com.stripe.model.Product product = com.stripe.model.Product.create(productParams);
+                    com.stripe.model.Product product = stripeGateway.call(o -> com.stripe.model.Product.create(productParams, o));
                     
                     // Then create a price
                     Map<String, Object> priceParams = new HashMap<>();
@@ -119,7 +119,7 @@ public class SubscriptionService {
                     
                     priceParams.put("product", product.getId());
                     
-                    com.stripe.model.Price price = com.stripe.model.Price.create(priceParams);
+                    com.stripe.model.Price price = stripeGateway.call(o -> com.stripe.model.Price.create(priceParams, o));
                     
                     // Update plan with the price ID
                     plan.setCode(price.getId());
@@ -170,8 +170,7 @@ public class SubscriptionService {
                         Map<String, Object> customerParams = new HashMap<>();
                         customerParams.put("email", user.getEmail());
                         customerParams.put("name", user.getName());
-                        Stripe.apiKey = stripeSecretKey;
-                        com.stripe.model.Customer customer = com.stripe.model.Customer.create(customerParams);
+                        com.stripe.model.Customer customer = stripeGateway.call(o -> com.stripe.model.Customer.create(customerParams, o));
                         customerId = customer.getId();
                         user.setStripeCustomerId(customerId);
                         userRepository.save(user);
@@ -224,7 +223,7 @@ public class SubscriptionService {
                             .build()
             );
 
-            Session session = Session.create(paramsBuilder.build());
+            Session session = stripeGateway.call(o -> Session.create(paramsBuilder.build(), o));
 
             // Only save payment info here, not subscription
 //            if (userId != null && userId != 0) {
@@ -363,9 +362,8 @@ public class SubscriptionService {
         String stripeSubscriptionId = sub.getStripeSubscriptionId();
         if (stripeSubscriptionId != null && !stripeSubscriptionId.isEmpty()) {
             try {
-                Stripe.apiKey = stripeSecretKey;
-                com.stripe.model.Subscription stripeSub = com.stripe.model.Subscription.retrieve(stripeSubscriptionId);
-                stripeSub.cancel();
+                com.stripe.model.Subscription stripeSub = stripeGateway.call(o -> com.stripe.model.Subscription.retrieve(stripeSubscriptionId, o));
+                stripeGateway.call(o -> stripeSub.cancel(SubscriptionCancelParams.builder().build(), o));
             } catch (Exception e) {
                 throw new RuntimeException("Failed to cancel subscription on Stripe: " + e.getMessage(), e);
             }
@@ -393,9 +391,8 @@ public class SubscriptionService {
             
             // Cancel on Stripe side
             try {
-                Stripe.apiKey = stripeSecretKey;
-                com.stripe.model.Subscription stripeSub = com.stripe.model.Subscription.retrieve(stripeSubscriptionId);
-                stripeSub.cancel();
+                com.stripe.model.Subscription stripeSub = stripeGateway.call(o -> com.stripe.model.Subscription.retrieve(stripeSubscriptionId, o));
+                stripeGateway.call(o -> stripeSub.cancel(SubscriptionCancelParams.builder().build(), o));
             } catch (Exception e) {
                 throw new RuntimeException("Failed to cancel subscription on Stripe: " + e.getMessage(), e);
             }
@@ -458,12 +455,16 @@ public class SubscriptionService {
             SubscriptionListParams params = SubscriptionListParams.builder()
                 .setCustomer(stripeCustomerId)
                 .build();
-            return com.stripe.model.Subscription.list(params);
+            return stripeGateway.call(o -> com.stripe.model.Subscription.list(params, o));
         } catch (StripeException e) {
             throw new RuntimeException("Failed to list subscriptions for customer: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Verifies a webhook and stores it in the inbox for {@link StripeWebhookProcessor}.
+     * Returns as soon as the event is stored; redeliveries of a stored event are ignored.
+     */
     public String handleStripeWebhook(String payload, String sigHeader, String endpointSecret) {
             Event event;
             try {
@@ -472,7 +473,37 @@ public class SubscriptionService {
                 throw new RuntimeException("Invalid Stripe webhook: " + e.getMessage());
             }
 
-            System.out.println("Received Stripe webhook event: " + event.getType());
+            int inserted = webhookEventRepository.insertIfAbsent(event.getId(), event.getType(), customerOf(event),
+                    event.getCreated() != null ? event.getCreated() : java.time.Instant.now().getEpochSecond(),
+                    payload, java.time.Instant.now());
+            if (inserted == 0) {
+                return "Webhook already received";
+            }
+            eventPublisher.publishEvent(new StripeWebhookReceivedEvent(event.getId()));
+            return "Webhook received";
+        }
+
+    // Events of one customer are processed in order; others have no ordering key
+    private static String customerOf(Event event) {
+        Object object = event.getDataObjectDeserializer().getObject().orElse(null);
+        if (object instanceof Session session) {
+            return session.getCustomer();
+        }
+        if (object instanceof com.stripe.model.Subscription subscription) {
+            return subscription.getCustomer();
+        }
+        if (object instanceof com.stripe.model.Invoice invoice) {
+            return invoice.getCustomer();
+        }
+        return null;
+    }
+
+    /**
+     * Applies a stored webhook event. Called by {@link StripeWebhookProcessor} inside the
+     * transaction that marks the event processed; an exception leaves it for a retry.
+     */
+    public void processStripeEvent(Event event) {
+            System.out.println("Processing Stripe webhook event: " + event.getType());
             switch (event.getType()) {
                 case "checkout.session.completed" -> handleCheckoutSessionCompleted(event);
                 case "checkout.session.async_payment_failed" -> handleAsyncPaymentFailed(event);
@@ -487,7 +518,6 @@ public class SubscriptionService {
                     System.out.println("Unhandled event type: " + event.getType());
                 }
             }
-            return "Webhook received";
         }
 
     private void handleCheckoutSessionCompleted(Event event) {
@@ -542,8 +572,7 @@ public class SubscriptionService {
                 // Create a new subscription record
                 try {
                     // Get the subscription from Stripe
-                    Stripe.apiKey = stripeSecretKey;
-                    com.stripe.model.Subscription stripeSub = com.stripe.model.Subscription.retrieve(subscriptionId);
+                    com.stripe.model.Subscription stripeSub = stripeGateway.call(o -> com.stripe.model.Subscription.retrieve(subscriptionId, o));
                     String stripeCustomerId = stripeSub.getCustomer();
                     
                     System.out.println("Found Stripe subscription with customer ID: " + stripeCustomerId);
@@ -587,37 +616,14 @@ public class SubscriptionService {
                     }
                     
                     if (user != null) {
-                        System.out.println("Found user for customer ID: " + user.getId());
-                        Subscription subscription = new Subscription();
-                        subscription.setStripeSubscriptionId(subscriptionId);
-                        subscription.setStripeCustomerId(stripeCustomerId);
-                        subscription.setUser(user);
-                        subscription.setStatus("ACTIVE");
-                        subscription.setStartedAt(java.time.Instant.ofEpochSecond(stripeSub.getCurrentPeriodStart()));
-                        subscription.setCurrentPeriodEnd(java.time.Instant.ofEpochSecond(stripeSub.getCurrentPeriodEnd()));
-                        
-                        // Get the price ID and try to find a matching plan
-                        if (stripeSub.getItems() != null && !stripeSub.getItems().getData().isEmpty()) {
-                            String priceId = stripeSub.getItems().getData().get(0).getPrice().getId();
-                            subscription.setPriceId(priceId);
-                            
-                            // Try to find matching plan by code
-                            Plan plan = planRepository.findByCode(priceId);
-                            if (plan != null) {
-                                subscription.setPlan(plan);
-                                System.out.println("Associated with plan: " + plan.getName());
-                            }
-                        }
-                        
-                        // Save the subscription
-                        Subscription saved = subscriptionRepository.save(subscription);
-                        System.out.println("Created new subscription with ID: " + saved.getId());
+                        subscriptionMirror.apply(stripeSub, java.time.Instant.now().getEpochSecond(), user)
+                            .ifPresent(saved -> System.out.println("Created new subscription with ID: " + saved.getId()));
                     } else {
                         System.err.println("User not found for customer ID: " + stripeCustomerId);
                     }
                 } catch (Exception e) {
-                    System.err.println("Failed to create subscription from webhook: " + e.getMessage());
-                    e.printStackTrace();
+                    // Let the webhook worker retry, e.g. when Stripe could not be reached
+                    throw new IllegalStateException("Failed to create subscription from webhook: " + e.getMessage(), e);
                 }
             }
         } else {
@@ -670,75 +676,16 @@ public class SubscriptionService {
         private void handleSubscriptionCreated(Event event) {
             com.stripe.model.Subscription stripeSub = (com.stripe.model.Subscription) event.getDataObjectDeserializer().getObject().orElse(null);
             if (stripeSub == null) return;
-            
-            String subscriptionId = stripeSub.getId();
-            String customerId = stripeSub.getCustomer();
-            
-            // Check if we already have this subscription
-            if (!subscriptionRepository.findByStripeSubscriptionId(subscriptionId).isPresent()) {
-                try {
-                    // Find user by stripe customer ID
-                    User user = userRepository.findByStripeCustomerId(customerId).orElse(null);
-                    if (user != null) {
-                        System.out.println("Creating subscription record from subscription.created event");
-                        Subscription subscription = new Subscription();
-                        subscription.setStripeSubscriptionId(subscriptionId);
-                        subscription.setStripeCustomerId(customerId);
-                        subscription.setUser(user);
-                        subscription.setStatus("ACTIVE");
-                        subscription.setStartedAt(java.time.Instant.ofEpochSecond(stripeSub.getCurrentPeriodStart()));
-                        subscription.setCurrentPeriodEnd(java.time.Instant.ofEpochSecond(stripeSub.getCurrentPeriodEnd()));
-                        
-                        // Get the price ID
-                        if (stripeSub.getItems() != null && !stripeSub.getItems().getData().isEmpty()) {
-                            String priceId = stripeSub.getItems().getData().get(0).getPrice().getId();
-                            subscription.setPriceId(priceId);
-                            
-                            // Try to find matching plan by code
-                            Plan plan = planRepository.findByCode(priceId);
-                            if (plan != null) {
-                                subscription.setPlan(plan);
-                            }
-                        }
-                        
-                        // Save the subscription
-                        subscriptionRepository.save(subscription);
-                        System.out.println("Subscription saved with ID: " + subscription.getId());
-                    } else {
-                        System.err.println("User not found for customer ID: " + customerId);
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error handling subscription.created: " + e.getMessage());
-                    e.printStackTrace();
-                }
-            }
+
+            // The event carries the full subscription object, so no call back to Stripe is needed
+            subscriptionMirror.apply(stripeSub, event.getCreated(), null);
         }
         
         private void handleSubscriptionUpdated(Event event) {
             com.stripe.model.Subscription stripeSub = (com.stripe.model.Subscription) event.getDataObjectDeserializer().getObject().orElse(null);
             if (stripeSub == null) return;
-            
-            String subscriptionId = stripeSub.getId();
-            subscriptionRepository.findByStripeSubscriptionId(subscriptionId)
-                .ifPresent(subscription -> {
-                    // Update subscription details
-                    subscription.setStatus(stripeSub.getStatus());
-                    subscription.setCurrentPeriodEnd(java.time.Instant.ofEpochSecond(stripeSub.getCurrentPeriodEnd()));
-                    
-                    // Update price ID if it changed
-                    if (stripeSub.getItems() != null && !stripeSub.getItems().getData().isEmpty()) {
-                        String priceId = stripeSub.getItems().getData().get(0).getPrice().getId();
-                        subscription.setPriceId(priceId);
-                        
-                        // Try to find matching plan by code
-                        Plan plan = planRepository.findByCode(priceId);
-                        if (plan != null) {
-                            subscription.setPlan(plan);
-                        }
-                    }
-                    
-                    subscriptionRepository.save(subscription);
-                });
+
+            subscriptionMirror.apply(stripeSub, event.getCreated(), null);
         }
         
         private void handleInvoicePaid(Event event) {
@@ -811,46 +758,24 @@ public class SubscriptionService {
         
         /**
          * Get all subscriptions for a user
-         * Syncs with Stripe first to ensure data is up to date
+         * Served from the local mirror, which webhooks and the reconciliation job keep current
          */
-        @Transactional
+        @Transactional(readOnly = true)
         public List<Subscription> getUserSubscriptions(Long userId) {
             User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
-            
-            // Only sync with Stripe if the user has a Stripe customer ID
-            if (user.getStripeCustomerId() != null && !user.getStripeCustomerId().isEmpty()) {
-                try {
-                    // Sync subscriptions from Stripe before returning
-                    syncAllSubscriptionsForCustomer(user.getStripeCustomerId());
-                } catch (StripeException e) {
-                    System.err.println("Warning: Failed to sync subscriptions from Stripe: " + e.getMessage());
-                    // Continue with database records even if sync fails
-                }
-            }
                 
             return subscriptionRepository.findByUser(user);
         }
         
     /**
      * Get all active subscriptions for a user
-     * Syncs with Stripe first to ensure data is up to date
+     * Served from the local mirror, which webhooks and the reconciliation job keep current
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public List<Subscription> getUserActiveSubscriptions(Long userId) {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
-        
-        // Only sync with Stripe if the user has a Stripe customer ID
-        if (user.getStripeCustomerId() != null && !user.getStripeCustomerId().isEmpty()) {
-            try {
-                // Sync subscriptions from Stripe before returning
-                syncAllSubscriptionsForCustomer(user.getStripeCustomerId());
-            } catch (StripeException e) {
-                System.err.println("Warning: Failed to sync subscriptions from Stripe: " + e.getMessage());
-                // Continue with database records even if sync fails
-            }
-        }
             
         return subscriptionRepository.findByUserAndStatus(user, "ACTIVE");
     }
@@ -873,8 +798,6 @@ public class SubscriptionService {
      * This allows testing subscription association without webhooks
      */
     public List<Subscription> syncUserSubscriptionsFromStripe(Long userId) throws Exception {
-        Stripe.apiKey = stripeSecretKey;
-        
         // Get the user
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
@@ -887,7 +810,7 @@ public class SubscriptionService {
                 params.put("email", user.getEmail());
                 params.put("limit", 1);
                 
-                com.stripe.model.CustomerCollection customers = com.stripe.model.Customer.list(params);
+                com.stripe.model.CustomerCollection customers = stripeGateway.call(o -> com.stripe.model.Customer.list(params, o));
                 if (!customers.getData().isEmpty()) {
                     // Found a matching customer by email
                     String customerId = customers.getData().get(0).getId();
@@ -902,7 +825,7 @@ public class SubscriptionService {
                         customerParams.put("name", user.getName());
                     }
                     
-                    com.stripe.model.Customer customer = com.stripe.model.Customer.create(customerParams);
+                    com.stripe.model.Customer customer = stripeGateway.call(o -> com.stripe.model.Customer.create(customerParams, o));
                     String customerId = customer.getId();
                     
                     user.setStripeCustomerId(customerId);
@@ -924,7 +847,6 @@ public class SubscriptionService {
      */
     public List<Subscription> syncAllSubscriptionsForCustomer(String customerId) throws StripeException {
         System.out.println("Starting sync for customer: " + customerId);
-        Stripe.apiKey = stripeSecretKey;
         
         try {
             // Find the user by Stripe customer ID
@@ -933,70 +855,20 @@ public class SubscriptionService {
             
             System.out.println("Found user with ID: " + user.getId() + " and email: " + user.getEmail());
             
-            // Get all subscriptions from Stripe
-            Map<String, Object> params = new HashMap<>();
-            params.put("customer", customerId);
-            params.put("limit", 100); // Adjust as needed
-            params.put("status", "all"); // Include all subscriptions, not just active ones
-            
-            com.stripe.model.SubscriptionCollection subscriptions = com.stripe.model.Subscription.list(params);
-            
-            System.out.println("Found " + subscriptions.getData().size() + " subscriptions in Stripe");
-            
-            if (subscriptions.getData().isEmpty()) {
-                System.out.println("No subscriptions found for customer: " + customerId);
-                return new ArrayList<>();
-            }
-            
+            // Stream all subscriptions from Stripe, including inactive ones, across as many pages as needed
             List<Subscription> result = new ArrayList<>();
-            
-            for (com.stripe.model.Subscription stripeSub : subscriptions.getData()) {
-                System.out.println("Processing subscription: " + stripeSub.getId() + " with status: " + stripeSub.getStatus());
-                
-                // Check if we already have this subscription
-                Optional<Subscription> existingSub = subscriptionRepository.findByStripeSubscriptionId(stripeSub.getId());
-                Subscription subscription;
-                
-                if (existingSub.isPresent()) {
-                    subscription = existingSub.get();
-                    System.out.println("Updating existing subscription: " + subscription.getId());
-                    
-                    // Update subscription details
-                    subscription.setStatus(stripeSub.getStatus());
-                    subscription.setStripeCustomerId(customerId);
-                    subscription.setStartedAt(java.time.Instant.ofEpochSecond(stripeSub.getCurrentPeriodStart()));
-                    subscription.setCurrentPeriodEnd(java.time.Instant.ofEpochSecond(stripeSub.getCurrentPeriodEnd()));
-                } else {
-                    System.out.println("Creating new subscription record for: " + stripeSub.getId());
-                    subscription = new Subscription();
-                    subscription.setStripeSubscriptionId(stripeSub.getId());
-                    subscription.setStripeCustomerId(customerId);
-                    subscription.setUser(user);
-                    subscription.setStatus(stripeSub.getStatus());
-                    subscription.setStartedAt(java.time.Instant.ofEpochSecond(stripeSub.getCurrentPeriodStart()));
-                    subscription.setCurrentPeriodEnd(java.time.Instant.ofEpochSecond(stripeSub.getCurrentPeriodEnd()));
-                }
-                
-                // Try to find the matching plan
-                if (stripeSub.getItems() != null && !stripeSub.getItems().getData().isEmpty()) {
-                    String priceId = stripeSub.getItems().getData().get(0).getPrice().getId();
-                    System.out.println("Found price ID: " + priceId);
-                    subscription.setPriceId(priceId);
-                    
-                    // Try to find matching plan
-                    Plan plan = planRepository.findByCode(priceId);
-                    if (plan != null) {
-                        System.out.println("Found matching plan: " + plan.getName());
-                        subscription.setPlan(plan);
-                    } else {
-                        System.out.println("No matching plan found for price ID: " + priceId);
-                    }
-                }
-                
-                Subscription savedSubscription = subscriptionRepository.save(subscription);
-                System.out.println("Saved subscription with ID: " + savedSubscription.getId());
-                result.add(savedSubscription);
-            }
+            long observedAt = java.time.Instant.now().getEpochSecond();
+            stripeGateway.stream((startingAfter, o) -> com.stripe.model.Subscription.list(
+                    SubscriptionListParams.builder()
+                        .setCustomer(customerId)
+                        .setStatus(SubscriptionListParams.Status.ALL)
+                        .setLimit(100L)
+                        .setStartingAfter(startingAfter)
+                        .build(), o))
+                .forEach(stripeSub -> {
+                    System.out.println("Processing subscription: " + stripeSub.getId() + " with status: " + stripeSub.getStatus());
+                    subscriptionMirror.apply(stripeSub, observedAt, user).ifPresent(result::add);
+                });
             
             System.out.println("Sync completed, updated " + result.size() + " subscriptions");
             return result;
@@ -1012,8 +884,6 @@ public class SubscriptionService {
      * This is useful for testing and manual operations
      */
     public Subscription createSubscriptionDirectly(Long userId, String priceId) throws Exception {
-        Stripe.apiKey = stripeSecretKey;
-        
         // Get the user
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
@@ -1028,7 +898,7 @@ public class SubscriptionService {
                 customerParams.put("name", user.getName());
             }
             
-            com.stripe.model.Customer customer = com.stripe.model.Customer.create(customerParams);
+            com.stripe.model.Customer customer = stripeGateway.call(o -> com.stripe.model.Customer.create(customerParams, o));
             customerId = customer.getId();
             
             user.setStripeCustomerId(customerId);
@@ -1045,25 +915,10 @@ public class SubscriptionService {
         params.put("customer", customerId);
         params.put("items", new Object[] { items });
         
-        com.stripe.model.Subscription stripeSub = com.stripe.model.Subscription.create(params);
+        com.stripe.model.Subscription stripeSub = stripeGateway.call(o -> com.stripe.model.Subscription.create(params, o));
         
-        // Create the subscription in our database
-        Subscription subscription = new Subscription();
-        subscription.setStripeSubscriptionId(stripeSub.getId());
-        subscription.setStripeCustomerId(customerId);
-        subscription.setUser(user);
-        subscription.setStatus("ACTIVE");
-        subscription.setStartedAt(java.time.Instant.ofEpochSecond(stripeSub.getCurrentPeriodStart()));
-        subscription.setCurrentPeriodEnd(java.time.Instant.ofEpochSecond(stripeSub.getCurrentPeriodEnd()));
-        subscription.setPriceId(priceId);
-        
-        // Try to find a matching plan
-        Plan plan = planRepository.findByCode(priceId);
-        if (plan != null) {
-            subscription.setPlan(plan);
-        }
-        
-        return subscriptionRepository.save(subscription);
+        // Mirror the subscription into our database
+        return subscriptionMirror.apply(stripeSub, java.time.Instant.now().getEpochSecond(), user).orElseThrow();
     }
 
     /**
@@ -1071,67 +926,9 @@ public class SubscriptionService {
      * This is useful for manually fixing missing subscription records
      */
     public Subscription syncSubscriptionFromStripe(String stripeSubscriptionId) throws StripeException {
-        Stripe.apiKey = stripeSecretKey;
-        
-        // Check if we already have this subscription
-        Optional<Subscription> existingSub = subscriptionRepository.findByStripeSubscriptionId(stripeSubscriptionId);
-        if (existingSub.isPresent()) {
-            // Update the existing subscription
-            Subscription subscription = existingSub.get();
-            
-            // Get fresh data from Stripe
-            com.stripe.model.Subscription stripeSub = com.stripe.model.Subscription.retrieve(stripeSubscriptionId);
-            String customerId = stripeSub.getCustomer();
-            
-            // Update subscription details
-            subscription.setStatus(stripeSub.getStatus());
-            subscription.setStripeCustomerId(customerId);
-            subscription.setStartedAt(java.time.Instant.ofEpochSecond(stripeSub.getCurrentPeriodStart()));
-            subscription.setCurrentPeriodEnd(java.time.Instant.ofEpochSecond(stripeSub.getCurrentPeriodEnd()));
-            
-            // Try to find the matching plan
-            if (stripeSub.getItems() != null && !stripeSub.getItems().getData().isEmpty()) {
-                String priceId = stripeSub.getItems().getData().get(0).getPrice().getId();
-                subscription.setPriceId(priceId);
-                
-                // Try to find matching plan
-                Plan plan = planRepository.findByCode(priceId);
-                if (plan != null) {
-                    subscription.setPlan(plan);
-                }
-            }
-            
-            return subscriptionRepository.save(subscription);
-        } else {
-            // Create a new subscription record
-            com.stripe.model.Subscription stripeSub = com.stripe.model.Subscription.retrieve(stripeSubscriptionId);
-            String customerId = stripeSub.getCustomer();
-            
-            // Find user by stripe customer ID
-            User user = userRepository.findByStripeCustomerId(customerId).orElseThrow(() -> 
-                new IllegalArgumentException("No user found with Stripe customer ID: " + customerId));
-            
-            Subscription subscription = new Subscription();
-            subscription.setStripeSubscriptionId(stripeSubscriptionId);
-            subscription.setStripeCustomerId(customerId);
-            subscription.setUser(user);
-            subscription.setStatus(stripeSub.getStatus());
-            subscription.setStartedAt(java.time.Instant.ofEpochSecond(stripeSub.getCurrentPeriodStart()));
-            subscription.setCurrentPeriodEnd(java.time.Instant.ofEpochSecond(stripeSub.getCurrentPeriodEnd()));
-            
-            // Try to find the matching plan
-            if (stripeSub.getItems() != null && !stripeSub.getItems().getData().isEmpty()) {
-                String priceId = stripeSub.getItems().getData().get(0).getPrice().getId();
-                subscription.setPriceId(priceId);
-                
-                // Try to find matching plan
-                Plan plan = planRepository.findByCode(priceId);
-                if (plan != null) {
-                    subscription.setPlan(plan);
-                }
-            }
-            
-            return subscriptionRepository.save(subscription);
-        }
+        com.stripe.model.Subscription stripeSub = stripeGateway.call(o -> com.stripe.model.Subscription.retrieve(stripeSubscriptionId, o));
+        return subscriptionMirror.apply(stripeSub, java.time.Instant.now().getEpochSecond(), null)
+            .orElseThrow(() -> new IllegalArgumentException(
+                "No user found with Stripe customer ID: " + stripeSub.getCustomer()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.careconnect.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published when a user does something achievements can be earned for. Consumed after
+ * commit by the {@link AchievementEngine}, off the request path.
+ */
+public record UserActivityEvent(Long userId, Type type, LocalDateTime occurredAt) {
+
+    public enum Type { LOGIN, EMAIL_VERIFIED, MOOD_LOG, VITAL_SAMPLE, MEDICATION_ADDED }
+
+    public UserActivityEvent(Long userId, Type type) {
+        this(userId, type, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,33 @@
+package com.careconnect.service;
+
+import com.careconnect.model.User;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener on {@link User} that turns row changes into {@link UserChangedEvent}s.
+ * Events are published inside the flushing transaction; listeners should run after commit.
+ */
+@Component
+public class UserChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public UserChangeListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(User user) {
+        eventPublisher.publishEvent(new UserChangedEvent(user, false));
+    }
+
+    @PostRemove
+    public void onRemoved(User user) {
+        eventPublisher.publishEvent(new UserChangedEvent(user, true));
+    }
+}
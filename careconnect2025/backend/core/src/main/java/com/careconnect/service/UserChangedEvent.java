@@ -0,0 +1,9 @@
+package com.careconnect.service;
+
+import com.careconnect.model.User;
+
+/**
+ * Published when a user row is inserted, updated or deleted through JPA, so in-memory
+ * views of users (such as the search index) can follow once the change commits.
+ */
+public record UserChangedEvent(User user, boolean removed) {}
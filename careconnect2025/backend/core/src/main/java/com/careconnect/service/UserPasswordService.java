@@ -5,6 +5,7 @@ import com.careconnect.model.PasswordResetToken;
 import com.careconnect.repository.UserRepository;
 import com.careconnect.repository.PasswordResetTokenRepo;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.apache.commons.codec.digest.DigestUtils;
@@ -26,6 +27,9 @@ public class UserPasswordService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Reset password for user by username (email) and reset token
      * This method now handles BOTH verification tokens (from patient registration) 
@@ -166,6 +170,7 @@ public void resetPasswordWithToken(String username, String resetToken, String ne
         user.setIsVerified(true);
         user.setVerificationToken(null); // Clear verification token
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserActivityEvent(user.getId(), UserActivityEvent.Type.EMAIL_VERIFIED));
         
         logger.debug("🔧 Password setup completed successfully for new user: {}", username);
         return;
@@ -307,6 +312,7 @@ public void resetPasswordWithToken(String username, String resetToken, String ne
         
         // Save user
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserActivityEvent(user.getId(), UserActivityEvent.Type.EMAIL_VERIFIED));
         
         logger.debug("🔧 Password setup completed successfully for user: {}", username);
     }
@@ -0,0 +1,305 @@
+package com.careconnect.service;
+
+import com.careconnect.dto.UserResponse;
+import com.careconnect.model.User;
+import com.careconnect.repository.UserRepository;
+import com.careconnect.security.Role;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory typeahead index over user names and email addresses.
+ *
+ * Names and emails are split into lowercase, accent-free word tokens held in a sorted map,
+ * so a query term is a prefix range lookup rather than a LIKE '%term%' table scan. Every
+ * term of a query must prefix some token of a user. Results are ranked (exact word, then
+ * name prefix, then email prefix) and paged in memory.
+ *
+ * The index is built in the background at startup and rebuilt periodically, which also
+ * picks up changes made on other instances or by bulk updates. In between, users saved
+ * through JPA are re-indexed after their transaction commits. Until the first build
+ * completes, searches fall back to a bounded prefix query.
+ */
+@Service
+@Slf4j
+public class UserSearchIndex {
+
+    private static final Pattern TOKEN_SPLIT = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private final UserRepository userRepository;
+    private final int maxCandidates;
+    private final int rebuildBatchSize;
+
+    private volatile Index index = new Index();
+    private volatile boolean ready;
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    // Changes seen while a rebuild is reading the table, replayed onto the new index
+    private final List<UserChangedEvent> pendingDuringRebuild = new ArrayList<>();
+
+    public UserSearchIndex(UserRepository userRepository,
+                           @Value("${careconnect.search.max-candidates:5000}") int maxCandidates,
+                           @Value("${careconnect.search.rebuild-batch-size:5000}") int rebuildBatchSize) {
+        this.userRepository = userRepository;
+        this.maxCandidates = maxCandidates;
+        this.rebuildBatchSize = rebuildBatchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        CompletableFuture.runAsync(this::rebuild);
+    }
+
+    @Scheduled(fixedDelayString = "${careconnect.search.rebuild-interval-ms:3600000}",
+               initialDelayString = "${careconnect.search.rebuild-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Ranked typeahead matches, optionally restricted to one role and excluding one user.
+     */
+    public List<UserResponse> search(String query, Role role, Long excludeUserId, int page, int size) {
+        String[] terms = tokenize(query);
+        if (terms.length == 0 || size <= 0 || page < 0) {
+            return List.of();
+        }
+        if (!ready) {
+            return fallbackSearch(query.trim(), role, excludeUserId, page, size);
+        }
+
+        Index current = index;
+        // The longest term is usually the most selective one to drive the range scan
+        String driver = Arrays.stream(terms).max(Comparator.comparingInt(String::length)).orElseThrow();
+        Set<Long> candidates = new LinkedHashSet<>();
+        NavigableMap<String, Set<Long>> range = current.tokens.subMap(driver, true, driver + Character.MAX_VALUE, true);
+        for (Set<Long> ids : range.values()) {
+            candidates.addAll(ids);
+            if (candidates.size() >= maxCandidates) {
+                break;
+            }
+        }
+
+        List<Scored> matches = new ArrayList<>();
+        for (Long id : candidates) {
+            Entry entry = current.entries.get(id);
+            if (entry == null || id.equals(excludeUserId) || (role != null && entry.role() != role)) {
+                continue;
+            }
+            int score = score(entry, terms);
+            if (score > 0) {
+                matches.add(new Scored(entry, score));
+            }
+        }
+
+        matches.sort(Comparator.comparingInt(Scored::score).reversed()
+                .thenComparing(s -> s.entry().sortName())
+                .thenComparing(s -> s.entry().id()));
+
+        int from = Math.min(page * size, matches.size());
+        int to = Math.min(from + size, matches.size());
+        return matches.subList(from, to).stream().map(s -> s.entry().toResponse()).toList();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        synchronized (pendingDuringRebuild) {
+            if (rebuilding.get()) {
+                pendingDuringRebuild.add(event);
+            }
+            apply(index, event);
+        }
+    }
+
+    /**
+     * Reads all users in id order into a fresh index and swaps it in.
+     */
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            Index fresh = new Index();
+            long afterId = 0;
+            while (true) {
+                List<Object[]> rows = userRepository.findSearchRowsAfter(afterId, PageRequest.of(0, rebuildBatchSize));
+                if (rows.isEmpty()) {
+                    break;
+                }
+                for (Object[] row : rows) {
+                    fresh.put(Entry.of((Long) row[0], (String) row[1], (String) row[2], (String) row[3],
+                            (String) row[4], (Role) row[5], (Boolean) row[6], (String) row[7], (String) row[8]));
+                }
+                afterId = (Long) rows.get(rows.size() - 1)[0];
+            }
+
+            synchronized (pendingDuringRebuild) {
+                for (UserChangedEvent event : pendingDuringRebuild) {
+                    apply(fresh, event);
+                }
+                pendingDuringRebuild.clear();
+                index = fresh;
+                ready = true;
+            }
+            log.info("User search index built: {} users, {} tokens in {} ms",
+                    fresh.entries.size(), fresh.tokens.size(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Failed to build user search index", e);
+        } finally {
+            synchronized (pendingDuringRebuild) {
+                pendingDuringRebuild.clear();
+            }
+            rebuilding.set(false);
+        }
+    }
+
+    private void apply(Index target, UserChangedEvent event) {
+        User user = event.user();
+        if (user.getId() == null) {
+            return;
+        }
+        if (event.removed()) {
+            target.remove(user.getId());
+        } else {
+            target.put(Entry.of(user.getId(), user.getName(), user.getFirstName(), user.getLastName(),
+                    user.getEmail(), user.getRole(), user.getIsVerified(), user.getProfileImageUrl(), user.getStatus()));
+        }
+    }
+
+    private List<UserResponse> fallbackSearch(String query, Role role, Long excludeUserId, int page, int size) {
+        // Fetch enough rows for the requested page; filtering may leave it short, which is fine for typeahead
+        return userRepository.findByNameStartingWithIgnoreCaseOrEmailStartingWithIgnoreCase(
+                        query, query, PageRequest.of(0, (page + 1) * size)).stream()
+                .filter(u -> !u.getId().equals(excludeUserId) && (role == null || u.getRole() == role))
+                .skip((long) page * size)
+                .limit(size)
+                .map(u -> new UserResponse(u.getId(), u.getName(), u.getEmail(), u.getRole(),
+                        Boolean.TRUE.equals(u.getIsVerified()), u.getProfileImageUrl(), u.getStatus()))
+                .toList();
+    }
+
+    /**
+     * 0 if some term prefixes none of the user's tokens; otherwise higher for exact words
+     * and name matches than for email matches, with a bonus when the name starts with the query.
+     */
+    private static int score(Entry entry, String[] terms) {
+        int total = 0;
+        for (String term : terms) {
+            int best = 0;
+            for (String token : entry.nameTokens()) {
+                if (token.equals(term)) {
+                    best = Math.max(best, 4);
+                } else if (token.startsWith(term)) {
+                    best = Math.max(best, 3);
+                }
+            }
+            for (String token : entry.emailTokens()) {
+                if (token.equals(term)) {
+                    best = Math.max(best, 2);
+                } else if (token.startsWith(term)) {
+                    best = Math.max(best, 1);
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        if (entry.sortName().startsWith(terms[0])) {
+            total += 2;
+        }
+        return total;
+    }
+
+    static String[] tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(TOKEN_SPLIT.split(folded)).filter(t -> !t.isEmpty()).distinct().toArray(String[]::new);
+    }
+
+    private record Scored(Entry entry, int score) {}
+
+    private record Entry(Long id, String name, String email, Role role, boolean verified,
+                         String profileImageUrl, String status, String sortName,
+                         String[] nameTokens, String[] emailTokens) {
+
+        static Entry of(Long id, String name, String firstName, String lastName, String email, Role role,
+                        Boolean verified, String profileImageUrl, String status) {
+            String fullName = String.join(" ",
+                    name != null ? name : "", firstName != null ? firstName : "", lastName != null ? lastName : "");
+            // Mailbox only: the domain is shared by too many users to be a useful match
+            String mailbox = email != null && email.indexOf('@') > 0 ? email.substring(0, email.indexOf('@')) : email;
+            return new Entry(id, name, email, role, Boolean.TRUE.equals(verified), profileImageUrl, status,
+                    name != null ? name.toLowerCase(Locale.ROOT) : "",
+                    tokenize(fullName), tokenize(mailbox));
+        }
+
+        UserResponse toResponse() {
+            return new UserResponse(id, name, email, role, verified, profileImageUrl, status);
+        }
+    }
+
+    private static final class Index {
+        final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+        final ConcurrentSkipListMap<String, Set<Long>> tokens = new ConcurrentSkipListMap<>();
+
+        void put(Entry entry) {
+            remove(entry.id());
+            entries.put(entry.id(), entry);
+            for (String token : entry.nameTokens()) {
+                tokens.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(entry.id());
+            }
+            for (String token : entry.emailTokens()) {
+                tokens.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(entry.id());
+            }
+        }
+
+        void remove(Long id) {
+            Entry previous = entries.remove(id);
+            if (previous == null) {
+                return;
+            }
+            for (String token : previous.nameTokens()) {
+                removeToken(token, id);
+            }
+            for (String token : previous.emailTokens()) {
+                removeToken(token, id);
+            }
+        }
+
+        private void removeToken(String token, Long id) {
+            tokens.computeIfPresent(token, (t, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+}
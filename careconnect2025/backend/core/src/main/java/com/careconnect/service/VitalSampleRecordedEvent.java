@@ -0,0 +1,8 @@
+package com.careconnect.service;
+
+import java.util.Map;
+
+/**
+ * Published when a vital sample is saved, carrying the live update for the patient's care team.
+ */
+public record VitalSampleRecordedEvent(Long patientUserId, Map<String, Object> update) {}
@@ -7,12 +7,17 @@ import com.careconnect.repository.PatientRepository;
 import com.careconnect.repository.VitalSampleRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.time.Instant;
 import java.time.Period;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -21,6 +26,8 @@ public class VitalSampleService {
     
     private final VitalSampleRepository vitalSampleRepository;
     private final PatientRepository patientRepository;
+    private final CareTeamFanoutService careTeamFanoutService;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Autowired(required = false)
     private FirebaseNotificationService notificationService;
@@ -50,6 +57,13 @@ public class VitalSampleService {
         // Check for vital alerts and send notifications asynchronously
         checkAndSendVitalAlerts(saved);
         
+        // Live update for the care team's dashboards
+        sendVitalSampleUpdate(saved);
+
+        if (patient.getUser() != null) {
+            eventPublisher.publishEvent(new UserActivityEvent(patient.getUser().getId(), UserActivityEvent.Type.VITAL_SAMPLE));
+        }
+        
         return mapToDTO(saved);
     }
     
@@ -230,6 +244,50 @@ public class VitalSampleService {
         }
     }
     
+    /**
+     * Fan the new sample out to the patient's care team over WebSocket (no push for routine samples)
+     * once the sample has committed
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onVitalSampleRecorded(VitalSampleRecordedEvent event) {
+        try {
+            careTeamFanoutService.fanOut(event.patientUserId(), event.update(), null, null);
+        } catch (Exception e) {
+            // Log error but don't fail the vital recording
+            System.err.println("Error sending vital sample update: " + e.getMessage());
+        }
+    }
+    
+    private void sendVitalSampleUpdate(VitalSample vitalSample) {
+        try {
+            Patient patient = vitalSample.getPatient();
+            if (patient.getUser() == null) {
+                return;
+            }
+            
+            Map<String, Object> update = new HashMap<>();
+            update.put("type", "vital-sample-updated");
+            update.put("patientId", patient.getId());
+            update.put("patientUserId", patient.getUser().getId());
+            update.put("patientName", patient.getFirstName() + " " + patient.getLastName());
+            update.put("sampleId", vitalSample.getId());
+            update.put("sampleTimestamp", vitalSample.getTimestamp().toString());
+            update.put("heartRate", vitalSample.getHeartRate());
+            update.put("spo2", vitalSample.getSpo2());
+            update.put("systolic", vitalSample.getSystolic());
+            update.put("diastolic", vitalSample.getDiastolic());
+            update.put("weight", vitalSample.getWeight());
+            update.put("moodValue", vitalSample.getMoodValue());
+            update.put("painValue", vitalSample.getPainValue());
+            update.put("timestamp", System.currentTimeMillis());
+            
+            eventPublisher.publishEvent(new VitalSampleRecordedEvent(patient.getUser().getId(), update));
+        } catch (Exception e) {
+            // Log error but don't fail the vital recording
+            System.err.println("Error sending vital sample update: " + e.getMessage());
+        }
+    }
+    
     private String determineHeartRateAlert(Double heartRate) {
         if (heartRate == null) return "NORMAL";
         if (heartRate < 60) return "LOW";
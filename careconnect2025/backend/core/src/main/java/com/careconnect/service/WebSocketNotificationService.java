@@ -2,6 +2,7 @@ package com.careconnect.service;
 
 import com.careconnect.websocket.CallNotificationHandler;
 import com.careconnect.websocket.CareConnectWebSocketHandler;
+import com.careconnect.websocket.PresenceRegistry;
 import com.careconnect.dto.CaregiverPatientLinkResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +20,8 @@ public class WebSocketNotificationService {
     private final CallNotificationHandler callNotificationHandler;
     private final CareConnectWebSocketHandler careConnectWebSocketHandler;
     private final CaregiverPatientLinkService caregiverPatientLinkService;
+    private final PresenceRegistry presenceRegistry;
+    private final CareTeamFanoutService careTeamFanoutService;
 
     /**
      * Send a call invitation to a specific user
@@ -86,10 +89,12 @@ public class WebSocketNotificationService {
             "timestamp", System.currentTimeMillis()
         );
         
-        // This could be enhanced to get actual caregiver/family member IDs
-        // and send to each of them individually
+        // Keep the patient's other devices in sync, then notify the care team
         careConnectWebSocketHandler.sendRealTimeUpdate(patientId, notification);
-        log.info("Mood/pain log update notification sent for patient {}", patientId);
+        int recipients = careTeamFanoutService.fanOut(
+            Long.valueOf(patientId), notification,
+            "Mood/pain update", patientName + " logged mood " + moodValue + " and pain " + painValue);
+        log.info("Mood/pain log update notification sent for patient {} to {} care team members", patientId, recipients);
     }
 
     /**
@@ -213,21 +218,28 @@ public class WebSocketNotificationService {
      * Check if a user is currently online
      */
     public boolean isUserOnline(String userId) {
-        return careConnectWebSocketHandler.isUserOnline(userId);
+        return presenceRegistry.isUserOnline(userId);
+    }
+
+    /**
+     * Get the last time a user was seen on any WebSocket endpoint, or null if unknown
+     */
+    public Instant getLastSeen(String userId) {
+        return presenceRegistry.getLastSeen(userId);
     }
 
     /**
      * Get count of online users
      */
     public int getOnlineUsersCount() {
-        return careConnectWebSocketHandler.getOnlineUsersCount();
+        return presenceRegistry.getOnlineUsersCount();
     }
 
     /**
      * Get list of online users (for admin purposes)
      */
     public Map<String, String> getOnlineUsers() {
-        return callNotificationHandler.getOnlineUsers();
+        return presenceRegistry.getOnlineUsers();
     }
     
     // Additional REST API support methods
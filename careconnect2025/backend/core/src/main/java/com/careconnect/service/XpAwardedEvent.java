@@ -0,0 +1,7 @@
+package com.careconnect.service;
+
+/**
+ * Published when XP is awarded. {@code sequence} is the id of the ledger entry, which
+ * grows with each award to the same user, so listeners can ignore stale totals.
+ */
+public record XpAwardedEvent(Long userId, int totalXp, long sequence) {}
@@ -0,0 +1,383 @@
+package com.careconnect.service;
+
+import com.careconnect.dto.LeaderboardEntryDTO;
+import com.careconnect.model.XPProgress;
+import com.careconnect.repository.UserRepository;
+import com.careconnect.repository.XPProgressRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory XP leaderboard.
+ *
+ * Users are held in an indexable skip list ordered by XP (highest first, ties by user id),
+ * where every link records how many entries it skips. That makes rank-of-user, the entry
+ * at a given rank and score updates O(log n), and a top-K page O(log n + K).
+ *
+ * The board is loaded from xp_progress in the background at startup and reloaded
+ * periodically. In between, awards move users after their transaction commits. Until
+ * the first load completes the board is empty and {@link #isReady()} is false.
+ */
+@Service
+@Slf4j
+public class XpLeaderboard {
+
+    private final XPProgressRepository xpProgressRepository;
+    private final UserRepository userRepository;
+    private final int rebuildBatchSize;
+
+    private volatile Board board = new Board();
+    private volatile boolean ready;
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    // Users awarded XP while a rebuild is reading the table; re-read before the new board is swapped in
+    private final Set<Long> changedDuringRebuild = new HashSet<>();
+
+    public XpLeaderboard(XPProgressRepository xpProgressRepository,
+                         UserRepository userRepository,
+                         @Value("${careconnect.gamification.leaderboard.rebuild-batch-size:5000}") int rebuildBatchSize) {
+        this.xpProgressRepository = xpProgressRepository;
+        this.userRepository = userRepository;
+        this.rebuildBatchSize = rebuildBatchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        CompletableFuture.runAsync(this::rebuild);
+    }
+
+    @Scheduled(fixedDelayString = "${careconnect.gamification.leaderboard.rebuild-interval-ms:3600000}",
+               initialDelayString = "${careconnect.gamification.leaderboard.rebuild-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return board.size();
+    }
+
+    /**
+     * Entries ranked {@code offset + 1} to {@code offset + limit}, with names filled in.
+     */
+    public List<LeaderboardEntryDTO> getTop(int offset, int limit) {
+        if (offset < 0 || limit <= 0) {
+            return List.of();
+        }
+        return withNames(board.range(offset, limit));
+    }
+
+    public Optional<LeaderboardEntryDTO> getRank(Long userId) {
+        Ranked ranked = board.rankOf(userId);
+        if (ranked == null) {
+            return Optional.empty();
+        }
+        return withNames(List.of(ranked)).stream().findFirst();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onXpAwarded(XpAwardedEvent event) {
+        synchronized (changedDuringRebuild) {
+            if (rebuilding.get()) {
+                changedDuringRebuild.add(event.userId());
+            }
+            board.update(event.userId(), event.totalXp(), event.sequence());
+        }
+    }
+
+    /**
+     * Reads xp_progress in id order into a fresh board and swaps it in.
+     */
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            Board fresh = new Board();
+            long afterId = 0;
+            while (true) {
+                List<Object[]> rows = xpProgressRepository.findLeaderboardRowsAfter(afterId, PageRequest.of(0, rebuildBatchSize));
+                if (rows.isEmpty()) {
+                    break;
+                }
+                for (Object[] row : rows) {
+                    fresh.update((Long) row[1], ((Number) row[2]).intValue(), 0);
+                }
+                afterId = (Long) rows.get(rows.size() - 1)[0];
+            }
+
+            synchronized (changedDuringRebuild) {
+                // Totals awarded mid-scan may or may not be in the rows read; take the committed value
+                if (!changedDuringRebuild.isEmpty()) {
+                    for (XPProgress progress : xpProgressRepository.findByUserIdIn(changedDuringRebuild)) {
+                        fresh.update(progress.getUserId(), progress.getXp(), 0);
+                    }
+                    changedDuringRebuild.clear();
+                }
+                board = fresh;
+                ready = true;
+            }
+            log.info("XP leaderboard built: {} users in {} ms", fresh.size(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Failed to build XP leaderboard", e);
+        } finally {
+            synchronized (changedDuringRebuild) {
+                changedDuringRebuild.clear();
+            }
+            rebuilding.set(false);
+        }
+    }
+
+    private List<LeaderboardEntryDTO> withNames(List<Ranked> ranked) {
+        if (ranked.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Object[]> summaries = new HashMap<>();
+        for (Object[] row : userRepository.findSummariesByIds(ranked.stream().map(Ranked::userId).toList())) {
+            summaries.put((Long) row[0], row);
+        }
+        List<LeaderboardEntryDTO> entries = new ArrayList<>(ranked.size());
+        for (Ranked r : ranked) {
+            Object[] summary = summaries.get(r.userId());
+            entries.add(LeaderboardEntryDTO.builder()
+                    .rank(r.rank())
+                    .userId(r.userId())
+                    .name(summary != null ? (String) summary[1] : null)
+                    .profileImageUrl(summary != null ? (String) summary[3] : null)
+                    .xp(r.xp())
+                    .level(GamificationService.calculateLevel(r.xp()))
+                    .build());
+        }
+        return entries;
+    }
+
+    private record Ranked(int rank, Long userId, int xp) {}
+
+    private record Score(int xp, long sequence) {}
+
+    /**
+     * Skip list plus a user -> score map, guarded by one read/write lock.
+     */
+    private static final class Board {
+        private final SkipList ranking = new SkipList();
+        private final Map<Long, Score> scores = new HashMap<>();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return ranking.size;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // Totals older than the last one applied for the user are ignored; sequence 0 always applies
+        void update(Long userId, int xp, long sequence) {
+            lock.writeLock().lock();
+            try {
+                Score previous = scores.get(userId);
+                if (previous != null) {
+                    if (sequence != 0 && sequence < previous.sequence()) {
+                        return;
+                    }
+                    if (previous.xp() == xp) {
+                        scores.put(userId, new Score(xp, Math.max(sequence, previous.sequence())));
+                        return;
+                    }
+                    ranking.delete(previous.xp(), userId);
+                }
+                ranking.insert(xp, userId);
+                scores.put(userId, new Score(xp, previous != null ? Math.max(sequence, previous.sequence()) : sequence));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        Ranked rankOf(Long userId) {
+            lock.readLock().lock();
+            try {
+                Score score = scores.get(userId);
+                return score == null ? null : new Ranked(ranking.rank(score.xp(), userId), userId, score.xp());
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        List<Ranked> range(int offset, int limit) {
+            lock.readLock().lock();
+            try {
+                List<Ranked> result = new ArrayList<>(Math.min(limit, Math.max(0, ranking.size - offset)));
+                Node node = ranking.byRank(offset + 1);
+                int rank = offset + 1;
+                while (node != null && result.size() < limit) {
+                    result.add(new Ranked(rank++, node.userId, node.xp));
+                    node = node.next[0];
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    private static final class Node {
+        final int xp;
+        final long userId;
+        final Node[] next;
+        final int[] span; // entries passed when following next[i]
+
+        Node(int xp, long userId, int levels) {
+            this.xp = xp;
+            this.userId = userId;
+            this.next = new Node[levels];
+            this.span = new int[levels];
+        }
+    }
+
+    /**
+     * Indexable skip list (as used for Redis sorted sets). Not thread-safe on its own.
+     */
+    private static final class SkipList {
+        private static final int MAX_LEVEL = 32;
+
+        private final Node head = new Node(Integer.MAX_VALUE, Long.MIN_VALUE, MAX_LEVEL);
+        private int level = 1;
+        private int size;
+
+        // Higher XP first, then lower user id
+        private static boolean precedes(Node node, int xp, long userId) {
+            return node.xp > xp || (node.xp == xp && node.userId < userId);
+        }
+
+        private static int randomLevel() {
+            int lvl = 1;
+            while (lvl < MAX_LEVEL && ThreadLocalRandom.current().nextInt(4) == 0) {
+                lvl++;
+            }
+            return lvl;
+        }
+
+        void insert(int xp, long userId) {
+            Node[] update = new Node[MAX_LEVEL];
+            int[] rank = new int[MAX_LEVEL];
+            Node x = head;
+            for (int i = level - 1; i >= 0; i--) {
+                rank[i] = i == level - 1 ? 0 : rank[i + 1];
+                while (x.next[i] != null && precedes(x.next[i], xp, userId)) {
+                    rank[i] += x.span[i];
+                    x = x.next[i];
+                }
+                update[i] = x;
+            }
+
+            int lvl = randomLevel();
+            if (lvl > level) {
+                for (int i = level; i < lvl; i++) {
+                    rank[i] = 0;
+                    update[i] = head;
+                    head.span[i] = size;
+                }
+                level = lvl;
+            }
+
+            Node node = new Node(xp, userId, lvl);
+            for (int i = 0; i < lvl; i++) {
+                node.next[i] = update[i].next[i];
+                update[i].next[i] = node;
+                node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+                update[i].span[i] = rank[0] - rank[i] + 1;
+            }
+            for (int i = lvl; i < level; i++) {
+                update[i].span[i]++;
+            }
+            size++;
+        }
+
+        void delete(int xp, long userId) {
+            Node[] update = new Node[MAX_LEVEL];
+            Node x = head;
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && precedes(x.next[i], xp, userId)) {
+                    x = x.next[i];
+                }
+                update[i] = x;
+            }
+            Node target = x.next[0];
+            if (target == null || target.xp != xp || target.userId != userId) {
+                return;
+            }
+            for (int i = 0; i < level; i++) {
+                if (update[i].next[i] == target) {
+                    update[i].span[i] += target.span[i] - 1;
+                    update[i].next[i] = target.next[i];
+                } else {
+                    update[i].span[i]--;
+                }
+            }
+            while (level > 1 && head.next[level - 1] == null) {
+                level--;
+            }
+            size--;
+        }
+
+        // 1-based rank of an entry known to be present
+        int rank(int xp, long userId) {
+            int rank = 0;
+            Node x = head;
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && (precedes(x.next[i], xp, userId)
+                        || (x.next[i].xp == xp && x.next[i].userId == userId))) {
+                    rank += x.span[i];
+                    x = x.next[i];
+                }
+                if (x != head && x.xp == xp && x.userId == userId) {
+                    return rank;
+                }
+            }
+            return 0;
+        }
+
+        Node byRank(int rank) {
+            if (rank < 1 || rank > size) {
+                return null;
+            }
+            int traversed = 0;
+            Node x = head;
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && traversed + x.span[i] <= rank) {
+                    traversed += x.span[i];
+                    x = x.next[i];
+                }
+                if (traversed == rank) {
+                    return x;
+                }
+            }
+            return null;
+        }
+    }
+}
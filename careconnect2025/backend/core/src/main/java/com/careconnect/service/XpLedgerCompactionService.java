@@ -0,0 +1,80 @@
+package com.careconnect.service;
+
+import com.careconnect.repository.XPEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the XP ledger from growing without bound.
+ *
+ * Entries older than the retention period are folded, one id range at a time, into a
+ * single "compacted" entry per user carrying their sum, so each user's ledger still adds
+ * up to their XP total. Every range is folded and deleted in its own transaction.
+ */
+@Service
+@Slf4j
+public class XpLedgerCompactionService {
+
+    private final XPEventRepository xpEventRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int retentionDays;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public XpLedgerCompactionService(XPEventRepository xpEventRepository,
+                                     TransactionTemplate transactionTemplate,
+                                     @Value("${careconnect.gamification.ledger.retention-days:90}") int retentionDays,
+                                     @Value("${careconnect.gamification.ledger.compaction-batch-size:10000}") int batchSize) {
+        this.xpEventRepository = xpEventRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.retentionDays = retentionDays;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Scheduled(cron = "${careconnect.gamification.ledger.compaction-cron:0 30 3 * * *}")
+    public void scheduledCompaction() {
+        compact();
+    }
+
+    /**
+     * Returns the net number of ledger entries removed, or -1 if a pass is already running.
+     */
+    public long compact() {
+        if (!running.compareAndSet(false, true)) {
+            return -1;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        long removed = 0;
+        try {
+            Long fromId = xpEventRepository.findMinIdBefore(cutoff);
+            // Compacted entries get ids above this bound, so a pass never revisits its own output
+            Long lastId = xpEventRepository.findMaxIdBefore(cutoff);
+            if (fromId == null || lastId == null) {
+                return 0;
+            }
+            while (fromId <= lastId) {
+                long from = fromId;
+                long to = Math.min(lastId, fromId + batchSize - 1);
+                Integer deleted = transactionTemplate.execute(tx -> {
+                    int inserted = xpEventRepository.insertCompacted(from, to, cutoff);
+                    return xpEventRepository.deleteRange(from, to, cutoff) - inserted;
+                });
+                removed += deleted != null ? deleted : 0;
+                fromId = to + 1;
+            }
+            log.info("XP ledger compaction removed {} entries older than {}", removed, cutoff);
+        } catch (Exception e) {
+            log.error("XP ledger compaction failed after removing {} entries", removed, e);
+        } finally {
+            running.set(false);
+        }
+        return removed;
+    }
+}
@@ -1,5 +1,111 @@
 package com.careconnect.util;
 
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Renders the HTML and plain-text bodies of CareConnect emails from Thymeleaf templates
+ * in {@code templates/email}, one {@code .html} and one {@code .txt} file per template.
+ *
+ * The engine is private to email rendering and keeps parsed templates cached without
+ * expiry. Every template is parsed at startup, so a broken template fails the boot instead
+ * of the first send, and each render only evaluates the model against the cached tree.
+ */
+@Component
+@Slf4j
 public class EmailTemplates {
 
+    public enum Template {
+        VERIFICATION("verification", "CareConnect Email Verification"),
+        PASSWORD_SETUP("password-setup", "CareConnect - Set Up Your Password"),
+        WELCOME_CREDENTIALS("welcome-credentials", "Welcome to CareConnect - Complete Your Registration"),
+        PASSWORD_RESET("password-reset", "CareConnect Password Reset"),
+        FAMILY_INVITE("family-invite", "CareConnect - Family Member Invitation"),
+        FAMILY_ACCESS_GRANTED("family-access-granted", "CareConnect - New Patient Access Granted"),
+        LINK_EXPIRY_REMINDER("link-expiry-reminder", "CareConnect - Your Patient Access Is Expiring Soon");
+
+        private final String file;
+        private final String subject;
+
+        Template(String file, String subject) {
+            this.file = file;
+            this.subject = subject;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+    }
+
+    public record RenderedEmail(String subject, String html, String text) {}
+
+    private static final Locale LOCALE = Locale.US;
+
+    private final TemplateEngine engine;
+
+    public EmailTemplates() {
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.addTemplateResolver(resolver(TemplateMode.HTML, ".html", 1));
+        engine.addTemplateResolver(resolver(TemplateMode.TEXT, ".txt", 2));
+        this.engine = engine;
+    }
+
+    private static ClassLoaderTemplateResolver resolver(TemplateMode mode, String extension, int order) {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/email/");
+        resolver.setResolvablePatterns(Set.of("*" + extension));
+        resolver.setTemplateMode(mode);
+        resolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        resolver.setCacheable(true);
+        resolver.setCacheTTLMs(null); // Keep parsed templates for the life of the application
+        resolver.setCheckExistence(true);
+        resolver.setOrder(order);
+        return resolver;
+    }
+
+    @PostConstruct
+    void precompile() {
+        long started = System.currentTimeMillis();
+        Context empty = new Context(LOCALE);
+        for (Template template : Template.values()) {
+            // Rendering once parses the template into the cache
+            engine.process(template.file + ".html", empty);
+            engine.process(template.file + ".txt", empty);
+        }
+        log.info("Precompiled {} email templates in {} ms", Template.values().length, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Renders both bodies of one email from the same model.
+     */
+    public RenderedEmail render(Template template, Map<String, Object> model) {
+        Context context = new Context(LOCALE, model);
+        return new RenderedEmail(template.subject,
+                engine.process(template.file + ".html", context),
+                engine.process(template.file + ".txt", context));
+    }
+
+    /**
+     * Renders one email per model, for bulk notices that share a template.
+     */
+    public List<RenderedEmail> renderAll(Template template, List<Map<String, Object>> models) {
+        List<RenderedEmail> rendered = new ArrayList<>(models.size());
+        for (Map<String, Object> model : models) {
+            rendered.add(render(template, model));
+        }
+        return rendered;
+    }
 }
@@ -0,0 +1,279 @@
+package com.careconnect.util;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Small image helpers built on javax.imageio: JPEG metadata stripping, EXIF orientation,
+ * downscaling and encoding. Encoded output never carries EXIF or other camera metadata.
+ */
+public final class ImageUtils {
+
+    private static final int MARKER_SOS = 0xDA;
+    private static final int MARKER_EOI = 0xD9;
+    private static final int MARKER_APP1 = 0xE1;   // EXIF, XMP
+    private static final int MARKER_APP13 = 0xED;  // IPTC / Photoshop
+    private static final int MARKER_COM = 0xFE;
+
+    private ImageUtils() {
+    }
+
+    public static boolean isJpeg(byte[] data) {
+        return data != null && data.length > 3
+                && (data[0] & 0xff) == 0xFF && (data[1] & 0xff) == 0xD8;
+    }
+
+    /**
+     * Removes EXIF, XMP, IPTC and comment segments from a JPEG without re-encoding it.
+     * Returns the input unchanged if it is not a well-formed JPEG.
+     */
+    public static byte[] stripJpegMetadata(byte[] jpeg) {
+        if (!isJpeg(jpeg)) {
+            return jpeg;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(jpeg.length);
+        out.write(jpeg, 0, 2);
+        int pos = 2;
+        while (pos + 4 <= jpeg.length) {
+            if ((jpeg[pos] & 0xff) != 0xFF) {
+                break;
+            }
+            int marker = jpeg[pos + 1] & 0xff;
+            if (marker == 0xFF) {
+                pos++;
+                continue;
+            }
+            if (marker == MARKER_SOS || marker == MARKER_EOI) {
+                break;
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                out.write(jpeg, pos, 2);
+                pos += 2;
+                continue;
+            }
+            int end = pos + 2 + (((jpeg[pos + 2] & 0xff) << 8) | (jpeg[pos + 3] & 0xff));
+            if (end > jpeg.length) {
+                break;
+            }
+            if (marker != MARKER_APP1 && marker != MARKER_APP13 && marker != MARKER_COM) {
+                out.write(jpeg, pos, end - pos);
+            }
+            pos = end;
+        }
+        // Entropy-coded data (or anything we could not parse) is copied verbatim
+        out.write(jpeg, pos, jpeg.length - pos);
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads the EXIF orientation tag (1-8) from a JPEG, or 1 if there is none.
+     */
+    public static int readJpegOrientation(byte[] jpeg) {
+        if (!isJpeg(jpeg)) {
+            return 1;
+        }
+        int pos = 2;
+        while (pos + 4 <= jpeg.length && (jpeg[pos] & 0xff) == 0xFF) {
+            int marker = jpeg[pos + 1] & 0xff;
+            if (marker == MARKER_SOS || marker == MARKER_EOI) {
+                break;
+            }
+            int segmentLength = ((jpeg[pos + 2] & 0xff) << 8) | (jpeg[pos + 3] & 0xff);
+            int start = pos + 4;
+            if (marker == MARKER_APP1 && start + 6 <= jpeg.length
+                    && jpeg[start] == 'E' && jpeg[start + 1] == 'x' && jpeg[start + 2] == 'i' && jpeg[start + 3] == 'f') {
+                return readTiffOrientation(jpeg, start + 6, Math.min(jpeg.length, pos + 2 + segmentLength));
+            }
+            pos += 2 + segmentLength;
+        }
+        return 1;
+    }
+
+    /**
+     * Reads the pixel width and height from the image header without decoding the pixels.
+     * Returns null if no reader recognises the format.
+     */
+    public static int[] readDimensions(byte[] data) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return new int[] {reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    public static BufferedImage decode(byte[] data) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+        if (image == null) {
+            throw new IOException("Unsupported image format");
+        }
+        return image;
+    }
+
+    /**
+     * Rotates/flips a decoded image so it displays upright without the EXIF orientation tag.
+     */
+    public static BufferedImage applyOrientation(BufferedImage image, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return image;
+        }
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform t = new AffineTransform();
+        switch (orientation) {
+            case 2 -> { t.translate(w, 0); t.scale(-1, 1); }
+            case 3 -> { t.translate(w, h); t.rotate(Math.PI); }
+            case 4 -> { t.translate(0, h); t.scale(1, -1); }
+            case 5 -> { t.rotate(-Math.PI / 2); t.scale(-1, 1); }
+            case 6 -> { t.translate(h, 0); t.rotate(Math.PI / 2); }
+            case 7 -> { t.translate(h, w); t.rotate(Math.PI / 2); t.scale(-1, 1); }
+            case 8 -> { t.translate(0, w); t.rotate(-Math.PI / 2); }
+            default -> { }
+        }
+        boolean swap = orientation >= 5;
+        BufferedImage out = new BufferedImage(swap ? h : w, swap ? w : h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, out.getWidth(), out.getHeight());
+            g.drawImage(image, t, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    /**
+     * Scales an image down to the given width, keeping its aspect ratio. Images already
+     * narrower are only converted to opaque RGB. Large reductions are done in halving steps,
+     * which keeps bilinear filtering from aliasing.
+     */
+    public static BufferedImage resizeToWidth(BufferedImage image, int width) {
+        BufferedImage current = toRgb(image);
+        int targetWidth = Math.min(width, current.getWidth());
+        int targetHeight = Math.max(1, (int) Math.round((double) current.getHeight() * targetWidth / current.getWidth()));
+
+        while (current.getWidth() / 2 >= targetWidth) {
+            current = scale(current, current.getWidth() / 2,
+                    Math.max(targetHeight, current.getHeight() / 2));
+        }
+        if (current.getWidth() != targetWidth) {
+            current = scale(current, targetWidth, targetHeight);
+        }
+        return current;
+    }
+
+    /**
+     * Encodes an image with the given ImageIO format name; quality applies to lossy formats.
+     */
+    public static byte[] encode(BufferedImage image, String format, float quality) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for format " + format);
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (param.getCompressionType() == null && param.getCompressionTypes() != null) {
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                }
+                param.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    public static boolean canEncode(String format) {
+        return ImageIO.getImageWritersByFormatName(format).hasNext();
+    }
+
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        // JPEG has no alpha; flatten transparency onto white
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, rgb.getWidth(), rgb.getHeight());
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    private static BufferedImage scale(BufferedImage image, int width, int height) {
+        BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    private static int readTiffOrientation(byte[] data, int tiff, int limit) {
+        if (tiff + 8 > limit) {
+            return 1;
+        }
+        boolean littleEndian = data[tiff] == 'I' && data[tiff + 1] == 'I';
+        int ifd = tiff + (int) readUnsigned(data, tiff + 4, 4, littleEndian);
+        if (ifd + 2 > limit || ifd < tiff) {
+            return 1;
+        }
+        int entries = (int) readUnsigned(data, ifd, 2, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > limit) {
+                break;
+            }
+            if (readUnsigned(data, entry, 2, littleEndian) == 0x0112) {
+                int value = (int) readUnsigned(data, entry + 8, 2, littleEndian);
+                return value >= 1 && value <= 8 ? value : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static long readUnsigned(byte[] data, int offset, int length, boolean littleEndian) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int b = data[offset + (littleEndian ? length - 1 - i : i)] & 0xff;
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+}
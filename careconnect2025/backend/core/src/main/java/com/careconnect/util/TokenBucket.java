@@ -0,0 +1,44 @@
+package com.careconnect.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limiter that refills continuously at {@code rate} tokens per second and holds at
+ * most one second's worth, so bursts stay within the limit. Callers sleep outside the lock.
+ */
+public final class TokenBucket {
+
+    private final double rate;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    public TokenBucket(double rate) {
+        this.rate = rate;
+        this.tokens = rate;
+    }
+
+    /**
+     * Blocks until a token is available and takes it.
+     */
+    public void take() {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                tokens = Math.min(rate, tokens + (now - lastRefill) * rate / 1_000_000_000d);
+                lastRefill = now;
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+                waitNanos = (long) ((1 - tokens) * 1_000_000_000d / rate);
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for a rate limit token", e);
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.careconnect.security.JwtTokenProvider;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
@@ -22,6 +23,8 @@ public class CallNotificationHandler extends TextWebSocketHandler {
 
     private final UserRepository userRepository;
     private final JwtTokenProvider jwtTokenProvider;
+    private final NotificationOutbox notificationOutbox;
+    private final PresenceRegistry presenceRegistry;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     // Store active connections: userId -> WebSocketSession
@@ -32,6 +35,7 @@ public class CallNotificationHandler extends TextWebSocketHandler {
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        presenceRegistry.sessionOpened(NotificationOutbox.CHANNEL_CALLS, session);
         log.info("WebSocket connection established: {}", session.getId());
         
         // Send connection confirmation
@@ -45,6 +49,7 @@ public class CallNotificationHandler extends TextWebSocketHandler {
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        presenceRegistry.touch(session);
         try {
             Map<String, Object> payload = objectMapper.readValue(message.getPayload(), Map.class);
             String type = (String) payload.get("type");
@@ -115,6 +120,7 @@ public class CallNotificationHandler extends TextWebSocketHandler {
         // Store user session
         userSessions.put(user.getId().toString(), session);
         sessionUsers.put(session.getId(), user);
+        presenceRegistry.sessionAuthenticated(session, user);
         
         Map<String, Object> response = Map.of(
             "type", "authentication-success",
@@ -125,6 +131,15 @@ public class CallNotificationHandler extends TextWebSocketHandler {
         session.sendMessage(new TextMessage(objectMapper.writeValueAsString(response)));
         
         log.info("User authenticated: {} ({})", user.getEmail(), user.getRole());
+        
+        // Catch the client up on anything queued while it was offline
+        Object lastSeen = payload.get("lastSeenSeq");
+        long lastSeenSeq = lastSeen instanceof Number ? ((Number) lastSeen).longValue() : 0L;
+        Map<String, Object> replay = notificationOutbox.buildReplay(NotificationOutbox.CHANNEL_CALLS, user.getId().toString(), lastSeenSeq);
+        if (replay != null) {
+            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(replay)));
+            log.info("Replayed {} pending notifications to user {}", replay.get("count"), user.getEmail());
+        }
     }
 
     private void handleUserJoin(WebSocketSession session, Map<String, Object> payload) throws Exception {
@@ -356,6 +371,7 @@ public class CallNotificationHandler extends TextWebSocketHandler {
     }
 
     private void handleHeartbeat(WebSocketSession session, Map<String, Object> payload) throws Exception {
+        // Liveness was already recorded by presenceRegistry.touch in handleTextMessage
         Map<String, Object> response = Map.of(
             "type", "heartbeat-response",
             "timestamp", System.currentTimeMillis()
@@ -378,15 +394,28 @@ public class CallNotificationHandler extends TextWebSocketHandler {
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        presenceRegistry.sessionClosed(session);
         User user = sessionUsers.remove(session.getId());
         if (user != null) {
-            userSessions.remove(user.getId().toString());
+            // Only drop the mapping if it still points at this session, not a newer reconnect
+            userSessions.remove(user.getId().toString(), session);
             log.info("WebSocket connection closed for user: {} - Status: {}", user.getEmail(), status);
         } else {
             log.info("WebSocket connection closed: {} - Status: {}", session.getId(), status);
         }
     }
 
+    @EventListener
+    public void onPresenceChanged(PresenceChangedEvent event) {
+        // Sessions evicted by the idle sweeper may never get a close callback on a dead connection
+        if (event.sessionId() == null || !NotificationOutbox.CHANNEL_CALLS.equals(event.channel())) {
+            return;
+        }
+        sessionUsers.remove(event.sessionId());
+        userSessions.computeIfPresent(event.userId(),
+            (userId, session) -> session.getId().equals(event.sessionId()) ? null : session);
+    }
+
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         User user = sessionUsers.get(session.getId());
@@ -395,27 +424,27 @@ public class CallNotificationHandler extends TextWebSocketHandler {
     }
 
     // Public method to send notifications from other services
+    // Undelivered notifications are queued in the outbox and replayed on the next authenticate
     public void sendNotificationToUser(String userId, Map<String, Object> notification) {
+        Map<String, Object> stamped = notificationOutbox.stamp(NotificationOutbox.CHANNEL_CALLS, userId, notification);
         WebSocketSession session = userSessions.get(userId);
         if (session != null && session.isOpen()) {
             try {
-                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(notification)));
+                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(stamped)));
                 log.info("Notification sent to user {}: {}", userId, notification.get("type"));
+                return;
             } catch (Exception e) {
                 log.error("Failed to send notification to user {}", userId, e);
             }
         } else {
             log.warn("User {} not connected for notification: {}", userId, notification.get("type"));
         }
+        notificationOutbox.enqueue(NotificationOutbox.CHANNEL_CALLS, userId, stamped);
     }
 
     // Get online users (for admin/monitoring purposes)
     public Map<String, String> getOnlineUsers() {
-        Map<String, String> onlineUsers = new ConcurrentHashMap<>();
-        sessionUsers.values().forEach(user -> 
-            onlineUsers.put(user.getId().toString(), user.getEmail())
-        );
-        return onlineUsers;
+        return presenceRegistry.getOnlineUsers();
     }
     
     // Additional methods for external service integration
@@ -3,15 +3,19 @@ package com.careconnect.websocket;
 import com.careconnect.model.User;
 import com.careconnect.repository.UserRepository;
 import com.careconnect.security.JwtTokenProvider;
+import com.careconnect.service.CareTeamFanoutService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -22,6 +26,10 @@ public class CareConnectWebSocketHandler extends TextWebSocketHandler {
 
     private final UserRepository userRepository;
     private final JwtTokenProvider jwtTokenProvider;
+    private final NotificationOutbox notificationOutbox;
+    private final PresenceRegistry presenceRegistry;
+    // Resolved lazily: the fan-out service itself depends on this handler
+    private final ObjectProvider<CareTeamFanoutService> careTeamFanoutService;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     // Store active connections: userId -> WebSocketSession
@@ -32,6 +40,7 @@ public class CareConnectWebSocketHandler extends TextWebSocketHandler {
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        presenceRegistry.sessionOpened(NotificationOutbox.CHANNEL_CARECONNECT, session);
         log.info("CareConnect WebSocket connection established: {}", session.getId());
         
         Map<String, Object> response = Map.of(
@@ -44,6 +53,7 @@ public class CareConnectWebSocketHandler extends TextWebSocketHandler {
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        presenceRegistry.touch(session);
         try {
             Map<String, Object> payload = objectMapper.readValue(message.getPayload(), Map.class);
             String type = (String) payload.get("type");
@@ -112,6 +122,7 @@ public class CareConnectWebSocketHandler extends TextWebSocketHandler {
         // Store user session
         userSessions.put(user.getId().toString(), session);
         sessionUsers.put(session.getId(), user);
+        presenceRegistry.sessionAuthenticated(session, user);
         
         Map<String, Object> response = Map.of(
             "type", "authentication-success",
@@ -122,6 +133,15 @@ public class CareConnectWebSocketHandler extends TextWebSocketHandler {
         session.sendMessage(new TextMessage(objectMapper.writeValueAsString(response)));
         
         log.info("CareConnect user authenticated: {} ({})", user.getEmail(), user.getRole());
+        
+        // Catch the client up on anything queued while it was offline
+        Object lastSeen = payload.get("lastSeenSeq");
+        long lastSeenSeq = lastSeen instanceof Number ? ((Number) lastSeen).longValue() : 0L;
+        Map<String, Object> replay = notificationOutbox.buildReplay(NotificationOutbox.CHANNEL_CARECONNECT, user.getId().toString(), lastSeenSeq);
+        if (replay != null) {
+            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(replay)));
+            log.info("Replayed {} pending notifications to user {}", replay.get("count"), user.getEmail());
+        }
     }
 
     private void handleSubscribeToUpdates(WebSocketSession session, Map<String, Object> payload) throws Exception {
@@ -181,18 +201,18 @@ public class CareConnectWebSocketHandler extends TextWebSocketHandler {
         }
         
         // Notify caregivers and family members about mood/pain log updates
-        // This would integrate with your existing family member and caregiver services
-        Map<String, Object> notification = Map.of(
-            "type", "mood-pain-log-updated",
-            "patientId", user.getId(),
-            "patientName", user.getFirstName() + " " + user.getLastName(),
-            "moodValue", payload.get("moodValue"),
-            "painValue", payload.get("painValue"),
-            "timestamp", System.currentTimeMillis()
-        );
+        String patientName = user.getFirstName() + " " + user.getLastName();
+        Map<String, Object> notification = new HashMap<>();
+        notification.put("type", "mood-pain-log-updated");
+        notification.put("patientId", user.getId());
+        notification.put("patientName", patientName);
+        notification.put("moodValue", payload.get("moodValue"));
+        notification.put("painValue", payload.get("painValue"));
+        notification.put("timestamp", System.currentTimeMillis());
         
-        // Here you would get caregivers and family members and notify them
-        log.info("Mood/pain log update from patient: {}", user.getEmail());
+        int recipients = careTeamFanoutService.getObject().fanOut(user.getId(), notification,
+            "Mood/pain update", patientName + " logged a new mood/pain entry");
+        log.info("Mood/pain log update from patient {} sent to {} care team members", user.getEmail(), recipients);
     }
 
     private void handleMedicationReminder(WebSocketSession session, Map<String, Object> payload) throws Exception {
@@ -233,18 +253,21 @@ public class CareConnectWebSocketHandler extends TextWebSocketHandler {
         String alertMessage = (String) payload.get("message");
         String severity = (String) payload.get("severity");
         
-        // This would notify relevant healthcare providers
-        Map<String, Object> alert = Map.of(
-            "type", "vital-signs-alert",
-            "patientId", user.getId(),
-            "patientName", user.getFirstName() + " " + user.getLastName(),
-            "alertType", alertType,
-            "message", alertMessage,
-            "severity", severity,
-            "timestamp", System.currentTimeMillis()
-        );
+        // Notify the patient's caregivers and family members
+        String patientName = user.getFirstName() + " " + user.getLastName();
+        Map<String, Object> alert = new HashMap<>();
+        alert.put("type", "vital-signs-alert");
+        alert.put("patientId", user.getId());
+        alert.put("patientName", patientName);
+        alert.put("alertType", alertType);
+        alert.put("message", alertMessage);
+        alert.put("severity", severity);
+        alert.put("timestamp", System.currentTimeMillis());
         
-        log.info("Vital signs alert from patient {}: {} - {}", user.getEmail(), alertType, severity);
+        int recipients = careTeamFanoutService.getObject().fanOut(user.getId(), alert,
+            "Vital Alert", patientName + ": " + alertMessage);
+        log.info("Vital signs alert from patient {}: {} - {} sent to {} care team members",
+            user.getEmail(), alertType, severity, recipients);
     }
 
     private void handleFamilyMemberRequest(WebSocketSession session, Map<String, Object> payload) throws Exception {
@@ -275,6 +298,7 @@ public class CareConnectWebSocketHandler extends TextWebSocketHandler {
     }
 
     private void handleHeartbeat(WebSocketSession session, Map<String, Object> payload) throws Exception {
+        // Liveness was already recorded by presenceRegistry.touch in handleTextMessage
         Map<String, Object> response = Map.of(
             "type", "heartbeat-response",
             "timestamp", System.currentTimeMillis()
@@ -297,15 +321,28 @@ public class CareConnectWebSocketHandler extends TextWebSocketHandler {
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        presenceRegistry.sessionClosed(session);
         User user = sessionUsers.remove(session.getId());
         if (user != null) {
-            userSessions.remove(user.getId().toString());
+            // Only drop the mapping if it still points at this session, not a newer reconnect
+            userSessions.remove(user.getId().toString(), session);
             log.info("CareConnect WebSocket connection closed for user: {} - Status: {}", user.getEmail(), status);
         } else {
             log.info("CareConnect WebSocket connection closed: {} - Status: {}", session.getId(), status);
         }
     }
 
+    @EventListener
+    public void onPresenceChanged(PresenceChangedEvent event) {
+        // Sessions evicted by the idle sweeper may never get a close callback on a dead connection
+        if (event.sessionId() == null || !NotificationOutbox.CHANNEL_CARECONNECT.equals(event.channel())) {
+            return;
+        }
+        sessionUsers.remove(event.sessionId());
+        userSessions.computeIfPresent(event.userId(),
+            (userId, session) -> session.getId().equals(event.sessionId()) ? null : session);
+    }
+
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         User user = sessionUsers.get(session.getId());
@@ -314,18 +351,22 @@ public class CareConnectWebSocketHandler extends TextWebSocketHandler {
     }
 
     // Public method to send real-time updates from other services
+    // Undelivered updates are queued in the outbox and replayed on the next authenticate
     public void sendRealTimeUpdate(String userId, Map<String, Object> update) {
+        Map<String, Object> stamped = notificationOutbox.stamp(NotificationOutbox.CHANNEL_CARECONNECT, userId, update);
         WebSocketSession session = userSessions.get(userId);
         if (session != null && session.isOpen()) {
             try {
-                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(update)));
+                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(stamped)));
                 log.info("Real-time update sent to user {}: {}", userId, update.get("type"));
+                return;
             } catch (Exception e) {
                 log.error("Failed to send real-time update to user {}", userId, e);
             }
         } else {
             log.debug("User {} not connected for real-time update: {}", userId, update.get("type"));
         }
+        notificationOutbox.enqueue(NotificationOutbox.CHANNEL_CARECONNECT, userId, stamped);
     }
 
     // Broadcast to all connected users (admin feature)
@@ -344,11 +385,11 @@ public class CareConnectWebSocketHandler extends TextWebSocketHandler {
 
     // Get online users count
     public int getOnlineUsersCount() {
-        return userSessions.size();
+        return presenceRegistry.getOnlineUsersCount();
     }
 
     // Check if user is online
     public boolean isUserOnline(String userId) {
-        return userSessions.containsKey(userId) && userSessions.get(userId).isOpen();
+        return presenceRegistry.isUserOnline(userId);
     }
 }
@@ -0,0 +1,270 @@
+package com.careconnect.websocket;
+
+import com.careconnect.model.PendingNotification;
+import com.careconnect.repository.PendingNotificationRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Store-and-forward outbox for real-time notifications.
+ *
+ * Every notification addressed to a user is stamped with a per-user sequence number.
+ * Notifications that cannot be delivered because the user is offline are kept in a
+ * bounded in-memory queue (optionally spilling the oldest entries to the
+ * pending_notifications table) and handed back as a single replay frame when the
+ * user authenticates again with the last sequence number it has seen.
+ */
+@Component
+@Slf4j
+public class NotificationOutbox {
+
+    public static final String CHANNEL_CARECONNECT = "careconnect";
+    public static final String CHANNEL_CALLS = "calls";
+
+    private final PendingNotificationRepository pendingNotificationRepository;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final int capacity;
+    private final boolean persistOverflow;
+    private final Duration retention;
+
+    // channel:userId -> outbox
+    private final Map<String, UserOutbox> outboxes = new ConcurrentHashMap<>();
+
+    public NotificationOutbox(PendingNotificationRepository pendingNotificationRepository,
+                              @Value("${careconnect.websocket.outbox.capacity:100}") int capacity,
+                              @Value("${careconnect.websocket.outbox.persist-overflow:false}") boolean persistOverflow,
+                              @Value("${careconnect.websocket.outbox.retention-hours:24}") long retentionHours) {
+        this.pendingNotificationRepository = pendingNotificationRepository;
+        this.capacity = Math.max(1, capacity);
+        this.persistOverflow = persistOverflow;
+        this.retention = Duration.ofHours(retentionHours);
+    }
+
+    /**
+     * Returns a copy of the notification carrying the next sequence number for the user.
+     */
+    public Map<String, Object> stamp(String channel, String userId, Map<String, Object> notification) {
+        Map<String, Object> stamped = new HashMap<>(notification);
+        stamped.put("seq", outboxFor(channel, userId).nextSequence());
+        return stamped;
+    }
+
+    /**
+     * Holds a stamped notification until the user reconnects.
+     */
+    public void enqueue(String channel, String userId, Map<String, Object> stampedNotification) {
+        UserOutbox outbox = outboxFor(channel, userId);
+        PendingEntry evicted;
+        synchronized (outbox) {
+            outbox.entries.addLast(new PendingEntry(sequenceOf(stampedNotification), Instant.now(), stampedNotification));
+            outbox.lastActivity = Instant.now();
+            evicted = outbox.entries.size() > capacity ? outbox.entries.pollFirst() : null;
+        }
+
+        if (evicted != null) {
+            spill(channel, userId, evicted);
+        }
+        log.debug("Queued {} for offline user {} on channel {}", stampedNotification.get("type"), userId, channel);
+    }
+
+    /**
+     * Builds the replay frame for a reconnecting user, or returns null if nothing is pending.
+     * Pending entries are removed once handed out.
+     */
+    public Map<String, Object> buildReplay(String channel, String userId, long lastSeenSeq) {
+        UserOutbox outbox = outboxes.get(key(channel, userId));
+        if (outbox == null && !persistOverflow) {
+            return null;
+        }
+        if (outbox == null) {
+            outbox = outboxFor(channel, userId);
+        }
+
+        List<Map<String, Object>> notifications = new ArrayList<>();
+        long currentSeq;
+        Instant cutoff = Instant.now().minus(retention);
+        synchronized (outbox) {
+            currentSeq = outbox.sequence;
+            // A cursor ahead of the server means the sequence was reset (e.g. restart without persistence)
+            long cursor = lastSeenSeq > currentSeq ? 0 : lastSeenSeq;
+
+            Long numericUserId = parseUserId(userId);
+            if (persistOverflow && numericUserId != null) {
+                for (PendingNotification pending : pendingNotificationRepository
+                        .findByChannelAndUserIdAndSequenceNumberGreaterThanOrderBySequenceNumberAsc(channel, numericUserId, cursor)) {
+                    if (pending.getCreatedAt().isAfter(cutoff)) {
+                        Map<String, Object> restored = deserialize(pending.getPayload());
+                        if (restored != null) {
+                            notifications.add(restored);
+                        }
+                    }
+                }
+                pendingNotificationRepository.deleteByChannelAndUserId(channel, numericUserId);
+            }
+
+            for (PendingEntry entry : outbox.entries) {
+                if (entry.sequence > cursor && entry.queuedAt.isAfter(cutoff)) {
+                    notifications.add(entry.notification);
+                }
+            }
+            outbox.entries.clear();
+            outbox.lastActivity = Instant.now();
+        }
+
+        if (notifications.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Object> replay = new HashMap<>();
+        replay.put("type", "notification-replay");
+        replay.put("notifications", notifications);
+        replay.put("count", notifications.size());
+        replay.put("lastSeq", currentSeq);
+        replay.put("timestamp", System.currentTimeMillis());
+        return replay;
+    }
+
+    public int getPendingCount(String channel, String userId) {
+        UserOutbox outbox = outboxes.get(key(channel, userId));
+        if (outbox == null) {
+            return 0;
+        }
+        synchronized (outbox) {
+            return outbox.entries.size();
+        }
+    }
+
+    /**
+     * Drops expired notifications and forgets idle, empty outboxes.
+     */
+    @Scheduled(fixedRate = 600000) // Every 10 minutes
+    public void purgeExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        int dropped = 0;
+
+        for (Map.Entry<String, UserOutbox> e : outboxes.entrySet()) {
+            UserOutbox outbox = e.getValue();
+            synchronized (outbox) {
+                while (!outbox.entries.isEmpty() && outbox.entries.peekFirst().queuedAt.isBefore(cutoff)) {
+                    outbox.entries.pollFirst();
+                    dropped++;
+                }
+                if (outbox.entries.isEmpty() && outbox.lastActivity.isBefore(cutoff)) {
+                    outboxes.remove(e.getKey(), outbox);
+                }
+            }
+        }
+
+        if (persistOverflow) {
+            try {
+                dropped += pendingNotificationRepository.deleteCreatedBefore(cutoff);
+            } catch (Exception ex) {
+                log.error("Failed to purge expired pending notifications", ex);
+            }
+        }
+
+        if (dropped > 0) {
+            log.info("Purged {} expired pending notifications", dropped);
+        }
+    }
+
+    private UserOutbox outboxFor(String channel, String userId) {
+        String key = key(channel, userId);
+        UserOutbox outbox = outboxes.get(key);
+        if (outbox != null) {
+            return outbox;
+        }
+
+        // Seed outside computeIfAbsent so the database is not hit while holding the map bin lock
+        long seed = 0;
+        Long numericUserId = parseUserId(userId);
+        if (persistOverflow && numericUserId != null) {
+            try {
+                seed = pendingNotificationRepository.findMaxSequenceNumber(channel, numericUserId);
+            } catch (Exception e) {
+                log.error("Failed to seed outbox sequence for user {} on channel {}", userId, channel, e);
+            }
+        }
+
+        UserOutbox created = new UserOutbox(seed);
+        UserOutbox existing = outboxes.putIfAbsent(key, created);
+        return existing != null ? existing : created;
+    }
+
+    private void spill(String channel, String userId, PendingEntry entry) {
+        Long numericUserId = parseUserId(userId);
+        if (!persistOverflow || numericUserId == null) {
+            log.warn("Outbox full for user {} on channel {}, dropping notification seq {}", userId, channel, entry.sequence);
+            return;
+        }
+        try {
+            pendingNotificationRepository.save(PendingNotification.builder()
+                    .channel(channel)
+                    .userId(numericUserId)
+                    .sequenceNumber(entry.sequence)
+                    .payload(objectMapper.writeValueAsString(entry.notification))
+                    .createdAt(entry.queuedAt)
+                    .build());
+        } catch (Exception e) {
+            log.error("Failed to spill notification seq {} for user {} to database", entry.sequence, userId, e);
+        }
+    }
+
+    private Map<String, Object> deserialize(String payload) {
+        try {
+            return objectMapper.readValue(payload, new TypeReference<Map<String, Object>>() {});
+        } catch (Exception e) {
+            log.error("Failed to read pending notification payload", e);
+            return null;
+        }
+    }
+
+    private static long sequenceOf(Map<String, Object> notification) {
+        Object seq = notification.get("seq");
+        return seq instanceof Number ? ((Number) seq).longValue() : 0L;
+    }
+
+    private static Long parseUserId(String userId) {
+        try {
+            return userId != null ? Long.valueOf(userId) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String key(String channel, String userId) {
+        return channel + ":" + userId;
+    }
+
+    private static final class UserOutbox {
+        private final Deque<PendingEntry> entries = new ArrayDeque<>();
+        private long sequence;
+        private Instant lastActivity = Instant.now();
+
+        private UserOutbox(long sequence) {
+            this.sequence = sequence;
+        }
+
+        private synchronized long nextSequence() {
+            lastActivity = Instant.now();
+            return ++sequence;
+        }
+    }
+
+    private record PendingEntry(long sequence, Instant queuedAt, Map<String, Object> notification) {}
+}
@@ -0,0 +1,15 @@
+package com.careconnect.websocket;
+
+import java.time.Instant;
+
+/**
+ * Published when a user goes from zero to one live WebSocket session or back.
+ * sessionId is set when the transition was caused by the idle sweeper evicting a session.
+ */
+public record PresenceChangedEvent(
+        String userId,
+        boolean online,
+        Instant lastSeen,
+        String channel,
+        String sessionId
+) {}
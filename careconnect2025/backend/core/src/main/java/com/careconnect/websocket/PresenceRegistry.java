@@ -0,0 +1,231 @@
+package com.careconnect.websocket;
+
+import com.careconnect.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks liveness of WebSocket sessions across all endpoints.
+ *
+ * Every inbound frame (heartbeats included) refreshes the session's last-seen time.
+ * A scheduled sweeper closes sessions that have been silent longer than the timeout,
+ * so dead TCP connections no longer linger in the handlers' session maps. Presence
+ * lookups are map reads and the online count is maintained incrementally.
+ */
+@Component
+@Slf4j
+public class PresenceRegistry {
+
+    private static final CloseStatus IDLE_TIMEOUT = CloseStatus.SESSION_NOT_RELIABLE.withReason("Heartbeat timeout");
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration idleTimeout;
+    private final Duration lastSeenRetention;
+
+    // sessionId -> tracked session
+    private final Map<String, TrackedSession> sessions = new ConcurrentHashMap<>();
+
+    // userId -> presence
+    private final Map<String, UserPresence> users = new ConcurrentHashMap<>();
+
+    private final AtomicInteger onlineUsers = new AtomicInteger();
+
+    public PresenceRegistry(ApplicationEventPublisher eventPublisher,
+                            @Value("${careconnect.websocket.presence.timeout-seconds:90}") long timeoutSeconds,
+                            @Value("${careconnect.websocket.presence.last-seen-retention-hours:24}") long lastSeenRetentionHours) {
+        this.eventPublisher = eventPublisher;
+        this.idleTimeout = Duration.ofSeconds(timeoutSeconds);
+        this.lastSeenRetention = Duration.ofHours(lastSeenRetentionHours);
+    }
+
+    public void sessionOpened(String channel, WebSocketSession session) {
+        sessions.put(session.getId(), new TrackedSession(channel, session));
+    }
+
+    public void sessionAuthenticated(WebSocketSession session, User user) {
+        TrackedSession tracked = sessions.get(session.getId());
+        if (tracked == null) {
+            return;
+        }
+
+        String userId = user.getId().toString();
+        String previousUserId;
+        synchronized (tracked) {
+            previousUserId = tracked.userId;
+            if (userId.equals(previousUserId)) {
+                tracked.touch();
+                return;
+            }
+            tracked.userId = userId;
+            tracked.touch();
+        }
+
+        if (previousUserId != null) {
+            release(previousUserId, tracked.channel, null);
+        }
+
+        UserPresence presence = users.computeIfAbsent(userId, id -> new UserPresence());
+        boolean cameOnline;
+        synchronized (presence) {
+            presence.email = user.getEmail();
+            presence.lastSeen = Instant.now();
+            cameOnline = presence.liveSessions++ == 0;
+        }
+        if (cameOnline) {
+            onlineUsers.incrementAndGet();
+            publish(userId, true, presence.lastSeen, tracked.channel, null);
+        }
+    }
+
+    /**
+     * Records activity on a session. Called for every inbound frame, heartbeats included.
+     */
+    public void touch(WebSocketSession session) {
+        TrackedSession tracked = sessions.get(session.getId());
+        if (tracked == null) {
+            return;
+        }
+        tracked.touch();
+
+        String userId = tracked.userId;
+        if (userId != null) {
+            UserPresence presence = users.get(userId);
+            if (presence != null) {
+                presence.lastSeen = Instant.now();
+            }
+        }
+    }
+
+    public void sessionClosed(WebSocketSession session) {
+        TrackedSession tracked = sessions.remove(session.getId());
+        if (tracked != null && tracked.userId != null) {
+            release(tracked.userId, tracked.channel, null);
+        }
+    }
+
+    public boolean isUserOnline(String userId) {
+        UserPresence presence = users.get(userId);
+        return presence != null && presence.liveSessions > 0;
+    }
+
+    public int getOnlineUsersCount() {
+        return onlineUsers.get();
+    }
+
+    public Instant getLastSeen(String userId) {
+        UserPresence presence = users.get(userId);
+        return presence != null ? presence.lastSeen : null;
+    }
+
+    /**
+     * userId -> email for every user with at least one live session
+     */
+    public Map<String, String> getOnlineUsers() {
+        Map<String, String> online = new HashMap<>();
+        users.forEach((userId, presence) -> {
+            if (presence.liveSessions > 0) {
+                online.put(userId, presence.email);
+            }
+        });
+        return online;
+    }
+
+    /**
+     * Closes sessions that missed their heartbeats and forgets last-seen data for users
+     * that have been offline longer than the retention window.
+     */
+    @Scheduled(fixedDelayString = "${careconnect.websocket.presence.sweep-interval-ms:30000}")
+    public void evictIdleSessions() {
+        Instant now = Instant.now();
+        long idleCutoff = now.minus(idleTimeout).toEpochMilli();
+        int evicted = 0;
+
+        for (TrackedSession tracked : sessions.values()) {
+            if (tracked.lastActivity >= idleCutoff && tracked.session.isOpen()) {
+                continue;
+            }
+            if (!sessions.remove(tracked.session.getId(), tracked)) {
+                continue;
+            }
+            evicted++;
+            try {
+                tracked.session.close(IDLE_TIMEOUT);
+            } catch (Exception e) {
+                log.debug("Error closing idle WebSocket session {}", tracked.session.getId(), e);
+            }
+            if (tracked.userId != null) {
+                release(tracked.userId, tracked.channel, tracked.session.getId());
+            }
+        }
+
+        Instant retentionCutoff = now.minus(lastSeenRetention);
+        users.entrySet().removeIf(e -> e.getValue().liveSessions == 0 && e.getValue().lastSeen.isBefore(retentionCutoff));
+
+        if (evicted > 0) {
+            log.info("Evicted {} idle WebSocket sessions, {} users online", evicted, onlineUsers.get());
+        }
+    }
+
+    private void release(String userId, String channel, String evictedSessionId) {
+        UserPresence presence = users.get(userId);
+        if (presence == null) {
+            return;
+        }
+        boolean wentOffline;
+        synchronized (presence) {
+            if (presence.liveSessions == 0) {
+                return;
+            }
+            presence.lastSeen = Instant.now();
+            wentOffline = --presence.liveSessions == 0;
+        }
+        if (wentOffline) {
+            onlineUsers.decrementAndGet();
+        }
+        if (wentOffline || evictedSessionId != null) {
+            publish(userId, !wentOffline, presence.lastSeen, channel, evictedSessionId);
+        }
+    }
+
+    private void publish(String userId, boolean online, Instant lastSeen, String channel, String sessionId) {
+        try {
+            eventPublisher.publishEvent(new PresenceChangedEvent(userId, online, lastSeen, channel, sessionId));
+        } catch (Exception e) {
+            log.error("Failed to publish presence change for user {}", userId, e);
+        }
+    }
+
+    private static final class TrackedSession {
+        private final String channel;
+        private final WebSocketSession session;
+        private volatile String userId;
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        private TrackedSession(String channel, WebSocketSession session) {
+            this.channel = channel;
+            this.session = session;
+        }
+
+        private void touch() {
+            lastActivity = System.currentTimeMillis();
+        }
+    }
+
+    private static final class UserPresence {
+        private volatile String email;
+        private volatile int liveSessions;
+        private volatile Instant lastSeen = Instant.now();
+    }
+}
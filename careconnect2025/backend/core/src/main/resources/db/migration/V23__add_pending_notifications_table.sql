@@ -0,0 +1,13 @@
+-- V23: Durable spill area for undelivered WebSocket notifications
+CREATE TABLE pending_notifications (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    channel VARCHAR(32) NOT NULL,
+    user_id BIGINT NOT NULL,
+    sequence_number BIGINT NOT NULL,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    INDEX idx_pending_channel_user_seq (channel, user_id, sequence_number),
+    INDEX idx_pending_created_at (created_at)
+);
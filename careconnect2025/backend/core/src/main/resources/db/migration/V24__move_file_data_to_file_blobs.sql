@@ -0,0 +1,49 @@
+-- V24: Move file content out of user_files so metadata queries never read BLOBs
+
+-- user_files was previously only created by Hibernate; make sure it exists in its pre-V24 shape
+CREATE TABLE IF NOT EXISTS user_files (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    filename VARCHAR(255) NOT NULL,
+    original_filename VARCHAR(255) NOT NULL,
+    content_type VARCHAR(255),
+    file_size BIGINT,
+    file_data LONGBLOB,
+    owner_id BIGINT NOT NULL,
+    owner_type VARCHAR(32) NOT NULL,
+    file_category VARCHAR(32) NOT NULL,
+    patient_id BIGINT,
+    storage_type VARCHAR(16) NOT NULL,
+    s3_path VARCHAR(255),
+    description VARCHAR(255),
+    uploaded_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6),
+    is_active BOOLEAN NOT NULL DEFAULT TRUE
+);
+
+CREATE TABLE file_blobs (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    data LONGBLOB NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    source_file_id BIGINT NULL,
+
+    INDEX idx_file_blobs_source (source_file_id)
+);
+
+ALTER TABLE user_files ADD COLUMN blob_id BIGINT NULL;
+
+INSERT INTO file_blobs (data, size_bytes, created_at, source_file_id)
+SELECT file_data, OCTET_LENGTH(file_data), uploaded_at, id
+FROM user_files
+WHERE file_data IS NOT NULL AND OCTET_LENGTH(file_data) > 0;
+
+UPDATE user_files f
+JOIN file_blobs b ON b.source_file_id = f.id
+SET f.blob_id = b.id;
+
+ALTER TABLE file_blobs DROP INDEX idx_file_blobs_source, DROP COLUMN source_file_id;
+ALTER TABLE user_files DROP COLUMN file_data;
+
+CREATE INDEX idx_user_files_blob ON user_files (blob_id);
+CREATE INDEX idx_user_files_owner ON user_files (owner_id, owner_type, file_category, is_active);
+CREATE INDEX idx_user_files_patient ON user_files (patient_id, is_active);
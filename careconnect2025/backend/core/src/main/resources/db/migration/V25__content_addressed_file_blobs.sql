@@ -0,0 +1,25 @@
+-- V25: Content-address file blobs so identical uploads share one reference-counted copy
+ALTER TABLE file_blobs
+    ADD COLUMN sha256 CHAR(64) NULL,
+    ADD COLUMN ref_count INT NOT NULL DEFAULT 1;
+
+UPDATE file_blobs SET sha256 = SHA2(data, 256);
+
+-- Collapse existing duplicates onto the oldest copy
+UPDATE user_files f
+JOIN file_blobs b ON b.id = f.blob_id
+JOIN (SELECT sha256, MIN(id) AS keep_id FROM file_blobs GROUP BY sha256) k ON k.sha256 = b.sha256
+SET f.blob_id = k.keep_id;
+
+DELETE b FROM file_blobs b
+JOIN (SELECT sha256, MIN(id) AS keep_id FROM file_blobs GROUP BY sha256) k ON k.sha256 = b.sha256
+WHERE b.id <> k.keep_id;
+
+UPDATE file_blobs b
+SET b.ref_count = (SELECT COUNT(*) FROM user_files f WHERE f.blob_id = b.id);
+
+ALTER TABLE file_blobs
+    MODIFY COLUMN sha256 CHAR(64) NOT NULL,
+    ADD UNIQUE KEY uk_file_blobs_sha256 (sha256);
+
+CREATE INDEX idx_user_files_s3_path ON user_files (s3_path);
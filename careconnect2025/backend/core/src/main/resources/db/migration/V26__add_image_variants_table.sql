@@ -0,0 +1,16 @@
+-- V26: Resized renditions of uploaded images (thumbnails, avatars)
+CREATE TABLE image_variants (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    file_id BIGINT NOT NULL,
+    width INT NOT NULL,
+    height INT NOT NULL,
+    content_type VARCHAR(64) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    storage_type VARCHAR(16) NOT NULL,
+    blob_id BIGINT NULL,
+    s3_path VARCHAR(255) NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    FOREIGN KEY (file_id) REFERENCES user_files(id) ON DELETE CASCADE,
+    UNIQUE KEY uk_image_variants_file_width (file_id, width)
+);
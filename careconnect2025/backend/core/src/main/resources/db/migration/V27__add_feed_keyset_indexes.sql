@@ -0,0 +1,8 @@
+-- V27: Indexes backing keyset-paginated feeds, batched comment loading and friend lookups
+CREATE INDEX idx_posts_created_id ON posts (created_at, id);
+CREATE INDEX idx_posts_user_created_id ON posts (user_id, created_at, id);
+
+CREATE INDEX idx_comment_post_created_id ON comment (post_id, created_at, id);
+
+CREATE INDEX idx_friend_request_from_status ON friend_request (from_user_id, status);
+CREATE INDEX idx_friend_request_to_status ON friend_request (to_user_id, status);
@@ -0,0 +1,19 @@
+-- V28: Symmetric friendship adjacency table, one row per direction
+CREATE TABLE friendships (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    friend_id BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    UNIQUE KEY uk_friendships_user_friend (user_id, friend_id),
+    INDEX idx_friendships_friend (friend_id)
+);
+
+-- Backfill from accepted requests in both directions; UNION drops pairs accepted twice
+INSERT INTO friendships (user_id, friend_id, created_at)
+SELECT user_id, friend_id, NOW() FROM (
+    SELECT from_user_id AS user_id, to_user_id AS friend_id FROM friend_request WHERE status = 'accepted'
+    UNION
+    SELECT to_user_id AS user_id, from_user_id AS friend_id FROM friend_request WHERE status = 'accepted'
+) accepted
+WHERE user_id <> friend_id;
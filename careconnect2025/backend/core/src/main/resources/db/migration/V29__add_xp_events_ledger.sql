@@ -0,0 +1,32 @@
+-- V29: Append-only XP ledger; xp_progress becomes its per-user aggregate
+CREATE TABLE xp_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    event_name VARCHAR(100) NOT NULL,
+    xp_points INT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    INDEX idx_xp_events_user_created (user_id, created_at),
+    INDEX idx_xp_events_created (created_at)
+);
+
+-- Concurrent first awards could create two progress rows for a user; merge them into the oldest
+UPDATE xp_progress p
+JOIN (
+    SELECT user_id, MIN(id) AS keep_id, SUM(xp) AS total
+    FROM xp_progress GROUP BY user_id HAVING COUNT(*) > 1
+) dup ON p.id = dup.keep_id
+SET p.xp = dup.total, p.level = FLOOR(dup.total / 100) + 1;
+
+DELETE p FROM xp_progress p
+JOIN (SELECT user_id, MIN(id) AS keep_id FROM xp_progress GROUP BY user_id) keep
+  ON p.user_id = keep.user_id AND p.id <> keep.keep_id;
+
+-- The atomic upsert relies on one row per user
+ALTER TABLE xp_progress ADD UNIQUE KEY uk_xp_progress_user (user_id);
+
+-- Opening balances, so each user's ledger sums to their current total
+INSERT INTO xp_events (user_id, event_name, xp_points, created_at)
+SELECT user_id, 'opening_balance', xp, COALESCE(updated_at, NOW())
+FROM xp_progress
+WHERE xp <> 0;
@@ -0,0 +1,11 @@
+-- V30: Per-user progress towards achievement rules (counts and streaks)
+CREATE TABLE achievement_progress (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    rule_key VARCHAR(64) NOT NULL,
+    counter INT NOT NULL DEFAULT 0,
+    last_day INT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    UNIQUE KEY uk_achievement_progress_user_rule (user_id, rule_key)
+);
@@ -0,0 +1,9 @@
+-- V31: Stripe-side subscription state mirrored locally so reads need no Stripe calls
+ALTER TABLE subscriptions
+    ADD COLUMN stripe_status VARCHAR(32) NULL,
+    ADD COLUMN cancel_at_period_end BOOLEAN NULL,
+    ADD COLUMN stripe_synced_at TIMESTAMP NULL,
+    ADD COLUMN stripe_updated_at BIGINT NULL;
+
+-- Reconciliation visits the least recently synced rows first
+CREATE INDEX idx_subscriptions_stripe_synced_at ON subscriptions (stripe_synced_at);
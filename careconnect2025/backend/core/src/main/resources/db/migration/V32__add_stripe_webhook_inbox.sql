@@ -0,0 +1,19 @@
+-- V32: Inbox of verified Stripe webhooks, processed asynchronously and at most once per event id
+CREATE TABLE stripe_webhook_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_id VARCHAR(255) NOT NULL,
+    event_type VARCHAR(100) NOT NULL,
+    customer_id VARCHAR(255) NULL,
+    stripe_created BIGINT NOT NULL,
+    payload MEDIUMTEXT NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error VARCHAR(1000) NULL,
+    received_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP NULL,
+
+    UNIQUE KEY uk_stripe_webhook_events_event_id (event_id),
+    INDEX idx_stripe_webhook_events_due (status, next_attempt_at),
+    INDEX idx_stripe_webhook_events_customer (customer_id, status, stripe_created)
+);
@@ -0,0 +1,18 @@
+-- V33: Outbox of emails written with the triggering change and delivered by a background worker
+CREATE TABLE email_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(500) NOT NULL,
+    html_content MEDIUMTEXT NULL,
+    text_content MEDIUMTEXT NULL,
+    status VARCHAR(16) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_provider VARCHAR(32) NULL,
+    last_error VARCHAR(1000) NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP NULL,
+
+    INDEX idx_email_outbox_due (status, next_attempt_at),
+    INDEX idx_email_outbox_sent (status, sent_at)
+);
@@ -0,0 +1,6 @@
+-- V34: Range indexes for link expiry and a marker for "expiring soon" reminders
+ALTER TABLE caregiver_patient_link ADD COLUMN expiry_reminder_sent_at TIMESTAMP NULL;
+ALTER TABLE family_member_link ADD COLUMN expiry_reminder_sent_at TIMESTAMP NULL;
+
+CREATE INDEX idx_caregiver_patient_link_status_expires ON caregiver_patient_link (status, expires_at);
+CREATE INDEX idx_family_member_link_status_expires ON family_member_link (status, expires_at);
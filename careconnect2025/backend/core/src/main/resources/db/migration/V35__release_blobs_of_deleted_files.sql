@@ -0,0 +1,13 @@
+-- V35: Soft-deleted files no longer hold blob references, for themselves or their image variants;
+-- reclaim the ones they kept. Blobs are shared by user_files and image_variants, so both count.
+UPDATE user_files SET blob_id = NULL WHERE is_active = FALSE AND blob_id IS NOT NULL;
+
+DELETE v FROM image_variants v
+JOIN user_files f ON f.id = v.file_id
+WHERE f.is_active = FALSE;
+
+UPDATE file_blobs b
+SET b.ref_count = (SELECT COUNT(*) FROM user_files f WHERE f.blob_id = b.id)
+                + (SELECT COUNT(*) FROM image_variants v WHERE v.blob_id = b.id);
+
+DELETE FROM file_blobs WHERE ref_count <= 0;
@@ -0,0 +1,2 @@
+-- V36: Dead outbox emails no longer keep their bodies (they can hold temporary passwords)
+UPDATE email_outbox SET html_content = NULL, text_content = NULL WHERE status = 'DEAD';